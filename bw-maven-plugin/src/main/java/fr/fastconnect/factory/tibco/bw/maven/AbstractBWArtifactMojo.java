@@ -17,11 +17,15 @@
 package fr.fastconnect.factory.tibco.bw.maven;
 
 import java.io.File;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProjectHelper;
 
+import fr.fastconnect.factory.tibco.bw.maven.compile.ZipArchiveWriter;
+
 import javax.inject.Inject;
 
 /**
@@ -40,6 +44,9 @@ import javax.inject.Inject;
 public abstract class AbstractBWArtifactMojo extends AbstractBWMojo {
 
     protected final static String WARN_NO_ARTIFACT_ATTACHED  = "Could not attach artifact.";
+    protected final static String INVALID_OUTPUT_TIMESTAMP = "Invalid 'project.build.outputTimestamp': ";
+
+    private final static long DEFAULT_OUTPUT_TIMESTAMP = 946684800000L; // 2000-01-01T00:00:00Z
 
     /**
      * Whether to skip the compilation of EAR <b>and</b> Projlib.<br /><br />
@@ -116,6 +123,44 @@ public abstract class AbstractBWArtifactMojo extends AbstractBWMojo {
     @Parameter(property = "project.build.classifier")
     protected String classifier;
 
+    /**
+     * Number of threads used to compress the entries of the EAR, "lib.zip"
+     * and PAR archives. Default (0) uses the number of available processors.
+     */
+    @Parameter(property = "bw.archive.compression.threads", defaultValue = "0")
+    protected Integer compressionThreads;
+
+    /**
+     * Deflate level of the entries of the EAR, "lib.zip" and PAR archives,
+     * from 0 (no compression) to 9 (best compression). Default (-1) uses the
+     * default level of the JDK.
+     */
+    @Parameter(property = "bw.archive.compression.level", defaultValue = "-1")
+    protected Integer compressionLevel;
+
+    /**
+     * Whether to produce reproducible EARs: entries sorted by name, fixed
+     * timestamps (see <i>project.build.outputTimestamp</i>) and permissions,
+     * normalized "TIBCO.xml" descriptors.
+     */
+    @Parameter(property = "bw.reproducible", defaultValue = "false")
+    protected Boolean reproducible;
+
+    /**
+     * Timestamp of the entries of reproducible archives, either as an ISO-8601
+     * date-time or as a number of seconds since epoch. Default is
+     * 2000-01-01T00:00:00Z.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    protected String outputTimestamp;
+
+    /**
+     * Value of the <i>owner</i> field of the "TIBCO.xml" descriptors of
+     * reproducible EARs.
+     */
+    @Parameter(property = "bw.reproducible.owner", defaultValue = "")
+    protected String reproducibleOwner;
+
     @Inject
     private MavenProjectHelper projectHelper;
 
@@ -129,6 +174,39 @@ public abstract class AbstractBWArtifactMojo extends AbstractBWMojo {
     }
 
 
+    /**
+     * @return a writer for the archives of the build, in reproducible mode if
+     * <i>reproducible</i> is set
+     * @throws MojoExecutionException
+     */
+    protected ZipArchiveWriter createZipArchiveWriter() throws MojoExecutionException {
+        ZipArchiveWriter writer;
+        try {
+            writer = new ZipArchiveWriter(compressionThreads, compressionLevel);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        if (reproducible) {
+            writer.setReproducibleTime(getOutputTimestamp());
+        }
+        return writer;
+    }
+
+    private long getOutputTimestamp() throws MojoExecutionException {
+        if (outputTimestamp == null || outputTimestamp.trim().length() < 2) { // a single character disables it in Maven
+            return DEFAULT_OUTPUT_TIMESTAMP;
+        }
+        String timestamp = outputTimestamp.trim();
+        try {
+            if (timestamp.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(timestamp) * 1000;
+            }
+            return OffsetDateTime.parse(timestamp).toInstant().toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new MojoExecutionException(INVALID_OUTPUT_TIMESTAMP + outputTimestamp, e);
+        }
+    }
+
     /**
      * Retrieves the full path of the artifact that will be created.
      * 
@@ -1063,8 +1063,22 @@ public class AbstractBWMojo extends AbstractMojo {
 	 * @throws MojoExecutionException
 	 */
 	protected int launchTIBCOBinary(File binary, List<File> tras, ArrayList<String> arguments, File workingDir, String errorMsg, boolean fork, boolean synchronous) throws IOException, MojoExecutionException {
-		Integer result = 0;
-		
+		prepareTRAs(binary, tras);
+
+		return executeTIBCOBinary(binary, arguments, workingDir, errorMsg, fork, synchronous);
+	}
+
+	/**
+	 * This copies the TRA files of a TIBCO binary in the build directory,
+	 * where they are customized. It must not run while the binary is launched
+	 * by another thread, since the copies are shared.
+	 * 
+	 * @param binary, the TIBCO binary file to execute
+	 * @param tras, the TRA files associated with the TIBCO binary
+	 * 
+	 * @throws IOException
+	 */
+	protected void prepareTRAs(File binary, List<File> tras) throws IOException {
 		if (tras == null) { // no value specified as Mojo parameter, we use the .tra in the same directory as the binary
 			String traPathFileName = binary.getAbsolutePath();
 			traPathFileName = FilenameUtils.removeExtension(traPathFileName);
@@ -1105,6 +1119,23 @@ public class AbstractBWMojo extends AbstractMojo {
 				out.close();
 			}
 		}
+	}
+
+	/**
+	 * This calls a TIBCO binary whose TRA files are already prepared (see
+	 * {@link #prepareTRAs(File, List)}).
+	 * 
+	 * @param binary, the TIBCO binary file to execute
+	 * @param arguments, command-line arguments
+	 * @param workingDir, working directory from where the binary is launched
+	 * @param errorMsg, error message to display in case of a failure
+	 * @param fork, if true the chiild process will be detached from the caller
+	 * 
+	 * @throws IOException
+	 * @throws MojoExecutionException
+	 */
+	protected int executeTIBCOBinary(File binary, ArrayList<String> arguments, File workingDir, String errorMsg, boolean fork, boolean synchronous) throws IOException, MojoExecutionException {
+		Integer result = 0;
 
 		CommandLine cmdLine = new CommandLine(binary);
 
@@ -17,6 +17,7 @@
 package fr.fastconnect.factory.tibco.bw.maven.builtin;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -32,7 +33,7 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWMojo;
-import fr.fastconnect.factory.tibco.bw.maven.compile.ArchiveBuilder;
+import fr.fastconnect.factory.tibco.bw.maven.compile.ArchiveMerger;
 import fr.fastconnect.factory.tibco.bw.maven.source.POMManager;
 
 import javax.inject.Inject;
@@ -200,7 +201,7 @@ public class CopyBWSourcesMojo extends AbstractWrapperForBuiltinMojo<Resource> {
 			getLog().debug(".archive: " + bwProjectArchiveMerged.getAbsolutePath());
 
 			// create an empty Archive Builder (".archive" file)
-			ArchiveBuilder mergedArchiveBuilder = new ArchiveBuilder();
+			ArchiveMerger mergedArchiveBuilder = new ArchiveMerger();
 			
 			List<MavenProject> projectsToAggregate = new ArrayList<MavenProject>();
 			
@@ -244,7 +245,11 @@ public class CopyBWSourcesMojo extends AbstractWrapperForBuiltinMojo<Resource> {
 						getLog().debug(bwProjectArchive.getAbsolutePath());
 						//
 						
-						mergedArchiveBuilder.merge(bwProjectArchive);
+						try {
+							mergedArchiveBuilder.merge(bwProjectArchive);
+						} catch (IOException e) {
+							throw new IllegalStateException(e.getMessage(), e);
+						}
 	
 						// add sources from the project to the container sources
 						File srcDirectory = new File(basedir + File.separator + bwProjectLocation);
@@ -257,8 +262,11 @@ public class CopyBWSourcesMojo extends AbstractWrapperForBuiltinMojo<Resource> {
 				mergedArchiveBuilder.setEnterpriseArchiveFileLocationProperty(this.getProject().getArtifactId() + AbstractBWMojo.BWEAR_EXTENSION);
 				mergedArchiveBuilder.setEnterpriseArchiveName(enterpriseArchiveName);
 				mergedArchiveBuilder.setFirstProcessArchiveName(processArchiveName);
-				mergedArchiveBuilder.removeDuplicateProcesses();
-				mergedArchiveBuilder.save(bwProjectArchiveMerged);
+				try {
+					mergedArchiveBuilder.save(bwProjectArchiveMerged); // processes are merged without duplicates
+				} catch (IOException e) {
+					throw new IllegalStateException(e.getMessage(), e);
+				}
 			}
 		}
 
@@ -0,0 +1,189 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import fr.fastconnect.factory.tibco.bw.maven.AbstractBWArtifactMojo;
+import fr.fastconnect.factory.tibco.bw.maven.compile.EARClassIndex.ClassLocation;
+
+/**
+ * <p>
+ * This goal analyzes the JARs packed inside the TIBCO BusinessWorks EAR (in
+ * "lib.zip", in PARs and SARs, in projlibs) and reports:
+ * </p>
+ * <ul>
+ * <li>the byte-identical JARs packed several times</li>
+ * <li>the classes found identical in several JARs (duplicates)</li>
+ * <li>the classes found with different contents in several JARs (conflicts)</li>
+ * </ul>
+ * <p>
+ * Byte-identical JARs can be removed from "lib.zip" with the
+ * <i>removeDuplicateJARs</i> parameter of the
+ * "include-dependencies-in-bw-ear" goal.
+ * </p>
+ *
+ * @see IncludeDependenciesInEARMojo
+ */
+@Mojo( name="analyze-bw-ear",
+        defaultPhase=LifecyclePhase.PACKAGE )
+public class AnalyzeEARMojo extends AbstractBWArtifactMojo {
+
+    protected final static String ANALYZING_EAR = "Analyzing the JARs of the EAR: ";
+    protected final static String ANALYZE_EAR_FAILED = "Unable to analyze the EAR.";
+    protected final static String CLASS_CONFLICTS_FOUND = "Conflicting classes found in the EAR, see the report: ";
+
+    /**
+     * Number of threads used to scan the JARs. Default (0) uses the number of
+     * available processors.
+     */
+    @Parameter (property="bw.ear.analysis.threads", defaultValue="0")
+    public Integer analysisThreads;
+
+    /**
+     * The file where the analysis report is written.
+     */
+    @Parameter (property="bw.ear.analysis.report", defaultValue="${project.build.directory}/ear-analysis.txt")
+    public File analysisReport;
+
+    /**
+     * Whether to fail the build when a class is found with different contents
+     * in several JARs.
+     */
+    @Parameter (property="bw.ear.analysis.failOnConflict", defaultValue="false")
+    public Boolean failOnClassConflict;
+
+    @Override
+    protected String getArtifactFileExtension() {
+        return BWEAR_EXTENSION;
+    }
+
+    public void execute() throws MojoExecutionException {
+        if (skipCompile || skipEARCompile) {
+            getLog().info(SKIPPING);
+            return;
+        }
+
+        super.execute();
+
+        File ear = getProject().getArtifact().getFile();
+        if (ear == null) {
+            ear = getOutputFile();
+        }
+        getLog().info(ANALYZING_EAR + ear.getAbsolutePath());
+
+        EARClassIndex index;
+        List<String> report;
+        try {
+            index = EARClassIndex.build(ear.getName(), Files.readAllBytes(ear.toPath()), analysisThreads);
+            report = report(index);
+            analysisReport.getParentFile().mkdirs();
+            Files.write(analysisReport.toPath(), report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MojoExecutionException(ANALYZE_EAR_FAILED, e);
+        }
+
+        Map<String, List<ClassLocation>> conflicts = index.getConflictingClasses();
+        getLog().info("JARs: " + index.getJARs().size()
+                + ", identical JARs: " + countDuplicates(index.getIdenticalJARs())
+                + ", duplicate classes: " + index.getDuplicateClasses().size()
+                + ", conflicting classes: " + conflicts.size());
+        for (String line : summary(conflicts)) {
+            getLog().warn(line);
+        }
+
+        if (failOnClassConflict && !conflicts.isEmpty()) {
+            throw new MojoExecutionException(CLASS_CONFLICTS_FOUND + analysisReport.getAbsolutePath());
+        }
+    }
+
+    private int countDuplicates(Map<String, List<String>> identicalJARs) {
+        int result = 0;
+        for (List<String> locations : identicalJARs.values()) {
+            result += locations.size() - 1;
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Summarizes the conflicting classes by set of JARs.
+     * </p>
+     */
+    private List<String> summary(Map<String, List<ClassLocation>> conflicts) {
+        Map<Set<String>, Integer> classesByJARs = new TreeMap<>((a, b) -> a.toString().compareTo(b.toString()));
+        for (List<ClassLocation> locations : conflicts.values()) {
+            Set<String> jars = new LinkedHashSet<>();
+            for (ClassLocation location : locations) {
+                jars.add(location.getJar());
+            }
+            classesByJARs.merge(jars, 1, Integer::sum);
+        }
+
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<Set<String>, Integer> entry : classesByJARs.entrySet()) {
+            result.add(entry.getValue() + " conflicting class(es) in " + String.join(", ", entry.getKey()));
+        }
+        return result;
+    }
+
+    private List<String> report(EARClassIndex index) {
+        List<String> result = new ArrayList<>();
+
+        result.add("# Identical JARs");
+        for (Map.Entry<String, List<String>> entry : index.getIdenticalJARs().entrySet()) {
+            result.add(entry.getKey());
+            for (String location : entry.getValue()) {
+                result.add("    " + location);
+            }
+        }
+
+        result.add("");
+        result.add("# Conflicting classes");
+        appendClasses(result, index.getConflictingClasses());
+
+        result.add("");
+        result.add("# Duplicate classes");
+        appendClasses(result, index.getDuplicateClasses());
+
+        return result;
+    }
+
+    private void appendClasses(List<String> result, Map<String, List<ClassLocation>> classes) {
+        for (Map.Entry<String, List<ClassLocation>> entry : classes.entrySet()) {
+            result.add(entry.getKey());
+            for (ClassLocation location : entry.getValue()) {
+                result.add("    " + location.getJar() + " (crc=" + Long.toHexString(location.getCrc()) + ", size=" + location.getSize() + ")");
+            }
+        }
+    }
+
+}
@@ -21,10 +21,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.commons.lang3.StringUtils;
@@ -37,6 +34,7 @@ import org.w3c.dom.NodeList;
 
 import fr.fastconnect.factory.tibco.bw.maven.compile.repository.ObjectFactory;
 import fr.fastconnect.factory.tibco.bw.maven.compile.repository.Repository;
+import fr.fastconnect.factory.tibco.bw.maven.jaxb.JAXBContextRegistry;
 
 /**
  * <p>
@@ -44,9 +42,12 @@ import fr.fastconnect.factory.tibco.bw.maven.compile.repository.Repository;
  * TIBCO Designer.
  * </p>
  * 
+ * @deprecated the merge of ".archive" files is done by {@link ArchiveMerger}
+ * which streams the files instead of loading them as DOM trees
  * @author Mathieu Debove
  *
  */
+@Deprecated
 public class ArchiveBuilder {
 
 	private Repository repository;
@@ -93,9 +94,7 @@ public class ArchiveBuilder {
 
 	private Repository load(File f) {
 		try {
-			JAXBContext jaxbContext = JAXBContext.newInstance(ObjectFactory.class);
-			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-			Object o =  jaxbUnmarshaller.unmarshal(f);
+			Object o = JAXBContextRegistry.unmarshal(f, ObjectFactory.class);
 			return (Repository) o;
 		} catch (JAXBException e) {
 			e.printStackTrace();
@@ -105,10 +104,7 @@ public class ArchiveBuilder {
 
 	public void save(File f) {
 		try {
-			JAXBContext jaxbContext = JAXBContext.newInstance(ObjectFactory.class);
-			Marshaller m = jaxbContext.createMarshaller();
-			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);		
-			m.marshal(this.repository, f);
+			JAXBContextRegistry.marshal(this.repository, f, ObjectFactory.class);
 		} catch (JAXBException e) {
 			e.printStackTrace();
 		}
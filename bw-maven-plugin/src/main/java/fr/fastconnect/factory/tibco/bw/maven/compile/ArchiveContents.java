@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+/**
+ * <p>
+ * The in-memory contents of a ZIP archive (EAR, "lib.zip", PAR...): its
+ * directories and its files in the order of the central directory.
+ * </p>
+ *
+ * @see ZipArchiveWriter
+ */
+final class ArchiveContents {
+
+    private static final String TIBCO_XML = "TIBCO.xml";
+    private static final String[] NESTED_ARCHIVE_EXTENSIONS = { ".zip", ".par", ".sar" };
+
+    final Map<String, byte[]> files = new LinkedHashMap<>();
+    final Set<String> directories = new LinkedHashSet<>();
+
+    /**
+     * <p>
+     * Reads an archive through its central directory (an EAR updated in place
+     * may contain superseded local entries).
+     * </p>
+     */
+    static ArchiveContents read(byte[] archiveBytes) throws IOException {
+        ArchiveContents contents = new ArchiveContents();
+        try (ZipFile zipFile = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(archiveBytes)).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                String name = entry.getName();
+                if (entry.isDirectory()) {
+                    contents.directories.add(ZipArchiveWriter.ensureDirectoryName(name));
+                    continue;
+                }
+                try (InputStream input = zipFile.getInputStream(entry)) {
+                    contents.files.put(name, input.readAllBytes());
+                }
+            }
+        }
+        return contents;
+    }
+
+    byte[] write(ZipArchiveWriter writer) throws IOException {
+        return writer.write(directories, files);
+    }
+
+    /**
+     * @return a copy of these contents (the content of the files is shared)
+     */
+    ArchiveContents copy() {
+        ArchiveContents copy = new ArchiveContents();
+        copy.files.putAll(files);
+        copy.directories.addAll(directories);
+        return copy;
+    }
+
+    /**
+     * @return whether both archives have the same directories and the same
+     * files with the same content, whatever their order
+     */
+    boolean hasSameContents(ArchiveContents other) {
+        if (!directories.equals(other.directories) || !files.keySet().equals(other.files.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            if (!Arrays.equals(file.getValue(), other.files.get(file.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Compares two archives entry by entry, recursing into the nested
+     * archives (".zip", ".par", ".sar"). The "TIBCO.xml" descriptors are
+     * compared without their volatile fields (see
+     * {@link EARNormalizer#canonicalDescriptor(byte[])}).
+     * </p>
+     *
+     * @return the differences: "- entry" (missing), "+ entry" (unexpected) or
+     * "~ entry" (different content), empty if the archives are equivalent
+     */
+    static List<String> compare(byte[] reference, byte[] candidate) throws IOException {
+        List<String> differences = new ArrayList<>();
+        compare("", reference, candidate, differences);
+        return differences;
+    }
+
+    private static void compare(String location, byte[] reference, byte[] candidate, List<String> differences) throws IOException {
+        Map<String, byte[]> referenceFiles = read(reference).files;
+        Map<String, byte[]> candidateFiles = read(candidate).files;
+
+        Set<String> names = new TreeSet<>(referenceFiles.keySet());
+        names.addAll(candidateFiles.keySet());
+        for (String name : names) {
+            byte[] expected = referenceFiles.get(name);
+            byte[] actual = candidateFiles.get(name);
+            if (actual == null) {
+                differences.add("- " + location + name);
+            } else if (expected == null) {
+                differences.add("+ " + location + name);
+            } else if (Arrays.equals(expected, actual)) {
+                continue;
+            } else if (name.equals(TIBCO_XML) || name.endsWith("/" + TIBCO_XML)) {
+                if (!isSameDescriptor(expected, actual)) {
+                    differences.add("~ " + location + name);
+                }
+            } else if (isNestedArchive(name)) {
+                compare(location + name + "!/", expected, actual, differences);
+            } else {
+                differences.add("~ " + location + name);
+            }
+        }
+    }
+
+    private static boolean isSameDescriptor(byte[] reference, byte[] candidate) {
+        try {
+            return Arrays.equals(EARNormalizer.canonicalDescriptor(reference), EARNormalizer.canonicalDescriptor(candidate));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isNestedArchive(String name) {
+        for (String extension : NESTED_ARCHIVE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
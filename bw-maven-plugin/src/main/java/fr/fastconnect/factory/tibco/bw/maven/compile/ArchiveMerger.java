@@ -0,0 +1,303 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * <p>
+ * This class merges the ".archive" files (known as Archive Builder in TIBCO
+ * Designer) of several TIBCO BusinessWorks projects, for instance to build a
+ * container EAR.
+ * </p>
+ * <p>
+ * Each ".archive" file is read once with StAX. The first one is the template
+ * of the merged archive: its events are kept and replayed when the merged
+ * archive is saved. The processes of the "processProperty" of every
+ * "processArchive" are accumulated, without duplicates and in order, in the
+ * "processProperty" of the first "processArchive" of the template.
+ * </p>
+ *
+ * @see ArchiveBuilder
+ */
+public class ArchiveMerger {
+
+	private static final String ENTERPRISE_ARCHIVE = "enterpriseArchive";
+	private static final String SHARED_ARCHIVE = "sharedArchive";
+	private static final String PROCESS_ARCHIVE = "processArchive";
+	private static final String PROCESS_PROPERTY = "processProperty";
+	private static final String AUTHOR_PROPERTY = "authorProperty";
+
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+	private List<XMLEvent> template;
+	private final Set<String> processes = new LinkedHashSet<String>();
+
+	private final Map<String, String> enterpriseArchiveProperties = new HashMap<String, String>();
+	private String sharedArchiveAuthor;
+	private String firstProcessArchiveName;
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+	/**
+	 * <p>
+	 * Merges an ".archive" file. The first merged file is the template of the
+	 * merged archive.
+	 * </p>
+	 *
+	 * @param archiveFile
+	 * @throws IOException
+	 */
+	public void merge(File archiveFile) throws IOException {
+		try (InputStream input = Files.newInputStream(archiveFile.toPath())) {
+			XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(input);
+			try {
+				if (template == null) {
+					template = new ArrayList<XMLEvent>();
+					readProcesses(reader, template);
+				} else {
+					readProcesses(reader, null);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to read the Archive Builder file " + archiveFile.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reads the processes of all the "processArchive" elements of the
+	 * "enterpriseArchive". For the template, only the first "processArchive"
+	 * is read since it will receive all the processes.
+	 * </p>
+	 *
+	 * @param reader
+	 * @param events, where the events are kept (for the template) or null
+	 * @throws XMLStreamException
+	 */
+	private void readProcesses(XMLEventReader reader, List<XMLEvent> events) throws XMLStreamException {
+		List<String> path = new ArrayList<String>();
+		boolean processArchiveRead = false;
+		StringBuilder processProperty = null;
+
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (events != null) {
+				events.add(event);
+			}
+
+			if (event.isStartElement()) {
+				path.add(event.asStartElement().getName().getLocalPart());
+				if (isProcessProperty(path) && !(events != null && processArchiveRead)) {
+					processProperty = new StringBuilder();
+				}
+			} else if (event.isCharacters() && processProperty != null) {
+				processProperty.append(event.asCharacters().getData());
+			} else if (event.isEndElement()) {
+				if (processProperty != null && isProcessProperty(path)) {
+					addProcesses(processProperty.toString());
+					processProperty = null;
+				}
+				if (path.size() == 3 && PROCESS_ARCHIVE.equals(path.get(2))) {
+					processArchiveRead = true;
+				}
+				path.remove(path.size() - 1);
+			}
+		}
+	}
+
+	private static boolean isProcessProperty(List<String> path) {
+		// repository/enterpriseArchive/processArchive/processProperty
+		return path.size() == 4 && ENTERPRISE_ARCHIVE.equals(path.get(1)) && PROCESS_ARCHIVE.equals(path.get(2)) && PROCESS_PROPERTY.equals(path.get(3));
+	}
+
+	private void addProcesses(String processProperty) {
+		for (String process : processProperty.split(",")) {
+			if (!process.isEmpty()) {
+				processes.add(process);
+			}
+		}
+	}
+
+	/**
+	 * @return the processes of the merged archive, in order
+	 */
+	public Set<String> getProcesses() {
+		return processes;
+	}
+
+	public void setSharedArchiveAuthor(String textContent) {
+		this.sharedArchiveAuthor = textContent;
+	}
+
+	public void setEnterpriseArchiveAuthor(String textContent) {
+		enterpriseArchiveProperties.put(AUTHOR_PROPERTY, textContent);
+	}
+
+	public void setEnterpriseArchiveName(String textContent) {
+		enterpriseArchiveProperties.put("name", textContent);
+	}
+
+	public void setEnterpriseArchiveFileLocationProperty(String textContent) {
+		enterpriseArchiveProperties.put("fileLocationProperty", textContent);
+	}
+
+	public void setEnterpriseArchiveVersionProperty(String textContent) {
+		enterpriseArchiveProperties.put("versionProperty", textContent);
+	}
+
+	public void setFirstProcessArchiveName(String textContent) {
+		this.firstProcessArchiveName = textContent;
+	}
+
+	/**
+	 * <p>
+	 * Writes the merged archive in one pass over the events of the template.
+	 * </p>
+	 *
+	 * @param f
+	 * @throws IOException
+	 */
+	public void save(File f) throws IOException {
+		if (template == null) {
+			throw new IOException("No Archive Builder file to merge");
+		}
+
+		try (OutputStream output = Files.newOutputStream(f.toPath())) {
+			XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(output, "UTF-8");
+			try {
+				write(writer);
+				writer.flush();
+			} finally {
+				writer.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to write the Archive Builder file " + f.getAbsolutePath(), e);
+		}
+	}
+
+	private void write(XMLEventWriter writer) throws XMLStreamException {
+		List<String> path = new ArrayList<String>();
+		boolean sharedArchiveSeen = false;
+		boolean processArchiveSeen = false;
+		boolean inFirstSharedArchive = false;
+		boolean inFirstProcessArchive = false;
+		String replacement = null; // text of the element being replaced
+
+		for (XMLEvent event : template) {
+			if (event.isStartElement()) {
+				StartElement startElement = event.asStartElement();
+				String name = startElement.getName().getLocalPart();
+				path.add(name);
+				int depth = path.size();
+
+				if (depth == 3 && SHARED_ARCHIVE.equals(name) && isInEnterpriseArchive(path)) {
+					inFirstSharedArchive = !sharedArchiveSeen;
+					sharedArchiveSeen = true;
+				} else if (depth == 3 && PROCESS_ARCHIVE.equals(name) && isInEnterpriseArchive(path)) {
+					inFirstProcessArchive = !processArchiveSeen;
+					processArchiveSeen = true;
+					if (inFirstProcessArchive && firstProcessArchiveName != null) {
+						startElement = withAttribute(startElement, "name", firstProcessArchiveName);
+					}
+				}
+
+				if (depth == 3 && isInEnterpriseArchive(path) && enterpriseArchiveProperties.get(name) != null) {
+					replacement = enterpriseArchiveProperties.get(name);
+				} else if (depth == 4 && inFirstSharedArchive && AUTHOR_PROPERTY.equals(name) && sharedArchiveAuthor != null) {
+					replacement = sharedArchiveAuthor;
+				} else if (depth == 4 && inFirstProcessArchive && PROCESS_PROPERTY.equals(name)) {
+					replacement = String.join(",", processes);
+				}
+				writer.add(startElement);
+			} else if (event.isEndElement()) {
+				if (replacement != null) {
+					writer.add(EVENT_FACTORY.createCharacters(replacement));
+					replacement = null;
+				}
+				if (path.size() == 3) {
+					inFirstSharedArchive = false;
+					inFirstProcessArchive = false;
+				}
+				path.remove(path.size() - 1);
+				writer.add(event);
+			} else if (event.isStartDocument()) {
+				writer.add(event);
+				writer.add(EVENT_FACTORY.createSpace("\n"));
+			} else if (replacement == null || !event.isCharacters()) {
+				writer.add(event);
+			}
+		}
+	}
+
+	private static boolean isInEnterpriseArchive(List<String> path) {
+		return path.size() >= 2 && ENTERPRISE_ARCHIVE.equals(path.get(1));
+	}
+
+	/**
+	 * @return the start element with the value of an existing attribute
+	 * replaced (the attribute is not added if missing)
+	 */
+	private static StartElement withAttribute(StartElement startElement, String attributeName, String value) {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		boolean replaced = false;
+		for (Iterator<Attribute> it = startElement.getAttributes(); it.hasNext();) {
+			Attribute attribute = it.next();
+			if (attribute.getName().getNamespaceURI().isEmpty() && attributeName.equals(attribute.getName().getLocalPart())) {
+				attribute = EVENT_FACTORY.createAttribute(attribute.getName(), value);
+				replaced = true;
+			}
+			attributes.add(attribute);
+		}
+		if (!replaced) {
+			return startElement;
+		}
+		return EVENT_FACTORY.createStartElement(startElement.getName(), attributes.iterator(), startElement.getNamespaces());
+	}
+
+}
@@ -18,7 +18,9 @@ package fr.fastconnect.factory.tibco.bw.maven.compile;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -28,6 +30,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProjectHelper;
+import org.jdom2.JDOMException;
 
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWArtifactMojo;
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWMojo;
@@ -63,6 +66,14 @@ public class CompileEARMojo extends AbstractBWArtifactMojo {
     protected final static String COPY_EAR_FAILED = "Unable to copy the EAR to the package directory.";
     protected final static String BUILDING_EAR = "Building the EAR...";
     protected final static String EAR_LOCATION = "Output EAR location: ";
+    protected final static String NORMALIZING_EAR = "Normalizing the EAR for reproducibility...";
+    protected final static String NORMALIZE_EAR_FAILED = "Unable to normalize the EAR.";
+    protected final static String ASSEMBLING_EAR = "Assembling the EAR natively...";
+    protected final static String NATIVE_ASSEMBLY_UNSUPPORTED = "The EAR can't be assembled natively, falling back to buildear: ";
+    protected final static String NATIVE_ASSEMBLY_FAILED = "The native assembly of the EAR has failed, falling back to buildear: ";
+    protected final static String VERIFYING_EAR = "Comparing the native EAR with the EAR built by buildear...";
+    protected final static String VERIFY_EAR_SUCCESS = "The native EAR matches the EAR built by buildear.";
+    protected final static String VERIFY_EAR_DIFFERENCES = "The native EAR differs from the EAR built by buildear:";
 
     /**
      * Path to the Archive descriptor relatively to the BusinessWorks project
@@ -86,6 +97,26 @@ public class CompileEARMojo extends AbstractBWArtifactMojo {
     @Parameter(property = "buildear.validate", defaultValue = "true")
     protected Boolean tibcoBuildEARValidation;
 
+    /**
+     * <p>
+     * Whether to assemble the EAR in pure Java instead of calling
+     * <i>buildear</i> (see {@link NativeEARAssembler}). The build falls back
+     * to <i>buildear</i> when the Enterprise Archive uses a feature which is
+     * not supported natively.
+     * </p>
+     */
+    @Parameter(property = "bw.ear.native", defaultValue = "false")
+    protected Boolean nativeAssembler;
+
+    /**
+     * <p>
+     * Whether to also build the EAR with <i>buildear</i> and to report the
+     * entries which differ from the EAR assembled natively.
+     * </p>
+     */
+    @Parameter(property = "bw.ear.native.verify", defaultValue = "false")
+    protected Boolean nativeAssemblerVerify;
+
     /**
      * Allow to delete override variables from projlib
      */
@@ -150,6 +181,107 @@ public class CompileEARMojo extends AbstractBWArtifactMojo {
         launchTIBCOBinary(tibcoBuildEARPath, tras, arguments, directory, BUILD_EAR_FAILED);
     }
 
+    /**
+     * This assembles the EAR in pure Java with a {@link NativeEARAssembler}.
+     * 
+     * @param outputFile
+     *            , the path where the EAR output will be created
+     * @return false if the EAR can't be assembled natively and must be built
+     * by "buildear"
+     * @throws MojoExecutionException
+     * @throws IOException
+     */
+    private boolean assembleEAR(File outputFile) throws MojoExecutionException, IOException {
+        ZipArchiveWriter writer = createZipArchiveWriter();
+        NativeEARAssembler assembler;
+        try {
+            assembler = new NativeEARAssembler(buildSrcDirectory, new File(buildSrcDirectory, archiveFile), writer);
+        } catch (IOException | JDOMException e) {
+            getLog().warn(NATIVE_ASSEMBLY_FAILED + e.getLocalizedMessage());
+            return false;
+        }
+
+        List<String> unsupportedFeatures = new ArrayList<String>(assembler.getUnsupportedFeatures());
+        if (!getProjlibsDependencies().isEmpty()) {
+            unsupportedFeatures.add("projlib dependencies");
+        }
+        if (!unsupportedFeatures.isEmpty()) {
+            getLog().info(NATIVE_ASSEMBLY_UNSUPPORTED + String.join(", ", unsupportedFeatures));
+            return false;
+        }
+
+        for (Dependency dependency : getJarDependencies()) {
+            String jarName = getJarName(dependency, false);
+            File jar = new File(buildLibDirectory, jarName);
+            if (jar.exists()) {
+                assembler.addJAR(jarName, jar);
+            }
+        }
+        if (reproducible) {
+            assembler.setOwner(reproducibleOwner);
+            assembler.setCreationTime(writer.getReproducibleTime());
+        }
+
+        getLog().info(ASSEMBLING_EAR);
+        byte[] ear;
+        try {
+            assembler.setGlobalVariables(GlobalVariablesIndex.build(buildSrcDirectory, Collections.<String>emptyList(), Collections.<File>emptyList(), 0));
+            ear = assembler.assemble();
+        } catch (IOException e) {
+            getLog().warn(NATIVE_ASSEMBLY_FAILED + e.getLocalizedMessage());
+            return false;
+        }
+        outputFile.getParentFile().mkdirs();
+        Files.write(outputFile.toPath(), ear);
+
+        if (nativeAssemblerVerify) {
+            verifyEAR(outputFile);
+        }
+        return true;
+    }
+
+    /**
+     * This builds the EAR with "buildear" next to the EAR assembled natively
+     * and reports their differences.
+     * 
+     * @param outputFile
+     * @throws MojoExecutionException
+     * @throws IOException
+     */
+    private void verifyEAR(File outputFile) throws MojoExecutionException, IOException {
+        File referenceFile = new File(outputFile.getParentFile(), "buildear-" + outputFile.getName());
+        buildEAR(referenceFile);
+
+        getLog().info(VERIFYING_EAR);
+        List<String> differences = NativeEARAssembler.compare(Files.readAllBytes(referenceFile.toPath()), Files.readAllBytes(outputFile.toPath()));
+        if (differences.isEmpty()) {
+            getLog().info(VERIFY_EAR_SUCCESS);
+            return;
+        }
+        getLog().warn(VERIFY_EAR_DIFFERENCES);
+        for (String difference : differences) {
+            getLog().warn("  " + difference);
+        }
+    }
+
+    /**
+     * Rewrites the EAR built by "buildear" so that identical inputs always
+     * yield identical bytes.
+     *
+     * @param outputFile
+     * @throws MojoExecutionException
+     */
+    private void normalizeEAR(File outputFile) throws MojoExecutionException {
+        getLog().info(NORMALIZING_EAR);
+
+        EARNormalizer normalizer = new EARNormalizer(createZipArchiveWriter(), reproducibleOwner);
+        try {
+            Files.write(outputFile.toPath(), normalizer.normalize(Files.readAllBytes(outputFile.toPath())));
+        } catch (IOException | JDOMException e) {
+            throw new MojoExecutionException(NORMALIZE_EAR_FAILED, e);
+        }
+    }
+
     /**
      * Delete "default vars" directory of override projlib's variables
      * 
@@ -238,11 +370,17 @@ public class CompileEARMojo extends AbstractBWArtifactMojo {
         getLog().debug(EAR_LOCATION + outputFile.getAbsolutePath());
 
         try {
-            buildEAR(outputFile);
+            if (!nativeAssembler || !assembleEAR(outputFile)) {
+                buildEAR(outputFile);
+            }
         } catch (IOException e) {
             throw new MojoExecutionException(BUILD_EAR_FAILED, e);
         }
 
+        if (reproducible) {
+            normalizeEAR(outputFile);
+        }
+
         try {
     		if (!packageDirectory.exists()) {
     			packageDirectory.mkdirs();
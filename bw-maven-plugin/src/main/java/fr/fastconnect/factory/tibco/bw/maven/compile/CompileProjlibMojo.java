@@ -18,12 +18,18 @@ package fr.fastconnect.factory.tibco.bw.maven.compile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 
+import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.jdom2.JDOMException;
 
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWArtifactMojo;
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWMojo;
@@ -59,6 +65,12 @@ public class CompileProjlibMojo extends AbstractBWArtifactMojo {
 	protected final static String TIBCO_DESIGNER_BINARY_NOTFOUND = "The TIBCO Designer binary can't be found.";
 	protected final static String BUILD_PROJLIB_FAILED = "The build of the Projlib file has failed.";
 	protected final static String BUILDING_PROJLIB = "Building the Projlib...";
+	protected final static String ASSEMBLING_PROJLIB = "Assembling the Projlib natively...";
+	protected final static String NATIVE_ASSEMBLY_UNSUPPORTED = "The Projlib can't be assembled natively, falling back to buildlibrary: ";
+	protected final static String NATIVE_ASSEMBLY_FAILED = "The native assembly of the Projlib has failed, falling back to buildlibrary: ";
+	protected final static String VERIFYING_PROJLIB = "Comparing the native Projlib with the Projlib built by buildlibrary...";
+	protected final static String VERIFY_PROJLIB_SUCCESS = "The native Projlib matches the Projlib built by buildlibrary.";
+	protected final static String VERIFY_PROJLIB_DIFFERENCES = "The native Projlib differs from the Projlib built by buildlibrary:";
 
 	/**
 	 * Path to the LibBuilder relatively to the BusinessWorks project path.
@@ -72,6 +84,26 @@ public class CompileProjlibMojo extends AbstractBWArtifactMojo {
 	 */
 	@Parameter ( property="buildlibrary.path", required = true)
 	private File tibcoBuildLibraryPath;
+
+	/**
+	 * <p>
+	 * Whether to assemble the Projlib in pure Java instead of calling
+	 * <i>buildlibrary</i> (see {@link NativeProjlibAssembler}). The build
+	 * falls back to <i>buildlibrary</i> when the Library Builder uses a
+	 * feature which is not supported natively.
+	 * </p>
+	 */
+	@Parameter ( property="bw.projlib.native", defaultValue="false")
+	private Boolean nativeAssembler;
+
+	/**
+	 * <p>
+	 * Whether to also build the Projlib with <i>buildlibrary</i> and to report
+	 * the entries which differ from the Projlib assembled natively.
+	 * </p>
+	 */
+	@Parameter ( property="bw.projlib.native.verify", defaultValue="false")
+	private Boolean nativeAssemblerVerify;
 	    
 	private void checkDesignerBuildLibrary() throws MojoExecutionException {
 		if (tibcoBuildLibraryPath == null ||
@@ -129,6 +161,85 @@ public class CompileProjlibMojo extends AbstractBWArtifactMojo {
 		launchTIBCOBinary(tibcoBuildLibraryPath, tras, arguments, directory, BUILD_PROJLIB_FAILED);
 	}
 
+	/**
+	 * This assembles the Projlib in pure Java with a
+	 * {@link NativeProjlibAssembler}.
+	 * 
+	 * @param outputFile, the path where the Projlib output will be created
+	 * @return false if the Projlib can't be assembled natively and must be
+	 * built by "buildlibrary"
+	 * @throws MojoExecutionException
+	 * @throws IOException
+	 */
+	private boolean assembleProjlib(File outputFile) throws MojoExecutionException, IOException {
+		NativeProjlibAssembler assembler;
+		try {
+			assembler = new NativeProjlibAssembler(buildSrcDirectory, new File(buildSrcDirectory, libBuilder), createZipArchiveWriter());
+		} catch (IOException | JDOMException e) {
+			getLog().warn(NATIVE_ASSEMBLY_FAILED + e.getLocalizedMessage());
+			return false;
+		}
+		if (!assembler.isSupported()) {
+			getLog().info(NATIVE_ASSEMBLY_UNSUPPORTED + String.join(", ", assembler.getUnsupportedFeatures()));
+			return false;
+		}
+
+		Properties aliases = new Properties();
+		File aliasesFile = new File(directory, ALIASES_FILE);
+		if (aliasesFile.exists()) {
+			try (InputStream input = Files.newInputStream(aliasesFile.toPath())) {
+				aliases.load(input);
+			}
+		}
+		assembler.setAliases(aliases);
+
+		List<String> projlibNames = new ArrayList<String>();
+		for (Dependency dependency : getProjlibsDependencies()) {
+			projlibNames.add(dependency.getArtifactId()); // see CompileEARMojo.cleanVarsDirectory
+		}
+		assembler.setExcludedGlobalVariablesFolders(projlibNames);
+
+		getLog().info(ASSEMBLING_PROJLIB);
+		byte[] projlib;
+		try {
+			projlib = assembler.assemble();
+		} catch (IOException e) {
+			getLog().warn(NATIVE_ASSEMBLY_FAILED + e.getLocalizedMessage());
+			return false;
+		}
+		outputFile.getParentFile().mkdirs();
+		Files.write(outputFile.toPath(), projlib);
+
+		if (nativeAssemblerVerify) {
+			verifyProjlib(outputFile);
+		}
+		return true;
+	}
+
+	/**
+	 * This builds the Projlib with "buildlibrary" next to the Projlib
+	 * assembled natively and reports their differences.
+	 * 
+	 * @param outputFile
+	 * @throws MojoExecutionException
+	 * @throws IOException
+	 */
+	private void verifyProjlib(File outputFile) throws MojoExecutionException, IOException {
+		File referenceFile = new File(outputFile.getParentFile(), "buildlibrary-" + outputFile.getName());
+		buildProjlib(referenceFile);
+
+		getLog().info(VERIFYING_PROJLIB);
+		List<String> differences = ArchiveContents.compare(Files.readAllBytes(referenceFile.toPath()), Files.readAllBytes(outputFile.toPath()));
+		if (differences.isEmpty()) {
+			getLog().info(VERIFY_PROJLIB_SUCCESS);
+			return;
+		}
+		getLog().warn(VERIFY_PROJLIB_DIFFERENCES);
+		for (String difference : differences) {
+			getLog().warn("  " + difference);
+		}
+	}
+
 	public void execute() throws MojoExecutionException {
     	if (skipCompile || skipProjlibCompile) {
     		getLog().info(SKIPPING);
@@ -161,7 +272,9 @@ public class CompileProjlibMojo extends AbstractBWArtifactMojo {
 		File outputFile = getOutputFile();
 		
 		try {
-			buildProjlib(outputFile);
+			if (!nativeAssembler || !assembleProjlib(outputFile)) {
+				buildProjlib(outputFile);
+			}
 		} catch (IOException e) {
 			throw new MojoExecutionException(BUILD_PROJLIB_FAILED, e);
 		}
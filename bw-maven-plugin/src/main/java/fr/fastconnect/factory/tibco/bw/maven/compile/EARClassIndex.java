@@ -0,0 +1,305 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+/**
+ * <p>
+ * This class indexes the classes of all the JARs packed in a TIBCO
+ * BusinessWorks EAR: in "lib.zip", in PARs and SARs and in nested projlibs.
+ * </p>
+ * <p>
+ * Only the central directory of each JAR is read (name, CRC and size of the
+ * ".class" entries), the JARs being scanned in parallel. Classes found in
+ * several JARs are either duplicates (same CRC and size everywhere) or
+ * conflicts.
+ * </p>
+ *
+ * @see AnalyzeEARMojo
+ */
+public class EARClassIndex {
+
+    private static final String NESTED_SEPARATOR = "!/";
+    private static final String JAR_EXTENSION = ".jar";
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String[] CONTAINER_EXTENSIONS = { ".zip", ".par", ".sar", ".projlib", ".ear" };
+
+    /**
+     * <p>
+     * The location of a class inside a JAR.
+     * </p>
+     */
+    public static final class ClassLocation {
+        private final String jar;
+        private final long crc;
+        private final long size;
+
+        private ClassLocation(String jar, long crc, long size) {
+            this.jar = jar;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        public String getJar() {
+            return jar;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        private boolean isSameClass(ClassLocation other) {
+            return crc == other.crc && size == other.size;
+        }
+    }
+
+    private final Map<String, byte[]> jars;
+    private final Map<String, List<ClassLocation>> classes;
+
+    private EARClassIndex(Map<String, byte[]> jars, Map<String, List<ClassLocation>> classes) {
+        this.jars = jars;
+        this.classes = classes;
+    }
+
+    /**
+     * <p>
+     * Builds the index of the classes of all the JARs found (recursively) in
+     * an archive.
+     * </p>
+     *
+     * @param archiveName, the name used as the root of the JAR locations
+     * @param archive, the content of the archive (usually an EAR)
+     * @param threads, number of threads used to scan the JARs (0 or less
+     * means the number of available processors)
+     * @return the index
+     * @throws IOException
+     */
+    public static EARClassIndex build(String archiveName, byte[] archive, int threads) throws IOException {
+        Map<String, byte[]> jars = new LinkedHashMap<>();
+        collectJARs(archiveName, archive, jars);
+        return build(jars, threads);
+    }
+
+    /**
+     * <p>
+     * Builds the index of the classes of the given JARs.
+     * </p>
+     *
+     * @param jars, the content of the JARs by location
+     * @param threads
+     * @return the index
+     * @throws IOException
+     */
+    public static EARClassIndex build(Map<String, byte[]> jars, int threads) throws IOException {
+        int poolSize = Math.max(1, Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), jars.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        Map<String, List<ClassLocation>> classes = new TreeMap<>();
+        try {
+            Map<String, Future<Map<String, ClassLocation>>> scans = new LinkedHashMap<>();
+            for (Map.Entry<String, byte[]> jar : jars.entrySet()) {
+                final String location = jar.getKey();
+                final byte[] content = jar.getValue();
+                scans.put(location, executor.submit(() -> scanJAR(location, content)));
+            }
+            for (Future<Map<String, ClassLocation>> scan : scans.values()) { // merged in JAR order
+                for (Map.Entry<String, ClassLocation> entry : scan.get().entrySet()) {
+                    classes.computeIfAbsent(entry.getKey(), k -> new ArrayList<>(1)).add(entry.getValue());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning JARs");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to scan JAR", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new EARClassIndex(jars, classes);
+    }
+
+    /**
+     * <p>
+     * Collects the JARs of an archive. Nested archives (ZIP, PAR, SAR,
+     * projlib) are opened recursively, JARs are not.
+     * </p>
+     *
+     * @param location, the location of the archive, used as a prefix of the
+     * locations of the JARs ("lib.zip!/WEB-INF/lib/a.jar")
+     * @param archive
+     * @param jars, the collected JARs by location
+     * @throws IOException
+     */
+    public static void collectJARs(String location, byte[] archive, Map<String, byte[]> jars) throws IOException {
+        try (ZipFile zipFile = open(archive)) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName().toLowerCase(Locale.ENGLISH);
+                boolean isJAR = name.endsWith(JAR_EXTENSION);
+                boolean isContainer = !isJAR && isContainer(name);
+                if (!isJAR && !isContainer) {
+                    continue;
+                }
+
+                byte[] content;
+                try (InputStream input = zipFile.getInputStream(entry)) {
+                    content = input.readAllBytes();
+                }
+                String entryLocation = location + NESTED_SEPARATOR + entry.getName();
+                if (isJAR) {
+                    jars.put(entryLocation, content);
+                } else {
+                    collectJARs(entryLocation, content, jars);
+                }
+            }
+        }
+    }
+
+    private static boolean isContainer(String name) {
+        for (String extension : CONTAINER_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, ClassLocation> scanJAR(String location, byte[] jar) throws IOException {
+        Map<String, ClassLocation> result = new LinkedHashMap<>();
+        try (ZipFile zipFile = open(jar)) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                String name = entry.getName();
+                // multi-release variants and module descriptors are not class path conflicts
+                if (entry.isDirectory() || !name.endsWith(CLASS_EXTENSION) || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                String className = name.substring(0, name.length() - CLASS_EXTENSION.length()).replace('/', '.');
+                result.put(className, new ClassLocation(location, entry.getCrc(), entry.getSize()));
+            }
+        } catch (IOException e) {
+            throw new IOException("Unable to read JAR " + location + ": " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private static ZipFile open(byte[] archive) throws IOException {
+        return ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(archive)).get();
+    }
+
+    /**
+     * @return the content of the indexed JARs by location
+     */
+    public Map<String, byte[]> getJARs() {
+        return Collections.unmodifiableMap(jars);
+    }
+
+    /**
+     * @return the locations of all the indexed classes, sorted by class name
+     */
+    public Map<String, List<ClassLocation>> getClasses() {
+        return Collections.unmodifiableMap(classes);
+    }
+
+    /**
+     * @return the classes found identical in several JARs
+     */
+    public Map<String, List<ClassLocation>> getDuplicateClasses() {
+        return filter(true);
+    }
+
+    /**
+     * @return the classes found with different contents in several JARs
+     */
+    public Map<String, List<ClassLocation>> getConflictingClasses() {
+        return filter(false);
+    }
+
+    private Map<String, List<ClassLocation>> filter(boolean identical) {
+        Map<String, List<ClassLocation>> result = new TreeMap<>();
+        for (Map.Entry<String, List<ClassLocation>> entry : classes.entrySet()) {
+            List<ClassLocation> locations = entry.getValue();
+            if (locations.size() < 2) {
+                continue;
+            }
+            boolean allIdentical = true;
+            for (ClassLocation location : locations) {
+                allIdentical &= location.isSameClass(locations.get(0));
+            }
+            if (allIdentical == identical) {
+                result.put(entry.getKey(), locations);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the groups of byte-identical JARs, by SHA-256 digest
+     */
+    public Map<String, List<String>> getIdenticalJARs() {
+        Map<String, List<String>> byDigest = new TreeMap<>();
+        for (Map.Entry<String, byte[]> jar : jars.entrySet()) {
+            byDigest.computeIfAbsent(digest(jar.getValue()), k -> new ArrayList<>()).add(jar.getKey());
+        }
+        byDigest.values().removeIf(locations -> locations.size() < 2);
+        return byDigest;
+    }
+
+    /**
+     * @return the SHA-256 digest of the content, in hexadecimal
+     */
+    public static String digest(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder result = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is always available
+        }
+    }
+
+}
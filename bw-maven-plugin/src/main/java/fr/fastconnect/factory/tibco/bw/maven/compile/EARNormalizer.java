@@ -0,0 +1,196 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.jdom2.Attribute;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * <p>
+ * This class rewrites a TIBCO BusinessWorks EAR produced by <i>buildear</i>
+ * so that identical inputs always yield identical bytes:
+ * </p>
+ * <ul>
+ * <li>the EAR and its nested archives ("lib.zip", PARs, SARs) are written
+ * with a {@link ZipArchiveWriter} in reproducible mode (sorted entries, fixed
+ * timestamps and permissions)</li>
+ * <li>the volatile fields of the "TIBCO.xml" descriptors (<i>owner</i> and
+ * <i>creationDate</i>) are set to fixed values</li>
+ * </ul>
+ * <p>
+ * JARs and projlibs are copied as is: they are inputs of the build.
+ * </p>
+ */
+public class EARNormalizer {
+
+    private static final Namespace DD_NAMESPACE = Namespace.getNamespace("http://www.tibco.com/xmlns/dd");
+    private static final String TIBCO_XML = "TIBCO.xml";
+    private static final String[] NESTED_ARCHIVE_EXTENSIONS = { ".zip", ".par", ".sar" };
+    private static final Set<String> VOLATILE_DESCRIPTOR_FIELDS = new HashSet<String>(Arrays.asList("owner", "creationDate", "version"));
+
+    private final ZipArchiveWriter writer;
+    private final String owner;
+    private final String creationDate;
+
+    /**
+     *
+     * @param writer, a writer in reproducible mode
+     * @param owner, the value of the <i>owner</i> fields
+     */
+    public EARNormalizer(ZipArchiveWriter writer, String owner) {
+        if (!writer.isReproducible()) {
+            throw new IllegalArgumentException("The archive writer is not in reproducible mode");
+        }
+        this.writer = writer;
+        this.owner = owner == null ? "" : owner;
+        this.creationDate = formatCreationDate(writer.getReproducibleTime());
+    }
+
+    /**
+     * @param time
+     * @return the <i>creationDate</i> of a "TIBCO.xml" descriptor, in the
+     * format of <i>buildear</i>
+     */
+    static String formatCreationDate(long time) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM d, yyyy h:mm:ss a", Locale.ENGLISH); // format of buildear
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.format(new Date(time));
+    }
+
+    /**
+     * @param ear, the content of the EAR
+     * @return the normalized content of the EAR
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public byte[] normalize(byte[] ear) throws IOException, JDOMException {
+        ArchiveContents contents = ArchiveContents.read(ear);
+        for (Map.Entry<String, byte[]> entry : contents.files.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals(TIBCO_XML) || name.endsWith("/" + TIBCO_XML)) {
+                entry.setValue(normalizeDescriptor(entry.getValue()));
+            } else if (isNestedArchive(name)) {
+                entry.setValue(normalize(entry.getValue()));
+            }
+        }
+        return contents.write(writer);
+    }
+
+    private static boolean isNestedArchive(String name) {
+        for (String extension : NESTED_ARCHIVE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] normalizeDescriptor(byte[] descriptor) throws IOException, JDOMException {
+        Document document = new SAXBuilder().build(new ByteArrayInputStream(descriptor));
+        Element root = document.getRootElement();
+
+        boolean changed = setText(root.getChild("owner", DD_NAMESPACE), owner);
+        changed |= setText(root.getChild("creationDate", DD_NAMESPACE), creationDate);
+        if (!changed) {
+            return descriptor;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        XMLOutputter xmlOutput = new XMLOutputter();
+        xmlOutput.setFormat(Format.getPrettyFormat().setIndent("    "));
+        xmlOutput.output(document, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * <p>
+     * This computes a canonical form of a "TIBCO.xml" descriptor to compare
+     * descriptors written by different tools: the volatile fields
+     * (<i>owner</i>, <i>creationDate</i> and <i>version</i>) are removed,
+     * namespace prefixes, attributes order and indentation are ignored.
+     * </p>
+     *
+     * @param descriptor, the content of a "TIBCO.xml" descriptor
+     * @return the canonical form of the descriptor
+     * @throws IOException if the descriptor is not well-formed
+     */
+    public static byte[] canonicalDescriptor(byte[] descriptor) throws IOException {
+        Document document;
+        try {
+            document = new SAXBuilder().build(new ByteArrayInputStream(descriptor));
+        } catch (JDOMException e) {
+            throw new IOException("Invalid descriptor: " + e.getMessage(), e);
+        }
+
+        StringBuilder output = new StringBuilder();
+        canonicalize(document.getRootElement(), true, output);
+        return output.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void canonicalize(Element element, boolean isRoot, StringBuilder output) {
+        output.append("<{").append(element.getNamespaceURI()).append('}').append(element.getName());
+        List<Attribute> attributes = new ArrayList<Attribute>(element.getAttributes());
+        attributes.sort(Comparator.comparing((Attribute a) -> a.getNamespaceURI()).thenComparing(Attribute::getName));
+        for (Attribute attribute : attributes) {
+            output.append(" {").append(attribute.getNamespaceURI()).append('}').append(attribute.getName())
+                  .append("=\"").append(escape(attribute.getValue())).append('"');
+        }
+        output.append('>').append(escape(element.getTextTrim()));
+        for (Element child : element.getChildren()) {
+            if (isRoot && VOLATILE_DESCRIPTOR_FIELDS.contains(child.getName())) {
+                continue;
+            }
+            canonicalize(child, false, output);
+        }
+        output.append("</>");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+
+    private static boolean setText(Element element, String text) {
+        if (element == null || element.getText().equals(text)) {
+            return false;
+        }
+        element.setText(text);
+        return true;
+    }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import fr.fastconnect.factory.tibco.bw.maven.compile.repository.GlobalVariables;
+import fr.fastconnect.factory.tibco.bw.maven.compile.repository.GlobalVariables.GlobalVariable;
+import fr.fastconnect.factory.tibco.bw.maven.compile.repository.ObjectFactory;
+import fr.fastconnect.factory.tibco.bw.maven.compile.repository.Repository;
+import fr.fastconnect.factory.tibco.bw.maven.jaxb.JAXBContextRegistry;
+
+/**
+ * <p>
+ * This class resolves the Global Variables of a TIBCO BusinessWorks project
+ * from the "defaultVars/**&#47;defaultVars.substvar" files of the project and
+ * of its projlibs, without any call to AppManage.
+ * </p>
+ * <p>
+ * The ".substvar" files are parsed in parallel. The variables are then
+ * layered: projlibs are applied in dependency order (the first projlib
+ * defining a variable wins) and the project overrides all of them.
+ * The full name of a variable is its folder relative to "defaultVars" followed
+ * by its name (for instance "Connections/JMS/URL"), as in the "Global
+ * Variables" of the XML Deployment Descriptor.
+ * </p>
+ */
+public class GlobalVariablesIndex {
+
+    public static final String DEFAULT_VARS_DIRECTORY = "defaultVars";
+    public static final String SUBSTVAR_FILE = "defaultVars.substvar";
+
+    /**
+     * <p>
+     * A resolved Global Variable with the layer it comes from.
+     * </p>
+     */
+    public static final class Variable {
+        private final String name;
+        private final String origin;
+        private final GlobalVariable definition;
+
+        private Variable(String name, String origin, GlobalVariable definition) {
+            this.name = name;
+            this.origin = origin;
+            this.definition = definition;
+        }
+
+        /**
+         * @return the full name of the variable ("folder/name")
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the project directory or the projlib the variable comes from
+         */
+        public String getOrigin() {
+            return origin;
+        }
+
+        public GlobalVariable getDefinition() {
+            return definition;
+        }
+
+        public String getValue() {
+            return definition.getValue() != null ? definition.getValue() : "";
+        }
+
+        public boolean isDeploymentSettable() {
+            return Boolean.TRUE.equals(definition.isDeploymentSettable());
+        }
+
+        public boolean isServiceSettable() {
+            return Boolean.TRUE.equals(definition.isServiceSettable());
+        }
+    }
+
+    /**
+     * <p>
+     * The differences between two sets of Global Variables.
+     * </p>
+     */
+    public static final class Difference {
+        private final SortedSet<String> added = new TreeSet<String>();
+        private final SortedSet<String> removed = new TreeSet<String>();
+        private final SortedSet<String> changed = new TreeSet<String>();
+
+        public SortedSet<String> getAdded() {
+            return added;
+        }
+
+        public SortedSet<String> getRemoved() {
+            return removed;
+        }
+
+        public SortedSet<String> getChanged() {
+            return changed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    private final Map<String, Variable> variables; // lookup by full name
+    private final TreeMap<String, Variable> sortedVariables; // prefix queries
+
+    private GlobalVariablesIndex(Map<String, Variable> variables) {
+        this.variables = variables;
+        this.sortedVariables = new TreeMap<String, Variable>(variables);
+    }
+
+    /**
+     * <p>
+     * Builds the index of the Global Variables of a project.
+     * </p>
+     *
+     * @param projectDirectory, the TIBCO BusinessWorks project directory
+     * @param excludedFolders, the folders of "defaultVars" to ignore in the
+     * project (copies of the projlibs variables, see
+     * {@link CompileEARMojo#cleanVarsDirectory(File, List)})
+     * @param projlibs, the projlib files in dependency order
+     * @param threads, the number of parsing threads (0 means the number of
+     * available processors)
+     * @return the resolved Global Variables
+     * @throws IOException
+     */
+    public static GlobalVariablesIndex build(File projectDirectory, Collection<String> excludedFolders, List<File> projlibs, int threads) throws IOException {
+        List<Map<String, byte[]>> layers = new ArrayList<Map<String, byte[]>>();
+        List<String> origins = new ArrayList<String>();
+
+        for (File projlib : projlibs) {
+            layers.add(readProjlib(projlib));
+            origins.add(projlib.getName());
+        }
+        if (projectDirectory != null) {
+            layers.add(readDirectory(new File(projectDirectory, DEFAULT_VARS_DIRECTORY), excludedFolders));
+            origins.add(projectDirectory.getName());
+        }
+
+        List<Callable<Map<String, GlobalVariable>>> tasks = new ArrayList<Callable<Map<String, GlobalVariable>>>();
+        for (Map<String, byte[]> layer : layers) {
+            for (final Map.Entry<String, byte[]> substvar : layer.entrySet()) {
+                tasks.add(() -> parse(substvar.getKey(), substvar.getValue()));
+            }
+        }
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        List<Map<String, GlobalVariable>> parsed = new ArrayList<Map<String, GlobalVariable>>();
+        if (!tasks.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+            try {
+                for (Future<Map<String, GlobalVariable>> result : executor.invokeAll(tasks)) {
+                    parsed.add(result.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while parsing Global Variables");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Unable to parse Global Variables", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // apply the layers: first projlib wins among projlibs, the project (last layer) overrides all
+        Map<String, Variable> variables = new HashMap<String, Variable>();
+        int task = 0;
+        for (int i = 0; i < layers.size(); i++) {
+            boolean project = projectDirectory != null && i == layers.size() - 1;
+            for (int j = 0; j < layers.get(i).size(); j++) {
+                for (Map.Entry<String, GlobalVariable> gv : parsed.get(task++).entrySet()) {
+                    Variable variable = new Variable(gv.getKey(), origins.get(i), gv.getValue());
+                    if (project) {
+                        variables.put(gv.getKey(), variable);
+                    } else {
+                        variables.putIfAbsent(gv.getKey(), variable);
+                    }
+                }
+            }
+        }
+
+        return new GlobalVariablesIndex(variables);
+    }
+
+    /**
+     * @param defaultVars, the "defaultVars" directory of a project
+     * @return the ".substvar" files content indexed by their folder relative
+     * to "defaultVars"
+     */
+    private static Map<String, byte[]> readDirectory(File defaultVars, Collection<String> excludedFolders) throws IOException {
+        Map<String, byte[]> result = new TreeMap<String, byte[]>();
+        if (!defaultVars.isDirectory()) {
+            return result;
+        }
+
+        Path root = defaultVars.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!path.getFileName().toString().equals(SUBSTVAR_FILE) || !Files.isRegularFile(path)) {
+                    continue;
+                }
+                Path folder = root.relativize(path).getParent();
+                if (folder != null && excludedFolders != null && excludedFolders.contains(folder.getName(0).toString())) {
+                    continue;
+                }
+                result.put(folder == null ? "" : folder.toString().replace('\\', '/'), Files.readAllBytes(path));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param projlib, a projlib file (a ZIP archive)
+     * @return the ".substvar" files content indexed by their folder relative
+     * to "defaultVars"
+     */
+    private static Map<String, byte[]> readProjlib(File projlib) throws IOException {
+        Map<String, byte[]> result = new TreeMap<String, byte[]>();
+        if (!projlib.isFile()) {
+            return result;
+        }
+
+        String prefix = DEFAULT_VARS_DIRECTORY + "/";
+        try (ZipFile zipFile = ZipFile.builder().setFile(projlib).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                String name = entry.getName().replace('\\', '/');
+                if (name.startsWith("/")) {
+                    name = name.substring(1);
+                }
+                if (entry.isDirectory() || !name.startsWith(prefix) || !name.endsWith("/" + SUBSTVAR_FILE)) {
+                    continue;
+                }
+                String folder = name.substring(prefix.length(), name.length() - SUBSTVAR_FILE.length());
+                if (folder.endsWith("/")) {
+                    folder = folder.substring(0, folder.length() - 1);
+                }
+                result.put(folder, zipFile.getInputStream(entry).readAllBytes());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the variables of a ".substvar" file indexed by their full name
+     */
+    private static Map<String, GlobalVariable> parse(String folder, byte[] substvar) throws IOException {
+        Map<String, GlobalVariable> result = new HashMap<String, GlobalVariable>();
+        Object root;
+        try {
+            root = JAXBContextRegistry.unmarshal(new ByteArrayInputStream(substvar), ObjectFactory.class);
+        } catch (JAXBException e) {
+            throw new IOException("Unable to parse '" + DEFAULT_VARS_DIRECTORY + "/" + (folder.isEmpty() ? "" : folder + "/") + SUBSTVAR_FILE + "'", e);
+        }
+        if (root instanceof JAXBElement) {
+            root = ((JAXBElement<?>) root).getValue();
+        }
+
+        List<Object> candidates = new ArrayList<Object>();
+        if (root instanceof Repository) {
+            candidates.addAll(((Repository) root).getAny());
+        } else {
+            candidates.add(root);
+        }
+
+        String prefix = folder.isEmpty() ? "" : folder + "/";
+        for (Object candidate : candidates) {
+            if (candidate instanceof JAXBElement) {
+                candidate = ((JAXBElement<?>) candidate).getValue();
+            }
+            if (!(candidate instanceof GlobalVariables)) {
+                continue;
+            }
+            for (GlobalVariable gv : ((GlobalVariables) candidate).getGlobalVariable()) {
+                if (gv.getName() != null) {
+                    result.put(prefix + gv.getName().trim(), gv);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return variables.size();
+    }
+
+    public boolean contains(String name) {
+        return variables.containsKey(name);
+    }
+
+    /**
+     * @param name, the full name of the variable ("folder/name")
+     * @return the variable or null if it does not exist
+     */
+    public Variable get(String name) {
+        return variables.get(name);
+    }
+
+    /**
+     * @param name, the full name of the variable ("folder/name")
+     * @return the value of the variable or null if it does not exist
+     */
+    public String getValue(String name) {
+        Variable variable = variables.get(name);
+        return variable != null ? variable.getValue() : null;
+    }
+
+    /**
+     * @param folder, a folder of Global Variables (for instance "Connections/JMS")
+     * @return the variables of this folder and of its sub-folders, sorted by name
+     */
+    public SortedMap<String, Variable> getFolder(String folder) {
+        String prefix = folder.isEmpty() || folder.endsWith("/") ? folder : folder + "/";
+        if (prefix.isEmpty()) {
+            return Collections.unmodifiableSortedMap(sortedVariables);
+        }
+        // '/' + 1 == '0', every name starting with the prefix is before this bound
+        String bound = prefix.substring(0, prefix.length() - 1) + (char) ('/' + 1);
+        return Collections.unmodifiableSortedMap(sortedVariables.subMap(prefix, bound));
+    }
+
+    /**
+     * @return all the variables, sorted by name
+     */
+    public SortedMap<String, Variable> getVariables() {
+        return getFolder("");
+    }
+
+    /**
+     * @param deploymentSettableOnly, whether to keep only the variables which
+     * are deployment settable (as exported by AppManage in the XML Deployment
+     * Descriptor)
+     * @return the variables as sorted "name=value" properties
+     */
+    public Map<String, String> toMap(boolean deploymentSettableOnly) {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (Variable variable : sortedVariables.values()) {
+            if (!deploymentSettableOnly || variable.isDeploymentSettable()) {
+                result.put(variable.getName(), variable.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @see #toMap(boolean)
+     */
+    public Properties toProperties(boolean deploymentSettableOnly) {
+        Properties result = new Properties();
+        result.putAll(toMap(deploymentSettableOnly));
+        return result;
+    }
+
+    /**
+     * @param reference, the reference variables (for instance loaded from a
+     * Global Variables properties file)
+     * @return what was added, removed and changed in this index compared to
+     * the reference
+     */
+    public Difference diff(Map<?, ?> reference, boolean deploymentSettableOnly) {
+        return diff(reference, toMap(deploymentSettableOnly));
+    }
+
+    public static Difference diff(Map<?, ?> before, Map<?, ?> after) {
+        Difference difference = new Difference();
+        for (Map.Entry<?, ?> entry : after.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (!before.containsKey(entry.getKey())) {
+                difference.added.add(key);
+            } else if (!String.valueOf(before.get(entry.getKey())).equals(String.valueOf(entry.getValue()))) {
+                difference.changed.add(key);
+            }
+        }
+        for (Object key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                difference.removed.add(String.valueOf(key));
+            }
+        }
+        return difference;
+    }
+
+}
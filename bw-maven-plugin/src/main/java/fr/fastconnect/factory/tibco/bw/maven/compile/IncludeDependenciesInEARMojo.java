@@ -20,17 +20,19 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipException;
+
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -42,9 +44,6 @@ import org.jdom2.output.XMLOutputter;
 import org.jdom2.xpath.XPathExpression;
 import org.jdom2.xpath.XPathFactory;
 
-import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
-import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
-import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -87,6 +86,34 @@ public class IncludeDependenciesInEARMojo extends AbstractBWArtifactMojo {
     @Parameter (property="removeVersionFromFileNames", defaultValue="false")
     public Boolean removeVersionFromFileNames;
 
+    /**
+     * Whether to remove from "lib.zip" the JARs which are byte-identical to
+     * another JAR of the EAR (in "lib.zip", in a PAR or a SAR). JARs
+     * referenced by a "TIBCO.xml" descriptor are always kept.
+     *
+     * @see AnalyzeEARMojo
+     */
+    @Parameter (property="bw.ear.removeDuplicateJARs", defaultValue="false")
+    public Boolean removeDuplicateJARs;
+
+    /**
+     * Whether to update the EAR in place instead of rewriting it: untouched
+     * entries are kept byte-for-byte and only "lib.zip" (and the "TIBCO.xml"
+     * files when <i>removeVersionFromFileNames</i> is set) are appended,
+     * followed by a new central directory. Until the EAR is compacted, tools
+     * reading it as a stream (<i>ZipInputStream</i>) see the superseded
+     * entries instead of the new ones.
+     */
+    @Parameter (property="bw.ear.updateInPlace", defaultValue="false")
+    public Boolean updateEARInPlace;
+
+    /**
+     * When the EAR is updated in place, ratio of the EAR size occupied by
+     * superseded entries above which the EAR is compacted.
+     */
+    @Parameter (property="bw.ear.compactionThreshold", defaultValue="0.5")
+    public Double compactionThreshold;
+
     @Override
     protected String getArtifactFileExtension() {
         return BWEAR_EXTENSION;
@@ -106,24 +133,35 @@ public class IncludeDependenciesInEARMojo extends AbstractBWArtifactMojo {
      */
     private ArchiveContents currentEarArchive;
     private ArchiveContents currentLibArchive;
+    private ZipArchiveWriter zipArchiveWriter;
 
     private static final Namespace DD_NAMESPACE = Namespace.getNamespace("dd", "http://www.tibco.com/xmlns/dd");
     private static final XPathFactory XPATH_FACTORY = XPathFactory.instance();
+    // a JAR file name between two separators of paths or of lists of paths
+    private static final Pattern REFERENCED_JAR_PATTERN = Pattern.compile("(?<![^/\\\\;,:|\\s])[^/\\\\;,:|\\s]+\\.jar(?![^/\\\\;,:|\\s])");
 
     private void copyRuntimeJARsInEAR(File ear) throws IOException, JDOMException {
         Path earPath = ear.toPath();
-        byte[] earBytes = Files.readAllBytes(earPath);
+        ZipArchiveUpdater updater = updateEARInPlace ? openForUpdate(earPath) : null;
 
         try {
-            currentEarArchive = readZipArchive(earBytes);
+            Map<String, byte[]> originalEntries = null;
+            if (updater == null) {
+                currentEarArchive = readZipArchive(Files.readAllBytes(earPath));
+            } else {
+                currentEarArchive = readZipArchive(updater);
+                originalEntries = new LinkedHashMap<>(currentEarArchive.files);
+            }
             boolean isZipLibEmpty = true;
 
             byte[] libZip = currentEarArchive.files.get("lib.zip");
+            ArchiveContents originalLibArchive = null;
             if (libZip == null) {
                 getLog().warn("lib.zip not found inside EAR archive, creating a new one");
                 currentLibArchive = new ArchiveContents();
             } else {
                 currentLibArchive = readZipArchive(libZip);
+                originalLibArchive = currentLibArchive.copy();
                 isZipLibEmpty = false;
             }
             currentLibArchive.directories.add("WEB-INF/");
@@ -144,43 +182,101 @@ public class IncludeDependenciesInEARMojo extends AbstractBWArtifactMojo {
                 removeVersionFromFileNames(ear);
             }
 
-            if (!isZipLibEmpty) {
-                currentEarArchive.files.put("lib.zip", writeZipArchive(currentLibArchive));
+            if (removeDuplicateJARs) {
+                removeDuplicateJARs();
             }
 
+            boolean isLibZipUnchanged = originalLibArchive != null && originalLibArchive.hasSameContents(currentLibArchive);
+            if (!isZipLibEmpty && !isLibZipUnchanged) {
+                currentEarArchive.files.put("lib.zip", writeZipArchive(currentLibArchive));
+            }
 
-            Files.write(earPath, writeZipArchive(currentEarArchive));
+            if (updater == null) {
+                Files.write(earPath, writeZipArchive(currentEarArchive));
+            } else {
+                Map<String, byte[]> changedEntries = new LinkedHashMap<>();
+                for (Map.Entry<String, byte[]> entry : currentEarArchive.files.entrySet()) {
+                    if (!Arrays.equals(entry.getValue(), originalEntries.get(entry.getKey()))) {
+                        changedEntries.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                updateEARInPlace(updater, earPath, changedEntries);
+            }
         } catch (Exception e) {
             throw new JDOMException("Failed to update EAR aliases", e);
         } finally {
             currentEarArchive = null;
             currentLibArchive = null;
+            if (updater != null) {
+                updater.close();
+            }
         }
     }
 
-    private static final class ArchiveContents {
-        private final Map<String, byte[]> files = new LinkedHashMap<>();
-        private final Set<String> directories = new LinkedHashSet<>();
+    /**
+     * <p>
+     * Writes only the changed entries of the EAR. If the EAR cannot be updated
+     * in place (the updater leaves it as it was), it is rewritten.
+     * </p>
+     */
+    private void updateEARInPlace(ZipArchiveUpdater updater, Path earPath, Map<String, byte[]> changedEntries) throws IOException {
+        if (changedEntries.isEmpty()) {
+            getLog().debug("EAR unchanged");
+            return;
+        }
+        for (Map.Entry<String, byte[]> entry : changedEntries.entrySet()) {
+            updater.put(entry.getKey(), entry.getValue());
+        }
+
+        try {
+            updater.commit(compactionThreshold);
+        } catch (IOException e) {
+            getLog().warn("Unable to update the EAR in place, it will be rewritten: " + e.getMessage());
+            updater.close();
+
+            ArchiveContents earArchive = readZipArchive(Files.readAllBytes(earPath));
+            earArchive.files.putAll(changedEntries);
+            Files.write(earPath, writeZipArchive(earArchive));
+            return;
+        }
+        if (updater.isCompacted()) {
+            getLog().debug("EAR updated in place and compacted");
+        } else {
+            getLog().debug("EAR updated in place (" + updater.getWastedBytes() + " bytes superseded)");
+        }
+    }
+
+    private ZipArchiveUpdater openForUpdate(Path earPath) throws IOException {
+        try {
+            return ZipArchiveUpdater.open(earPath, zipArchiveWriter);
+        } catch (ZipException e) {
+            getLog().warn("Unable to update the EAR in place, it will be rewritten: " + e.getMessage());
+            return null;
+        }
     }
 
     private ArchiveContents readZipArchive(byte[] archiveBytes) throws IOException {
+        return ArchiveContents.read(archiveBytes);
+    }
+
+    /**
+     * <p>
+     * Reads only the entries of the EAR this goal may modify.
+     * </p>
+     */
+    private ArchiveContents readZipArchive(ZipArchiveUpdater updater) throws IOException {
         ArchiveContents contents = new ArchiveContents();
-        try (ZipArchiveInputStream input = new ZipArchiveInputStream(new ByteArrayInputStream(archiveBytes))) {
-            ZipArchiveEntry entry;
-            while ((entry = input.getNextEntry()) != null) {
-                String name = entry.getName();
-                if (entry.isDirectory()) {
-                    contents.directories.add(ensureDirectoryName(name));
-                    continue;
-                }
-                contents.files.put(name, readEntryBytes(input));
+        for (String name : updater.getEntryNames()) {
+            boolean isDescriptorOrArchive = name.equals("TIBCO.xml") || name.endsWith(".par") || name.endsWith(".sar");
+            if (name.equals("lib.zip") || ((removeVersionFromFileNames || removeDuplicateJARs) && isDescriptorOrArchive)) {
+                contents.files.put(name, updater.read(name));
             }
         }
         return contents;
     }
 
     private byte[] writeZipArchive(ArchiveContents contents) throws IOException {
-        return writeZipArchive(contents.directories, contents.files);
+        return contents.write(zipArchiveWriter);
     }
 
     private void removeVersionFromFileNames(File ear) throws IOException, JDOMException {
@@ -210,6 +306,84 @@ public class IncludeDependenciesInEARMojo extends AbstractBWArtifactMojo {
         }
     }
 
+    /**
+     * <p>
+     * This methods removes from "lib.zip" the JARs which are byte-identical to
+     * a JAR found earlier in "lib.zip" or in a PAR or SAR of the EAR, unless
+     * their file name is referenced by a "TIBCO.xml" descriptor.
+     * </p>
+     *
+     * @throws IOException
+     * @throws JDOMException
+     */
+    private void removeDuplicateJARs() throws IOException, JDOMException {
+        Map<String, String> knownJARs = new HashMap<>(); // SHA-256 -> location
+        Set<String> referencedJARs = new HashSet<>();
+
+        for (Map.Entry<String, byte[]> entry : currentEarArchive.files.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals("TIBCO.xml")) {
+                referencedJARs.addAll(getReferencedJARNames(entry.getValue()));
+            } else if (name.endsWith(".par") || name.endsWith(".sar")) {
+                byte[] tibcoXml = readZipArchive(entry.getValue()).files.get("TIBCO.xml");
+                if (tibcoXml != null) {
+                    referencedJARs.addAll(getReferencedJARNames(tibcoXml));
+                }
+                Map<String, byte[]> jars = new LinkedHashMap<>();
+                EARClassIndex.collectJARs(name, entry.getValue(), jars);
+                for (Map.Entry<String, byte[]> jar : jars.entrySet()) {
+                    knownJARs.putIfAbsent(EARClassIndex.digest(jar.getValue()), jar.getKey());
+                }
+            }
+        }
+
+        Iterator<Map.Entry<String, byte[]>> iterator = currentLibArchive.files.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> entry = iterator.next();
+            String name = entry.getKey();
+            if (!name.endsWith(JAR_EXTENSION)) {
+                continue;
+            }
+            String duplicateOf = knownJARs.putIfAbsent(EARClassIndex.digest(entry.getValue()), "lib.zip!/" + name);
+            if (duplicateOf == null) {
+                continue;
+            }
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            if (referencedJARs.contains(fileName)) {
+                getLog().debug("Keeping duplicate JAR " + name + " referenced in TIBCO.xml");
+                continue;
+            }
+            getLog().info("Removing duplicate JAR " + name + " from lib.zip (identical to " + duplicateOf + ")");
+            iterator.remove();
+        }
+    }
+
+    /**
+     * <p>
+     * Parses a "TIBCO.xml" descriptor and returns the file names of the JARs
+     * found in its values (aliases, "EXTERNAL_JAR_DEPENDENCY"...). A value may
+     * hold several paths separated by ';', ',', ':' or '|'.
+     * </p>
+     *
+     * @param tibcoXml
+     * @return the file names (without their directory) of the referenced JARs
+     * @throws JDOMException
+     * @throws IOException
+     */
+    static Set<String> getReferencedJARNames(byte[] tibcoXml) throws JDOMException, IOException {
+        Document document = new SAXBuilder().build(new ByteArrayInputStream(tibcoXml));
+        XPathExpression<Element> values = XPATH_FACTORY.compile("//dd:value", Filters.element(), null, DD_NAMESPACE);
+
+        Set<String> result = new HashSet<>();
+        for (Element value : values.evaluate(document)) {
+            Matcher matcher = REFERENCED_JAR_PATTERN.matcher(value.getTextTrim());
+            while (matcher.find()) {
+                result.add(matcher.group());
+            }
+        }
+        return result;
+    }
+
     private void updateAlias(String includeOrigin, String includeDestination, File ear) throws JDOMException, IOException {
         if (currentEarArchive == null) {
             return;
@@ -313,77 +487,6 @@ public class IncludeDependenciesInEARMojo extends AbstractBWArtifactMojo {
         return output.toByteArray();
     }
 
-    private byte[] readEntryBytes(InputStream input) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[8192];
-        int read;
-        while ((read = input.read(data)) != -1) {
-            buffer.write(data, 0, read);
-        }
-        return buffer.toByteArray();
-    }
-
-    private String ensureDirectoryName(String name) {
-        String normalized = name.replace('\\', '/');
-        if (!normalized.endsWith("/")) {
-            normalized += "/";
-        }
-        return normalized;
-    }
-
-    private int directoryDepth(String directory) {
-        int depth = 0;
-        for (int i = 0; i < directory.length(); i++) {
-            if (directory.charAt(i) == '/') {
-                depth++;
-            }
-        }
-        return depth;
-    }
-
-    private byte[] writeZipArchive(Set<String> directories, Map<String, byte[]> files) throws IOException {
-        Set<String> allDirectories = new LinkedHashSet<>();
-        for (String directory : directories) {
-            allDirectories.add(ensureDirectoryName(directory));
-        }
-        for (String fileName : files.keySet()) {
-            int index = fileName.lastIndexOf('/');
-            while (index > 0) {
-                allDirectories.add(fileName.substring(0, index + 1));
-                index = fileName.lastIndexOf('/', index - 1);
-            }
-        }
-
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        try (ZipArchiveOutputStream zipOutput = new ZipArchiveOutputStream(output)) {
-            List<String> orderedDirectories = new ArrayList<>(allDirectories);
-            orderedDirectories.sort((a, b) -> {
-                int depthCompare = Integer.compare(directoryDepth(a), directoryDepth(b));
-                if (depthCompare != 0) {
-                    return depthCompare;
-                }
-                return a.compareTo(b);
-            });
-
-            for (String directory : orderedDirectories) {
-                ZipArchiveEntry entry = new ZipArchiveEntry(directory);
-                zipOutput.putArchiveEntry(entry);
-                zipOutput.closeArchiveEntry();
-            }
-
-            for (Map.Entry<String, byte[]> fileEntry : files.entrySet()) {
-                ZipArchiveEntry entry = new ZipArchiveEntry(fileEntry.getKey());
-                zipOutput.putArchiveEntry(entry);
-                zipOutput.write(fileEntry.getValue());
-                zipOutput.closeArchiveEntry();
-            }
-
-            zipOutput.finish();
-        }
-
-        return output.toByteArray();
-    }
-
     public void execute() throws MojoExecutionException {
         if (skipCompile || skipEARCompile) {
             getLog().info(SKIPPING);
@@ -404,6 +507,9 @@ public class IncludeDependenciesInEARMojo extends AbstractBWArtifactMojo {
         currentLibArchive = null;
         getLog().debug("Using EAR : " + ear.getAbsolutePath());
 
+        zipArchiveWriter = createZipArchiveWriter();
+        getLog().debug("Compressing archives with " + zipArchiveWriter.getThreads() + " thread(s)");
+
         try {
             this.copyRuntimeJARsInEAR(ear);
         } catch (IOException e) {
@@ -0,0 +1,436 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * <p>
+ * This class assembles a TIBCO BusinessWorks EAR in pure Java, without
+ * <i>buildear</i>, for the common case of an Enterprise Archive (".archive"
+ * file) made of one process archive and an optional shared archive:
+ * </p>
+ * <ul>
+ * <li>the PAR contains the processes of the "processProperty" and the
+ * sub-processes they reference</li>
+ * <li>the SAR (if any) contains the other resources of the project, otherwise
+ * they are packaged in the PAR</li>
+ * <li>the "TIBCO.xml" descriptors are generated, with the deployment settable
+ * Global Variables resolved by a {@link GlobalVariablesIndex}</li>
+ * <li>the JAR dependencies are embedded in "lib.zip"</li>
+ * </ul>
+ * <p>
+ * Any other feature of the ".archive" file (adapter archives, custom archive
+ * properties...) is reported by {@link #getUnsupportedFeatures()} so that the
+ * caller can fall back to <i>buildear</i>. Neither is the project validated:
+ * {@link #compare(byte[], byte[])} reports the entries differing from an EAR
+ * built by <i>buildear</i>.
+ * </p>
+ *
+ * @see CompileEARMojo
+ */
+public class NativeEARAssembler {
+
+    private static final Namespace DD_NAMESPACE = Namespace.getNamespace("http://www.tibco.com/xmlns/dd");
+    private static final String TIBCO_XML = "TIBCO.xml";
+    private static final String LIB_ZIP = "lib.zip";
+    private static final String LIB_DIRECTORY = "WEB-INF/lib/";
+    private static final String PROCESS_EXTENSION = ".process";
+    private static final String ARCHIVE_EXTENSION = ".archive";
+    private static final String PAR_EXTENSION = ".par";
+    private static final String SAR_EXTENSION = ".sar";
+
+    private static final Set<String> ENTERPRISE_ARCHIVE_PROPERTIES = new HashSet<String>(Arrays.asList(
+            "sharedArchive", "processArchive", "name", "description", "versionProperty", "authorProperty",
+            "addServiceSettableGvars", "fileLocationProperty", "designer"));
+    private static final Set<String> PROCESS_ARCHIVE_PROPERTIES = new HashSet<String>(Arrays.asList(
+            "resourceType", "description", "authorProperty", "processProperty", "designer"));
+    private static final Set<String> SHARED_ARCHIVE_PROPERTIES = new HashSet<String>(Arrays.asList(
+            "resourceType", "description", "authorProperty", "designer"));
+    private static final Set<String> DESIGN_TIME_FILES = new HashSet<String>(Arrays.asList(
+            "vcrepo.dat", ".folder", ".designtimelibs"));
+
+    // a process path in an element text or an attribute value: >/Folder/Sub.process< or "/Folder/Sub.process"
+    private static final Pattern PROCESS_REFERENCE = Pattern.compile("[>\"](/[^<>\"]+?\\" + PROCESS_EXTENSION + ")[<\"]");
+
+    private final File projectDirectory;
+    private final ZipArchiveWriter writer;
+    private final List<String> unsupportedFeatures = new ArrayList<String>();
+
+    private Element enterpriseArchive;
+    private Element processArchive;
+    private Element sharedArchive;
+
+    private final Map<String, File> jars = new TreeMap<String, File>();
+    private GlobalVariablesIndex globalVariables;
+    private String owner;
+    private long creationTime = System.currentTimeMillis();
+
+    /**
+     *
+     * @param projectDirectory, the TIBCO BusinessWorks project directory
+     * @param archiveFile, the ".archive" file of the Enterprise Archive
+     * @param writer, the writer of the EAR and of its nested archives
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public NativeEARAssembler(File projectDirectory, File archiveFile, ZipArchiveWriter writer) throws IOException, JDOMException {
+        this.projectDirectory = projectDirectory;
+        this.writer = writer;
+
+        Document document = new SAXBuilder().build(archiveFile);
+        enterpriseArchive = getChild(document.getRootElement(), "enterpriseArchive");
+        if (enterpriseArchive == null) {
+            unsupportedFeatures.add("no 'enterpriseArchive' in " + archiveFile.getName());
+            return;
+        }
+
+        for (Element child : enterpriseArchive.getChildren()) {
+            String name = child.getName();
+            if (!ENTERPRISE_ARCHIVE_PROPERTIES.contains(name)) {
+                unsupportedFeatures.add("'" + name + "' in the Enterprise Archive");
+            } else if (name.equals("processArchive")) {
+                if (processArchive != null) {
+                    unsupportedFeatures.add("several process archives");
+                }
+                processArchive = child;
+                checkProperties(child, PROCESS_ARCHIVE_PROPERTIES, "the process archive");
+            } else if (name.equals("sharedArchive")) {
+                sharedArchive = child;
+                checkProperties(child, SHARED_ARCHIVE_PROPERTIES, "the shared archive");
+            }
+        }
+        if (processArchive == null) {
+            unsupportedFeatures.add("no process archive");
+        }
+
+        owner = getProperty(enterpriseArchive, "authorProperty");
+        if (owner.isEmpty()) {
+            owner = System.getProperty("user.name", "");
+        }
+    }
+
+    private void checkProperties(Element archive, Set<String> supportedProperties, String description) {
+        for (Element child : archive.getChildren()) {
+            if (!supportedProperties.contains(child.getName())) {
+                unsupportedFeatures.add("'" + child.getName() + "' in " + description);
+            }
+        }
+    }
+
+    /**
+     * @return the features of the ".archive" file which cannot be assembled
+     * natively (empty if the EAR can be assembled)
+     */
+    public List<String> getUnsupportedFeatures() {
+        return Collections.unmodifiableList(unsupportedFeatures);
+    }
+
+    public boolean isSupported() {
+        return unsupportedFeatures.isEmpty();
+    }
+
+    /**
+     * @param jarName, the name of the JAR in "lib.zip"
+     * @param jar, the JAR file
+     */
+    public void addJAR(String jarName, File jar) {
+        jars.put(jarName, jar);
+    }
+
+    public void setGlobalVariables(GlobalVariablesIndex globalVariables) {
+        this.globalVariables = globalVariables;
+    }
+
+    /**
+     * @param owner, the <i>owner</i> of the descriptors (default is the author
+     * of the Enterprise Archive or the current user)
+     */
+    public void setOwner(String owner) {
+        this.owner = owner == null ? "" : owner;
+    }
+
+    public void setCreationTime(long creationTime) {
+        this.creationTime = creationTime;
+    }
+
+    /**
+     * @return the content of the EAR
+     * @throws IOException
+     */
+    public byte[] assemble() throws IOException {
+        if (!isSupported()) {
+            throw new IllegalStateException("Unable to assemble the EAR natively: " + String.join(", ", unsupportedFeatures));
+        }
+
+        Map<String, byte[]> resources = readResources();
+        Set<String> processes = resolveProcesses(resources);
+
+        Map<String, byte[]> parFiles = new TreeMap<String, byte[]>();
+        Map<String, byte[]> sarFiles = new TreeMap<String, byte[]>();
+        for (Map.Entry<String, byte[]> resource : resources.entrySet()) {
+            String name = resource.getKey();
+            if (processes.contains(name)) {
+                parFiles.put(name, resource.getValue());
+            } else if (name.endsWith(PROCESS_EXTENSION)) {
+                continue; // not used by the process archive
+            } else if (sharedArchive != null) {
+                sarFiles.put(name, resource.getValue());
+            } else {
+                parFiles.put(name, resource.getValue());
+            }
+        }
+        parFiles.put(TIBCO_XML, processArchiveDescriptor());
+
+        Map<String, byte[]> earFiles = new LinkedHashMap<String, byte[]>();
+        earFiles.put(TIBCO_XML, applicationDescriptor());
+        earFiles.put(processArchive.getAttributeValue("name") + PAR_EXTENSION, writer.write(Collections.<String>emptySet(), parFiles));
+        if (sharedArchive != null) {
+            sarFiles.put(TIBCO_XML, toBytes(newDescriptor(sharedArchive)));
+            earFiles.put(sharedArchive.getAttributeValue("name") + SAR_EXTENSION, writer.write(Collections.<String>emptySet(), sarFiles));
+        }
+        if (!jars.isEmpty()) {
+            earFiles.put(LIB_ZIP, libZip());
+        }
+
+        return writer.write(Collections.<String>emptySet(), earFiles);
+    }
+
+    /**
+     * @return the resources of the project, by path relative to the project
+     * directory, without the design-time files, the ".archive" files and the
+     * "defaultVars" (which are resolved in the descriptors)
+     */
+    private Map<String, byte[]> readResources() throws IOException {
+        Map<String, byte[]> resources = new TreeMap<String, byte[]>();
+        Path root = projectDirectory.toPath();
+        Path defaultVars = root.resolve(GlobalVariablesIndex.DEFAULT_VARS_DIRECTORY);
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!Files.isRegularFile(path) || path.startsWith(defaultVars)) {
+                    continue;
+                }
+                Path relative = root.relativize(path);
+                String fileName = relative.getFileName().toString();
+                if (DESIGN_TIME_FILES.contains(fileName) || fileName.endsWith(ARCHIVE_EXTENSION) || isHidden(relative)) {
+                    continue;
+                }
+                resources.put(relative.toString().replace('\\', '/'), Files.readAllBytes(path));
+            }
+        }
+        return resources;
+    }
+
+    private static boolean isHidden(Path relative) {
+        for (Path segment : relative) {
+            if (segment.toString().startsWith(".") && !DESIGN_TIME_FILES.contains(segment.toString())) {
+                return true; // .svn, .git...
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the processes of the "processProperty" and, transitively, the
+     * processes they reference
+     */
+    private Set<String> resolveProcesses(Map<String, byte[]> resources) throws IOException {
+        Set<String> processes = new LinkedHashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>();
+        for (String process : getProperty(processArchive, "processProperty").split(",")) {
+            process = stripLeadingSlash(process.trim());
+            if (process.isEmpty()) {
+                continue;
+            }
+            if (!resources.containsKey(process)) {
+                throw new IOException("The process '/" + process + "' of the process archive does not exist");
+            }
+            if (processes.add(process)) {
+                queue.add(process);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Matcher matcher = PROCESS_REFERENCE.matcher(new String(resources.get(queue.poll()), StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                String reference = stripLeadingSlash(matcher.group(1));
+                if (resources.containsKey(reference) && processes.add(reference)) {
+                    queue.add(reference);
+                }
+            }
+        }
+        return processes;
+    }
+
+    private static String stripLeadingSlash(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    private Element newDescriptor(Element archive) {
+        Element descriptor = new Element("DeploymentDescriptors", DD_NAMESPACE);
+        addText(descriptor, "name", archive == enterpriseArchive ? getProperty(archive, "name") : archive.getAttributeValue("name"));
+        addText(descriptor, "description", getProperty(archive, "description"));
+        addText(descriptor, "version", getProperty(enterpriseArchive, "versionProperty"));
+        addText(descriptor, "owner", owner);
+        addText(descriptor, "creationDate", EARNormalizer.formatCreationDate(creationTime));
+        return descriptor;
+    }
+
+    private byte[] applicationDescriptor() throws IOException {
+        Element descriptor = newDescriptor(enterpriseArchive);
+        if (globalVariables != null) {
+            Element nameValuePairs = addNameValuePairs(descriptor, "Global Variables");
+            for (GlobalVariablesIndex.Variable variable : globalVariables.getVariables().values()) {
+                if (variable.isDeploymentSettable()) {
+                    nameValuePairs.addContent(nameValuePair(variable));
+                }
+            }
+        }
+        return toBytes(descriptor);
+    }
+
+    private byte[] processArchiveDescriptor() throws IOException {
+        Element descriptor = newDescriptor(processArchive);
+
+        Element starters = addNameValuePairs(descriptor, "Process Starters");
+        for (String process : getProperty(processArchive, "processProperty").split(",")) {
+            if (!process.trim().isEmpty()) {
+                Element nameValuePair = new Element("NameValuePair", DD_NAMESPACE);
+                addText(nameValuePair, "name", "/" + stripLeadingSlash(process.trim()));
+                addText(nameValuePair, "value", "true");
+                starters.addContent(nameValuePair);
+            }
+        }
+
+        if (globalVariables != null && Boolean.parseBoolean(getProperty(enterpriseArchive, "addServiceSettableGvars"))) {
+            Element nameValuePairs = addNameValuePairs(descriptor, "Global Variables");
+            for (GlobalVariablesIndex.Variable variable : globalVariables.getVariables().values()) {
+                if (variable.isServiceSettable()) {
+                    nameValuePairs.addContent(nameValuePair(variable));
+                }
+            }
+        }
+        return toBytes(descriptor);
+    }
+
+    private static Element addNameValuePairs(Element descriptor, String name) {
+        Element nameValuePairs = new Element("NameValuePairs", DD_NAMESPACE);
+        addText(nameValuePairs, "name", name);
+        descriptor.addContent(nameValuePairs);
+        return nameValuePairs;
+    }
+
+    private static Element nameValuePair(GlobalVariablesIndex.Variable variable) {
+        String type = variable.getDefinition().getType();
+        String elementName = "NameValuePair";
+        if ("Integer".equals(type) || "Boolean".equals(type) || "Password".equals(type)) {
+            elementName += type;
+        }
+        Element nameValuePair = new Element(elementName, DD_NAMESPACE);
+        addText(nameValuePair, "name", variable.getName());
+        addText(nameValuePair, "value", variable.getValue());
+        String description = variable.getDefinition().getDescription();
+        if (description != null && !description.isEmpty()) {
+            addText(nameValuePair, "description", description);
+        }
+        return nameValuePair;
+    }
+
+    private byte[] libZip() throws IOException {
+        Set<String> directories = new LinkedHashSet<String>(Arrays.asList("WEB-INF/", LIB_DIRECTORY));
+        Map<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+        for (Map.Entry<String, File> jar : jars.entrySet()) {
+            files.put(LIB_DIRECTORY + jar.getKey(), Files.readAllBytes(jar.getValue().toPath()));
+        }
+        return writer.write(directories, files);
+    }
+
+    private static void addText(Element parent, String name, String text) {
+        parent.addContent(new Element(name, DD_NAMESPACE).setText(text == null ? "" : text));
+    }
+
+    /**
+     * @return the first child with the given local name, whatever its namespace
+     */
+    private static Element getChild(Element parent, String name) {
+        for (Element child : parent.getChildren()) {
+            if (child.getName().equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static String getProperty(Element parent, String name) {
+        Element child = getChild(parent, name);
+        return child == null ? "" : child.getTextTrim();
+    }
+
+    private static byte[] toBytes(Element root) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        XMLOutputter xmlOutput = new XMLOutputter();
+        xmlOutput.setFormat(Format.getPrettyFormat().setIndent("    "));
+        xmlOutput.output(new Document(root), output);
+        return output.toByteArray();
+    }
+
+    /**
+     * <p>
+     * Compares two EARs entry by entry, recursing into the nested archives.
+     * The "TIBCO.xml" descriptors are compared without their volatile fields
+     * (<i>owner</i>, <i>creationDate</i> and <i>version</i>).
+     * </p>
+     *
+     * @param reference, an EAR built by <i>buildear</i>
+     * @param candidate, an EAR assembled natively
+     * @return the differences: "- entry" (missing), "+ entry" (unexpected) or
+     * "~ entry" (different content), empty if the EARs are equivalent
+     * @throws IOException
+     */
+    public static List<String> compare(byte[] reference, byte[] candidate) throws IOException {
+        return ArchiveContents.compare(reference, candidate);
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+
+/**
+ * <p>
+ * This class assembles a TIBCO BusinessWorks Projlib in pure Java, without
+ * <i>buildlibrary</i>, from a Library Builder (".libbuilder" file).
+ * </p>
+ * <p>
+ * The Projlib contains the resources selected by the "resources" property of
+ * the Library Builder (files or whole folders), the ".folder" descriptors of
+ * their folders, the "defaultVars" of the project and its ".designtimelibs".
+ * Each projlib alias of the ".designtimelibs" must be mapped to an existing
+ * file by the "aliases.properties" given to <i>buildlibrary</i>.
+ * </p>
+ * <p>
+ * Any other property of the Library Builder is reported by
+ * {@link #getUnsupportedFeatures()} so that the caller can fall back to
+ * <i>buildlibrary</i>. The project is not validated.
+ * </p>
+ *
+ * @see CompileProjlibMojo
+ */
+public class NativeProjlibAssembler {
+
+    private static final String FOLDER_FILE = ".folder";
+    private static final String DTL_FILE = ".designtimelibs";
+    private static final String ALIAS_PREFIX = "tibco.alias.";
+
+    private static final Set<String> LIBRARY_PROPERTIES = new HashSet<String>(Arrays.asList(
+            "version", "author", "description", "fileLocation", "resources", "designer"));
+    private static final Set<String> EXCLUDED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+            ".libbuilder", ".archive"));
+
+    private final File projectDirectory;
+    private final ZipArchiveWriter writer;
+    private final List<String> unsupportedFeatures = new ArrayList<String>();
+    private final List<String> resources = new ArrayList<String>();
+
+    private Properties aliases = new Properties();
+    private Collection<String> excludedGlobalVariablesFolders = Collections.emptyList();
+
+    /**
+     *
+     * @param projectDirectory, the TIBCO BusinessWorks project directory
+     * @param libBuilderFile, the ".libbuilder" file of the Projlib
+     * @param writer, the writer of the Projlib
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public NativeProjlibAssembler(File projectDirectory, File libBuilderFile, ZipArchiveWriter writer) throws IOException, JDOMException {
+        this.projectDirectory = projectDirectory;
+        this.writer = writer;
+
+        Document document = new SAXBuilder().build(libBuilderFile);
+        List<Element> libraries = document.getRootElement().getChildren();
+        if (libraries.size() != 1) {
+            unsupportedFeatures.add(libraries.size() + " libraries in " + libBuilderFile.getName());
+            return;
+        }
+
+        for (Element child : libraries.get(0).getChildren()) {
+            if (!LIBRARY_PROPERTIES.contains(child.getName())) {
+                unsupportedFeatures.add("'" + child.getName() + "' in the Library Builder");
+            } else if (child.getName().equals("resources")) {
+                for (String resource : child.getTextTrim().split(",")) {
+                    resource = resource.trim();
+                    if (!resource.isEmpty()) {
+                        resources.add(resource.startsWith("/") ? resource.substring(1) : resource);
+                    }
+                }
+            }
+        }
+        if (resources.isEmpty()) {
+            unsupportedFeatures.add("no resources in the Library Builder");
+        }
+    }
+
+    /**
+     * @return the features of the ".libbuilder" file which cannot be
+     * assembled natively (empty if the Projlib can be assembled)
+     */
+    public List<String> getUnsupportedFeatures() {
+        return Collections.unmodifiableList(unsupportedFeatures);
+    }
+
+    public boolean isSupported() {
+        return unsupportedFeatures.isEmpty();
+    }
+
+    /**
+     * @param aliases, the content of the "aliases.properties" file
+     * ("tibco.alias.&lt;alias&gt;=&lt;path&gt;")
+     */
+    public void setAliases(Properties aliases) {
+        this.aliases = aliases;
+    }
+
+    /**
+     * @param excludedGlobalVariablesFolders, the folders of "defaultVars" not
+     * to package (copies of the variables of the projlib dependencies)
+     */
+    public void setExcludedGlobalVariablesFolders(Collection<String> excludedGlobalVariablesFolders) {
+        this.excludedGlobalVariablesFolders = excludedGlobalVariablesFolders;
+    }
+
+    /**
+     * @return the content of the Projlib
+     * @throws IOException
+     */
+    public byte[] assemble() throws IOException {
+        if (!isSupported()) {
+            throw new IllegalStateException("Unable to assemble the Projlib natively: " + String.join(", ", unsupportedFeatures));
+        }
+
+        Map<String, Path> files = new TreeMap<String, Path>();
+        Set<String> selectedResources = new HashSet<String>();
+        Path root = projectDirectory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
+                String name = root.relativize(path).toString().replace('\\', '/');
+                String resource = getSelectingResource(name);
+                if (resource != null) {
+                    selectedResources.add(resource);
+                    files.put(name, path);
+                } else if (isGlobalVariables(name) || name.equals(DTL_FILE)) {
+                    files.put(name, path);
+                }
+            }
+        }
+
+        for (String resource : resources) {
+            if (!selectedResources.contains(resource)) {
+                throw new IOException("The resource '/" + resource + "' of the library does not exist");
+            }
+        }
+        addFolderDescriptors(files, root);
+        checkAliases(root.resolve(DTL_FILE));
+
+        Map<String, byte[]> contents = new TreeMap<String, byte[]>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            contents.put(file.getKey(), Files.readAllBytes(file.getValue()));
+        }
+        return writer.write(Collections.<String>emptySet(), contents);
+    }
+
+    /**
+     * @return the resource of the Library Builder selecting this file (the file
+     * itself or one of its folders), null if the file is not selected
+     */
+    private String getSelectingResource(String name) {
+        for (String excludedExtension : EXCLUDED_EXTENSIONS) {
+            if (name.endsWith(excludedExtension)) {
+                return null;
+            }
+        }
+        for (String resource : resources) {
+            if (name.equals(resource) || name.startsWith(resource + "/")) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private boolean isGlobalVariables(String name) {
+        String prefix = GlobalVariablesIndex.DEFAULT_VARS_DIRECTORY + "/";
+        if (!name.startsWith(prefix) || !name.endsWith(GlobalVariablesIndex.SUBSTVAR_FILE)) {
+            return false;
+        }
+        int end = name.indexOf('/', prefix.length());
+        return end < 0 || !excludedGlobalVariablesFolders.contains(name.substring(prefix.length(), end));
+    }
+
+    /**
+     * Adds the ".folder" descriptors of the folders of the selected files.
+     */
+    private static void addFolderDescriptors(Map<String, Path> files, Path root) {
+        Set<String> folders = new HashSet<String>();
+        folders.add("");
+        for (String name : files.keySet()) {
+            int index = name.lastIndexOf('/');
+            while (index > 0 && folders.add(name.substring(0, index + 1))) {
+                index = name.lastIndexOf('/', index - 1);
+            }
+        }
+        for (String folder : folders) {
+            Path folderFile = root.resolve(folder + FOLDER_FILE);
+            if (Files.isRegularFile(folderFile)) {
+                files.put(folder + FOLDER_FILE, folderFile);
+            }
+        }
+    }
+
+    /**
+     * Checks that each projlib alias of the ".designtimelibs" is mapped to an
+     * existing file, as <i>buildlibrary</i> does with "aliases.properties".
+     */
+    private void checkAliases(Path designTimeLibs) throws IOException {
+        if (!Files.isRegularFile(designTimeLibs)) {
+            return;
+        }
+        Properties libraries = new Properties();
+        try (InputStream input = Files.newInputStream(designTimeLibs)) {
+            libraries.load(input);
+        }
+        for (String key : libraries.stringPropertyNames()) {
+            String alias = libraries.getProperty(key);
+            if (alias.endsWith("=")) {
+                alias = alias.substring(0, alias.length() - 1); // "<index>=<alias>\="
+            }
+            String path = aliases.getProperty(ALIAS_PREFIX + alias);
+            if (path == null || !new File(path).exists()) {
+                throw new IOException("The alias '" + alias + "' of " + DTL_FILE + " is not mapped to an existing file");
+            }
+        }
+    }
+
+}
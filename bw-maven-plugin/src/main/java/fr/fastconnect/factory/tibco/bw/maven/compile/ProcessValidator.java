@@ -0,0 +1,301 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex.ActivityEntry;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex.TransitionEntry;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndexer;
+
+/**
+ * <p>
+ * This class validates the ".process" files of a TIBCO BusinessWorks project
+ * in a few seconds, before <i>buildear</i> or <i>buildlibrary</i> do it in a
+ * dedicated JVM:
+ * </p>
+ * <ul>
+ * <li>each process must be parsed by the process indexer
+ * ("http://xmlns.tibco.com/bw/process/2003" namespace), which skips the
+ * activities configurations</li>
+ * <li>each transition must link the start, the starter, the end, an activity
+ * or a group of the process, or inside a group the start, the end, an
+ * activity or a nested group of this group</li>
+ * <li>each referenced resource (process, shared resource, schema, WSDL...)
+ * should exist in the project or in one of its projlibs</li>
+ * </ul>
+ * <p>
+ * The processes are validated in parallel.
+ * </p>
+ * <p>
+ * References are looked for in the <i>schemaLocation</i> and <i>location</i>
+ * attributes and in the text of the elements, except in the input bindings
+ * and XPath conditions where a path may be a mere literal. Since a
+ * configuration value may still look like a path, dangling references are
+ * reported as warnings.
+ * </p>
+ */
+public class ProcessValidator {
+
+    private static final String PROCESS_EXTENSION = ".process";
+
+    // the implicit start and end activities of a group
+    private static final String GROUP_START = "start";
+    private static final String GROUP_END = "end";
+
+    private static final String RESOURCE_PATH = "(/[^<>\"]+?\\.(?:process|xsd|wsdl|aeschema|aliaslib|id|sharedvariable|jobsharedvariable|shared[a-z]+))";
+
+    // a resource path in the whole text of an element (>/Folder/Resource.ext<) or in a location attribute
+    private static final Pattern RESOURCE_REFERENCE = Pattern.compile(
+            ">" + RESOURCE_PATH + "<|\\b(?:schemaLocation|location)=\"" + RESOURCE_PATH + "\"");
+
+    // mappings and conditions, where a path may be a literal value
+    private static final Pattern LITERALS = Pattern.compile(
+            "<((?:\\w+:)?(?:inputBindings|xpath))\\b.*?</\\1>", Pattern.DOTALL);
+
+    /**
+     * <p>
+     * A problem found in a process.
+     * </p>
+     */
+    public static final class Problem implements Comparable<Problem> {
+        private final String process;
+        private final String message;
+        private final boolean warning;
+
+        private Problem(String process, String message, boolean warning) {
+            this.process = process;
+            this.message = message;
+            this.warning = warning;
+        }
+
+        private Problem(String process, String message) {
+            this(process, message, false);
+        }
+
+        public String getProcess() {
+            return process;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return true if the problem may be a false positive, in which case
+         * it must not fail the build
+         */
+        public boolean isWarning() {
+            return warning;
+        }
+
+        @Override
+        public int compareTo(Problem other) {
+            int result = process.compareTo(other.process);
+            return result != 0 ? result : message.compareTo(other.message);
+        }
+
+        @Override
+        public String toString() {
+            return "/" + process + ": " + message;
+        }
+    }
+
+    private final File projectDirectory;
+    private final ProcessIndexer indexer = new ProcessIndexer();
+    private final Set<String> projectResources = new TreeSet<String>();
+    private final Set<String> libraryResources = new HashSet<String>();
+
+    /**
+     * @param projectDirectory, the (staged) TIBCO BusinessWorks project
+     * directory
+     * @throws IOException
+     */
+    public ProcessValidator(File projectDirectory) throws IOException {
+        this.projectDirectory = projectDirectory;
+
+        Path root = projectDirectory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(path)) {
+                    projectResources.add(root.relativize(path).toString().replace('\\', '/'));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the resources of a projlib to the resources which can be
+     * referenced by the processes. Only the central directory of the projlib
+     * is read.
+     *
+     * @param projlib
+     * @throws IOException
+     */
+    public void addProjlib(File projlib) throws IOException {
+        try (ZipFile zipFile = ZipFile.builder().setFile(projlib).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                String name = entry.getName().replace('\\', '/');
+                if (!entry.isDirectory()) {
+                    libraryResources.add(name.startsWith("/") ? name.substring(1) : name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param threads, the number of validation threads (0 means the number of
+     * available processors)
+     * @return the problems found, sorted by process
+     * @throws IOException
+     */
+    public List<Problem> validate(int threads) throws IOException {
+        List<Callable<List<Problem>>> tasks = new ArrayList<Callable<List<Problem>>>();
+        for (final String resource : projectResources) {
+            if (resource.endsWith(PROCESS_EXTENSION)) {
+                tasks.add(() -> validate(resource));
+            }
+        }
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        List<Problem> problems = new ArrayList<Problem>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try {
+            for (Future<List<Problem>> result : executor.invokeAll(tasks)) {
+                problems.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while validating processes");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to validate processes", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        Collections.sort(problems);
+        return problems;
+    }
+
+    /**
+     * @param process, the path of the process relative to the project directory
+     * @return the problems found in the process
+     * @throws IOException
+     */
+    private List<Problem> validate(String process) throws IOException {
+        List<Problem> problems = new ArrayList<Problem>();
+        byte[] content = Files.readAllBytes(new File(projectDirectory, process).toPath());
+        String text = new String(content, StandardCharsets.UTF_8);
+
+        ProcessIndex index;
+        try {
+            index = indexer.index(new ByteArrayInputStream(content));
+        } catch (XMLStreamException e) {
+            problems.add(new Problem(process, "unable to parse the process (" + e.getLocalizedMessage() + ")"));
+            return problems;
+        }
+
+        // transitions, checked against the activities of the same level
+        Set<String> nodes = new HashSet<String>();
+        nodes.add(index.getStartName());
+        nodes.add(index.getEndName());
+        if (index.getStarter() != null) {
+            nodes.add(index.getStarter().getName());
+        }
+        Map<String, Set<String>> groupNodes = new HashMap<String, Set<String>>(); // by group
+        for (ActivityEntry activity : index.getActivities()) {
+            if (activity.isGroup()) {
+                groupNodes.computeIfAbsent(activity.getName(), g -> new HashSet<String>()).addAll(Arrays.asList(GROUP_START, GROUP_END));
+            }
+            if (activity.getGroup() == null) { // including the top-level groups
+                nodes.add(activity.getName());
+            } else {
+                groupNodes.computeIfAbsent(activity.getGroup(), g -> new HashSet<String>()).add(activity.getName());
+            }
+        }
+        for (TransitionEntry transition : index.getTransitions()) {
+            if (transition.getGroup() != null) {
+                String group = "group '" + transition.getGroup() + "': ";
+                Set<String> endpoints = groupNodes.get(transition.getGroup());
+                if (!endpoints.contains(transition.getFrom())) {
+                    problems.add(new Problem(process, group + "transition from unknown activity '" + transition.getFrom() + "'"));
+                }
+                if (!endpoints.contains(transition.getTo())) {
+                    problems.add(new Problem(process, group + "transition to unknown activity '" + transition.getTo() + "'"));
+                }
+                continue;
+            }
+            if (!nodes.contains(transition.getFrom())) {
+                problems.add(new Problem(process, "transition from unknown activity '" + transition.getFrom() + "'"));
+            }
+            if (!nodes.contains(transition.getTo())) {
+                problems.add(new Problem(process, "transition to unknown activity '" + transition.getTo() + "'"));
+            }
+        }
+
+        // references
+        Set<String> references = new TreeSet<String>();
+        Matcher matcher = RESOURCE_REFERENCE.matcher(LITERALS.matcher(text).replaceAll(""));
+        while (matcher.find()) {
+            String reference = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            references.add(reference.substring(1));
+        }
+        for (String reference : references) {
+            if (!projectResources.contains(reference) && !libraryResources.contains(reference)) {
+                problems.add(new Problem(process, "dangling reference to '/" + reference + "'", true));
+            }
+        }
+        return problems;
+    }
+
+}
@@ -16,16 +16,17 @@
  */
 package fr.fastconnect.factory.tibco.bw.maven.compile;
 
-import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import jakarta.xml.bind.JAXBException;
 
@@ -39,6 +40,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWArtifactMojo;
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWMojo;
 import fr.fastconnect.factory.tibco.bw.maven.source.AbstractProjectsListMojo;
+import fr.fastconnect.factory.tibco.bw.maven.source.alias.FileAliasesListCodec;
 import fr.fastconnect.factory.tibco.bw.maven.source.alias.RepositoryModel;
 
 /**
@@ -77,8 +79,15 @@ public class UpdateAliasesLibsMojo extends AbstractBWArtifactMojo {
 	@Parameter(required=false, defaultValue="true")
 	public Boolean keepOriginalAliasLib;
 
+	/**
+	 * Number of threads used to update the '.aliaslib' files. Default (0)
+	 * uses the number of available processors.
+	 */
+	@Parameter(property="bw.aliaslib.threads", defaultValue="0")
+	public Integer aliasLibThreads;
+
 	private List<File> aliaslibFiles; // list of ".aliaslib" files to modify
-	private List<Dependency> jarDependencies; // JAR dependencies retrieved from parent class AbstractBWMojo
+	private List<String> jarAliases; // aliases of the JAR dependencies retrieved from parent class AbstractBWMojo
 
 	@Override
 	protected String getArtifactFileExtension() {
@@ -120,57 +129,42 @@ public class UpdateAliasesLibsMojo extends AbstractBWArtifactMojo {
 	}
 
 	/**
-	 * This method add an alias in the object used internally by TIBCO
-	 * BusinessWorks.
+	 * This method adds aliases in the object used internally by TIBCO
+	 * BusinessWorks, ignoring the ones already present.
 	 * 
 	 * @param list, an object used internally by TIBCO BusinessWorks.
-	 * @param aliasName, the name of the alias as normalized b 
+	 * @param aliasNames, the names of the aliases as normalized by
 	 * {@link AbstractBWMojo}.
 	 */
-	private void addAlias(ArrayList<HashMap<String,Object>> list, String aliasName) {
+	private void addAliases(ArrayList<HashMap<String,Object>> list, List<String> aliasNames) {
+		Set<Object> names = new HashSet<Object>();
 		for (HashMap<String, Object> h : list) {
-			String name = (String) h.get("name");
-			if (name != null && name.equals(aliasName)) {
-				return; // avoid duplicates
-			}
+			names.add(h.get("name"));
 		}
-		HashMap<String, Object> h = new HashMap<String, Object>();
-		h.put("isClasspathFile", Boolean.TRUE);
-		h.put("name", aliasName);
-		h.put("includeInDeployment", Boolean.TRUE);
 
-		list.add(h);
+		for (String aliasName : aliasNames) {
+			if (!names.add(aliasName)) {
+				continue; // avoid duplicates
+			}
+			HashMap<String, Object> h = new HashMap<String, Object>();
+			h.put("isClasspathFile", Boolean.TRUE);
+			h.put("name", aliasName);
+			h.put("includeInDeployment", Boolean.TRUE);
+
+			list.add(h);
+		}
 	}
 
-	@SuppressWarnings("unchecked") // unchecked because we know it's the type used by TIBCO BusinessWorks
-	private ArrayList<HashMap<String, Object>> readXMLBean(RepositoryModel repositoryModel, File f) throws JAXBException, UnsupportedEncodingException {
+	private ArrayList<HashMap<String, Object>> readXMLBean(RepositoryModel repositoryModel) {
 		// retrieve the content of the XML Bean in the ".aliaslib" file
 		String xmlBean = repositoryModel.getRepository().getName().getFILEALIASESLIST();
 
-		// this XML bean is decoded to a Java object with the XMLDecoder
-		XMLDecoder d = new XMLDecoder(new ByteArrayInputStream(xmlBean.getBytes(this.sourceEncoding)));
-		ArrayList<HashMap<String, Object>> result = null;
-		try {
-			result = (ArrayList<HashMap<String, Object>>) d.readObject();
-		} finally {
-			d.close();
-		}
-
-		return result;
+		return FileAliasesListCodec.decode(xmlBean);
 	}
 
-	private void writeXMLBean(RepositoryModel repositoryModel, File f, ArrayList<HashMap<String, Object>> aliases) throws JAXBException, IOException {
-		ByteArrayOutputStream os = new ByteArrayOutputStream();
-
-		XMLEncoder e = new XMLEncoder(os);
-		e.writeObject(aliases);
-		e.close();
-
-		String xmlBean = os.toString(this.sourceEncoding);
-		os.close();
-
+	private void writeXMLBean(RepositoryModel repositoryModel, ArrayList<HashMap<String, Object>> aliases) throws JAXBException {
 		// put back the XML Bean in the ".aliaslib" file
-		repositoryModel.getRepository().getName().setFILEALIASESLIST(xmlBean);
+		repositoryModel.getRepository().getName().setFILEALIASESLIST(FileAliasesListCodec.encode(aliases));
 		repositoryModel.save();
 	}
 
@@ -184,19 +178,22 @@ public class UpdateAliasesLibsMojo extends AbstractBWArtifactMojo {
 		try {
 			RepositoryModel repositoryModel = new RepositoryModel(f);
 
-			ArrayList<HashMap<String, Object>> aliases = readXMLBean(repositoryModel, f);
+			ArrayList<HashMap<String, Object>> originalAliases = readXMLBean(repositoryModel);
 
-			// reset old references
-			if (!keepOriginalAliasLib) {
-				aliases.clear();
+			// reset old references unless they are kept
+			ArrayList<HashMap<String, Object>> aliases = new ArrayList<HashMap<String, Object>>();
+			if (keepOriginalAliasLib) {
+				aliases.addAll(originalAliases);
 			}
 
 			// adding the JAR dependencies
-			for (Dependency dependency : jarDependencies) {
-				addAlias(aliases, getJarAlias(dependency, false));
-			}
+			addAliases(aliases, jarAliases);
 
-			writeXMLBean(repositoryModel, f, aliases);
+			if (aliases.equals(originalAliases)) {
+				getLog().debug("'.aliaslib' file is up to date: " + f);
+				return;
+			}
+			writeXMLBean(repositoryModel, aliases);
 		} catch (Exception e) {
 			throw new MojoExecutionException(e.getMessage(), e);
 		}
@@ -222,14 +219,52 @@ public class UpdateAliasesLibsMojo extends AbstractBWArtifactMojo {
 		super.execute();
 
 		try {
-			jarDependencies = this.getJarDependencies();
+			jarAliases = new ArrayList<String>();
+			for (Dependency dependency : this.getJarDependencies()) {
+				jarAliases.add(getJarAlias(dependency, false));
+			}
 			aliaslibFiles = initFiles(); // look for ".aliaslib" files in "target/src" folder and optional directories in 'customAliasLibDirectories' 
 		} catch (IOException e) {
 			throw new MojoExecutionException(e.getMessage(), e);
 		}
 
-		for (File f : aliaslibFiles) {
-			processFile(f);
+		processFiles(aliaslibFiles);
+	}
+
+	/**
+	 * This method processes the ".aliaslib" files in parallel.
+	 * 
+	 * @param files
+	 * @throws MojoExecutionException
+	 */
+	private void processFiles(List<File> files) throws MojoExecutionException {
+		if (files.isEmpty()) {
+			return;
+		}
+
+		int threads = aliasLibThreads > 0 ? aliasLibThreads : Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (final File f : files) {
+				results.add(executor.submit(() -> {
+					processFile(f);
+					return null;
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof MojoExecutionException) {
+				throw (MojoExecutionException) e.getCause();
+			}
+			throw new MojoExecutionException(e.getCause().getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import fr.fastconnect.factory.tibco.bw.maven.AbstractBWArtifactMojo;
+
+/**
+ * <p>
+ * This goal validates the processes of the TIBCO BusinessWorks project (see
+ * {@link ProcessValidator}) before the EAR or the Projlib is built, so that
+ * broken transitions and dangling references to processes, shared
+ * resources, schemas or projlib resources are reported in seconds instead
+ * of after a <i>buildear</i> or <i>buildlibrary</i> run.
+ * </p>
+ * <p>
+ * This goal is not bound to the <i>bw-ear</i> and <i>projlib</i> lifecycles:
+ * it must be added as an execution of the plugin. Its default phase is
+ * <i>process-resources</i> so that it runs after the sources and the projlibs
+ * are staged and before the <i>compile</i> phase.
+ * </p>
+ * <p>
+ * By default the problems are only reported as warnings. With
+ * <i>bw.validate.processes.failOnError</i>, the unparseable processes and the
+ * broken transitions fail the build (dangling references remain warnings
+ * since a configuration value may look like a path).
+ * </p>
+ */
+@Mojo( name="validate-bw-processes",
+        defaultPhase=LifecyclePhase.PROCESS_RESOURCES )
+public class ValidateProcessesMojo extends AbstractBWArtifactMojo {
+
+    protected final static String VALIDATING_PROCESSES = "Validating the processes...";
+    protected final static String VALIDATE_PROCESSES_FAILED = "Unable to validate the processes.";
+    protected final static String INVALID_PROCESSES = "Invalid processes found";
+    protected final static String VALID_PROCESSES = "The processes are valid.";
+
+    /**
+     * Whether to skip the validation of the processes.
+     */
+    @Parameter (property="bw.validate.processes.skip", defaultValue="false")
+    public Boolean skipProcessValidation;
+
+    /**
+     * Whether to fail the build when a process cannot be parsed or has a
+     * broken transition. Otherwise the problems are only reported as
+     * warnings. Default is false.
+     */
+    @Parameter (property="bw.validate.processes.failOnError", defaultValue="false")
+    public Boolean failOnInvalidProcess;
+
+    /**
+     * Number of threads used to validate the processes. Default (0) uses the
+     * number of available processors.
+     */
+    @Parameter (property="bw.validate.processes.threads", defaultValue="0")
+    public Integer processValidationThreads;
+
+    @Override
+    protected String getArtifactFileExtension() {
+        return BWEAR_EXTENSION;
+    }
+
+    public void execute() throws MojoExecutionException {
+        if (skipCompile || skipProcessValidation || isCurrentGoal("bw:launch-designer")) {
+            getLog().info(SKIPPING);
+            return;
+        }
+
+        super.execute();
+
+        getLog().info(VALIDATING_PROCESSES);
+        List<ProcessValidator.Problem> problems;
+        try {
+            ProcessValidator validator = new ProcessValidator(buildSrcDirectory);
+            for (Dependency dependency : getProjlibsDependencies()) {
+                File projlib = new File(getDependencyPath(getProjlibName(dependency)));
+                if (projlib.exists()) {
+                    validator.addProjlib(projlib);
+                }
+            }
+            problems = validator.validate(processValidationThreads);
+        } catch (IOException e) {
+            throw new MojoExecutionException(VALIDATE_PROCESSES_FAILED, e);
+        }
+
+        if (problems.isEmpty()) {
+            getLog().info(VALID_PROCESSES);
+            return;
+        }
+
+        int errors = 0;
+        for (ProcessValidator.Problem problem : problems) {
+            if (failOnInvalidProcess && !problem.isWarning()) {
+                getLog().error(problem.toString());
+                errors++;
+            } else {
+                getLog().warn(problem.toString());
+            }
+        }
+        if (errors > 0) {
+            throw new MojoExecutionException(INVALID_PROCESSES + " (" + errors + " problems)");
+        }
+    }
+
+}
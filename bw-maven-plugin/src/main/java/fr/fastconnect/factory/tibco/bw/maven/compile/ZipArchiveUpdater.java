@@ -0,0 +1,716 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import fr.fastconnect.factory.tibco.bw.maven.compile.ZipArchiveWriter.CompressedEntry;
+
+/**
+ * <p>
+ * This class updates an existing ZIP archive (typically a TIBCO BusinessWorks
+ * EAR) in place.
+ * </p>
+ * <p>
+ * The central directory is read with random access. Local entries which are
+ * neither replaced nor removed are kept byte-for-byte, as well as their
+ * central directory records. Replaced and new entries are appended after the
+ * end of the archive, followed by a fresh central directory: the previous
+ * central directory stays valid until the new one is written. If the commit
+ * fails, the file is truncated back to its original length. When the space
+ * wasted by replaced and removed entries (and by former central directories)
+ * passes a threshold, the archive is compacted instead: the kept entries are
+ * copied raw (without being inflated) to a new file which replaces the
+ * archive.
+ * </p>
+ * <p>
+ * Until the archive is compacted, superseded local entries remain in the file:
+ * readers using the central directory (<i>ZipFile</i>) ignore them but
+ * streaming readers (<i>ZipInputStream</i>) return them and stop at the former
+ * central directory, before the appended entries. Archives updated in place
+ * must be read with <i>ZipFile</i> (or compacted first). If a commit was
+ * interrupted (by a crash), the archive is opened with its last complete
+ * central directory.
+ * </p>
+ * <p>
+ * ZIP64, multi-disk and encrypted archives are not supported: a
+ * {@link ZipException} is thrown by {@link #open(Path, ZipArchiveWriter)} so
+ * that callers can fall back to a full rewrite.
+ * </p>
+ */
+public class ZipArchiveUpdater implements Closeable {
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int LOCAL_HEADER_OFFSET_POSITION = 42;
+    private static final int DATA_DESCRIPTOR_LENGTH = 12; // without signature
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+    private static final int SCAN_BLOCK_LENGTH = 64 * 1024;
+
+    private static final int VERSION_NEEDED = 20;
+    private static final int UTF8_NAMES_FLAG = 1 << 11;
+    private static final long MAX_ZIP32_VALUE = 0xFFFFFFFFL;
+
+    private final Path archive;
+    private final FileChannel channel;
+    private final ZipArchiveWriter writer;
+
+    private final List<Entry> entries; // central directory order
+    private final Map<String, Entry> entriesByName;
+    private final long centralDirectoryOffset;
+    private final long archiveEnd; // end of the last complete central directory
+    private final byte[] archiveComment;
+
+    private final Map<String, byte[]> updates = new LinkedHashMap<>();
+    private final Set<String> removals = new LinkedHashSet<>();
+    private long time;
+
+    private boolean compacted;
+    private long wastedBytes;
+
+    private static final class Entry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+        private final byte[] centralDirectoryRecord;
+
+        private Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset, byte[] centralDirectoryRecord) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.centralDirectoryRecord = centralDirectoryRecord;
+        }
+    }
+
+    private ZipArchiveUpdater(Path archive, FileChannel channel, ZipArchiveWriter writer, List<Entry> entries, long centralDirectoryOffset, long archiveEnd, byte[] archiveComment) {
+        this.archive = archive;
+        this.channel = channel;
+        this.writer = writer;
+        this.entries = entries;
+        this.centralDirectoryOffset = centralDirectoryOffset;
+        this.archiveEnd = archiveEnd;
+        this.archiveComment = archiveComment;
+        this.time = writer.getEntryTime();
+
+        this.entriesByName = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            entriesByName.put(entry.name, entry);
+        }
+    }
+
+    /**
+     * <p>
+     * Opens an archive for update by reading its central directory.
+     * </p>
+     *
+     * @param archive
+     * @param writer, used to compress the replaced and new entries
+     * @return the updater, to be closed by the caller
+     * @throws ZipException if the archive cannot be updated in place
+     * @throws IOException
+     */
+    public static ZipArchiveUpdater open(Path archive, ZipArchiveWriter writer) throws IOException {
+        FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long fileSize = channel.size();
+            long eocdOffset = findEndOfCentralDirectory(channel, fileSize);
+            if (eocdOffset < 0) {
+                throw new ZipException("End of central directory not found in " + archive);
+            }
+            if (eocdOffset >= 20 && read(channel, eocdOffset - 20, 4).getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+                throw new ZipException("ZIP64 archives cannot be updated in place: " + archive);
+            }
+            ByteBuffer eocd = read(channel, eocdOffset, END_OF_CENTRAL_DIRECTORY_LENGTH);
+            if ((eocd.getShort(4) & 0xFFFF) != 0 || (eocd.getShort(6) & 0xFFFF) != 0) {
+                throw new ZipException("Multi-disk archives cannot be updated in place: " + archive);
+            }
+
+            int entryCount = eocd.getShort(10) & 0xFFFF;
+            long centralDirectorySize = eocd.getInt(12) & MAX_ZIP32_VALUE;
+            long centralDirectoryOffset = eocd.getInt(16) & MAX_ZIP32_VALUE;
+            if (centralDirectoryOffset + centralDirectorySize > eocdOffset) {
+                throw new ZipException("Invalid central directory in " + archive);
+            }
+            byte[] comment = new byte[eocd.getShort(20) & 0xFFFF];
+            read(channel, eocdOffset + END_OF_CENTRAL_DIRECTORY_LENGTH, comment.length).get(comment);
+            long archiveEnd = eocdOffset + END_OF_CENTRAL_DIRECTORY_LENGTH + comment.length;
+
+            ByteBuffer centralDirectory = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+            List<Entry> entries = new ArrayList<>(entryCount);
+            while (centralDirectory.remaining() >= CENTRAL_FILE_HEADER_LENGTH) {
+                int start = centralDirectory.position();
+                if (centralDirectory.getInt(start) != CENTRAL_FILE_HEADER_SIGNATURE) {
+                    throw new ZipException("Invalid central directory record in " + archive);
+                }
+                int flags = centralDirectory.getShort(start + 8) & 0xFFFF;
+                int method = centralDirectory.getShort(start + 10) & 0xFFFF;
+                long crc = centralDirectory.getInt(start + 16) & MAX_ZIP32_VALUE;
+                long compressedSize = centralDirectory.getInt(start + 20) & MAX_ZIP32_VALUE;
+                long size = centralDirectory.getInt(start + 24) & MAX_ZIP32_VALUE;
+                int nameLength = centralDirectory.getShort(start + 28) & 0xFFFF;
+                int extraLength = centralDirectory.getShort(start + 30) & 0xFFFF;
+                int commentLength = centralDirectory.getShort(start + 32) & 0xFFFF;
+                long localHeaderOffset = centralDirectory.getInt(start + LOCAL_HEADER_OFFSET_POSITION) & MAX_ZIP32_VALUE;
+                if (compressedSize == MAX_ZIP32_VALUE || size == MAX_ZIP32_VALUE || localHeaderOffset == MAX_ZIP32_VALUE) {
+                    throw new ZipException("ZIP64 archives cannot be updated in place: " + archive);
+                }
+                if ((flags & 1) != 0) {
+                    throw new ZipException("Encrypted archives cannot be updated in place: " + archive);
+                }
+
+                byte[] record = new byte[CENTRAL_FILE_HEADER_LENGTH + nameLength + extraLength + commentLength];
+                centralDirectory.get(record);
+                String name = new String(record, CENTRAL_FILE_HEADER_LENGTH, nameLength, StandardCharsets.UTF_8);
+                entries.add(new Entry(name, method, crc, compressedSize, size, localHeaderOffset, record));
+            }
+            if (entries.size() != entryCount) {
+                throw new ZipException("Inconsistent number of entries in " + archive);
+            }
+
+            return new ZipArchiveUpdater(archive, channel, writer, entries, centralDirectoryOffset, archiveEnd, comment);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * <p>
+     * Looks for the end of central directory record at the end of the file,
+     * then, if the last commit was interrupted, for the last record whose
+     * central directory is complete.
+     * </p>
+     *
+     * @return the offset of the record or -1 if it is not found
+     */
+    private static long findEndOfCentralDirectory(FileChannel channel, long fileSize) throws IOException {
+        int tailLength = (int) Math.min(fileSize, END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+        ByteBuffer tail = read(channel, fileSize - tailLength, tailLength);
+        for (int i = tailLength - END_OF_CENTRAL_DIRECTORY_LENGTH; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                    && i + END_OF_CENTRAL_DIRECTORY_LENGTH + (tail.getShort(i + 20) & 0xFFFF) == tailLength) {
+                return fileSize - tailLength + i;
+            }
+        }
+
+        long blockEnd = fileSize;
+        while (blockEnd >= END_OF_CENTRAL_DIRECTORY_LENGTH) {
+            long blockStart = Math.max(0, blockEnd - SCAN_BLOCK_LENGTH);
+            ByteBuffer block = read(channel, blockStart, (int) (blockEnd - blockStart));
+            for (int i = block.limit() - 4; i >= 0; i--) {
+                long offset = blockStart + i;
+                if (block.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE && isCompleteEndOfCentralDirectory(channel, offset, fileSize)) {
+                    return offset;
+                }
+            }
+            if (blockStart == 0) {
+                break;
+            }
+            blockEnd = blockStart + 3; // a signature may span two blocks
+        }
+        return -1;
+    }
+
+    private static boolean isCompleteEndOfCentralDirectory(FileChannel channel, long offset, long fileSize) throws IOException {
+        if (offset + END_OF_CENTRAL_DIRECTORY_LENGTH > fileSize) {
+            return false;
+        }
+        ByteBuffer eocd = read(channel, offset, END_OF_CENTRAL_DIRECTORY_LENGTH);
+        long centralDirectorySize = eocd.getInt(12) & MAX_ZIP32_VALUE;
+        long centralDirectoryOffset = eocd.getInt(16) & MAX_ZIP32_VALUE;
+        if (offset + END_OF_CENTRAL_DIRECTORY_LENGTH + (eocd.getShort(20) & 0xFFFF) > fileSize
+                || centralDirectoryOffset + centralDirectorySize != offset) {
+            return false;
+        }
+        return centralDirectorySize == 0 || read(channel, centralDirectoryOffset, 4).getInt(0) == CENTRAL_FILE_HEADER_SIGNATURE;
+    }
+
+    /**
+     * @return the names of the entries of the archive, in the order of the
+     * central directory
+     */
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(entriesByName.keySet());
+    }
+
+    public boolean contains(String name) {
+        return entriesByName.containsKey(name);
+    }
+
+    /**
+     * <p>
+     * Reads the uncompressed content of an entry of the archive, as it was
+     * when the archive was opened.
+     * </p>
+     *
+     * @param name
+     * @return the content of the entry or null if it does not exist
+     * @throws IOException
+     */
+    public byte[] read(String name) throws IOException {
+        Entry entry = entriesByName.get(name);
+        if (entry == null) {
+            return null;
+        }
+
+        ByteBuffer localHeader = read(channel, entry.localHeaderOffset, LOCAL_FILE_HEADER_LENGTH);
+        if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry " + name);
+        }
+        long dataOffset = entry.localHeaderOffset + LOCAL_FILE_HEADER_LENGTH + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+        byte[] data = new byte[(int) entry.compressedSize];
+        read(channel, dataOffset, data.length).get(data);
+
+        byte[] content;
+        if (entry.method == ZipEntry.STORED) {
+            content = data;
+        } else if (entry.method == ZipEntry.DEFLATED) {
+            content = new byte[(int) entry.size];
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data);
+                int offset = 0;
+                while (offset < content.length && !inflater.finished()) {
+                    int length = inflater.inflate(content, offset, content.length - offset);
+                    if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    offset += length;
+                }
+                if (offset != content.length) {
+                    throw new ZipException("Truncated entry " + name);
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid compressed data for entry " + name + ": " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        } else {
+            throw new ZipException("Unsupported compression method " + entry.method + " for entry " + name);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (crc.getValue() != entry.crc) {
+            throw new ZipException("CRC mismatch for entry " + name);
+        }
+        return content;
+    }
+
+    /**
+     * <p>
+     * Replaces (or adds) an entry. Nothing is written until {@link #commit(double)}.
+     * </p>
+     */
+    public void put(String name, byte[] content) {
+        removals.remove(name);
+        updates.put(name, content);
+    }
+
+    public void remove(String name) {
+        updates.remove(name);
+        if (entriesByName.containsKey(name)) {
+            removals.add(name);
+        }
+    }
+
+    /**
+     * <p>
+     * Sets the modification time of the replaced and new entries (default is
+     * the time of creation of this updater or the reproducible time of the
+     * writer).
+     * </p>
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public boolean hasChanges() {
+        return !updates.isEmpty() || !removals.isEmpty();
+    }
+
+    /**
+     * @return whether the last {@link #commit(double)} compacted the archive
+     */
+    public boolean isCompacted() {
+        return compacted;
+    }
+
+    /**
+     * @return the bytes of the archive occupied by replaced or removed entries
+     * and by former central directories after the last {@link #commit(double)}
+     */
+    public long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    /**
+     * <p>
+     * Writes the pending changes.
+     * </p>
+     *
+     * @param compactionThreshold, the ratio of wasted bytes over the size of
+     * the archive above which the archive is compacted
+     * @throws IOException
+     */
+    public void commit(double compactionThreshold) throws IOException {
+        if (!hasChanges()) {
+            return;
+        }
+
+        List<CompressedEntry> compressedEntries = writer.compress(updates);
+        Map<String, byte[]> newLocalEntries = new LinkedHashMap<>();
+        for (CompressedEntry compressedEntry : compressedEntries) {
+            newLocalEntries.put(compressedEntry.name, localEntry(compressedEntry));
+        }
+
+        Map<String, Long> keptLengths = new LinkedHashMap<>();
+        long liveBytes = 0;
+        long firstOffset = centralDirectoryOffset;
+        for (Entry entry : entries) {
+            firstOffset = Math.min(firstOffset, entry.localHeaderOffset);
+            if (isKept(entry)) {
+                long length = localEntryLength(entry);
+                keptLengths.put(entry.name, length);
+                liveBytes += length;
+            }
+        }
+        long appendedBytes = 0;
+        for (byte[] localEntry : newLocalEntries.values()) {
+            appendedBytes += localEntry.length;
+        }
+        long wasted = archiveEnd - firstOffset - liveBytes; // including the former central directory
+        long totalBytes = archiveEnd + appendedBytes;
+
+        compacted = totalBytes > 0 && (double) wasted / totalBytes > compactionThreshold;
+        if (compacted) {
+            compact(firstOffset, keptLengths, compressedEntries, newLocalEntries);
+            wastedBytes = 0;
+        } else {
+            append(compressedEntries, newLocalEntries);
+            wastedBytes = wasted;
+        }
+    }
+
+    /**
+     * @return the length of the local entry: its local header, its data and
+     * its data descriptor (if any)
+     */
+    private long localEntryLength(Entry entry) throws IOException {
+        ByteBuffer localHeader = read(channel, entry.localHeaderOffset, LOCAL_FILE_HEADER_LENGTH);
+        if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry " + entry.name);
+        }
+        int flags = localHeader.getShort(6) & 0xFFFF;
+        long length = LOCAL_FILE_HEADER_LENGTH + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF) + entry.compressedSize;
+        if ((flags & DATA_DESCRIPTOR_FLAG) != 0) {
+            boolean hasSignature = read(channel, entry.localHeaderOffset + length, 4).getInt(0) == DATA_DESCRIPTOR_SIGNATURE;
+            length += DATA_DESCRIPTOR_LENGTH + (hasSignature ? 4 : 0);
+        }
+        return length;
+    }
+
+    private boolean isKept(Entry entry) {
+        return !updates.containsKey(entry.name) && !removals.contains(entry.name);
+    }
+
+    /**
+     * <p>
+     * Appends the new local entries and the new central directory after the
+     * current one, which is kept until the new one is complete. On failure,
+     * the archive is truncated back to its original content.
+     * </p>
+     */
+    private void append(List<CompressedEntry> compressedEntries, Map<String, byte[]> newLocalEntries) throws IOException {
+        long position = archiveEnd;
+        Map<String, Long> newOffsets = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> localEntry : newLocalEntries.entrySet()) {
+            newOffsets.put(localEntry.getKey(), position);
+            position += localEntry.getValue().length;
+        }
+        checkZip32(position, compressedEntries);
+
+        try {
+            position = archiveEnd;
+            for (byte[] localEntry : newLocalEntries.values()) {
+                position += write(channel, position, ByteBuffer.wrap(localEntry));
+            }
+            channel.force(false);
+            position += writeCentralDirectory(channel, position, compressedEntries, newOffsets, Collections.<String, Long>emptyMap());
+            channel.truncate(position); // an interrupted commit may have left bytes after the archive
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.truncate(archiveEnd);
+                channel.force(false);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private void compact(long firstOffset, Map<String, Long> keptLengths, List<CompressedEntry> compressedEntries, Map<String, byte[]> newLocalEntries) throws IOException {
+        Path compactedArchive = Files.createTempFile(archive.toAbsolutePath().getParent(), archive.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel output = FileChannel.open(compactedArchive, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = transfer(channel, 0, firstOffset, output, 0); // preamble (if any)
+
+                Map<String, Long> keptOffsets = new LinkedHashMap<>();
+                List<Entry> byOffset = new ArrayList<>(entries);
+                byOffset.sort(Comparator.comparingLong(e -> e.localHeaderOffset));
+                for (Entry entry : byOffset) {
+                    Long length = keptLengths.get(entry.name);
+                    if (length != null) {
+                        keptOffsets.put(entry.name, position);
+                        position += transfer(channel, entry.localHeaderOffset, length, output, position);
+                    }
+                }
+
+                Map<String, Long> newOffsets = new LinkedHashMap<>();
+                for (Map.Entry<String, byte[]> localEntry : newLocalEntries.entrySet()) {
+                    newOffsets.put(localEntry.getKey(), position);
+                    position += write(output, position, ByteBuffer.wrap(localEntry.getValue()));
+                }
+                checkZip32(position, compressedEntries);
+
+                writeCentralDirectory(output, position, compressedEntries, newOffsets, keptOffsets);
+                output.force(false);
+            }
+            channel.close();
+            try {
+                Files.move(compactedArchive, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(compactedArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(compactedArchive);
+        }
+    }
+
+    private void checkZip32(long centralDirectoryOffset, List<CompressedEntry> compressedEntries) throws ZipException {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (isKept(entry)) {
+                count++;
+            }
+        }
+        count += compressedEntries.size();
+        if (centralDirectoryOffset >= MAX_ZIP32_VALUE || count >= 0xFFFF) {
+            throw new ZipException("The updated archive would require ZIP64: " + archive);
+        }
+        for (CompressedEntry compressedEntry : compressedEntries) {
+            if (compressedEntry.size >= MAX_ZIP32_VALUE || compressedEntry.content.length >= MAX_ZIP32_VALUE) {
+                throw new ZipException("Entry " + compressedEntry.name + " would require ZIP64");
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Writes the central directory: kept entries and replaced entries stay at
+     * their original place, new entries are written last.
+     * </p>
+     */
+    private long writeCentralDirectory(FileChannel output, long position, List<CompressedEntry> compressedEntries, Map<String, Long> newOffsets, Map<String, Long> keptOffsets) throws IOException {
+        Map<String, CompressedEntry> compressedByName = new LinkedHashMap<>();
+        for (CompressedEntry compressedEntry : compressedEntries) {
+            compressedByName.put(compressedEntry.name, compressedEntry);
+        }
+
+        List<byte[]> records = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (removals.contains(entry.name)) {
+                continue;
+            }
+            CompressedEntry compressedEntry = compressedByName.remove(entry.name);
+            if (compressedEntry != null) {
+                records.add(centralDirectoryRecord(compressedEntry, newOffsets.get(entry.name)));
+            } else {
+                byte[] record = entry.centralDirectoryRecord;
+                Long offset = keptOffsets.get(entry.name);
+                if (offset != null && offset != entry.localHeaderOffset) {
+                    record = record.clone();
+                    ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN).putInt(LOCAL_HEADER_OFFSET_POSITION, (int) (long) offset);
+                }
+                records.add(record);
+            }
+        }
+        for (CompressedEntry compressedEntry : compressedByName.values()) {
+            records.add(centralDirectoryRecord(compressedEntry, newOffsets.get(compressedEntry.name)));
+        }
+
+        long size = 0;
+        for (byte[] record : records) {
+            size += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size + END_OF_CENTRAL_DIRECTORY_LENGTH + archiveComment.length).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[] record : records) {
+            buffer.put(record);
+        }
+        buffer.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) records.size());
+        buffer.putShort((short) records.size());
+        buffer.putInt((int) size);
+        buffer.putInt((int) position);
+        buffer.putShort((short) archiveComment.length);
+        buffer.put(archiveComment);
+        buffer.flip();
+
+        return write(output, position, buffer);
+    }
+
+    private byte[] localEntry(CompressedEntry compressedEntry) {
+        byte[] name = compressedEntry.name.getBytes(StandardCharsets.UTF_8);
+        long dosTime = toDosTime(time);
+
+        ByteBuffer buffer = ByteBuffer.allocate(LOCAL_FILE_HEADER_LENGTH + name.length + compressedEntry.content.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(LOCAL_FILE_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION_NEEDED);
+        buffer.putShort((short) UTF8_NAMES_FLAG);
+        buffer.putShort((short) ZipEntry.DEFLATED);
+        buffer.putInt((int) dosTime);
+        buffer.putInt((int) compressedEntry.crc);
+        buffer.putInt(compressedEntry.content.length);
+        buffer.putInt((int) compressedEntry.size);
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) 0);
+        buffer.put(name);
+        buffer.put(compressedEntry.content);
+        return buffer.array();
+    }
+
+    private byte[] centralDirectoryRecord(CompressedEntry compressedEntry, long localHeaderOffset) {
+        byte[] name = compressedEntry.name.getBytes(StandardCharsets.UTF_8);
+        long dosTime = toDosTime(time);
+
+        ByteBuffer buffer = ByteBuffer.allocate(CENTRAL_FILE_HEADER_LENGTH + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CENTRAL_FILE_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION_NEEDED); // version made by (MS-DOS)
+        buffer.putShort((short) VERSION_NEEDED);
+        buffer.putShort((short) UTF8_NAMES_FLAG);
+        buffer.putShort((short) ZipEntry.DEFLATED);
+        buffer.putInt((int) dosTime);
+        buffer.putInt((int) compressedEntry.crc);
+        buffer.putInt(compressedEntry.content.length);
+        buffer.putInt((int) compressedEntry.size);
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) 0); // extra field length
+        buffer.putShort((short) 0); // comment length
+        buffer.putShort((short) 0); // disk number start
+        buffer.putShort((short) 0); // internal attributes
+        buffer.putInt(0); // external attributes
+        buffer.putInt((int) localHeaderOffset);
+        buffer.put(name);
+        return buffer.array();
+    }
+
+    /**
+     * @return the MS-DOS time (low 16 bits) and date (high 16 bits)
+     */
+    static long toDosTime(long time) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        int year = dateTime.getYear();
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((year - 1980) << 25) | (dateTime.getMonthValue() << 21) | (dateTime.getDayOfMonth() << 16)
+                | (dateTime.getHour() << 11) | (dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int write(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+        return length;
+    }
+
+    private static long transfer(FileChannel input, long position, long length, FileChannel output, long outputPosition) throws IOException {
+        long transferred = 0;
+        while (transferred < length) {
+            long count = input.transferTo(position + transferred, length - transferred, output.position(outputPosition + transferred));
+            if (count <= 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+            transferred += count;
+        }
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+/**
+ * <p>
+ * This class writes the ZIP archives handled by the plugin (EAR, "lib.zip",
+ * PAR...) from their in-memory contents.
+ * </p>
+ * <p>
+ * The deflate step of the file entries is scattered across a pool of threads
+ * and the compressed entries are gathered back as raw entries in their
+ * original order. Unlike <i>ParallelScatterZipCreator</i>, the order of the
+ * entries in the archive never depends on thread scheduling.
+ * </p>
+ * <p>
+ * In reproducible mode (see {@link #setReproducibleTime(long)}), files are
+ * sorted by name and all the entries get the same timestamp and Unix
+ * permissions, so that identical contents always yield identical bytes.
+ * </p>
+ */
+public class ZipArchiveWriter {
+
+    private static final int DIRECTORY_MODE = 040755;
+    private static final int FILE_MODE = 0100644;
+
+    private final int threads;
+    private final int compressionLevel;
+    private Long reproducibleTime;
+
+    /**
+     *
+     * @param threads, the number of compression threads (0 or less means the
+     * number of available processors)
+     * @param compressionLevel, the deflate level from 0 to 9 or -1 for the
+     * default level
+     */
+    public ZipArchiveWriter(int threads, int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * <p>
+     * Enables the reproducible mode.
+     * </p>
+     *
+     * @param time, the timestamp (milliseconds since epoch, UTC) of all the
+     * entries
+     */
+    public void setReproducibleTime(long time) {
+        this.reproducibleTime = time;
+    }
+
+    public boolean isReproducible() {
+        return reproducibleTime != null;
+    }
+
+    /**
+     * @return the timestamp of the entries in reproducible mode, null
+     * otherwise
+     */
+    public Long getReproducibleTime() {
+        return reproducibleTime;
+    }
+
+    /**
+     * @return the time to set on new entries: the reproducible time shifted
+     * so that the MS-DOS fields (in local time) show the UTC time whatever the
+     * time zone of the build, or the current time
+     */
+    long getEntryTime() {
+        if (reproducibleTime == null) {
+            return System.currentTimeMillis();
+        }
+        return reproducibleTime - TimeZone.getDefault().getOffset(reproducibleTime);
+    }
+
+    /**
+     * <p>
+     * Writes an archive with the given directories and files. Parent
+     * directories of the files are added when missing. Directories are written
+     * first (by depth then by name), files are written in the iteration order
+     * of the map (by name in reproducible mode).
+     * </p>
+     *
+     * @param directories
+     * @param files, entry names mapped to their uncompressed contents
+     * @return the bytes of the archive
+     * @throws IOException
+     */
+    public byte[] write(Set<String> directories, Map<String, byte[]> files) throws IOException {
+        if (isReproducible()) {
+            files = new TreeMap<>(files);
+        }
+        List<CompressedEntry> compressedEntries = compress(files);
+        long entryTime = getEntryTime();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zipOutput = new ZipArchiveOutputStream(output)) {
+            zipOutput.setLevel(compressionLevel);
+
+            for (String directory : orderedDirectories(directories, files.keySet())) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(directory);
+                normalize(entry, entryTime, DIRECTORY_MODE);
+                zipOutput.putArchiveEntry(entry);
+                zipOutput.closeArchiveEntry();
+            }
+
+            for (CompressedEntry compressedEntry : compressedEntries) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(compressedEntry.name);
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setSize(compressedEntry.size);
+                entry.setCompressedSize(compressedEntry.content.length);
+                entry.setCrc(compressedEntry.crc);
+                normalize(entry, entryTime, FILE_MODE);
+                zipOutput.addRawArchiveEntry(entry, new ByteArrayInputStream(compressedEntry.content));
+            }
+
+            zipOutput.finish();
+        }
+
+        return output.toByteArray();
+    }
+
+    private void normalize(ZipArchiveEntry entry, long entryTime, int mode) {
+        if (isReproducible()) {
+            entry.setTime(entryTime);
+            entry.setUnixMode(mode);
+        }
+    }
+
+    /**
+     * <p>
+     * Deflates the given files in parallel. The returned list follows the
+     * iteration order of the map.
+     * </p>
+     */
+    List<CompressedEntry> compress(Map<String, byte[]> files) throws IOException {
+        List<CompressedEntry> result = new ArrayList<>(files.size());
+        if (threads == 1 || files.size() < 2) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                result.add(deflate(file.getKey(), file.getValue(), compressionLevel));
+            }
+            return result;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<CompressedEntry>> futures = new ArrayList<>(files.size());
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                final String name = file.getKey();
+                final byte[] content = file.getValue();
+                futures.add(executor.submit(() -> deflate(name, content, compressionLevel)));
+            }
+            for (Future<CompressedEntry> future : futures) {
+                result.add(future.get()); // gathered in submission order
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing archive entries");
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to compress archive entry", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private static CompressedEntry deflate(String name, byte[] content, int level) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        Deflater deflater = new Deflater(level, true); // raw deflate, ZIP headers are written by the output stream
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            return new CompressedEntry(name, content.length, crc.getValue(), compressed.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static List<String> orderedDirectories(Set<String> directories, Set<String> fileNames) {
+        Set<String> allDirectories = new LinkedHashSet<>();
+        for (String directory : directories) {
+            allDirectories.add(ensureDirectoryName(directory));
+        }
+        for (String fileName : fileNames) {
+            int index = fileName.lastIndexOf('/');
+            while (index > 0) {
+                allDirectories.add(fileName.substring(0, index + 1));
+                index = fileName.lastIndexOf('/', index - 1);
+            }
+        }
+
+        List<String> orderedDirectories = new ArrayList<>(allDirectories);
+        orderedDirectories.sort((a, b) -> {
+            int depthCompare = Integer.compare(directoryDepth(a), directoryDepth(b));
+            if (depthCompare != 0) {
+                return depthCompare;
+            }
+            return a.compareTo(b);
+        });
+        return orderedDirectories;
+    }
+
+    static String ensureDirectoryName(String name) {
+        String normalized = name.replace('\\', '/');
+        if (!normalized.endsWith("/")) {
+            normalized += "/";
+        }
+        return normalized;
+    }
+
+    private static int directoryDepth(String directory) {
+        int depth = 0;
+        for (int i = 0; i < directory.length(); i++) {
+            if (directory.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    static final class CompressedEntry {
+        final String name;
+        final long size;
+        final long crc;
+        final byte[] content;
+
+        private CompressedEntry(String name, long size, long crc, byte[] content) {
+            this.name = name;
+            this.size = size;
+            this.crc = crc;
+            this.content = content;
+        }
+    }
+
+}
@@ -18,13 +18,25 @@ package fr.fastconnect.factory.tibco.bw.maven.deployment;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import COM.TIBCO.hawk.console.hawkeye.ConsoleInitializationException;
+import COM.TIBCO.hawk.talon.MicroAgentException;
 import fr.fastconnect.factory.tibco.bw.maven.compile.CompileEARMojo;
+import fr.fastconnect.factory.tibco.bw.maven.deployment.RollingWaves.Instance;
+import fr.fastconnect.factory.tibco.bw.maven.hawk.MethodSubscriber;
+import fr.fastconnect.factory.tibco.bw.maven.hawk.MicroAgent;
 import fr.fastconnect.factory.tibco.bw.maven.packaging.AbstractPackagingMojo;
+import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
 
 /**
  * <p>
@@ -36,6 +48,20 @@ import fr.fastconnect.factory.tibco.bw.maven.packaging.AbstractPackagingMojo;
  *
  */
 public abstract class AbstractBWDeployMojo extends AbstractPackagingMojo {
+
+	protected final static String WAITING_FOR_INSTANCES = "Waiting for instances to be started...";
+	protected final static String SUBSCRIBING_TO_HAWK_METHODS = "Subscribing to Hawk methods:";
+	protected final static String NO_INSTANCE_TO_RESTART = "No instance to restart.";
+	protected final static String ROLLING_WAVE = "Restarting wave ";
+	protected final static String ROLLING_STOP_FAILED = "Unable to stop the instance ";
+	protected final static String ROLLING_STOP_IGNORED = " (ignored, starting it anyway)";
+	protected final static String ROLLING_START_FAILED = "Unable to start the instance ";
+	protected final static String ROLLING_HALTED = "The rolling deployment was halted: ";
+	protected final static String ROLLING_NOT_RUNNING = "some instances of the wave are not running ";
+	protected final static String ROLLING_NOT_HEALTHY = "the health check failed for ";
+	protected final static String ROLLING_DONE = "All the waves were successfully restarted.";
+	protected final static String ROLLING_NOT_EXPERIMENTAL = "The rolling deployment ('deploy.rolling.waves') is experimental: set 'deploy.rolling.experimental' to true to enable it.";
+	protected final static String WAITING_INTERRUPTED = "Interrupted while waiting for the instances.";
 	
 	/**
 	 * Name of the project once deployed in TIBCO domain
@@ -64,6 +90,79 @@ public abstract class AbstractBWDeployMojo extends AbstractPackagingMojo {
 	@Parameter ( property = "forceAppManageGoals", defaultValue = "false" )
 	protected Boolean forceAppManageGoals;
 
+	@Parameter (property="bw.start.running.statuses.number", defaultValue = "3")
+	protected int numberOfRunningStatuses;
+
+	/**
+	 * <p>
+	 * If set, the instances of the application are (re)started by waves
+	 * instead of all at once, so that the application keeps serving during a
+	 * release:
+	 *  <ul>
+	 *   <li>"machine": one wave per machine</li>
+	 *   <li>"&lt;n>%": waves of n percent of the instances</li>
+	 *   <li>"&lt;n>": waves of n instances</li>
+	 *  </ul>
+	 * The instances of a wave are stopped then started and the next wave
+	 * begins only when they are all "RUNNING" (checked with Hawk, which must
+	 * be configured) and healthy (see <i>deploy.rolling.healthCheck.url</i>).
+	 * Otherwise the rolling deployment is halted and the build fails.
+	 * </p>
+	 * <p>
+	 * With the 'deploy-bw' goal, the application is deployed without stopping
+	 * nor starting any instance before the first wave. With the 'start-bw'
+	 * goal, the instances which are already running are stopped when their
+	 * wave begins.
+	 * </p>
+	 * <p>
+	 * <b>Experimental</b>: each instance is stopped and started with
+	 * <i>AppManage -stop</i> and <i>-start</i> restricted by <i>-service</i>
+	 * and <i>-binding</i>. This per-instance syntax has not been verified
+	 * against every AppManage version, hence <i>deploy.rolling.experimental</i>
+	 * must be set to true as well.
+	 * </p>
+	 */
+	@Parameter ( property = "deploy.rolling.waves" )
+	protected String rollingWaves;
+
+	/**
+	 * Must be set to true to use <i>deploy.rolling.waves</i>.
+	 */
+	@Parameter ( property = "deploy.rolling.experimental", defaultValue = "false" )
+	protected boolean rollingExperimental;
+
+	/**
+	 * <p>
+	 * Optional URL checked for each instance of a wave once it is "RUNNING",
+	 * for instance "http://${machine}:8080/health". The placeholders
+	 * <i>${machine}</i> and <i>${instance}</i> are replaced. The instance is
+	 * healthy when the URL answers with a 2xx status code within
+	 * <i>deploy.rolling.healthCheck.maxLatency</i>.
+	 * </p>
+	 */
+	@Parameter ( property = "deploy.rolling.healthCheck.url" )
+	protected String healthCheckURL;
+
+	/**
+	 * Maximum response time of the health check URL, in milliseconds. Default
+	 * (0) means no limit (other than <i>timeOut</i>).
+	 */
+	@Parameter ( property = "deploy.rolling.healthCheck.maxLatency", defaultValue = "0" )
+	protected int healthCheckMaxLatency;
+
+	/**
+	 * Number of attempts of the health check of an instance before the
+	 * rolling deployment is halted.
+	 */
+	@Parameter ( property = "deploy.rolling.healthCheck.retry.count", defaultValue = "10" )
+	protected int healthCheckNumberOfRetry;
+
+	/**
+	 * Interval between two attempts of the health check, in seconds.
+	 */
+	@Parameter ( property = "deploy.rolling.healthCheck.interval", defaultValue = "5" )
+	protected int healthCheckInterval;
+
 	@Override
 	protected String getArtifactFileExtension() {
 		return BWEAR_EXTENSION;
@@ -96,6 +195,217 @@ public abstract class AbstractBWDeployMojo extends AbstractPackagingMojo {
 		return arguments;
 	}
 
+	/**
+	 * This methods subscribe to the Hawk method
+	 * "COM.TIBCO.admin.TRA:getComponentInstanceStatus" for all
+	 * {@code instances} being started.
+	 * 
+	 * @param microAgent
+	 * @param instances
+	 * @param latch, counted down once for each ended subscription
+	 * @return a list of {@link MethodSubscriber} objects
+	 * @throws MicroAgentException
+	 */
+	protected List<MethodSubscriber> monitorInstances(MicroAgent microAgent, List<ImmutablePair<String, String>> instances, CountDownLatch latch) throws MicroAgentException {
+		List<MethodSubscriber> result = new ArrayList<MethodSubscriber>();
+
+    	getLog().info("");
+		getLog().info(SUBSCRIBING_TO_HAWK_METHODS);
+
+    	for (ImmutablePair<String, String> instance : instances) {
+    		MethodSubscriber ms = new MethodSubscriber(microAgent);
+    		ms.setMethodName("getComponentInstanceStatus");
+    		ms.setArguments(instance.left, instance.right);
+    		ms.setInterval(hawkSubscribeInterval);
+    		ms.setNumberOfRetry(hawkSubscribeNumberOfRetry);
+    		ms.subscribe(new RunningInstanceSubscriptionHandler(getLog(), ms, numberOfRunningStatuses, latch));
+
+    		result.add(ms);
+		}
+
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * This waits until all the {@code instances} are "RUNNING", or until the
+	 * subscriptions end. Each call has its own Hawk MicroAgent and its own
+	 * latch, bounded by the Hawk subscription timeout (plus one interval).
+	 * </p>
+	 *
+	 * @return true if all the instances are "RUNNING"
+	 * @throws MojoExecutionException if the thread is interrupted
+	 */
+	protected boolean doWaitForRunningInstances(List<ImmutablePair<String, String>> instances) throws ConsoleInitializationException, MicroAgentException, MojoExecutionException {
+		CountDownLatch latch = new CountDownLatch(instances.size());
+		MicroAgent microAgent = new MicroAgent(hawkDomain, hawkRvService, hawkRvNetwork, hawkRvDaemon, "COM.TIBCO.admin.TRA");
+		try {
+			List<MethodSubscriber> result = monitorInstances(microAgent, instances, latch); // start monitoring of "RUNNING" statuses for instances
+
+			getLog().info("");
+			getLog().info(WAITING_FOR_INSTANCES);
+
+			long timeout = hawkSubscribeInterval * (Math.max(1, hawkSubscribeNumberOfRetry) + 1L);
+			if (!latch.await(timeout, TimeUnit.SECONDS)) {
+				getLog().info("Timeout reached (" + timeout + " seconds), " + latch.getCount() + " instance(s) still pending.");
+				return false;
+			}
+
+			// check that all instances are in "RUNNING" state
+			for (MethodSubscriber ms : result) {
+				if (ms.getResult() == null || !ms.getResult().equals("RUNNING")) {
+					return false;
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException(WAITING_INTERRUPTED, e);
+		} finally {
+			microAgent.shutdown();
+		}
+	}
+
+	protected boolean isRolling() {
+		return rollingWaves != null && !rollingWaves.trim().isEmpty();
+	}
+
+	/**
+	 * @throws MojoExecutionException if <i>deploy.rolling.waves</i> is set
+	 * without <i>deploy.rolling.experimental</i>
+	 */
+	protected void checkRolling() throws MojoExecutionException {
+		if (isRolling() && !rollingExperimental) {
+			throw new MojoExecutionException(ROLLING_NOT_EXPERIMENTAL);
+		}
+	}
+
+	/**
+	 * @return the AppManage arguments to stop or start ("-stop" or "-start")
+	 * one instance of the application
+	 */
+	protected ArrayList<String> instanceArguments(String action, Instance instance) {
+		ArrayList<String> arguments = commonArguments();
+		arguments.add(action);
+		arguments.add("-service");
+		arguments.add(instance.getService());
+		if (instance.getBinding() != null && !instance.getBinding().isEmpty()) {
+			arguments.add("-binding");
+			arguments.add(instance.getBinding());
+		}
+
+		return arguments;
+	}
+
+	/**
+	 * <p>
+	 * This restarts the instances of an application wave by wave (see
+	 * <i>deploy.rolling.waves</i>). Each wave is stopped, started, then
+	 * checked before the next one.
+	 * </p>
+	 *
+	 * @param application, the XML Deployment Descriptor of the deployed
+	 * application
+	 * @throws MojoExecutionException if a wave is not running or not healthy
+	 */
+	protected void rollingRestart(ApplicationManagement application) throws MojoExecutionException {
+		List<List<Instance>> waves = RollingWaves.split(RollingWaves.getInstances(application), rollingWaves);
+		if (waves.isEmpty()) {
+			getLog().info(NO_INSTANCE_TO_RESTART);
+			return;
+		}
+
+		initHawk(true); // the waves are gated by the "RUNNING" status
+
+		ArrayList<File> tras = new ArrayList<File>();
+		tras.add(tibcoAppManageTRAPath);
+		try {
+			prepareTRAs(tibcoAppManagePath, tras); // once for all the waves
+		} catch (IOException e) {
+			throw new MojoExecutionException(ROLLING_HALTED + e.getLocalizedMessage(), e);
+		}
+
+		for (int i = 0; i < waves.size(); i++) {
+			List<Instance> wave = waves.get(i);
+			getLog().info("");
+			getLog().info(ROLLING_WAVE + (i + 1) + "/" + waves.size() + ": " + wave);
+
+			try {
+				for (Instance instance : wave) {
+					try {
+						executeTIBCOBinary(tibcoAppManagePath, instanceArguments("-stop", instance), directory, ROLLING_STOP_FAILED + instance, false, true);
+					} catch (MojoExecutionException e) {
+						getLog().warn(e.getLocalizedMessage() + ROLLING_STOP_IGNORED); // the instance may not be running
+						getLog().debug(e);
+					}
+				}
+				for (Instance instance : wave) {
+					executeTIBCOBinary(tibcoAppManagePath, instanceArguments("-start", instance), directory, ROLLING_START_FAILED + instance, false, true);
+				}
+
+				List<ImmutablePair<String, String>> instances = new ArrayList<ImmutablePair<String,String>>();
+				for (Instance instance : wave) {
+					instances.add(new ImmutablePair<String, String>(application.getName(), instance.getName()));
+				}
+				if (!doWaitForRunningInstances(instances)) {
+					throw new MojoExecutionException(ROLLING_HALTED + ROLLING_NOT_RUNNING + wave);
+				}
+			} catch (IOException | ConsoleInitializationException | MicroAgentException e) {
+				throw new MojoExecutionException(ROLLING_HALTED + e.getLocalizedMessage(), e);
+			}
+
+			for (Instance instance : wave) {
+				if (!isHealthy(instance)) {
+					throw new MojoExecutionException(ROLLING_HALTED + ROLLING_NOT_HEALTHY + instance);
+				}
+			}
+		}
+
+		getLog().info("");
+		getLog().info(ROLLING_DONE);
+	}
+
+	/**
+	 * @return true if the health check URL of the instance answers with a 2xx
+	 * status code in time, or if there is no health check
+	 * @throws MojoExecutionException if the thread is interrupted
+	 */
+	protected boolean isHealthy(Instance instance) throws MojoExecutionException {
+		if (healthCheckURL == null || healthCheckURL.trim().isEmpty()) {
+			return true;
+		}
+		String url = healthCheckURL.trim()
+				.replace("${machine}", instance.getMachine() != null ? instance.getMachine() : "")
+				.replace("${instance}", instance.getName());
+
+		for (int attempt = 1; attempt <= Math.max(1, healthCheckNumberOfRetry); attempt++) {
+			long start = System.currentTimeMillis();
+			try {
+				HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+				connection.setConnectTimeout(timeOut * 1000);
+				connection.setReadTimeout(timeOut * 1000);
+				int status = connection.getResponseCode();
+				connection.disconnect();
+				long latency = System.currentTimeMillis() - start;
+
+				if (status >= 200 && status < 300 && (healthCheckMaxLatency <= 0 || latency <= healthCheckMaxLatency)) {
+					getLog().info("Instance '" + instance + "' is healthy (" + latency + " ms)");
+					return true;
+				}
+				getLog().info("Health check of '" + instance + "' (" + attempt + "): status " + status + " in " + latency + " ms");
+			} catch (IOException e) {
+				getLog().info("Health check of '" + instance + "' (" + attempt + "): " + e.getLocalizedMessage());
+			}
+			try {
+				Thread.sleep(healthCheckInterval * 1000L);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MojoExecutionException(WAITING_INTERRUPTED, e);
+			}
+		}
+		return false;
+	}
+
 	public abstract String getInitMessage();
 	public abstract String getFailureMessage();
 	public abstract void postAction() throws MojoExecutionException;
@@ -109,6 +419,7 @@ public abstract class AbstractBWDeployMojo extends AbstractPackagingMojo {
 		}
 
 		checkAppManage();
+		checkRolling();
 
 		try {
 			getLog().info(getInitMessage());
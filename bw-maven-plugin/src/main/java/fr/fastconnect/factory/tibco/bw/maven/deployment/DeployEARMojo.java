@@ -17,7 +17,14 @@
 package fr.fastconnect.factory.tibco.bw.maven.deployment;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.io.FileUtils;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -25,6 +32,8 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
+
 /**
  * 
  * <p>
@@ -46,6 +55,12 @@ public class DeployEARMojo extends AbstractBWDeployMojo {
 	protected final static String USING_EAR = "Using EAR : ";
 	protected final static String USING_XML = "Using XML : ";
 
+	protected final static String CHECKING_DEPLOYED_APPLICATION = "Comparing the application with the one deployed on domain ";
+	protected final static String NOT_DEPLOYED_YET = "The deployed application can't be exported, it will be deployed.";
+	protected final static String COMPARISON_FAILED = "The deployed application can't be compared, it will be deployed: ";
+	protected final static String APPLICATION_UNCHANGED = "The deployed application is unchanged, skipping deployment.";
+	protected final static String APPLICATION_CHANGED = "The application has changed since the last deployment:";
+
 	@Parameter
 	private boolean redeploy;
 	
@@ -73,6 +88,16 @@ public class DeployEARMojo extends AbstractBWDeployMojo {
 	@Parameter
 	private File deployConfigXML;
 
+	/**
+	 * If true, the application is exported from the domain before deploying
+	 * (as with the 'extract-xml-bw' goal). If neither the EAR nor the XML
+	 * Deployment Descriptor have changed, the deployment (and the restart of
+	 * the service instances) is skipped. Otherwise the changes are logged.
+	 * Default is false.
+	 */
+	@Parameter ( property = "deploy.skipUnchanged", defaultValue = "false")
+	private boolean skipUnchanged;
+
 	@Override
 	public String getInitMessage() {
 		return DEPLOYING_APPLICATION + "'" + deployedProjectName + "'" +  DEPLOYING_ON_DOMAIN + "'" +  domainName+ "'";
@@ -83,8 +108,7 @@ public class DeployEARMojo extends AbstractBWDeployMojo {
 		return DEPLOY_EAR_FAILED;
 	}
 
-	@Override
-	public ArrayList<String> arguments() {
+	private File getEAR() {
 		File ear = getOutputFile();
 		if (ear == null || !ear.exists()) {
 			MavenProject project = getProject();
@@ -92,6 +116,12 @@ public class DeployEARMojo extends AbstractBWDeployMojo {
 				ear = getArtifactFile(getProject().getBasedir(), finalName, classifier);
 			}
 		}
+		return ear;
+	}
+
+	@Override
+	public ArrayList<String> arguments() {
+		File ear = getEAR();
 
 		getLog().info(USING_EAR + ear.getAbsolutePath());
 		getLog().info(USING_XML + deploymentDescriptorFinal.getAbsolutePath());
@@ -105,10 +135,10 @@ public class DeployEARMojo extends AbstractBWDeployMojo {
 		if (serialize) {
 			arguments.add("-serialize");
 		}
-		if (noStart) {
+		if (noStart || isRolling()) {
 			arguments.add("-nostart");
 		}
-		if (noStop) {
+		if (noStop || isRolling()) {
 			arguments.add("-nostop");
 		}
 		arguments.add("-force");
@@ -118,7 +148,95 @@ public class DeployEARMojo extends AbstractBWDeployMojo {
 
 	@Override
 	public void postAction() throws MojoExecutionException {
-		// nothing to do
+		if (isRolling() && !noStart) {
+			try {
+				rollingRestart(new ApplicationManagement(deploymentDescriptorFinal));
+			} catch (JAXBException e) {
+				throw new MojoExecutionException(DEPLOY_EAR_FAILED, e);
+			}
+		}
+	}
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (skipUnchanged && !skip() && isUnchanged()) {
+			getLog().info(APPLICATION_UNCHANGED);
+			return;
+		}
+
+		super.execute();
+	}
+
+	/**
+	 * <p>
+	 * This exports the application deployed on the domain with its EAR and
+	 * compares them with the ones about to be deployed (see
+	 * {@link DeploymentDiff}).
+	 * </p>
+	 *
+	 * @return true if the deployment can be skipped
+	 * @throws MojoExecutionException
+	 */
+	private boolean isUnchanged() throws MojoExecutionException {
+		checkAppManage();
+		getLog().info(CHECKING_DEPLOYED_APPLICATION + "'" + domainName + "'");
+
+		File exportDirectory = new File(directory, "deployed");
+		File deployedXML = new File(exportDirectory, deploymentDescriptorFinal.getName());
+		try {
+			FileUtils.deleteDirectory(exportDirectory);
+			exportDirectory.mkdirs();
+
+			ArrayList<String> arguments = super.commonArguments();
+			arguments.add("-export");
+			arguments.add("-out");
+			arguments.add(deployedXML.getAbsolutePath());
+			arguments.add("-genEar");
+
+			ArrayList<File> tras = new ArrayList<File>();
+			tras.add(tibcoAppManageTRAPath);
+
+			launchTIBCOBinary(tibcoAppManagePath, tras, arguments, directory, NOT_DEPLOYED_YET);
+		} catch (IOException | MojoExecutionException e) {
+			getLog().info(NOT_DEPLOYED_YET);
+			getLog().debug(e);
+			return false;
+		}
+
+		try {
+			DeploymentDiff diff = new DeploymentDiff(new ApplicationManagement(deployedXML), new ApplicationManagement(deploymentDescriptorFinal));
+
+			List<String> earChanges;
+			File[] deployedEARs = exportDirectory.listFiles((dir, name) -> name.endsWith(BWEAR_EXTENSION));
+			if (deployedEARs == null || deployedEARs.length != 1) {
+				earChanges = new ArrayList<String>();
+				earChanges.add("~ " + getEAR().getName());
+			} else {
+				Map<String, String> deployedEAR = DeploymentDiff.digestEAR(deployedEARs[0]);
+				earChanges = DeploymentDiff.compareEARs(deployedEAR, DeploymentDiff.digestEAR(getEAR()));
+			}
+
+			if (diff.isEmpty() && earChanges.isEmpty()) {
+				return true;
+			}
+
+			getLog().info(APPLICATION_CHANGED);
+			for (Map.Entry<String, List<String>> owner : diff.getChanges().entrySet()) {
+				getLog().info("  " + owner.getKey());
+				for (String change : owner.getValue()) {
+					getLog().info("    " + change);
+				}
+			}
+			if (!earChanges.isEmpty()) {
+				getLog().info("  EAR");
+				for (String change : earChanges) {
+					getLog().info("    " + change);
+				}
+			}
+		} catch (IOException | JAXBException e) {
+			getLog().info(COMPARISON_FAILED + e.getLocalizedMessage());
+		}
+		return false;
 	}
 
 }
@@ -0,0 +1,263 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.deployment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import fr.fastconnect.factory.tibco.bw.maven.compile.EARClassIndex;
+import fr.fastconnect.factory.tibco.bw.maven.compile.EARNormalizer;
+import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
+import fr.fastconnect.factory.tibco.bw.maven.packaging.PropertyTree;
+
+/**
+ * <p>
+ * This class compares the XML Deployment Descriptor of an application deployed
+ * on a TIBCO domain with the one about to be deployed.
+ * </p>
+ * <p>
+ * Both descriptors are compared through their properties (see
+ * {@link ApplicationManagement#getGlobalVariables()} and
+ * {@link ApplicationManagement#getServices()}), so the order of the elements
+ * does not matter. The differences are grouped by Global Variable, service,
+ * binding and process.<br />
+ * The fields which are only informative or filled by the domain when left
+ * empty are ignored (see {@link #isVolatile(String, String)}).
+ * </p>
+ */
+public class DeploymentDiff {
+
+	private final static Pattern OWNER = Pattern.compile("^((?:bw|adapter)\\[[^\\]]*\\](?:/bindings/binding\\[[^\\]]*\\]|/bwprocesses/bwprocess\\[[^\\]]*\\])?)/(.*)$");
+
+	private final Map<String, List<String>> changes = new TreeMap<String, List<String>>();
+
+	/**
+	 * @param deployed, the descriptor exported from the domain
+	 * @param candidate, the descriptor about to be deployed
+	 */
+	public DeploymentDiff(ApplicationManagement deployed, ApplicationManagement candidate) {
+		compareGlobalVariables(deployed.getGlobalVariables(), candidate.getGlobalVariables());
+		compareServices(deployed.getServices(), candidate.getServices());
+	}
+
+	/**
+	 * @return true if both descriptors are equivalent
+	 */
+	public boolean isEmpty() {
+		return changes.isEmpty();
+	}
+
+	/**
+	 * @return the changes, grouped by Global Variable, service, binding and
+	 * process (for instance <i>binding bw[EXAMPLE.par]/bindings/binding[]</i>)
+	 */
+	public Map<String, List<String>> getChanges() {
+		return changes;
+	}
+
+	private void compareGlobalVariables(PropertyTree deployed, PropertyTree candidate) {
+		for (String key : deployed.keys()) {
+			if (!candidate.containsKey(key)) {
+				addChange("Global Variables", "- " + key);
+			}
+		}
+		for (String key : candidate.keys()) {
+			String oldValue = deployed.getProperty(key);
+			String newValue = candidate.getProperty(key);
+			if (oldValue == null) {
+				addChange("Global Variables", "+ " + key + "=" + newValue);
+			} else if (!oldValue.equals(newValue)) {
+				addChange("Global Variables", "~ " + key + " (" + oldValue + " -> " + newValue + ")");
+			}
+		}
+	}
+
+	private void compareServices(PropertyTree deployed, PropertyTree candidate) {
+		for (String key : deployed.keys()) {
+			if (!candidate.containsKey(key) && !isVolatile(key, "")) {
+				addServiceChange(key, "- ", "");
+			}
+		}
+		for (String key : candidate.keys()) {
+			String oldValue = deployed.getProperty(key);
+			String newValue = candidate.getProperty(key);
+			if (isVolatile(key, newValue)) {
+				continue;
+			}
+			if (oldValue == null) {
+				addServiceChange(key, "+ ", "=" + newValue);
+			} else if (!oldValue.equals(newValue)) {
+				addServiceChange(key, "~ ", " (" + oldValue + " -> " + newValue + ")");
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * The description and contact of a binding do not change the deployed
+	 * instances. The product version and location are filled by the domain
+	 * when the descriptor leaves them empty.
+	 * </p>
+	 *
+	 * @param key, the key of a service property
+	 * @param value, the value about to be deployed
+	 * @return true if a difference of this property must be ignored
+	 */
+	protected static boolean isVolatile(String key, String value) {
+		if (!key.contains("/bindings/binding[")) {
+			return false;
+		}
+		if (key.endsWith("]/description") || key.endsWith("]/contact")) {
+			return true;
+		}
+		return (key.endsWith("]/product/version") || key.endsWith("]/product/location")) && value.isEmpty();
+	}
+
+	private void addServiceChange(String key, String prefix, String suffix) {
+		Matcher m = OWNER.matcher(key);
+		if (!m.matches()) {
+			addChange("service", prefix + key + suffix);
+			return;
+		}
+		String owner = m.group(1);
+		String kind;
+		if (owner.contains("/bindings/binding[")) {
+			kind = "binding ";
+		} else if (owner.contains("/bwprocesses/bwprocess[")) {
+			kind = "process ";
+		} else {
+			kind = "service ";
+		}
+		addChange(kind + owner, prefix + m.group(2) + suffix);
+	}
+
+	private void addChange(String owner, String change) {
+		List<String> ownerChanges = changes.get(owner);
+		if (ownerChanges == null) {
+			ownerChanges = new ArrayList<String>();
+			changes.put(owner, ownerChanges);
+		}
+		ownerChanges.add(change);
+	}
+
+	/**
+	 * <p>
+	 * This computes the SHA-256 digests of the content of an EAR, by entry
+	 * name. The nested archives (<i>.par</i>, <i>.aar</i>, <i>.sar</i>) are
+	 * read entry by entry too, so that two EARs with the same content compare
+	 * equal even if they were zipped again (by the domain for instance).
+	 * </p>
+	 * <p>
+	 * The <i>TIBCO.xml</i> descriptors are digested without their volatile
+	 * fields (see {@link EARNormalizer#canonicalDescriptor(byte[])}), so that
+	 * only a change of their content (a Global Variable which is not
+	 * deployment settable for instance) is detected.
+	 * </p>
+	 *
+	 * @param ear
+	 * @return the digest of each entry of the EAR, sorted by name
+	 * @throws IOException
+	 */
+	public static Map<String, String> digestEAR(File ear) throws IOException {
+		Map<String, String> result = new TreeMap<String, String>();
+
+		ZipFile zipFile = new ZipFile(ear);
+		try {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				InputStream is = zipFile.getInputStream(entry);
+				try {
+					if (isArchive(entry.getName())) {
+						digestArchive(entry.getName() + "!/", new ZipInputStream(is), result);
+					} else {
+						result.put(entry.getName(), digest(entry.getName(), IOUtils.toByteArray(is)));
+					}
+				} finally {
+					is.close();
+				}
+			}
+		} finally {
+			zipFile.close();
+		}
+
+		return result;
+	}
+
+	private static void digestArchive(String prefix, ZipInputStream zis, Map<String, String> result) throws IOException {
+		ZipEntry entry;
+		while ((entry = zis.getNextEntry()) != null) {
+			if (!entry.isDirectory()) {
+				result.put(prefix + entry.getName(), digest(entry.getName(), IOUtils.toByteArray(zis)));
+			}
+		}
+	}
+
+	private static String digest(String name, byte[] content) throws IOException {
+		if (isDescriptor(name)) {
+			content = EARNormalizer.canonicalDescriptor(content);
+		}
+		return EARClassIndex.digest(content);
+	}
+
+	private static boolean isDescriptor(String name) {
+		return name.equals("TIBCO.xml") || name.endsWith("/TIBCO.xml");
+	}
+
+	private static boolean isArchive(String name) {
+		return name.endsWith(".par") || name.endsWith(".aar") || name.endsWith(".sar");
+	}
+
+	/**
+	 * @return the entries which differ between two results of
+	 * {@link #digestEAR(File)}
+	 */
+	public static List<String> compareEARs(Map<String, String> deployed, Map<String, String> candidate) {
+		List<String> result = new ArrayList<String>();
+		for (String name : deployed.keySet()) {
+			if (!candidate.containsKey(name)) {
+				result.add("- " + name);
+			}
+		}
+		for (Map.Entry<String, String> entry : candidate.entrySet()) {
+			String digest = deployed.get(entry.getKey());
+			if (digest == null) {
+				result.add("+ " + entry.getKey());
+			} else if (!digest.equals(entry.getValue())) {
+				result.add("~ " + entry.getKey());
+			}
+		}
+		return result;
+	}
+
+}
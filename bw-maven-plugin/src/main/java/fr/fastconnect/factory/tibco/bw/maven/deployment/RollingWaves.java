@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.deployment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.tibco.xmlns.applicationmanagement.Binding;
+import com.tibco.xmlns.applicationmanagement.Bw;
+
+import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
+
+/**
+ * <p>
+ * This class splits the instances of an application into waves for a rolling
+ * deployment. The waves are defined by:
+ *  <ul>
+ *   <li>"machine": one wave per machine</li>
+ *   <li>"&lt;n>%": waves of n percent of the instances (at least one)</li>
+ *   <li>"&lt;n>": waves of n instances</li>
+ *  </ul>
+ * The instances keep the order of the XML Deployment Descriptor.
+ * </p>
+ */
+public class RollingWaves {
+
+	public static final String BY_MACHINE = "machine";
+
+	/**
+	 * <p>
+	 * An instance of a BW service: a binding on a machine.
+	 * </p>
+	 */
+	public static class Instance {
+		private final String service;
+		private final String binding;
+		private final String name;
+		private final String machine;
+
+		public Instance(String service, String binding, String name, String machine) {
+			this.service = service;
+			this.binding = binding;
+			this.name = name;
+			this.machine = machine;
+		}
+
+		/**
+		 * @return the name of the service (the process archive)
+		 */
+		public String getService() {
+			return service;
+		}
+
+		public String getBinding() {
+			return binding;
+		}
+
+		/**
+		 * @return the name of the instance used by the Hawk methods
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public String getMachine() {
+			return machine;
+		}
+
+		@Override
+		public String toString() {
+			return name + (machine != null ? "@" + machine : "");
+		}
+	}
+
+	/**
+	 * @return the instances of the enabled BW services of an application
+	 */
+	public static List<Instance> getInstances(ApplicationManagement application) {
+		List<Instance> result = new ArrayList<Instance>();
+		for (ImmutablePair<Bw, Binding> instance : application.getInstances(true)) {
+			Bw bw = instance.left;
+			Binding binding = instance.right;
+			result.add(new Instance(bw.getName(), binding.getName(), ApplicationManagement.getInstanceName(bw, binding), binding.getMachine()));
+		}
+		return result;
+	}
+
+	/**
+	 * @param instances
+	 * @param waves, "machine", "&lt;n>%" or "&lt;n>"
+	 * @return the waves, none of them is empty
+	 * @throws MojoExecutionException if the definition of the waves is
+	 * invalid (a number of instances must be greater than 0)
+	 */
+	public static List<List<Instance>> split(List<Instance> instances, String waves) throws MojoExecutionException {
+		List<List<Instance>> result = new ArrayList<List<Instance>>();
+		String definition = waves.trim();
+
+		if (BY_MACHINE.equalsIgnoreCase(definition)) {
+			Map<String, List<Instance>> byMachine = new LinkedHashMap<String, List<Instance>>();
+			for (Instance instance : instances) {
+				byMachine.computeIfAbsent(instance.getMachine() != null ? instance.getMachine() : "", k -> new ArrayList<Instance>()).add(instance);
+			}
+			result.addAll(byMachine.values());
+			return result;
+		}
+
+		int size;
+		try {
+			if (definition.endsWith("%")) {
+				int percentage = Integer.parseInt(definition.substring(0, definition.length() - 1).trim());
+				if (percentage <= 0 || percentage > 100) {
+					throw new MojoExecutionException("Invalid percentage of instances per wave: '" + waves + "'");
+				}
+				size = Math.max(1, (int) Math.ceil(instances.size() * percentage / 100.0));
+			} else {
+				size = Integer.parseInt(definition);
+			}
+		} catch (NumberFormatException e) {
+			throw new MojoExecutionException("Invalid waves definition: '" + waves + "' (expected '" + BY_MACHINE + "', '<n>%' or '<n>')", e);
+		}
+		if (size <= 0) {
+			throw new MojoExecutionException("Invalid number of instances per wave: '" + waves + "' (must be greater than 0)");
+		}
+
+		for (int i = 0; i < instances.size(); i += size) {
+			result.add(new ArrayList<Instance>(instances.subList(i, Math.min(i + size, instances.size()))));
+		}
+		return result;
+	}
+
+}
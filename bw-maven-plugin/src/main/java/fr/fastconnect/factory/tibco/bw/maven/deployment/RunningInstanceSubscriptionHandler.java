@@ -0,0 +1,169 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.deployment;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.maven.plugin.logging.Log;
+
+import COM.TIBCO.hawk.talon.MicroAgentData;
+import COM.TIBCO.hawk.talon.MicroAgentException;
+import COM.TIBCO.hawk.talon.Subscription;
+import fr.fastconnect.factory.tibco.bw.maven.hawk.DefaultSubscriptionHandler;
+import fr.fastconnect.factory.tibco.bw.maven.hawk.MethodSubscriber;
+
+/**
+ * <p>
+ * This handler of the Hawk method
+ * "COM.TIBCO.admin.TRA:getComponentInstanceStatus" waits for an instance to
+ * be in "RUNNING" state (or to be "STOPPED" after having been running).
+ * </p>
+ * <p>
+ * The {@code latch} is counted down once when the subscription ends (with a
+ * result, after the last retry or on termination), so that the caller can
+ * wait for a set of instances without polling a shared counter.
+ * </p>
+ */
+class RunningInstanceSubscriptionHandler extends DefaultSubscriptionHandler {
+	private Log logger;
+	private MethodSubscriber methodSubscriber;
+
+	private enum StatusHistory {
+		STOPPED, INITIALIZING, RUNNING
+	}
+	private Map<Integer, StatusHistory> statusesHistory;
+	private int numberOfRunningStatuses;
+
+	private final CountDownLatch latch;
+	private boolean ended;
+
+	public RunningInstanceSubscriptionHandler(Log log, MethodSubscriber methodSubscriber, int numberOfRunningStatuses, CountDownLatch latch) {
+		this.logger = log;
+		this.methodSubscriber = methodSubscriber;
+		this.latch = latch;
+		this.statusesHistory = new LinkedHashMap<Integer, StatusHistory>();
+		if (numberOfRunningStatuses <= 0) {
+			numberOfRunningStatuses = 1;
+		}
+		this.numberOfRunningStatuses = numberOfRunningStatuses;
+	}
+
+	protected Log getLog() {
+		return logger;
+	}
+
+	@Override
+	public Object getResult() {
+		return result;
+	}
+
+	@Override
+	public void onSubscribe() {
+		String instance =
+		methodSubscriber.getArguments().get(0).getValue() +
+		"-" +
+		methodSubscriber.getArguments().get(1).getValue();
+
+		Integer timeout = methodSubscriber.getInterval() * methodSubscriber.getNumberOfRetry() / 1000;
+		getLog().info("Subscription to the Hawk method started for instance '" + instance + "' (timeout is set to " + timeout + (timeout > 1 ? " seconds" : " second") + ").");
+	}
+
+	@Override
+	public void onData(Subscription s, MicroAgentData mad) {
+		super.onData(s, mad);
+		String data = formatData(mad.getData());
+		getLog().debug(data);
+
+		if (data != null && data.contains("STOPPED")) {
+			statusesHistory.put(statusesHistory.size(), StatusHistory.STOPPED);
+		} else	if (data != null && data.contains("INITIALIZING")) {
+			statusesHistory.put(statusesHistory.size(), StatusHistory.INITIALIZING);
+		} else	if (data != null && data.contains("RUNNING")) {
+			statusesHistory.put(statusesHistory.size(), StatusHistory.RUNNING);
+		}
+
+		getLog().debug(statusesHistory.toString());
+		if (failedToStart()) {
+			s.cancel();
+			result = "STOPPED";
+			decreaseReferenceCount();
+		} else if (isStarted()) {
+			s.cancel();
+			result = "RUNNING";
+			decreaseReferenceCount();
+			getLog().debug("A subscription was canceled");
+		}
+	}
+
+	private Integer getLastKeyForValue(Map<Integer, StatusHistory> map, StatusHistory value) {
+		Integer result = -1;
+
+		for (Integer key : map.keySet()) {
+			if (value.equals(map.get(key))) {
+				result = key;
+			}
+			
+		}
+		return result;
+	}
+
+	private boolean failedToStart() {
+		if (statusesHistory.containsValue(StatusHistory.RUNNING) &&
+			statusesHistory.containsValue(StatusHistory.STOPPED)) {
+				Integer stoppedIndex = getLastKeyForValue(statusesHistory, StatusHistory.STOPPED);
+				getLog().debug(stoppedIndex.toString());
+				Integer runningIndex = getLastKeyForValue(statusesHistory, StatusHistory.RUNNING);
+				getLog().debug(runningIndex.toString());
+				return stoppedIndex > runningIndex;
+			}
+		return false;
+	}
+
+	private boolean isStarted() {
+		return Collections.frequency(statusesHistory.values(), StatusHistory.RUNNING) > numberOfRunningStatuses;
+	}
+
+	@Override
+	public synchronized void decreaseReferenceCount() {
+		if (ended) {
+			return; // the last retry and a result can come with the same data
+		}
+		ended = true;
+		super.decreaseReferenceCount();
+		latch.countDown();
+	}
+
+	@Override
+	public void onError(Subscription s, MicroAgentException e) {
+		getLog().debug("A subscription caused an error");
+	}
+
+	@Override
+	public void onErrorCleared(Subscription s) {
+		getLog().debug("A subscription cleared an error");
+	}
+
+	@Override
+	public void onTermination(Subscription s, MicroAgentException e) {
+		getLog().debug("A subscription terminated");
+		decreaseReferenceCount();
+	}
+
+}
@@ -17,27 +17,18 @@
 package fr.fastconnect.factory.tibco.bw.maven.deployment;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 import jakarta.xml.bind.JAXBException;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import COM.TIBCO.hawk.console.hawkeye.ConsoleInitializationException;
-import COM.TIBCO.hawk.talon.MicroAgentData;
 import COM.TIBCO.hawk.talon.MicroAgentException;
-import COM.TIBCO.hawk.talon.Subscription;
-import fr.fastconnect.factory.tibco.bw.maven.hawk.DefaultSubscriptionHandler;
-import fr.fastconnect.factory.tibco.bw.maven.hawk.MethodSubscriber;
-import fr.fastconnect.factory.tibco.bw.maven.hawk.MicroAgent;
 import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
 
 /**
@@ -45,6 +36,12 @@ import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
  * <p>
  * This goal starts a TIBCO BusinessWorks application deployed on a TIBCO domain.
  * </p>
+ * <p>
+ * With <i>deploy.rolling.waves</i> (experimental, see
+ * <i>deploy.rolling.experimental</i>), the instances are restarted wave by
+ * wave instead: the instances which are already running are
+ * stopped, then started again, one wave after the other.
+ * </p>
  * 
  * @author Mathieu Debove
  *
@@ -55,8 +52,6 @@ public class StartEARMojo extends AbstractBWDeployMojo {
 
 	protected final static String STARTING_INSTANCES_FAILED = "Some instances failed to be started.";
 	protected final static String STARTING_INSTANCES = "Starting instances of the application...";
-	protected final static String WAITING_FOR_INSTANCES = "Waiting for instances to be started...";
-	protected final static String SUBSCRIBING_TO_HAWK_METHODS = "Subscribing to Hawk methods:";
 	protected final static String ALL_INSTANCES_STARTED = "All instances successfully started.";
 	protected final static String SOME_INSTANCES_NOT_STARTED = "Some instances failed to be started (or timeout was reached).";
 
@@ -75,198 +70,6 @@ public class StartEARMojo extends AbstractBWDeployMojo {
 	 */
 	@Parameter (property="failWhenTimeoutReached", defaultValue = "false")
 	private Boolean failWhenTimeoutReached;
-	
-	@Parameter (property="bw.start.running.statuses.number", defaultValue = "3")
-	private int numberOfRunningStatuses;
-	private MicroAgent microAgent;
-
-	private static class RunningInstanceSubscriptionHandler extends DefaultSubscriptionHandler {
-		private Log logger;
-		private MethodSubscriber methodSubscriber;
-
-		private enum StatusHistory {
-			STOPPED, INITIALIZING, RUNNING
-		}
-		private Map<Integer, StatusHistory> statusesHistory;
-		private int numberOfRunningStatuses;
-
-		public RunningInstanceSubscriptionHandler(Log log, MethodSubscriber methodSubscriber, int numberOfRunningStatuses) {
-			this.logger = log;
-			this.methodSubscriber = methodSubscriber;
-			this.statusesHistory = new LinkedHashMap<Integer, StatusHistory>();
-			if (numberOfRunningStatuses <= 0) {
-				numberOfRunningStatuses = 1;
-			}
-			this.numberOfRunningStatuses = numberOfRunningStatuses;
-		}
-
-		protected Log getLog() {
-			return logger;
-		}
-
-		@Override
-		public Object getResult() {
-			return result;
-		}
-
-		@Override
-		public void onSubscribe() {
-			String instance =
-			methodSubscriber.getArguments().get(0).getValue() +
-			"-" +
-			methodSubscriber.getArguments().get(1).getValue();
-
-			Integer timeout = methodSubscriber.getInterval() * methodSubscriber.getNumberOfRetry() / 1000;
-			getLog().info("Subscription to the Hawk method started for instance '" + instance + "' (timeout is set to " + timeout + (timeout > 1 ? " seconds" : " second") + ").");
-		}
-
-		@Override
-		public void onData(Subscription s, MicroAgentData mad) {
-			super.onData(s, mad);
-			String data = formatData(mad.getData());
-			getLog().debug(data);
-
-			if (data != null && data.contains("STOPPED")) {
-				statusesHistory.put(statusesHistory.size(), StatusHistory.STOPPED);
-			} else	if (data != null && data.contains("INITIALIZING")) {
-				statusesHistory.put(statusesHistory.size(), StatusHistory.INITIALIZING);
-			} else	if (data != null && data.contains("RUNNING")) {
-				statusesHistory.put(statusesHistory.size(), StatusHistory.RUNNING);
-			}
-
-			getLog().debug(statusesHistory.toString());
-			if (failedToStart()) {
-				s.cancel();
-				result = "STOPPED";
-				decreaseReferenceCount();
-			} else if (isStarted()) {
-				s.cancel();
-				result = "RUNNING";
-				decreaseReferenceCount();
-				getLog().debug("A subscription was canceled");
-				getLog().debug(numberOfSubscriptions.toString());
-				getLog().debug(RunningInstanceSubscriptionHandler.numberOfSubscriptions.toString());
-			}
-		}
-
-		private Integer getLastKeyForValue(Map<Integer, StatusHistory> map, StatusHistory value) {
-			Integer result = -1;
-
-			for (Integer key : map.keySet()) {
-				if (value.equals(map.get(key))) {
-					result = key;
-				}
-				
-			}
-			return result;
-		}
-
-		private boolean failedToStart() {
-			if (statusesHistory.containsValue(StatusHistory.RUNNING) &&
-				statusesHistory.containsValue(StatusHistory.STOPPED)) {
-					Integer stoppedIndex = getLastKeyForValue(statusesHistory, StatusHistory.STOPPED);
-					getLog().debug(stoppedIndex.toString());
-					Integer runningIndex = getLastKeyForValue(statusesHistory, StatusHistory.RUNNING);
-					getLog().debug(runningIndex.toString());
-					return stoppedIndex > runningIndex;
-				}
-			return false;
-		}
-
-		private boolean isStarted() {
-			return Collections.frequency(statusesHistory.values(), StatusHistory.RUNNING) > numberOfRunningStatuses;
-		}
-
-		@Override
-		public void decreaseReferenceCount() {
-			super.decreaseReferenceCount();
-			getLog().debug(numberOfSubscriptions.toString());
-		}
-
-		@Override
-		public void increaseReferenceCount() {
-			super.increaseReferenceCount();
-			getLog().debug(numberOfSubscriptions.toString());
-		}
-		
-		@Override
-		public void onError(Subscription s, MicroAgentException e) {
-			getLog().debug("A subscription caused an error");
-		}
-
-		@Override
-		public void onErrorCleared(Subscription s) {
-			getLog().debug("A subscription cleared an error");
-		}
-
-		@Override
-		public void onTermination(Subscription s, MicroAgentException e) {
-			getLog().debug("A subscription terminated");
-		}
-
-	}
-	
-	/**
-	 * This methods subscribe to the Hawk method
-	 * "COM.TIBCO.admin.TRA:getComponentInstanceStatus" for all
-	 * {@code instances} being started.
-	 * 
-	 * @param instances
-	 * @return a list of {@link MethodSubscriber} objects
-	 * @throws ConsoleInitializationException
-	 * @throws MicroAgentException
-	 */
-	private List<MethodSubscriber> monitorInstances(List<ImmutablePair<String, String>> instances) throws ConsoleInitializationException, MicroAgentException {
-		List<MethodSubscriber> result = new ArrayList<MethodSubscriber>();
-
-    	microAgent = new MicroAgent(hawkDomain, hawkRvService, hawkRvNetwork, hawkRvDaemon, "COM.TIBCO.admin.TRA");
-
-    	getLog().info("");
-		getLog().info(SUBSCRIBING_TO_HAWK_METHODS);
-
-    	for (ImmutablePair<String, String> instance : instances) {
-    		MethodSubscriber ms = new MethodSubscriber(microAgent);
-    		ms.setMethodName("getComponentInstanceStatus");
-    		ms.setArguments(instance.left, instance.right);
-    		ms.setInterval(hawkSubscribeInterval);
-    		ms.setNumberOfRetry(hawkSubscribeNumberOfRetry);
-    		ms.subscribe(new RunningInstanceSubscriptionHandler(getLog(), ms, numberOfRunningStatuses));
-
-    		result.add(ms);
-		}
-
-		return result;
-	}
-
-	private boolean doWaitForRunningInstances(List<ImmutablePair<String, String>> instances) throws ConsoleInitializationException, MicroAgentException {
-		List<MethodSubscriber> result = monitorInstances(instances); // start monitoring of "RUNNING" statuses for instances
-
-		getLog().info("");
-		getLog().info(WAITING_FOR_INSTANCES);
-
-		while (RunningInstanceSubscriptionHandler.numberOfSubscriptions > 0) {
-			getLog().debug(RunningInstanceSubscriptionHandler.numberOfSubscriptions.toString());
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			/*
-			 *  RunningInstanceSubscriptionHandler.numberOfSubscriptions will
-			 * always come down to 0. In worst case after timeout. 
-			 */
-		}
-
-		microAgent.shutdown();
-
-		// check that all instances are in "RUNNING" state
-		for (MethodSubscriber ms : result) {
-			if (ms.getResult() == null || !ms.getResult().equals("RUNNING")) {
-				return false;
-			}
-		}
-		return true;
-	}
 
 	@Override
 	public String getInitMessage() {
@@ -286,6 +89,26 @@ public class StartEARMojo extends AbstractBWDeployMojo {
 		return arguments;
 	}
 
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (!isRolling()) {
+			super.execute();
+			return;
+		}
+		if (skip()) {
+			return;
+		}
+
+		checkAppManage();
+		checkRolling();
+		getLog().info(getInitMessage());
+		try {
+			rollingRestart(new ApplicationManagement(deploymentDescriptorFinal));
+		} catch (JAXBException e) {
+			throw new MojoExecutionException(STARTING_INSTANCES_FAILED, e);
+		}
+	}
+
 	@Override
 	public void postAction() throws MojoExecutionException {
 		try {
@@ -0,0 +1,268 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.deployment.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>
+ * This class runs independent deployment jobs concurrently with bounded
+ * concurrency:
+ *  <ul>
+ *   <li>at most <i>threads</i> jobs at the same time</li>
+ *   <li>at most a given number of jobs on the same domain</li>
+ *   <li>at most a given number of jobs touching the same machine (a job
+ *   touches the machines of the bindings of its application)</li>
+ *  </ul>
+ * </p>
+ * <p>
+ * Jobs are started in the order of the list as soon as their limits allow it,
+ * a job waiting for a busy machine does not prevent the next ones from
+ * starting. A failed job does not stop the others: all the results are
+ * returned at the end.
+ * </p>
+ */
+public class DeploymentScheduler {
+
+	/**
+	 * <p>
+	 * A deployment of one application.
+	 * </p>
+	 */
+	public static class Job {
+		private final String name;
+		private final String domain;
+		private final Set<String> machines;
+		private final Callable<Void> action;
+
+		public Job(String name, String domain, Set<String> machines, Callable<Void> action) {
+			this.name = name;
+			this.domain = domain;
+			this.machines = new TreeSet<String>(machines);
+			this.action = action;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDomain() {
+			return domain;
+		}
+
+		public Set<String> getMachines() {
+			return Collections.unmodifiableSet(machines);
+		}
+	}
+
+	/**
+	 * <p>
+	 * The outcome of a job.
+	 * </p>
+	 */
+	public static class Result {
+		private final Job job;
+		private final Throwable failure;
+		private final long duration;
+
+		private Result(Job job, Throwable failure, long duration) {
+			this.job = job;
+			this.failure = failure;
+			this.duration = duration;
+		}
+
+		public Job getJob() {
+			return job;
+		}
+
+		public boolean isSuccess() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the exception thrown by the job, null if it succeeded
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		/**
+		 * @return the duration of the job in milliseconds
+		 */
+		public long getDuration() {
+			return duration;
+		}
+	}
+
+	private final int threads;
+	private final int domainLimit;
+	private final int machineLimit;
+	private final Map<String, Integer> domainLimits = new HashMap<String, Integer>();
+	private final Map<String, Integer> machineLimits = new HashMap<String, Integer>();
+
+	private final Map<String, Integer> runningByDomain = new HashMap<String, Integer>();
+	private final Map<String, Integer> runningByMachine = new HashMap<String, Integer>();
+
+	/**
+	 * @param threads, the maximum number of concurrent jobs (0 means the
+	 * number of available processors)
+	 * @param domainLimit, the default maximum number of concurrent jobs on a
+	 * domain (0 means no limit)
+	 * @param machineLimit, the default maximum number of concurrent jobs
+	 * touching a machine (0 means no limit)
+	 */
+	public DeploymentScheduler(int threads, int domainLimit, int machineLimit) {
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.domainLimit = domainLimit;
+		this.machineLimit = machineLimit;
+	}
+
+	/**
+	 * @param limits, the maximum number of concurrent jobs of some domains,
+	 * overriding the default one
+	 */
+	public void setDomainLimits(Map<String, Integer> limits) {
+		if (limits != null) {
+			domainLimits.putAll(limits);
+		}
+	}
+
+	/**
+	 * @param limits, the maximum number of concurrent jobs touching some
+	 * machines, overriding the default one
+	 */
+	public void setMachineLimits(Map<String, Integer> limits) {
+		if (limits != null) {
+			machineLimits.putAll(limits);
+		}
+	}
+
+	/**
+	 * @param jobs
+	 * @return the results of the jobs, in the order of completion
+	 * @throws InterruptedException
+	 */
+	public List<Result> run(List<Job> jobs) throws InterruptedException {
+		List<Result> results = new ArrayList<Result>();
+		if (jobs.isEmpty()) {
+			return results;
+		}
+
+		LinkedList<Job> pending = new LinkedList<Job>(jobs);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, jobs.size()));
+		CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+		int running = 0;
+		try {
+			while (!pending.isEmpty() || running > 0) {
+				for (Iterator<Job> iterator = pending.iterator(); iterator.hasNext() && running < threads;) {
+					Job job = iterator.next();
+					if (isAllowed(job)) {
+						iterator.remove();
+						acquire(job);
+						completion.submit(() -> execute(job));
+						running++;
+					}
+				}
+
+				Result result;
+				try {
+					result = completion.take().get();
+				} catch (ExecutionException e) { // execute() catches everything
+					throw new IllegalStateException(e.getCause());
+				}
+				running--;
+				release(result.getJob());
+				results.add(result);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	private Result execute(Job job) {
+		long start = System.currentTimeMillis();
+		Throwable failure = null;
+		try {
+			job.action.call();
+		} catch (Throwable e) {
+			failure = e;
+		}
+		return new Result(job, failure, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * A job is always allowed when nothing runs, so that a limit lower than
+	 * the number of machines of a single job cannot block the scheduler.
+	 */
+	private boolean isAllowed(Job job) {
+		if (runningByDomain.isEmpty()) {
+			return true;
+		}
+		if (!isBelow(runningByDomain, job.domain, limit(domainLimits, job.domain, domainLimit))) {
+			return false;
+		}
+		for (String machine : job.machines) {
+			if (!isBelow(runningByMachine, machine, limit(machineLimits, machine, machineLimit))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int limit(Map<String, Integer> limits, String key, int defaultLimit) {
+		Integer limit = limits.get(key);
+		return limit != null ? limit : defaultLimit;
+	}
+
+	private static boolean isBelow(Map<String, Integer> running, String key, int limit) {
+		if (limit <= 0) {
+			return true;
+		}
+		Integer count = running.get(key);
+		return count == null || count < limit;
+	}
+
+	private void acquire(Job job) {
+		runningByDomain.merge(job.domain, 1, Integer::sum);
+		for (String machine : job.machines) {
+			runningByMachine.merge(machine, 1, Integer::sum);
+		}
+	}
+
+	private void release(Job job) {
+		runningByDomain.computeIfPresent(job.domain, (k, count) -> count > 1 ? count - 1 : null);
+		for (String machine : job.machines) {
+			runningByMachine.computeIfPresent(machine, (k, count) -> count > 1 ? count - 1 : null);
+		}
+	}
+
+}
@@ -0,0 +1,407 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.deployment.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+
+import fr.fastconnect.factory.tibco.bw.maven.deployment.batch.DeploymentScheduler.Job;
+import fr.fastconnect.factory.tibco.bw.maven.deployment.batch.DeploymentScheduler.Result;
+import fr.fastconnect.factory.tibco.bw.maven.packaging.AbstractPackagingMojo;
+import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement;
+import fr.fastconnect.factory.tibco.bw.maven.packaging.PropertyTree;
+
+/**
+ * <p>
+ * This goal deploys several BusinessWorks applications concurrently, with one
+ * <i>AppManage -deploy</i> command per application, instead of one
+ * <i>AppManage -batchDeploy</i> command which deploys them one after another.
+ * </p>
+ * <p>
+ * The applications are taken from:
+ *  <ul>
+ *   <li>the batch directory (<i>deploy.batch.dir</i>) if it is set: the
+ *   "AppManage.batch" file written by the
+ *   <a href="./batch-extract-xml-bw-mojo.html">bw:batch-extract-xml-bw</a>
+ *   goal lists the EAR and the XML Deployment Descriptor of each
+ *   application</li>
+ *   <li>the modules of the reactor with a <i>bw-ear</i> or a
+ *   <i>bw-ear-deploy</i> packaging otherwise: their EAR and their final XML
+ *   Deployment Descriptor (see the <a href="./phases/packaging.html">packaging
+ *   phase</a>) must already exist</li>
+ *  </ul>
+ * </p>
+ * <p>
+ * The number of concurrent deployments is bounded globally, by domain and by
+ * machine (the machines of the bindings of each application, see
+ * {@link DeploymentScheduler}). All the applications are deployed even if some
+ * of them fail and a summary is displayed at the end.
+ * </p>
+ */
+@Mojo(name="batch-deploy-parallel-bw", defaultPhase=LifecyclePhase.PREPARE_PACKAGE, requiresProject = false, aggregator = true)
+public class ParallelDeployBatchMojo extends AbstractPackagingMojo {
+
+	protected final static String DEPLOYING_PARALLEL = "Deploying applications to domain (parallel)...";
+	protected final static String DEPLOYING_FAILED = "The parallel deployment failed.";
+	protected final static String NO_APPLICATION = "No application to deploy.";
+	protected final static String BATCH_FILE_FAILURE = "Unable to read the batch file";
+	protected final static String INTERRUPTED = "Interrupted while deploying applications";
+	protected final static String DEPLOYMENT_SUMMARY = "Deployment summary:";
+
+	protected final static String BATCH_FILE = "AppManage.batch";
+
+	/**
+	 * TIBCO domain name (default domain of the applications)
+	 */
+	@Parameter ( property = domainNameProperty, required = true)
+	protected String domainName;
+
+	/**
+	 * TIBCO domain username
+	 */
+	@Parameter ( property = domainUsernameProperty, required = true)
+	protected String domainUsername;
+
+	/**
+	 * TIBCO domain password
+	 */
+	@Parameter ( property = domainPasswordProperty, required = true)
+	protected String domainPassword;
+
+	/**
+	 * <p>
+	 * Directory of an export performed by the
+	 * <a href="./batch-extract-xml-bw-mojo.html">bw:batch-extract-xml-bw</a>
+	 * goal. If not set, the applications of the reactor are deployed.
+	 * </p>
+	 */
+	@Parameter ( property = AbstractBWBatchDeployMojo.deployBatchDir )
+	protected File dir;
+
+	/**
+	 * <p>
+	 * Maximum number of concurrent deployments. Default (0) uses the number of
+	 * available processors.
+	 * </p>
+	 */
+	@Parameter ( property = "deploy.parallel.threads", defaultValue = "0" )
+	protected int parallelThreads;
+
+	/**
+	 * <p>
+	 * Maximum number of concurrent deployments on the same domain. Default (0)
+	 * means no other limit than <i>deploy.parallel.threads</i>.
+	 * </p>
+	 */
+	@Parameter ( property = "deploy.parallel.domainLimit", defaultValue = "0" )
+	protected int domainLimit;
+
+	/**
+	 * <p>
+	 * Maximum number of concurrent deployments touching the same machine.
+	 * Default (0) means no limit.
+	 * </p>
+	 */
+	@Parameter ( property = "deploy.parallel.machineLimit", defaultValue = "0" )
+	protected int machineLimit;
+
+	/**
+	 * <p>
+	 * Maximum number of concurrent deployments for some domains, for instance:
+	 * <pre>
+	 * &lt;domainLimits>
+	 *   &lt;PRODUCTION>2&lt;/PRODUCTION>
+	 * &lt;/domainLimits>
+	 * </pre>
+	 * </p>
+	 */
+	@Parameter
+	protected Map<String, Integer> domainLimits;
+
+	/**
+	 * <p>
+	 * Maximum number of concurrent deployments for some machines (by
+	 * hostname as in the bindings), overriding <i>deploy.parallel.machineLimit</i>.
+	 * </p>
+	 */
+	@Parameter
+	protected Map<String, Integer> machineLimits;
+
+	/**
+	 * <p>
+	 * Whether to start the successfully deployed service instances or not
+	 * (<i>-nostart</i> switch from AppManage).
+	 * </p>
+	 */
+	@Parameter ( property = AbstractBWBatchDeployMojo.deployBatchNoStart, defaultValue = "false" )
+	protected boolean batchNoStart;
+
+	/**
+	 * <p>
+	 * Whether to stop running instances when an application is redeployed or
+	 * not (<i>-nostop</i> switch from AppManage).
+	 * </p>
+	 */
+	@Parameter ( property = AbstractBWBatchDeployMojo.deployBatchNoStop, defaultValue = "false" )
+	protected boolean batchNoStop;
+
+	/**
+	 * <p>
+	 * Whether to redeploy even when application is in synchronized state or not
+	 * (<i>-force</i> switch from AppManage).
+	 * </p>
+	 */
+	@Parameter ( property = AbstractBWBatchDeployMojo.deployBatchForce, defaultValue = "false" )
+	protected boolean batchForce;
+
+	/**
+	 * <p>
+	 * An application to deploy.
+	 * </p>
+	 */
+	protected static class Application {
+		private final String name;
+		private final String domain;
+		private final File ear;
+		private final File xml;
+
+		protected Application(String name, String domain, File ear, File xml) {
+			this.name = name;
+			this.domain = domain;
+			this.ear = ear;
+			this.xml = xml;
+		}
+	}
+
+	@Override
+	protected String getArtifactFileExtension() {
+		return BWEAR_EXTENSION;
+	}
+
+	/**
+	 * @return the AppManage arguments to deploy one application
+	 */
+	protected ArrayList<String> arguments(Application application) {
+		ArrayList<String> arguments = new ArrayList<String>();
+
+		arguments.add("-app");
+		arguments.add(application.name);
+		arguments.add("-domain");
+		arguments.add(application.domain);
+		arguments.add("-user");
+		arguments.add(domainUsername);
+		arguments.add("-pw");
+		arguments.add(domainPassword);
+		arguments.add("-deploy");
+		arguments.add("-ear");
+		arguments.add(application.ear.getAbsolutePath());
+		arguments.add("-deployConfig");
+		arguments.add(application.xml.getAbsolutePath());
+		if (batchNoStart) {
+			arguments.add("-nostart");
+		}
+		if (batchNoStop) {
+			arguments.add("-nostop");
+		}
+		if (batchForce) {
+			arguments.add("-force");
+		}
+
+		return arguments;
+	}
+
+	/**
+	 * <p>
+	 * This reads the applications of an "AppManage.batch" file:
+	 * <pre>
+	 * &lt;apps>
+	 *   &lt;app name="MyApplication" ear="MyApplication.ear" xml="MyApplication.xml"/>
+	 * &lt;/apps>
+	 * </pre>
+	 * </p>
+	 */
+	protected List<Application> getBatchApplications() throws MojoExecutionException {
+		File batchFile = new File(dir, BATCH_FILE);
+		List<Application> result = new ArrayList<Application>();
+		try {
+			Document document = new SAXBuilder().build(batchFile);
+			for (Element app : document.getRootElement().getChildren()) {
+				if (!"app".equals(app.getName()) || app.getAttributeValue("name") == null) {
+					continue;
+				}
+				String name = app.getAttributeValue("name");
+				String ear = app.getAttributeValue("ear", name + BWEAR_EXTENSION);
+				String xml = app.getAttributeValue("xml", name + XML_EXTENSION);
+				result.add(new Application(name, domainName, new File(dir, ear), new File(dir, xml)));
+			}
+		} catch (JDOMException | IOException e) {
+			throw new MojoExecutionException(BATCH_FILE_FAILURE + " '" + batchFile + "'", e);
+		}
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * The project properties <i>deploy.project.name</i> and
+	 * <i>tibco.domain.name</i> of a module override the artifactId and the
+	 * domain of this goal.
+	 * </p>
+	 */
+	protected List<Application> getReactorApplications() {
+		List<Application> result = new ArrayList<Application>();
+		for (MavenProject project : getSession().getProjects()) {
+			if (project.getPackaging() == null || !project.getPackaging().startsWith(BWEAR_TYPE)) {
+				continue;
+			}
+			String name = project.getProperties().getProperty(deployedProjectNameProperty, project.getArtifactId());
+			String domain = project.getProperties().getProperty(domainNameProperty, domainName);
+
+			String finalName = project.getBuild().getFinalName();
+			File buildDirectory = new File(project.getBuild().getDirectory());
+			File ear = project.getArtifact() != null ? project.getArtifact().getFile() : null;
+			if (ear == null || !ear.getName().endsWith(BWEAR_EXTENSION)) {
+				ear = firstExisting(new File(buildDirectory, finalName + BWEAR_EXTENSION), new File(project.getBasedir(), finalName + BWEAR_EXTENSION));
+			}
+			File xml = firstExisting(new File(new File(buildDirectory, "package"), finalName + "-final" + XML_EXTENSION), new File(project.getBasedir(), finalName + "-final" + XML_EXTENSION));
+
+			result.add(new Application(name, domain, ear, xml));
+		}
+		return result;
+	}
+
+	private static File firstExisting(File... files) {
+		for (File file : files) {
+			if (file.exists()) {
+				return file;
+			}
+		}
+		return files[0];
+	}
+
+	/**
+	 * @return the machines of the bindings of the XML Deployment Descriptor
+	 * of an application
+	 */
+	protected Set<String> getMachines(Application application) {
+		Set<String> result = new TreeSet<String>();
+		try {
+			PropertyTree services = new ApplicationManagement(application.xml).getServices();
+			for (String key : services.keys()) {
+				String machine = services.getProperty(key);
+				if (key.endsWith("/machine") && machine != null && !machine.isEmpty()) {
+					result.add(machine);
+				}
+			}
+		} catch (JAXBException e) {
+			getLog().warn("The machines of '" + application.name + "' are unknown, only the domain limit applies: " + e.getLocalizedMessage());
+		}
+		return result;
+	}
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (skip()) {
+			return;
+		}
+
+		checkAppManage();
+		getLog().info(DEPLOYING_PARALLEL);
+
+		List<Application> applications = dir != null ? getBatchApplications() : getReactorApplications();
+		if (applications.isEmpty()) {
+			getLog().info(NO_APPLICATION);
+			return;
+		}
+
+		// the TRA files are shared by all the deployments: they are prepared once
+		ArrayList<File> tras = new ArrayList<File>();
+		tras.add(tibcoAppManageTRAPath);
+		try {
+			prepareTRAs(tibcoAppManagePath, tras);
+		} catch (IOException e) {
+			throw new MojoExecutionException(e.getMessage(), e);
+		}
+
+		List<Job> jobs = new ArrayList<Job>();
+		for (final Application application : applications) {
+			Set<String> machines = new TreeSet<String>();
+			if (application.ear.exists() && application.xml.exists()) {
+				machines = getMachines(application);
+			}
+			Job job = new Job(application.name, application.domain, machines, () -> {
+				if (!application.ear.exists()) {
+					throw new IOException("EAR not found: '" + application.ear + "'");
+				}
+				if (!application.xml.exists()) {
+					throw new IOException("XML Deployment Descriptor not found: '" + application.xml + "'");
+				}
+				getLog().info("Deploying '" + application.name + "' on domain '" + application.domain + "'");
+				executeTIBCOBinary(tibcoAppManagePath, arguments(application), directory, DEPLOYING_FAILED + " (" + application.name + ")", false, true);
+				getLog().info("Deployed '" + application.name + "'");
+				return null;
+			});
+			jobs.add(job);
+		}
+
+		DeploymentScheduler scheduler = new DeploymentScheduler(parallelThreads, domainLimit, machineLimit);
+		scheduler.setDomainLimits(domainLimits);
+		scheduler.setMachineLimits(machineLimits);
+
+		List<Result> results;
+		try {
+			results = scheduler.run(jobs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException(INTERRUPTED, e);
+		}
+
+		int failures = 0;
+		getLog().info("");
+		getLog().info(DEPLOYMENT_SUMMARY);
+		for (Result result : results) {
+			String line = "  " + result.getJob().getName() + " (" + result.getJob().getDomain() + ", " + (result.getDuration() / 1000) + "s)";
+			if (result.isSuccess()) {
+				getLog().info("[OK]     " + line);
+			} else {
+				failures++;
+				getLog().error("[FAILED] " + line + ": " + result.getFailure().getLocalizedMessage());
+			}
+		}
+
+		if (failures > 0) {
+			throw new MojoExecutionException(DEPLOYING_FAILED + " " + failures + "/" + results.size() + " application(s) failed.");
+		}
+	}
+
+}
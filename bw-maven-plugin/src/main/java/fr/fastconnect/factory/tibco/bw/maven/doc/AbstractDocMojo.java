@@ -23,7 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 
-import jakarta.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
@@ -36,9 +36,10 @@ import org.apache.maven.model.FileSet;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndexer;
+
 import fr.fastconnect.factory.tibco.bw.maven.AbstractBWMojo;
 import fr.fastconnect.factory.tibco.bw.maven.source.AbstractProjectsListMojo;
-import fr.fastconnect.factory.tibco.bw.maven.source.ProcessModel;
 
 /**
  * <p>
@@ -69,13 +70,14 @@ public abstract class AbstractDocMojo extends AbstractBWMojo {
 	public abstract void processFile(File f) throws MojoExecutionException;
 	
 	/**
-	 * @throws JAXBException 
+	 * The description is read by a {@link ProcessIndexer}: the activities
+	 * configurations are not loaded.
 	 * 
+	 * @throws IOException
+	 * @throws XMLStreamException
 	 */
-	protected String getDescription(File f) throws JAXBException {
-		ProcessModel pm = new ProcessModel(f);
-		
-		String description = pm.getProcess().getDescription();
+	protected String getDescription(File f) throws IOException, XMLStreamException {
+		String description = new ProcessIndexer().index(f).getDescription();
 		
 		return description;
 	}
@@ -18,9 +18,7 @@ package fr.fastconnect.factory.tibco.bw.maven.doc;
 
 import java.io.File;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Execute;
@@ -39,6 +37,7 @@ import fr.fastconnect.factory.tibco.bw.maven.doc.jaxb.Bwdoc.CalledProcesses;
 import fr.fastconnect.factory.tibco.bw.maven.doc.jaxb.Bwdoc.Labels;
 import fr.fastconnect.factory.tibco.bw.maven.doc.jaxb.ObjectFactory;
 import fr.fastconnect.factory.tibco.bw.maven.doc.jaxb.Process;
+import fr.fastconnect.factory.tibco.bw.maven.jaxb.JAXBContextRegistry;
 import fr.fastconnect.factory.tibco.bw.maven.source.AbstractProjectsListMojo;
 import fr.fastconnect.factory.tibco.bw.maven.source.ProcessModel;
 
@@ -147,10 +146,7 @@ public class GenerateXMLDocMojo extends AbstractDocMojo {
 	}
 
 	private void save(Bwdoc doc, File f) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext.newInstance(ObjectFactory.class);
-		Marshaller m = jaxbContext.createMarshaller();
-		m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);		
-		m.marshal(doc, f);
+		JAXBContextRegistry.marshal(doc, f, ObjectFactory.class);
 	}
 	
 }
@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.jaxb;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+/**
+ * <p>
+ * This class is a registry of JAXB contexts shared by all the goals of the
+ * plugin for the life of the plugin classloader.
+ * </p>
+ * <p>
+ * Creating a <i>JAXBContext</i> is expensive (hundreds of milliseconds and
+ * megabytes for the TIBCO schemas) whereas it is thread-safe: each context is
+ * created lazily, once per set of <i>ObjectFactory</i> classes. Marshallers
+ * and unmarshallers are not thread-safe but are reusable: they are pooled by
+ * context.
+ * </p>
+ */
+public final class JAXBContextRegistry {
+
+    private static final int MAX_POOLED = 16; // per context and per kind
+
+    private static final ConcurrentMap<List<Class<?>>, PooledContext> CONTEXTS = new ConcurrentHashMap<List<Class<?>>, PooledContext>();
+
+    private static final class PooledContext {
+        private final JAXBContext context;
+        private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+        private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+
+        private PooledContext(JAXBContext context) {
+            this.context = context;
+        }
+
+        private Unmarshaller acquireUnmarshaller() throws JAXBException {
+            Unmarshaller unmarshaller = unmarshallers.poll();
+            return unmarshaller != null ? unmarshaller : context.createUnmarshaller();
+        }
+
+        private void release(Unmarshaller unmarshaller) {
+            if (unmarshallers.size() < MAX_POOLED) {
+                unmarshallers.offer(unmarshaller);
+            }
+        }
+
+        private Marshaller acquireMarshaller() throws JAXBException {
+            Marshaller marshaller = marshallers.poll();
+            return marshaller != null ? marshaller : context.createMarshaller();
+        }
+
+        private void release(Marshaller marshaller) {
+            if (marshallers.size() < MAX_POOLED) {
+                marshallers.offer(marshaller);
+            }
+        }
+    }
+
+    private JAXBContextRegistry() {
+    }
+
+    private static PooledContext getPooledContext(Class<?>... classes) throws JAXBException {
+        List<Class<?>> key = Arrays.asList(classes);
+        PooledContext pooledContext = CONTEXTS.get(key);
+        if (pooledContext == null) {
+            synchronized (CONTEXTS) {
+                pooledContext = CONTEXTS.get(key);
+                if (pooledContext == null) {
+                    pooledContext = new PooledContext(JAXBContext.newInstance(classes));
+                    CONTEXTS.put(key, pooledContext);
+                }
+            }
+        }
+        return pooledContext;
+    }
+
+    /**
+     * @param classes, the <i>ObjectFactory</i> classes of the context
+     * @return the shared context for these classes
+     * @throws JAXBException
+     */
+    public static JAXBContext getContext(Class<?>... classes) throws JAXBException {
+        return getPooledContext(classes).context;
+    }
+
+    /**
+     * @param file, the XML file to unmarshall
+     * @param classes, the <i>ObjectFactory</i> classes of the context
+     * @return the unmarshalled object (which can be a <i>JAXBElement</i>)
+     * @throws JAXBException
+     */
+    public static Object unmarshal(File file, Class<?>... classes) throws JAXBException {
+        PooledContext pooledContext = getPooledContext(classes);
+        Unmarshaller unmarshaller = pooledContext.acquireUnmarshaller();
+        try {
+            return unmarshaller.unmarshal(file);
+        } finally {
+            pooledContext.release(unmarshaller);
+        }
+    }
+
+    /**
+     * @param input, the XML stream to unmarshall
+     * @param classes, the <i>ObjectFactory</i> classes of the context
+     * @return the unmarshalled object (which can be a <i>JAXBElement</i>)
+     * @throws JAXBException
+     */
+    public static Object unmarshal(InputStream input, Class<?>... classes) throws JAXBException {
+        PooledContext pooledContext = getPooledContext(classes);
+        Unmarshaller unmarshaller = pooledContext.acquireUnmarshaller();
+        try {
+            return unmarshaller.unmarshal(input);
+        } finally {
+            pooledContext.release(unmarshaller);
+        }
+    }
+
+    /**
+     * @param object, the object to marshall as formatted XML
+     * @param file, the output file
+     * @param classes, the <i>ObjectFactory</i> classes of the context
+     * @throws JAXBException
+     */
+    public static void marshal(Object object, File file, Class<?>... classes) throws JAXBException {
+        PooledContext pooledContext = getPooledContext(classes);
+        Marshaller marshaller = pooledContext.acquireMarshaller();
+        try {
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            marshaller.marshal(object, file);
+        } finally {
+            pooledContext.release(marshaller);
+        }
+    }
+
+    /**
+     * @param object, the object to marshall as formatted XML
+     * @param output, the output stream
+     * @param classes, the <i>ObjectFactory</i> classes of the context
+     * @throws JAXBException
+     */
+    public static void marshal(Object object, OutputStream output, Class<?>... classes) throws JAXBException {
+        PooledContext pooledContext = getPooledContext(classes);
+        Marshaller marshaller = pooledContext.acquireMarshaller();
+        try {
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            marshaller.marshal(object, output);
+        } finally {
+            pooledContext.release(marshaller);
+        }
+    }
+
+}
@@ -22,11 +22,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Enumeration;
 import java.util.List;
-import java.util.Properties;
-import java.util.TreeSet;
 
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.io.FileUtils;
@@ -156,12 +152,23 @@ public abstract class AbstractPackagingMojo extends AbstractBWArtifactMojo {
 	@Parameter (property = "deploy.description", defaultValue="")
 	protected String description;
 
+	/**
+	 * @return the packaging objects kept in memory for the current project
+	 * (see {@link PackagingContext})
+	 */
+	protected PackagingContext getPackagingContext() {
+		return PackagingContext.get(getProject());
+	}
+
     /**
      * <p>
-     * This loads a properties file into a java.util.Properties object with
-     * sorted keys.<br/><br/>
-     * 
-     *  <b>NB</b>: always use keys() method to browse the properties
+     * This loads a properties file into a {@link PropertyTree} object with
+     * sorted keys.
+     * </p>
+     * <p>
+     * If the file was saved by a previous packaging goal of the build and not
+     * modified since, a copy of the saved properties is returned without
+     * reading the file.
      * </p>
      * 
      * @param propertiesFile
@@ -169,18 +176,23 @@ public abstract class AbstractPackagingMojo extends AbstractBWArtifactMojo {
      * @throws ConfigurationException
      * @throws IOException
      */
-	protected Properties loadPropertiesFile(File propertiesFile) throws ConfigurationException, IOException {
-		Properties properties = new Properties() { // sorted properties
-			private static final long serialVersionUID = 7793482336210629858L;
-			
-			@Override
-			public synchronized Enumeration<Object> keys() {
-				return Collections.enumeration(new TreeSet<Object>(super.keySet()));
+	protected PropertyTree loadPropertiesFile(File propertiesFile) throws ConfigurationException, IOException {
+		if (!filterProperties) {
+			PropertyTree saved = getPackagingContext().getProperties(propertiesFile);
+			if (saved != null) {
+				getLog().debug("Using the properties of '" + propertiesFile + "' kept in memory");
+				return saved;
 			}
-		};
+		}
+
+		PropertyTree properties = new PropertyTree(); // sorted properties
 		
 		FileInputStream fileInputStream = new FileInputStream(propertiesFile);
-		properties.load(fileInputStream);
+		try {
+			properties.load(fileInputStream);
+		} finally {
+			fileInputStream.close();
+		}
 
 		return properties;
 	}
@@ -191,7 +203,7 @@ public abstract class AbstractPackagingMojo extends AbstractBWArtifactMojo {
 
 	/**
 	 * <p>
-	 * This saves a java.util.Properties to a file.<br />
+	 * This saves a {@link PropertyTree} to a file, sorted by key.<br />
 	 * 
 	 * It is possible to add a comment at the beginning of the file.
 	 * </p>
@@ -203,7 +215,7 @@ public abstract class AbstractPackagingMojo extends AbstractBWArtifactMojo {
 	 * @param failure, the failure message
 	 * @throws MojoExecutionException
 	 */
-	protected void savePropertiesToFile(File outputFile, Properties properties, String propertiesComment, String success, String failure) throws MojoExecutionException {
+	protected void savePropertiesToFile(File outputFile, PropertyTree properties, String propertiesComment, String success, String failure) throws MojoExecutionException {
 		OutputStream outputStream = null;
 		
 		try {
@@ -242,6 +254,14 @@ public abstract class AbstractPackagingMojo extends AbstractBWArtifactMojo {
 			} catch (Exception e) {
 			}
 		}
+
+		if (!filterProperties) { // filtered files do not match the properties anymore
+			try {
+				getPackagingContext().putProperties(outputFile, properties);
+			} catch (IOException e) {
+				throw new MojoExecutionException(failure + " '" + outputFile + "'", e);
+			}
+		}
 	}
 
 	/**
@@ -17,11 +17,13 @@
 package fr.fastconnect.factory.tibco.bw.maven.packaging;
 
 import java.io.File;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -29,14 +31,12 @@ import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 
 import com.tibco.xmlns.applicationmanagement.ActionType;
 import com.tibco.xmlns.applicationmanagement.Actions;
@@ -68,6 +68,8 @@ import com.tibco.xmlns.applicationmanagement.Setting.Java;
 import com.tibco.xmlns.applicationmanagement.Setting.NTService;
 import com.tibco.xmlns.applicationmanagement.Shutdown;
 
+import fr.fastconnect.factory.tibco.bw.maven.jaxb.JAXBContextRegistry;
+
 /**
  * <p>
  * This class will<ul>
@@ -87,17 +89,73 @@ import com.tibco.xmlns.applicationmanagement.Shutdown;
 public class ApplicationManagement {
 	private static final String APPLICATION_MANAGEMENT_NAMESPACE = "http://www.tibco.com/xmlns/ApplicationManagement";
 	
+	private static final Class<?>[] OBJECT_FACTORIES = {
+		com.tibco.xmlns.applicationmanagement.ObjectFactory.class,
+		com.tibco.xmlns.applicationmanagement.bw.ObjectFactory.class,
+		com.tibco.xmlns.dd.ObjectFactory.class
+	};
+
 	private ApplicationType application;
-	private JAXBContext jaxbContext;
 	private HashMap<String, Object> map;
 	private Pattern patternElement;
 	private File xmlFile;
 
+	// name indexes over the JAXB lists, built lazily and kept in sync with
+	// every addition or removal performed by this class
+	private HashMap<String, Bw> bwIndex;
+	private HashMap<String, Adapter> adapterIndex;
+	private IdentityHashMap<Bindings, HashMap<String, Binding>> bindingIndexes;
+	private IdentityHashMap<Bwprocesses, HashMap<String, Bwprocess>> bwProcessIndexes;
+	private IdentityHashMap<NVPairs, HashMap<String, List<NVPairType>>> nvPairIndexes;
+
 	public ApplicationManagement(File xmlFile) throws JAXBException {
 		this.map = new HashMap<String, Object>();
+		this.bindingIndexes = new IdentityHashMap<Bindings, HashMap<String, Binding>>();
+		this.bwProcessIndexes = new IdentityHashMap<Bwprocesses, HashMap<String, Bwprocess>>();
+		this.nvPairIndexes = new IdentityHashMap<NVPairs, HashMap<String, List<NVPairType>>>();
+		this.patternElement = Pattern.compile("(\\w+)(\\[([\\w- \\*\\.\\/?]*)\\])?");
+		this.xmlFile = xmlFile;
+		initApplication(JAXBContextRegistry.unmarshal(xmlFile, OBJECT_FACTORIES));
+	}
+
+	/**
+	 * <p>
+	 * This creates the application from an XML Deployment Descriptor which is
+	 * already in memory, for instance to create several applications from the
+	 * same Deployment Descriptor without reading it from the disk each time.
+	 * </p>
+	 *
+	 * @param xml, the content of the XML Deployment Descriptor
+	 * @param xmlFile, the file written by {@link #save()}
+	 * @throws JAXBException
+	 */
+	public ApplicationManagement(InputStream xml, File xmlFile) throws JAXBException {
+		this.map = new HashMap<String, Object>();
+		this.bindingIndexes = new IdentityHashMap<Bindings, HashMap<String, Binding>>();
+		this.bwProcessIndexes = new IdentityHashMap<Bwprocesses, HashMap<String, Bwprocess>>();
+		this.nvPairIndexes = new IdentityHashMap<NVPairs, HashMap<String, List<NVPairType>>>();
+		this.patternElement = Pattern.compile("(\\w+)(\\[([\\w- \\*\\.\\/?]*)\\])?");
+		this.xmlFile = xmlFile;
+		initApplication(JAXBContextRegistry.unmarshal(xml, OBJECT_FACTORIES));
+	}
+
+	/**
+	 * <p>
+	 * This creates the application from an "application" root-element built
+	 * in memory (see {@link NativeDescriptorExtractor}).
+	 * </p>
+	 *
+	 * @param application
+	 * @param xmlFile, the file written by {@link #save()}
+	 */
+	public ApplicationManagement(ApplicationType application, File xmlFile) {
+		this.map = new HashMap<String, Object>();
+		this.bindingIndexes = new IdentityHashMap<Bindings, HashMap<String, Binding>>();
+		this.bwProcessIndexes = new IdentityHashMap<Bwprocesses, HashMap<String, Bwprocess>>();
+		this.nvPairIndexes = new IdentityHashMap<NVPairs, HashMap<String, List<NVPairType>>>();
 		this.patternElement = Pattern.compile("(\\w+)(\\[([\\w- \\*\\.\\/?]*)\\])?");
 		this.xmlFile = xmlFile;
-		initApplication();
+		this.application = application;
 	}
 	
 	/**
@@ -108,16 +166,9 @@ public class ApplicationManagement {
 	 * "http://www.tibco.com/xmlns/ApplicationManagement" namespace.
 	 * </p>
 	 *
-	 * @throws JAXBException
+	 * @param o, the unmarshalled "application" root-element
 	 */
-	private void initApplication() throws JAXBException {
-		jaxbContext = JAXBContext.newInstance(
-				com.tibco.xmlns.applicationmanagement.ObjectFactory.class,
-				com.tibco.xmlns.applicationmanagement.bw.ObjectFactory.class,
-				com.tibco.xmlns.dd.ObjectFactory.class);
-
-		Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-		Object o =  jaxbUnmarshaller.unmarshal(xmlFile);
+	private void initApplication(Object o) {
 		try {
 			this.application = (ApplicationType) o;
 		} catch (ClassCastException e) {
@@ -178,9 +229,20 @@ public class ApplicationManagement {
 	 * @throws JAXBException
 	 */
 	public void save() throws JAXBException {
-		Marshaller m = jaxbContext.createMarshaller();
-		m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);		
-		m.marshal(application, xmlFile);
+		JAXBContextRegistry.marshal(application, xmlFile, OBJECT_FACTORIES);
+	}
+
+	/**
+	 * <p>
+	 * This saves the application to another file than the one it was created
+	 * with.
+	 * </p>
+	 *
+	 * @param xmlFile
+	 * @throws JAXBException
+	 */
+	public void save(File xmlFile) throws JAXBException {
+		JAXBContextRegistry.marshal(application, xmlFile, OBJECT_FACTORIES);
 	}
 
 	// private helpers
@@ -225,28 +287,49 @@ public class ApplicationManagement {
 	public List<String> getInstancesNames(boolean onlyEnabledServices) {
 		List<String> result = new ArrayList<String>();
 		
-		List<Bw> bwServices = getBWServices();
+		for (ImmutablePair<Bw, Binding> instance : getInstances(onlyEnabledServices)) {
+			result.add(getInstanceName(instance.left, instance.right));
+		}
 		
-		for (Bw bw : bwServices) {
+		return result;
+	}
+
+	/**
+	 * @return the bindings of the BW services with their service, in the same
+	 * order as {@link #getInstancesNames(boolean)}
+	 */
+	public List<ImmutablePair<Bw, Binding>> getInstances(boolean onlyEnabledServices) {
+		List<ImmutablePair<Bw, Binding>> result = new ArrayList<ImmutablePair<Bw, Binding>>();
+		
+		for (Bw bw : getBWServices()) {
 			Bindings bindings = bw.getBindings();
 			boolean enabled = bw.isEnabled();
 			
-			if (!enabled && onlyEnabledServices) {
+			if ((!enabled && onlyEnabledServices) || bindings == null) {
 				continue; // keep only enabled services
 			}
 			
 			for (Binding binding : bindings.getBinding()) {
-				String name = binding.getName();
-				if (name == null || name.isEmpty()) {
-					name = FilenameUtils.getBaseName(bw.getName());
-				}
-				result.add(name);
+				result.add(new ImmutablePair<Bw, Binding>(bw, binding));
 			}
 		}
 		
 		return result;
 	}
 
+	/**
+	 * @return the name of the instance of a binding (the one used by the Hawk
+	 * methods of the TRA microagent): the name of the binding or, if empty,
+	 * the base name of the service
+	 */
+	public static String getInstanceName(Bw bw, Binding binding) {
+		String name = binding.getName();
+		if (name == null || name.isEmpty()) {
+			name = FilenameUtils.getBaseName(bw.getName());
+		}
+		return name;
+	}
+
 	/**
 	* This method retrieves {@link Bwprocesses} object from Bw.getRest() objects
 	*/
@@ -319,6 +402,91 @@ public class ApplicationManagement {
 			}
 		}
 	}
+
+	/**
+	 * <p>
+	 * The indexes below map the name attribute of an element to the element
+	 * itself. When several elements share the same name, the first one in
+	 * document order is indexed, which is the one a linear search would have
+	 * returned.
+	 * </p>
+	 */
+	private HashMap<String, Bw> getBwIndex() {
+		if (bwIndex == null) {
+			bwIndex = new HashMap<String, Bw>();
+			for (Bw bw : getBWServices()) {
+				if (!bwIndex.containsKey(bw.getName())) {
+					bwIndex.put(bw.getName(), bw);
+				}
+			}
+		}
+		return bwIndex;
+	}
+
+	private HashMap<String, Adapter> getAdapterIndex() {
+		if (adapterIndex == null) {
+			adapterIndex = new HashMap<String, Adapter>();
+			for (Adapter adapter : getAdapterServices()) {
+				if (!adapterIndex.containsKey(adapter.getName())) {
+					adapterIndex.put(adapter.getName(), adapter);
+				}
+			}
+		}
+		return adapterIndex;
+	}
+
+	private HashMap<String, Binding> getBindingIndex(Bindings bindings) {
+		HashMap<String, Binding> index = bindingIndexes.get(bindings);
+		if (index == null) {
+			index = new HashMap<String, Binding>();
+			for (Binding binding : bindings.getBinding()) {
+				if (!index.containsKey(binding.getName())) {
+					index.put(binding.getName(), binding);
+				}
+			}
+			bindingIndexes.put(bindings, index);
+		}
+		return index;
+	}
+
+	private HashMap<String, Bwprocess> getBWProcessIndex(Bwprocesses bwProcesses) {
+		HashMap<String, Bwprocess> index = bwProcessIndexes.get(bwProcesses);
+		if (index == null) {
+			index = new HashMap<String, Bwprocess>();
+			for (Bwprocess bwProcess : bwProcesses.getBwprocess()) {
+				if (!index.containsKey(bwProcess.getName())) {
+					index.put(bwProcess.getName(), bwProcess);
+				}
+			}
+			bwProcessIndexes.put(bwProcesses, index);
+		}
+		return index;
+	}
+
+	/**
+	 * NVPair names are not unique in every descriptor, so all the pairs
+	 * sharing a name are kept (values are set on each of them).
+	 */
+	private HashMap<String, List<NVPairType>> getNVPairIndex(NVPairs nvPairs) {
+		HashMap<String, List<NVPairType>> index = nvPairIndexes.get(nvPairs);
+		if (index == null) {
+			index = new HashMap<String, List<NVPairType>>();
+			for (JAXBElement<? extends NVPairType> nvPair : nvPairs.getNVPair()) {
+				indexNVPair(index, nvPair.getValue());
+			}
+			nvPairIndexes.put(nvPairs, index);
+		}
+		return index;
+	}
+
+	private void indexNVPair(HashMap<String, List<NVPairType>> index, NVPairType nvPair) {
+		List<NVPairType> pairs = index.get(nvPair.getName());
+		if (pairs == null) {
+			pairs = new ArrayList<NVPairType>(1);
+			index.put(nvPair.getName(), pairs);
+		}
+		pairs.add(nvPair);
+	}
 	//
 
 	// unmarshalling part / XML (JAXB) to properties
@@ -328,11 +496,11 @@ public class ApplicationManagement {
 	 * equals to "Global Variables" at the root level.
 	 * </p>
 	 * 
-	 * @return The Global Variables of the xmlFile in a {@link SortedProperties}
+	 * @return The Global Variables of the xmlFile in a {@link PropertyTree}
 	 * object.
 	 */
-	public Properties getGlobalVariables() {
-		SortedProperties result = new SortedProperties();
+	public PropertyTree getGlobalVariables() {
+		PropertyTree result = new PropertyTree();
 
 		NVPairs globalVariablesPairs = getGlobalVariablesPairs();
 		
@@ -353,17 +521,18 @@ public class ApplicationManagement {
 		NVPairs globalVariablesPairs = getGlobalVariablesPairs();
 
 		if (globalVariablesPairs != null) {
-			for (JAXBElement<? extends NVPairType> nvPair : globalVariablesPairs.getNVPair()) {
-				if (key.equals(nvPair.getValue().getName())) {
-					nvPair.getValue().setValue(value);
+			List<NVPairType> nvPairs = getNVPairIndex(globalVariablesPairs).get(key);
+			if (nvPairs != null) {
+				for (NVPairType nvPair : nvPairs) {
+					nvPair.setValue(value);
 				}
 			}
 		}
 
 	}
 
-	public Properties getServices() {
-		SortedProperties result = new SortedProperties();
+	public PropertyTree getServices() {
+		PropertyTree result = new PropertyTree();
 		
 		result.putAll(getProcessArchives());
 		result.putAll(getAdapterArchives());
@@ -378,8 +547,8 @@ public class ApplicationManagement {
 	 * of the XSD schema.
 	 * </p>
 	 */
-	protected Properties getProcessArchives() {
-		SortedProperties result = new SortedProperties();
+	protected PropertyTree getProcessArchives() {
+		PropertyTree result = new PropertyTree();
 
 		List<Bw> bwServices = getBWServices();
 
@@ -435,8 +604,8 @@ public class ApplicationManagement {
 	 * elements are defined in the "ServiceType" complexType of the XSD schema.
 	 * </p>
 	 */
-	protected Properties getAdapterArchives() {
-		SortedProperties result = new SortedProperties();
+	protected PropertyTree getAdapterArchives() {
+		PropertyTree result = new PropertyTree();
 
 		List<Adapter> adapters = getAdapterServices();
 
@@ -490,8 +659,8 @@ public class ApplicationManagement {
 	 * "/application/services/adapter/bindings/binding"
 	 * </p>
 	 */
-	protected <T extends ServiceType> Properties getBindings(T service) {
-		SortedProperties result = new SortedProperties();
+	protected <T extends ServiceType> PropertyTree getBindings(T service) {
+		PropertyTree result = new PropertyTree();
 
 		String serviceKey = getElementKey(service) + "[" + service.getName() + "]";
 
@@ -602,8 +771,8 @@ public class ApplicationManagement {
 	 * "/application/services/adapter/NVPairs"
 	 * </p>
 	 */
-	private <T extends ServiceType> Properties getNVPairs(T service) {
-		SortedProperties result = new SortedProperties();
+	private <T extends ServiceType> PropertyTree getNVPairs(T service) {
+		PropertyTree result = new PropertyTree();
 
 		String serviceKey = getElementKey(service) + "[" + service.getName() + "]";
 		
@@ -630,8 +799,8 @@ public class ApplicationManagement {
 	 * "/application/services/bw/bwprocesses/bwprocess"
 	 * </p>
 	 */
-	protected Properties getProcesses(Bw bwService) {
-		SortedProperties result = new SortedProperties();
+	protected PropertyTree getProcesses(Bw bwService) {
+		PropertyTree result = new PropertyTree();
 
 		String serviceKey = "bw[" + bwService.getName() + "]";
 		
@@ -672,8 +841,8 @@ public class ApplicationManagement {
 	 * "/application/services/bw/checkpoints/checkpoint"
 	 * </p>
 	 */
-	protected Properties getCheckpoints(Bw bwService) {
-		SortedProperties result = new SortedProperties();
+	protected PropertyTree getCheckpoints(Bw bwService) {
+		PropertyTree result = new PropertyTree();
 
 		String serviceKey = "bw[" + bwService.getName() + "]";
 		
@@ -703,8 +872,8 @@ public class ApplicationManagement {
 	 * "/application/services/bw/faultTolerant"
 	 * </p>
 	 */
-	protected Properties getFaultTolerant(Bw bwService) {
-		SortedProperties result = new SortedProperties();
+	protected PropertyTree getFaultTolerant(Bw bwService) {
+		PropertyTree result = new PropertyTree();
 		
 		String serviceKey = "bw[" + bwService.getName() + "]";
 		
@@ -733,19 +902,16 @@ public class ApplicationManagement {
 	 * /application/services/bw
 	 */
 	private Bw getBw(String name) {
-		List<Bw> services = getBWServices();
+		HashMap<String, Bw> services = getBwIndex();
 		
-		if (services != null) {
-			for (Bw service : services) {
-				if (service.getName().equals(name)) {
-					return service;
-				}
-			}
+		Bw service = services.get(name);
+		if (service != null) {
+			return service;
 		}
 		
 		Bw result = new Bw();
 		result.setName(name);
-		services.add(result);
+		services.put(name, result);
 		
 		QName qName = new QName(APPLICATION_MANAGEMENT_NAMESPACE, "bw");
 		JAXBElement<Bw> j = new JAXBElement<Bw>(qName, Bw.class, result);
@@ -758,19 +924,16 @@ public class ApplicationManagement {
 	 * /application/services/adapter
 	 */
 	private Adapter getAdapter(String name) {
-		List<Adapter> services = getAdapterServices();
+		HashMap<String, Adapter> services = getAdapterIndex();
 
-		if (services != null) {
-			for (Adapter service : services) {
-				if (service.getName().equals(name)) {
-					return service;
-				}
-			}
+		Adapter service = services.get(name);
+		if (service != null) {
+			return service;
 		}
 
 		Adapter result = new Adapter();
 		result.setName(name);
-		services.add(result);
+		services.put(name, result);
 
 		QName qName = new QName(APPLICATION_MANAGEMENT_NAMESPACE, "adapter");
 		JAXBElement<Adapter> j = new JAXBElement<Adapter>(qName, Adapter.class, result);
@@ -787,10 +950,9 @@ public class ApplicationManagement {
 		Bindings bindings = parent.getBindings();
 		
 		if (bindings != null) {
-			for (Binding binding : bindings.getBinding()) {
-				if (binding.getName().equals(nameAttribute)) {
-					return binding;
-				}
+			Binding binding = getBindingIndex(bindings).get(nameAttribute);
+			if (binding != null) {
+				return binding;
 			}
 		} else {
 			bindings = new Bindings();
@@ -813,6 +975,7 @@ public class ApplicationManagement {
 		binding.setShutdown(s);
 		
 		bindings.getBinding().add(binding);
+		getBindingIndex(bindings).put(nameAttribute, binding);
 		
 		return binding;
 	}
@@ -948,10 +1111,9 @@ public class ApplicationManagement {
 		Bwprocesses bwProcesses = getBWProcesses(parent);
 		
 		if (bwProcesses != null) {
-			for (Bwprocess bwProcess : bwProcesses.getBwprocess()) {
-				if (bwProcess.getName().equals(nameAttribute)) {
-					return bwProcess;
-				}
+			Bwprocess bwProcess = getBWProcessIndex(bwProcesses).get(nameAttribute);
+			if (bwProcess != null) {
+				return bwProcess;
 			}
 		} else {
 			bwProcesses = new Bwprocesses();
@@ -961,6 +1123,7 @@ public class ApplicationManagement {
 		Bwprocess bwProcess = new Bwprocess();
 		bwProcess.setName(nameAttribute);
 		bwProcesses.getBwprocess().add(bwProcess);
+		getBWProcessIndex(bwProcesses).put(nameAttribute, bwProcess);
 		
 		return bwProcess;
 	}
@@ -1046,147 +1209,166 @@ public class ApplicationManagement {
 	public Object getElement(String path, String element, String value, Object parent) {
 		if (map.containsKey(path)) {
 			return map.get(path);
-		} else {
-			Matcher matcherElement = patternElement.matcher(element);
-			if (matcherElement.matches()) {					
-				String elementName = matcherElement.group(1);
-				String nameAttribute = matcherElement.group(3);
-
-				if (nameAttribute != null) {
-
-					if (elementName.equals("variables")) {
-						NVPairs gvs = null;
-						if (parent.getClass().equals(Bw.class) || parent.getClass().equals(Adapter.class)) {
-							ServiceType service = (ServiceType) parent;
-							for (NVPairs nvPairs : service.getNVPairs()) {
-								if (nvPairs.getName().equals(nameAttribute)) {
-									gvs = nvPairs;
-									break;
-								}
-							}
-							if (gvs == null) {
-								gvs = new NVPairs();
-								service.getNVPairs().add(gvs);
-							}
-						} else if (parent.getClass().equals(Binding.class)) {
-							gvs = new NVPairs();
-							gvs.setName(nameAttribute);
-							((Binding) parent).setNVPairs(gvs);
-						}
-						map.put(path, gvs);
-						return gvs;
-					} else if (elementName.equals("variable")) {
-						NameValuePair simpleGV = new NameValuePair();
-						simpleGV.setName(nameAttribute);
-						simpleGV.setValue(value);
-
-						QName name = new QName(APPLICATION_MANAGEMENT_NAMESPACE, "NameValuePair");
-						JAXBElement<NameValuePair> _simpleGV = new JAXBElement<NameValuePair>(name, NameValuePair.class, simpleGV);
-						boolean found = false;
-						for (JAXBElement<? extends NVPairType> nvPair : ((NVPairs) parent).getNVPair()) {
-							if (nameAttribute.equals(nvPair.getValue().getName())) {
-								nvPair.getValue().setValue(value);
-								found = true;
-							}
-						}
-						if (!found) {
-							((NVPairs) parent).getNVPair().add(_simpleGV);
-						}
+		}
 
-						return simpleGV;
-					} else if (elementName.equals("bw")) {
-						Bw service = this.getBw(nameAttribute);
-						map.put(path, service);
-						return service;
-					} else if (elementName.equals("adapter")) {
-						Adapter service = this.getAdapter(nameAttribute);
-						map.put(path, service);
-						return service;
-					} else if (elementName.equals("binding")) {
-						Binding binding = null;
-						if (parent.getClass().equals(Bw.class)) {
-							binding = this.getBinding(nameAttribute, (Bw) parent);
-						} else if (parent.getClass().equals(Adapter.class)) {
-							binding = this.getBinding(nameAttribute, (Adapter) parent);
-						} else {
-							// throw ?
-						}
-						map.put(path, binding);
-						return binding;
-					} else if (elementName.equals("bwprocess")) {
-						Bwprocess bwProcess = this.getBWProcess(nameAttribute, (Bw) parent);
-						map.put(path, bwProcess);
-						return bwProcess;
-					} else if (elementName.equals("checkpoint")) {
-						Checkpoints checkpoints = (Checkpoints) parent;
-						if (!checkpoints.getCheckpoint().contains(nameAttribute)) {
-							checkpoints.getCheckpoint().add(nameAttribute);
-						}
-						if ("true".equals(value)) {
-							checkpoints.setSelected(nameAttribute);
+		Matcher matcherElement = patternElement.matcher(element);
+		if (matcherElement.matches()) {
+			return getElement(path, matcherElement.group(1), matcherElement.group(3), value, parent);
+		}
+		return parent;
+	}
+
+	/**
+	 * <p>
+	 * Same as {@link #getElement(String, String, String, Object)} with an
+	 * element already parsed by a {@link PropertyPathParser}.
+	 * </p>
+	 */
+	public Object getElement(PropertyPathParser.Segment segment, String value, Object parent) {
+		String path = segment.getPath();
+		if (map.containsKey(path)) {
+			return map.get(path);
+		}
+
+		if (segment.getName() != null) {
+			return getElement(path, segment.getName(), segment.getAttribute(), value, parent);
+		}
+		return parent;
+	}
+
+	private Object getElement(String path, String elementName, String nameAttribute, String value, Object parent) {
+		if (nameAttribute != null) {
+
+			if (elementName.equals("variables")) {
+				NVPairs gvs = null;
+				if (parent.getClass().equals(Bw.class) || parent.getClass().equals(Adapter.class)) {
+					ServiceType service = (ServiceType) parent;
+					for (NVPairs nvPairs : service.getNVPairs()) {
+						if (nvPairs.getName().equals(nameAttribute)) {
+							gvs = nvPairs;
+							break;
 						}
 					}
+					if (gvs == null) {
+						gvs = new NVPairs();
+						service.getNVPairs().add(gvs);
+					}
+				} else if (parent.getClass().equals(Binding.class)) {
+					gvs = new NVPairs();
+					gvs.setName(nameAttribute);
+					((Binding) parent).setNVPairs(gvs);
+				}
+				map.put(path, gvs);
+				return gvs;
+			} else if (elementName.equals("variable")) {
+				NameValuePair simpleGV = new NameValuePair();
+				simpleGV.setName(nameAttribute);
+				simpleGV.setValue(value);
+
+				QName name = new QName(APPLICATION_MANAGEMENT_NAMESPACE, "NameValuePair");
+				JAXBElement<NameValuePair> _simpleGV = new JAXBElement<NameValuePair>(name, NameValuePair.class, simpleGV);
+				HashMap<String, List<NVPairType>> nvPairIndex = getNVPairIndex((NVPairs) parent);
+				List<NVPairType> nvPairs = nvPairIndex.get(nameAttribute);
+				if (nvPairs != null) {
+					for (NVPairType nvPair : nvPairs) {
+						nvPair.setValue(value);
+					}
+				} else {
+					((NVPairs) parent).getNVPair().add(_simpleGV);
+					indexNVPair(nvPairIndex, simpleGV);
+				}
+
+				return simpleGV;
+			} else if (elementName.equals("bw")) {
+				Bw service = this.getBw(nameAttribute);
+				map.put(path, service);
+				return service;
+			} else if (elementName.equals("adapter")) {
+				Adapter service = this.getAdapter(nameAttribute);
+				map.put(path, service);
+				return service;
+			} else if (elementName.equals("binding")) {
+				Binding binding = null;
+				if (parent.getClass().equals(Bw.class)) {
+					binding = this.getBinding(nameAttribute, (Bw) parent);
+				} else if (parent.getClass().equals(Adapter.class)) {
+					binding = this.getBinding(nameAttribute, (Adapter) parent);
 				} else {
-					if (elementName.equals("variables")) {
-						NVPairs gvs = null;
-						if (parent.getClass().equals(Bw.class) || parent.getClass().equals(Adapter.class)) {
-							ServiceType service = (ServiceType) parent;
-							for (NVPairs nvPairs : service.getNVPairs()) {
-								if (nvPairs.getName().equals("Runtime Variables")) {
-									gvs = nvPairs;
-									break;
-								}
-							}
-							if (gvs == null) {
-								gvs = new NVPairs();
-								service.getNVPairs().add(gvs);
-							}
-						} else if (parent.getClass().equals(Binding.class)) {
-							gvs = new NVPairs();
-							gvs.setName("Runtime Variables");
-							((Binding) parent).setNVPairs(gvs);
+					// throw ?
+				}
+				map.put(path, binding);
+				return binding;
+			} else if (elementName.equals("bwprocess")) {
+				Bwprocess bwProcess = this.getBWProcess(nameAttribute, (Bw) parent);
+				map.put(path, bwProcess);
+				return bwProcess;
+			} else if (elementName.equals("checkpoint")) {
+				Checkpoints checkpoints = (Checkpoints) parent;
+				if (!checkpoints.getCheckpoint().contains(nameAttribute)) {
+					checkpoints.getCheckpoint().add(nameAttribute);
+				}
+				if ("true".equals(value)) {
+					checkpoints.setSelected(nameAttribute);
+				}
+			}
+		} else {
+			if (elementName.equals("variables")) {
+				NVPairs gvs = null;
+				if (parent.getClass().equals(Bw.class) || parent.getClass().equals(Adapter.class)) {
+					ServiceType service = (ServiceType) parent;
+					for (NVPairs nvPairs : service.getNVPairs()) {
+						if (nvPairs.getName().equals("Runtime Variables")) {
+							gvs = nvPairs;
+							break;
 						}
-						map.put(path, gvs);
-						return gvs;
-					} else if (elementName.equals("checkpoints")) {
-						Checkpoints checkpoints = this.getBWCheckpoints((Bw) parent);
-						map.put(path, checkpoints);
-						return checkpoints;
-					} else if (elementName.equals("tablePrefix")) {
-						Checkpoints checkpoints = (Checkpoints) parent;
-						checkpoints.setTablePrefix(value);
-					// Binding children
-					} else if (parent.getClass().equals(Binding.class)) {
-						return addBindingParameter((Binding) parent, elementName, value);
-					} else if (parent.getClass().equals(Product.class)) {
-						return addProductParameter((Product) parent, elementName, value);
-					} else if (parent.getClass().equals(Setting.class)) {
-						return addSettingParameter((Setting) parent, elementName, value);
-					} else if (parent.getClass().equals(NTService.class)) {
-						return addNTServiceParameter((NTService) parent, elementName, value);
-					} else if (parent.getClass().equals(Java.class)) {
-						return addJavaParameter((Java) parent, elementName, value);
-					} else if (parent.getClass().equals(Shutdown.class)) {
-						return addShutdownParameter((Shutdown) parent, elementName, value);
-					//
-					// Bwprocess children
-					} else if (parent.getClass().equals(Bwprocess.class)) {
-						addBWProcessParameter((Bwprocess) parent, elementName, value);
-					} else if (parent.getClass().equals(FaultTolerant.class)) {
-						addFaultTolerantParameter((FaultTolerant) parent, elementName, value);
-					} else if (parent.getClass().equals(Checkpoints.class)) {
-						addCheckpointsParameter((Checkpoints) parent, elementName, value);
-					// Bw chidren (direct children)
-					} else if (parent.getClass().equals(Bw.class)) {
-						return addBwParameter((Bw) parent, elementName, value);
-					} else if (parent.getClass().equals(Adapter.class)) {
-						return addAdapterParameter((Adapter) parent, elementName, value);
 					}
+					if (gvs == null) {
+						gvs = new NVPairs();
+						service.getNVPairs().add(gvs);
+					}
+				} else if (parent.getClass().equals(Binding.class)) {
+					gvs = new NVPairs();
+					gvs.setName("Runtime Variables");
+					((Binding) parent).setNVPairs(gvs);
 				}
-
+				map.put(path, gvs);
+				return gvs;
+			} else if (elementName.equals("checkpoints")) {
+				Checkpoints checkpoints = this.getBWCheckpoints((Bw) parent);
+				map.put(path, checkpoints);
+				return checkpoints;
+			} else if (elementName.equals("tablePrefix")) {
+				Checkpoints checkpoints = (Checkpoints) parent;
+				checkpoints.setTablePrefix(value);
+			// Binding children
+			} else if (parent.getClass().equals(Binding.class)) {
+				return addBindingParameter((Binding) parent, elementName, value);
+			} else if (parent.getClass().equals(Product.class)) {
+				return addProductParameter((Product) parent, elementName, value);
+			} else if (parent.getClass().equals(Setting.class)) {
+				return addSettingParameter((Setting) parent, elementName, value);
+			} else if (parent.getClass().equals(NTService.class)) {
+				return addNTServiceParameter((NTService) parent, elementName, value);
+			} else if (parent.getClass().equals(Java.class)) {
+				return addJavaParameter((Java) parent, elementName, value);
+			} else if (parent.getClass().equals(Shutdown.class)) {
+				return addShutdownParameter((Shutdown) parent, elementName, value);
+			//
+			// Bwprocess children
+			} else if (parent.getClass().equals(Bwprocess.class)) {
+				addBWProcessParameter((Bwprocess) parent, elementName, value);
+			} else if (parent.getClass().equals(FaultTolerant.class)) {
+				addFaultTolerantParameter((FaultTolerant) parent, elementName, value);
+			} else if (parent.getClass().equals(Checkpoints.class)) {
+				addCheckpointsParameter((Checkpoints) parent, elementName, value);
+			// Bw chidren (direct children)
+			} else if (parent.getClass().equals(Bw.class)) {
+				return addBwParameter((Bw) parent, elementName, value);
+			} else if (parent.getClass().equals(Adapter.class)) {
+				return addAdapterParameter((Adapter) parent, elementName, value);
 			}
-			return parent;
 		}
+		return parent;
 	}
 
 	/**
@@ -1212,6 +1394,7 @@ public class ApplicationManagement {
 				}
 				first = false;
 			}
+			bindingIndexes.remove(bw.getBindings());
 		}
 
 		List<Adapter> adapterServices = this.getAdapterServices();
@@ -1228,6 +1411,7 @@ public class ApplicationManagement {
 				}
 				first = false;
 			}
+			bindingIndexes.remove(adapter.getBindings());
 		}
 	}
 
@@ -1237,7 +1421,7 @@ public class ApplicationManagement {
 	 * attribute) if it is not found in the properties.
 	 * </p>
 	 */
-	public void removeDefaultBindingIfNotExists(Properties properties) {
+	public void removeDefaultBindingIfNotExists(PropertyTree properties) {
 		List<Bw> bwServices = this.getBWServices();
 		
 		for (Bw bw : bwServices) {
@@ -1251,6 +1435,7 @@ public class ApplicationManagement {
 					iterator.remove();
 				}
 			}
+			bindingIndexes.remove(bw.getBindings());
 		}
 
 		List<Adapter> adapterServices = this.getAdapterServices();
@@ -1266,6 +1451,7 @@ public class ApplicationManagement {
 					iterator.remove();
 				}
 			}
+			bindingIndexes.remove(adapter.getBindings());
 		}
 	}
 	// end of marshalling part
@@ -0,0 +1,76 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.io.File;
+
+/**
+ * <p>
+ * An &lt;environment> of the 'package-environments' goal (see
+ * {@link PackageEnvironmentsMojo}): its name and the reference and common
+ * properties files merged into the Global Variables and Services of the
+ * project to create its XML Deployment Descriptor.
+ * </p>
+ */
+public class Environment {
+
+	private String name;
+	private File globalVariablesReference;
+	private File servicesReference;
+	private File globalVariablesCommon;
+	private File servicesCommon;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public File getGlobalVariablesReference() {
+		return globalVariablesReference;
+	}
+
+	public void setGlobalVariablesReference(File globalVariablesReference) {
+		this.globalVariablesReference = globalVariablesReference;
+	}
+
+	public File getServicesReference() {
+		return servicesReference;
+	}
+
+	public void setServicesReference(File servicesReference) {
+		this.servicesReference = servicesReference;
+	}
+
+	public File getGlobalVariablesCommon() {
+		return globalVariablesCommon;
+	}
+
+	public void setGlobalVariablesCommon(File globalVariablesCommon) {
+		this.globalVariablesCommon = globalVariablesCommon;
+	}
+
+	public File getServicesCommon() {
+		return servicesCommon;
+	}
+
+	public void setServicesCommon(File servicesCommon) {
+		this.servicesCommon = servicesCommon;
+	}
+}
@@ -19,10 +19,15 @@ package fr.fastconnect.factory.tibco.bw.maven.packaging;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.xml.bind.JAXBException;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.jdom2.JDOMException;
 
 /**
  * <p>
@@ -39,17 +44,43 @@ public class ExtractXMLFromEARMojo extends AbstractPackagingMojo {
 
 	protected final static String CREATE_XML_FROM_EAR_SUCCESS = "Successfully extracted the XML Deployment Descriptor to ";
 	protected final static String CREATE_XML_FROM_EAR_FAILED = "The extraction of the XML Deployment Descriptor file from the EAR file has failed.";
+	protected final static String EXTRACTING_XML = "Extracting the XML Deployment Descriptor natively...";
+	protected final static String NATIVE_EXTRACTION_UNSUPPORTED = "The XML Deployment Descriptor can't be extracted natively, falling back to AppManage: ";
+	protected final static String NATIVE_EXTRACTION_FAILED = "The native extraction of the XML Deployment Descriptor has failed, falling back to AppManage: ";
+	protected final static String VERIFYING_XML = "Comparing the native XML Deployment Descriptor with the one exported by AppManage...";
+	protected final static String VERIFY_XML_SUCCESS = "The native XML Deployment Descriptor matches the one exported by AppManage.";
+	protected final static String VERIFY_XML_DIFFERENCES = "The native XML Deployment Descriptor differs from the one exported by AppManage:";
+
+	/**
+	 * <p>
+	 * Whether to build the XML Deployment Descriptor in pure Java instead of
+	 * calling <i>AppManage -export</i> (see
+	 * {@link NativeDescriptorExtractor}). The build falls back to AppManage
+	 * when the EAR has a content which is not supported natively.
+	 * </p>
+	 */
+	@Parameter(property = "bw.descriptor.native", defaultValue = "false")
+	protected Boolean nativeExtractor;
+
+	/**
+	 * <p>
+	 * Whether to also export the XML Deployment Descriptor with AppManage and
+	 * to report the elements which differ from the one extracted natively.
+	 * </p>
+	 */
+	@Parameter(property = "bw.descriptor.native.verify", defaultValue = "false")
+	protected Boolean nativeExtractorVerify;
 
 	@Override
 	protected String getArtifactFileExtension() {
 		return XML_EXTENSION;
 	}
 
-	private void createXML() throws MojoExecutionException, IOException {
+	private void createXML(File outputFile) throws MojoExecutionException, IOException {
 		checkAppManage();
 
 		String earPath = getProject().getArtifact().getFile().getPath();
-		String xmlOutputFile = deploymentDescriptor.getPath(); 
+		String xmlOutputFile = outputFile.getPath(); 
 		
 		ArrayList<String> arguments = new ArrayList<String>();		
 		arguments.add("-export");
@@ -65,13 +96,83 @@ public class ExtractXMLFromEARMojo extends AbstractPackagingMojo {
 		launchTIBCOBinary(tibcoAppManagePath, tras, arguments, directory, CREATE_XML_FROM_EAR_FAILED);
 	}
 
+	/**
+	 * This builds the XML Deployment Descriptor in pure Java with a
+	 * {@link NativeDescriptorExtractor}.
+	 *
+	 * @return false if the XML Deployment Descriptor can't be extracted
+	 * natively and must be exported by AppManage
+	 * @throws MojoExecutionException
+	 * @throws IOException
+	 */
+	private boolean extractXML() throws MojoExecutionException, IOException {
+		NativeDescriptorExtractor extractor;
+		try {
+			extractor = new NativeDescriptorExtractor(getProject().getArtifact().getFile());
+		} catch (IOException | JDOMException e) {
+			getLog().warn(NATIVE_EXTRACTION_FAILED + e.getLocalizedMessage());
+			return false;
+		}
+		if (!extractor.isSupported()) {
+			getLog().info(NATIVE_EXTRACTION_UNSUPPORTED + String.join(", ", extractor.getUnsupportedFeatures()));
+			return false;
+		}
+
+		getLog().info(EXTRACTING_XML);
+		ApplicationManagement application = new ApplicationManagement(extractor.extract(), deploymentDescriptor);
+		try {
+			deploymentDescriptor.getParentFile().mkdirs();
+			application.save();
+		} catch (JAXBException e) {
+			throw new MojoExecutionException(CREATE_XML_FROM_EAR_FAILED, e);
+		}
+		// bw:generate-properties-from-xml does not need to unmarshal the file
+		getPackagingContext().putApplication(deploymentDescriptor, application);
+
+		if (nativeExtractorVerify) {
+			verifyXML();
+		}
+		return true;
+	}
+
+	/**
+	 * This exports the XML Deployment Descriptor with AppManage next to the
+	 * one extracted natively and reports the differences of their XML trees
+	 * (see {@link NativeDescriptorExtractor#compare(File, File)}).
+	 *
+	 * @throws MojoExecutionException
+	 * @throws IOException
+	 */
+	private void verifyXML() throws MojoExecutionException, IOException {
+		File referenceFile = new File(deploymentDescriptor.getParentFile(), "appmanage-" + deploymentDescriptor.getName());
+		createXML(referenceFile);
+
+		getLog().info(VERIFYING_XML);
+		List<String> differences;
+		try {
+			differences = NativeDescriptorExtractor.compare(referenceFile, deploymentDescriptor);
+		} catch (JDOMException e) {
+			throw new MojoExecutionException(CREATE_XML_FROM_EAR_FAILED, e);
+		}
+		if (differences.isEmpty()) {
+			getLog().info(VERIFY_XML_SUCCESS);
+			return;
+		}
+		getLog().warn(VERIFY_XML_DIFFERENCES);
+		for (String difference : differences) {
+			getLog().warn("  " + difference);
+		}
+	}
+
 	public void execute() throws MojoExecutionException {
 		if (super.skip()) {
 			return;
 		}
 
 		try {
-			createXML();
+			if (!nativeExtractor || !extractXML()) {
+				createXML(deploymentDescriptor);
+			}
 			getLog().info(CREATE_XML_FROM_EAR_SUCCESS + " '" + deploymentDescriptor + "'");
 		} catch (IOException e) {
 			throw new MojoExecutionException(CREATE_XML_FROM_EAR_FAILED, e);
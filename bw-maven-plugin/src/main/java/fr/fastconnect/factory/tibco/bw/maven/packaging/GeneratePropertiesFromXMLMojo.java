@@ -16,7 +16,7 @@
  */
 package fr.fastconnect.factory.tibco.bw.maven.packaging;
 
-import java.util.Properties;
+import java.io.IOException;
 
 import jakarta.xml.bind.JAXBException;
 
@@ -71,16 +71,22 @@ public class GeneratePropertiesFromXMLMojo extends AbstractPackagingMojo {
 			return;
 		}
 
-		Properties earGlobalVariables = new Properties();
-		Properties earServices = new Properties();
+		PropertyTree earGlobalVariables = new PropertyTree();
+		PropertyTree earServices = new PropertyTree();
 		try {
-			ApplicationManagement application = new ApplicationManagement(deploymentDescriptor);
+			ApplicationManagement application = getPackagingContext().takeApplication(deploymentDescriptor);
+			if (application == null) {
+				application = new ApplicationManagement(deploymentDescriptor);
+			}
 			
 			earGlobalVariables = application.getGlobalVariables();
 			earServices = application.getServices();
 
+			// the application is not modified, bw:generate-xml-from-properties can use it
+			getPackagingContext().putApplication(deploymentDescriptor, application);
+
 			getLog().info(XML_LOAD_SUCCESS + " '" + deploymentDescriptor + "'");
-		} catch (JAXBException e) {
+		} catch (JAXBException | IOException e) {
 			throw new MojoExecutionException(XML_LOAD_FAILURE + " '" + deploymentDescriptor + "'", e);
 		}
 
@@ -18,11 +18,7 @@ package fr.fastconnect.factory.tibco.bw.maven.packaging;
 
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Enumeration;
 import java.util.List;
-import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import jakarta.xml.bind.JAXBException;
 
@@ -66,8 +62,6 @@ import fr.fastconnect.factory.tibco.bw.maven.packaging.monitoring.LogEvent;
 defaultPhase=LifecyclePhase.PREPARE_PACKAGE )
 public class GenerateXMLFromPropertiesMojo extends AbstractPackagingMojo {
 
-	protected static final String FLAT_PATH_SEPARATOR = "/";
-
 	protected static final String APPLICATION_MANAGEMENT_COPY_FAILURE = "Failed to copy the Application Management file from";
 	protected static final String APPLICATION_MANAGEMENT_LOAD_FAILURE = "Failed to load the Application Management file in";
 	protected static final String PROPERTIES_GLOBAL_VARIABLES_LOAD_FAILURE = "Failed to load the Global Variables Properties file in";
@@ -75,8 +69,6 @@ public class GenerateXMLFromPropertiesMojo extends AbstractPackagingMojo {
 	protected static final String APPLICATION_MANAGEMENT_MERGE_FAILURE = "Failed to merge the Properties files in the Application Management file";
 	protected static final String APPLICATION_MANAGEMENT_MERGE_SUCCESS = "Successfully merged the Properties in the final XML Deployment Descriptor in";
 
-	private ApplicationManagement application;
-
 	@Override
 	protected String getArtifactFileExtension() {
 		return XML_EXTENSION;
@@ -92,17 +84,33 @@ public class GenerateXMLFromPropertiesMojo extends AbstractPackagingMojo {
 	 * Then we will initialize the {@link ApplicationType} by unmarshalling
 	 * this final file.
 	 * </p>
+	 * <p>
+	 * If the XML file was already unmarshalled by
+	 * <a href="./generate-properties-from-xml-mojo.html">
+	 * bw:generate-properties-from-xml</a> and not modified since, this
+	 * application is used instead (see {@link PackagingContext}).
+	 * </p>
 	 * 
 	 * @throws MojoExecutionException
 	 */
-	private void init() throws MojoExecutionException {
+	private ApplicationManagement init() throws MojoExecutionException {
+		try {
+			ApplicationManagement application = getPackagingContext().takeApplication(deploymentDescriptor);
+			if (application != null) {
+				getLog().debug("Using the Application Management file '" + deploymentDescriptor + "' kept in memory");
+				return application;
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException(APPLICATION_MANAGEMENT_LOAD_FAILURE + " '" + deploymentDescriptor + "'", e);
+		}
+
 		try {
 			FileUtils.copyFile(deploymentDescriptor, deploymentDescriptorFinal);
 		} catch (IOException e) {
 			throw new MojoExecutionException(APPLICATION_MANAGEMENT_COPY_FAILURE + " '" + deploymentDescriptor + "' to '" + deploymentDescriptorFinal + "'", e);
 		}
 		try {
-			application = new ApplicationManagement(deploymentDescriptorFinal);
+			return new ApplicationManagement(deploymentDescriptorFinal);
 		} catch (JAXBException e) {
 			throw new MojoExecutionException(APPLICATION_MANAGEMENT_LOAD_FAILURE + " '" + deploymentDescriptorFinal + "'", e);
 		}
@@ -110,73 +118,58 @@ public class GenerateXMLFromPropertiesMojo extends AbstractPackagingMojo {
 
 	/**
 	 * <p>
-	 * This will merge the Global Variables properties file into the
+	 * This will apply the Global Variables and Services properties and the
+	 * configuration of the POM (repository instances, monitoring rules and
+	 * additional information) to the {@link ApplicationType} object.
+	 * </p>
+	 * <p>
+	 * It does not read nor write any file so it can be called for several
+	 * applications at the same time.
+	 * </p>
+	 */
+	protected void generate(ApplicationManagement application, PropertyTree propertiesGlobalVariables, PropertyTree propertiesServices) {
+		mergeGlobalVariables(application, propertiesGlobalVariables);
+		mergeServices(application, propertiesServices);
+
+		updateRepoInstances(application);
+		updateMonitoringRules(application);
+		updateAdditionalInfo(application);
+	}
+
+	/**
+	 * <p>
+	 * This will merge the Global Variables properties into the
 	 * {@link ApplicationType} object.
 	 * </p>
-	 * 
-	 * @throws MojoExecutionException
 	 */
-	private void mergeGlobalVariables() throws MojoExecutionException {
-		Properties propertiesGlobalVariables;
-		try {
-			propertiesGlobalVariables = loadPropertiesFile(deploymentGlobalVariables);
-		} catch (Exception e) {
-			throw new MojoExecutionException(PROPERTIES_GLOBAL_VARIABLES_LOAD_FAILURE + " '" + deploymentGlobalVariables + "'", e);
-		}
-		
-		Enumeration<Object> e = propertiesGlobalVariables.keys();
-   		while (e.hasMoreElements()) {
-			String key = (String) e.nextElement();
+	private void mergeGlobalVariables(ApplicationManagement application, PropertyTree propertiesGlobalVariables) {
+		for (String key : propertiesGlobalVariables.keys()) {
 			String value = propertiesGlobalVariables.getProperty(key);
 
 			application.setGlobalVariable(key, value);
 		}
 	}
 
-	private void mergeServices() throws MojoExecutionException {
-		Properties propertiesServices;
-		try {
-			propertiesServices = loadPropertiesFile(deploymentServices);
-		} catch (Exception e) {
-			throw new MojoExecutionException(PROPERTIES_SERVICES_LOAD_FAILURE + " '" + deploymentServices + "'", e);
-		}
-		
-		Pattern patternElements = Pattern.compile("(\\w+(\\[[\\w -\\.\\/?]*\\])?)+");
+	private void mergeServices(ApplicationManagement application, PropertyTree propertiesServices) {
+		PropertyPathParser parser = new PropertyPathParser();
 
-		Enumeration<Object> e = propertiesServices.keys();
-   		while (e.hasMoreElements()) {
-			String currentPath = "";
-			
-			String key = (String) e.nextElement();
+		for (String key : propertiesServices.keys()) {
 			String value = propertiesServices.getProperty(key);
 			
-			Matcher matcherElements;
 			Object parent = null;
-			while ((matcherElements = patternElements.matcher(key)).find()) {
-				String element = matcherElements.group();
-				currentPath = currentPath + FLAT_PATH_SEPARATOR + element;
-				
-				parent = application.getElement(currentPath, element, value, parent);
-				
-				if (key.equals(element)) {
-					break;
-				}
-				key = key.substring(element.length()+1);
+			for (PropertyPathParser.Segment segment : parser.parse(key)) {
+				parent = application.getElement(segment, value, parent);
 			}
 		}
 		
-		try {
-			application.removeDefaultBindingIfNotExists(loadPropertiesFile(deploymentServices));
-		} catch (Exception ex) {
-			throw new MojoExecutionException(PROPERTIES_SERVICES_LOAD_FAILURE + " '" + deploymentServices + "'", ex);
-		}
+		application.removeDefaultBindingIfNotExists(propertiesServices);
 		application.removeDuplicateBinding();
 	}
 
 	/**
 	 * This will update the &lt;repoInstances> element.
 	 */
-	private void updateRepoInstances() {
+	private void updateRepoInstances(ApplicationManagement application) {
 		RepoInstances repoInstances = application.getRepoInstances();
 		
 		RvRepoInstance rvRepoInstance = repoInstances.getRvRepoInstance();
@@ -222,12 +215,12 @@ public class GenerateXMLFromPropertiesMojo extends AbstractPackagingMojo {
 		repoInstances.setSelected(repoType);
 	}
 
-	private void updateMonitoringRules() {
+	private void updateMonitoringRules(ApplicationManagement application) {
 		Events events = createMonitoringEvents();
 		application.addMonitoringEventsToAllServices(events);
 	}
 
-	private void updateAdditionalInfo() {
+	private void updateAdditionalInfo(ApplicationManagement application) {
 		getLog().debug("Updating additional information...");
 		getLog().debug("MaxDeploymentRevision: " + maxDeploymentRevision);
 		getLog().debug("Contact: " + contact);
@@ -259,17 +252,25 @@ public class GenerateXMLFromPropertiesMojo extends AbstractPackagingMojo {
 			return;
 		}
 
-		init();
+		ApplicationManagement application = init();
 
-		mergeGlobalVariables();
-		mergeServices();
+		PropertyTree propertiesGlobalVariables;
+		try {
+			propertiesGlobalVariables = loadPropertiesFile(deploymentGlobalVariables);
+		} catch (Exception e) {
+			throw new MojoExecutionException(PROPERTIES_GLOBAL_VARIABLES_LOAD_FAILURE + " '" + deploymentGlobalVariables + "'", e);
+		}
+		PropertyTree propertiesServices;
+		try {
+			propertiesServices = loadPropertiesFile(deploymentServices);
+		} catch (Exception e) {
+			throw new MojoExecutionException(PROPERTIES_SERVICES_LOAD_FAILURE + " '" + deploymentServices + "'", e);
+		}
 
-		updateRepoInstances();
-		updateMonitoringRules();
-		updateAdditionalInfo();
+		generate(application, propertiesGlobalVariables, propertiesServices);
 
 		try {
-			application.save();
+			application.save(deploymentDescriptorFinal);
 		} catch (JAXBException e) {
 			throw new MojoExecutionException(APPLICATION_MANAGEMENT_MERGE_FAILURE + " '" + deploymentServices + "'", e);
 		}
@@ -16,27 +16,14 @@
  */
 package fr.fastconnect.factory.tibco.bw.maven.packaging;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Enumeration;
-import java.util.List;
-import java.util.Properties;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import org.apache.commons.configuration2.ex.ConfigurationException;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
-import fr.fastconnect.factory.tibco.bw.maven.packaging.ApplicationManagement.SortedProperties;
 
 /**
  * <p>
@@ -96,18 +83,15 @@ public class MergePropertiesMojo extends AbstractPackagingMojo {
 	protected final static String USING_SERVICES_COMMON_FILE = "Using Services common properties file";
 	protected final static String USING_SERVICES_REFERENCE_FILE = "Using Services reference properties file";
 
-	private List<ImmutablePair<String, String>> pairParInstance = new ArrayList<ImmutablePair<String, String>>(); // keep trace of dynamically created bindings (to generate them only once)
-
-	private final static String regexNotEmptyBinding = "^bw\\[(.*)\\]/bindings/binding\\[(.+)\\]/(.*)$";
-	private final static String regexEmptyBinding = "^bw\\[(.*)\\]/bindings/binding(\\[\\])/(.*)$";
+	private PropertiesMerger merger = new PropertiesMerger();
 
 	@Override
 	protected String getArtifactFileExtension() {
 		return PROPERTIES_EXTENSION;
 	}
 
-	public MergedFiles mergeFiles(Properties propertiesGlobalVariables,
-								  Properties propertiesServices, 
+	public MergedFiles mergeFiles(PropertyTree propertiesGlobalVariables,
+								  PropertyTree propertiesServices, 
 								  File deploymentGlobalVariables,
 								  File deploymentServices,
 								  String messageGlobalVariables,
@@ -122,62 +106,32 @@ public class MergePropertiesMojo extends AbstractPackagingMojo {
 			// FIXME: check the checksum of files instead of canonical path ?
 			getLog().info(messageGlobalVariables + " : " + deploymentGlobalVariables.getAbsolutePath());
 			
-			Properties propertiesGlobalVariablesReference;
+			PropertyTree propertiesGlobalVariablesReference;
 			try {
 				propertiesGlobalVariablesReference = loadPropertiesFile(deploymentGlobalVariables); 
 			} catch (Exception e) {
 				throw new MojoExecutionException(PROPERTIES_LOAD_FAILURE, e);
 			}
 			
-			Enumeration<Object> e = propertiesGlobalVariablesReference.keys();
-	   		while (e.hasMoreElements()) {
-				String key = (String) e.nextElement();
-				String value = propertiesGlobalVariablesReference.getProperty(key);
-				
-				propertiesGlobalVariables.setProperty(key, value); // add or override value
-			}
+			merger.mergeGlobalVariables(propertiesGlobalVariables, propertiesGlobalVariablesReference);
 			
 			result = MergedFiles.GV;
 		}
 		
-		Pattern pNotEmptyBinding = Pattern.compile(regexNotEmptyBinding);
-		
 		if (deploymentServices != null &&
 			deploymentServices.exists() &&
 			!deploymentServices.getCanonicalPath().equals(this.deploymentServices.getCanonicalPath())) {
 			// FIXME: check the checksum of files instead of canonical path ?
 			
 			getLog().info(messageServices + " : " + deploymentServices.getAbsolutePath());
-			Properties propertiesServicesReference;
+			PropertyTree propertiesServicesReference;
 			try {
 				propertiesServicesReference = loadPropertiesFile(deploymentServices);
 			} catch (Exception e) {
 				throw new MojoExecutionException(PROPERTIES_LOAD_FAILURE, e);
 			}
 			
-			String par, binding;
-			Enumeration<Object> e = propertiesServicesReference.keys();
-	   		while (e.hasMoreElements()) {
-				String key = (String) e.nextElement();
-				
-				Matcher mNotEmptyBinding = pNotEmptyBinding.matcher(key);
-				
-				if (mNotEmptyBinding.matches() && !isAWildCard(key)) {
-					par = mNotEmptyBinding.group(1);
-					binding = mNotEmptyBinding.group(2);
-					ImmutablePair<String, String> pair = new ImmutablePair<String, String>(par, binding);
-					if (!pairParInstance.contains(pair)) {
-						propertiesServices = duplicateEmptyBinding(propertiesServices, par, binding);
-						pairParInstance.add(pair);
-					}
-				}
-				
-				String value = propertiesServicesReference.getProperty(key);
-				
-				propertiesServices.setProperty(key, value); // add or override value
-			}
-			
-			propertiesServices = expandWildCards(propertiesServices);
+			merger.mergeServices(propertiesServices, propertiesServicesReference);
 			
 			if (result == MergedFiles.GV) {
 				result = MergedFiles.BOTH;
@@ -189,140 +143,6 @@ public class MergePropertiesMojo extends AbstractPackagingMojo {
 		return result;
 	}
 
-	private Properties duplicateEmptyBinding(Properties properties, String par, String binding) {
-		String key, value;
-		Pattern pEmptyBinding = Pattern.compile(regexEmptyBinding);
-
-		Enumeration<Object> e = properties.keys();
-		while (e.hasMoreElements()) {
-			key = (String) e.nextElement();
-			value = properties.getProperty(key);
-			Matcher mEmptyBinding = pEmptyBinding.matcher(key);
-			if (mEmptyBinding.matches() && mEmptyBinding.group(1).equals(par)) {
-				key = "bw[" + mEmptyBinding.group(1) + "]/bindings/binding[" + binding + "]/" + mEmptyBinding.group(3);
-			}
-			properties.setProperty(key, value);
-		}
-		return properties;
-	}
-
-	private Properties sortProperties(Properties properties) throws ConfigurationException, IOException {
-		Properties sp = new SortedProperties();
-		sp.putAll(properties);
-		
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		sp.store(baos, null);
-		
-		properties.clear();
-		properties.load(new ByteArrayInputStream(baos.toByteArray()));
-
-		return properties;
-	}
-
-    protected boolean isAWildCard(String key) {
-		String regexVariable = "bw\\[[^\\**]*\\]/variables\\[.*\\]/variable\\[.*\\]"; // is a wildcard only if it has a '*' in bw[] for variables (because a variable can have '*' in their name)
-
-		return key.contains("*") && !Pattern.matches(regexVariable, key);
-    }
-
-    /**
-     * <p>
-     * This expands wild cards properties.<br /><br />
-     * Both wildcard expressions and expressions to expand are present in the
-     * same properties object.<br /><br />
-     * <i>Example</i>
-     *  <ul>
-     * 	 <li><b>property with wildcard</b>: /root/element[*]/key=new_value</li>
-     * 	 <li><b>property matching</b>: /root/element[my_name]/key=old_value</li>
-     *  </ul>
-     *  will expand to:<br />
-     *  <ul>
-     * 	 <li><b>property after expansion</b>:
-     * /root/element[my_name]/key=new_value</li>
-     *  </ul>
-     * </p>
-     * 
-     * @param properties, the properties object with wildcard expressions and
-     * expressions to expand
-     * @return properties with expanded expressions, but without wildcard
-     * expressions
-     */
-    protected Properties expandWildCards(Properties properties) {
-    	Properties propertiesWithWildCards = new Properties() { // sorted properties
-			private static final long serialVersionUID = 7793482336210629858L;
-
-			@Override
-		    public synchronized Enumeration<Object> keys() {
-		        return Collections.enumeration(new TreeSet<Object>(super.keySet()));
-		    }
-		};
-    	String key;
-    	
-    	// retrieve the keys with WildCards
-		Enumeration<Object> e = properties.keys();
-   		while (e.hasMoreElements()) {
-    		key = (String) e.nextElement();
-    		if (isAWildCard(key)) {
-    			propertiesWithWildCards.setProperty(key, properties.getProperty(key));
-    			properties.remove(key);
-    		}
-    	}
-    	
-    	// try to replace the values of other keys matching the keys with WildCards
-		Enumeration<Object> w = propertiesWithWildCards.keys();
-   		while (w.hasMoreElements()) {
-    		String keyWithWildCards = (String) w.nextElement();
-    		String regex = wildcardToRegex(keyWithWildCards);
-
-			String ignoreWildcardInVariablesPattern = "(.*)variables\\\\\\[(.*)\\\\\\]\\/variable\\\\\\[(.*)\\\\\\](.*)";
-			Pattern p = Pattern.compile(ignoreWildcardInVariablesPattern);
-			Matcher m = p.matcher(regex);
-			if (m.matches()) {
-				String variables = m.group(2);
-				String variable = m.group(3);
-				variables = variables.replace(".*", "\\*");
-				variable = variable.replace(".*", "\\*");
-				regex = m.group(1) + "variables\\[" + variables + "\\]/variable\\[" + variable + "\\]" + m.group(4);
-			}
-
-    		Boolean found = false;
-
-    		e = properties.keys();
-    	   	while (e.hasMoreElements()) {
-    			key = (String) e.nextElement();
-    			
-    			if (Pattern.matches(regex, key)) {
-    				found = true;
-    				String value = (String) propertiesWithWildCards.getProperty(keyWithWildCards);
-    				properties.setProperty(key, value);
-    			}
-    		}
-
-    	   	// not found, we put back the expression with wild cards in the original list (false positive)
-    	   	// this way the wildcard can still be used in a next pass and will be removed at the end by AbstractPackagingMojo.removeWildCards 
-    		if (!found) {
-    			properties.setProperty(keyWithWildCards, propertiesWithWildCards.getProperty(keyWithWildCards));
-    		}
-    	}
-    	
-    	return properties;
-    }
-
-    protected Properties removeWildCards(Properties properties) {
-    	String key;
-    	
-		Enumeration<Object> e = properties.keys();
-    	while (e.hasMoreElements()) {
-    		key = (String) e.nextElement();
-    		
-    		if (isAWildCard(key)) {
-    			properties.remove(key);
-    		}
-    	}
-    	
-    	return properties;
-    }
-
 	public void execute() throws MojoExecutionException {
 		if (super.skip()) {
 			return;
@@ -332,8 +152,8 @@ public class MergePropertiesMojo extends AbstractPackagingMojo {
 
 		getLog().info(MERGING_PROPERTIES);
 		try {
-			Properties earGlobalVariables = loadPropertiesFile(deploymentGlobalVariables);
-			Properties earServices = loadPropertiesFile(deploymentServices);
+			PropertyTree earGlobalVariables = loadPropertiesFile(deploymentGlobalVariables);
+			PropertyTree earServices = loadPropertiesFile(deploymentServices);
 
 			MergedFiles mergedCommonFiles = MergedFiles.NONE, mergedReferenceFiles = MergedFiles.NONE;
 
@@ -373,12 +193,9 @@ public class MergePropertiesMojo extends AbstractPackagingMojo {
 				}
 			}
 
-		    earGlobalVariables = sortProperties(earGlobalVariables);
-		    earServices = sortProperties(earServices);
-
-		    earServices = removeWildCards(earServices);
+		    earServices = PropertiesMerger.removeWildCards(earServices);
 		    if (!alwaysKeepEmptyBindings) {
-		    	earServices = removeEmptyBindings(earServices);
+		    	earServices = PropertiesMerger.removeEmptyBindings(earServices);
 		    }
 
 
@@ -428,38 +245,4 @@ public class MergePropertiesMojo extends AbstractPackagingMojo {
 		}
 	}
 
-	private Properties removeEmptyBindings(Properties properties) {
-		ArrayList<String> pars = new ArrayList<String>();
-		
-		Pattern pNotEmptyBinding = Pattern.compile(regexNotEmptyBinding);
-		Pattern pEmptyBinding = Pattern.compile(regexEmptyBinding);
-		String parName;
-		
-		Enumeration<Object> e = properties.keys();
-		// first check if there is at least one non empty binding (non default)
-	   	while (e.hasMoreElements()) {
-			String key = (String) e.nextElement();
-			Matcher mNotEmptyBinding = pNotEmptyBinding.matcher(key);
-			if (mNotEmptyBinding.matches()) {
-				parName = mNotEmptyBinding.group(1);
-				if (pars.contains(parName)) continue;
-				pars.add(parName);
-			}
-		}
-	   	// then delete
-		e = properties.keys();
-	   	while (e.hasMoreElements()) {
-	   		String key = (String) e.nextElement();
-	   		Matcher mEmptyBinding = pEmptyBinding.matcher(key);
-	   		if (mEmptyBinding.matches()) {
-	   			parName = mEmptyBinding.group(1);
-	   			if (pars.contains(parName)) {
-	   				properties.remove(key);
-	   			}
-	   		}
-	   	}
-		
-		return properties;
-	}
-
 }
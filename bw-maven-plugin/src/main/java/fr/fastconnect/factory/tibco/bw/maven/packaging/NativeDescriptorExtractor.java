@@ -0,0 +1,582 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import jakarta.xml.bind.JAXBElement;
+
+import org.apache.commons.io.IOUtils;
+import org.jdom2.Attribute;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+
+import com.tibco.xmlns.applicationmanagement.ApplicationType;
+import com.tibco.xmlns.applicationmanagement.Binding;
+import com.tibco.xmlns.applicationmanagement.Bindings;
+import com.tibco.xmlns.applicationmanagement.Bw;
+import com.tibco.xmlns.applicationmanagement.Bwprocess;
+import com.tibco.xmlns.applicationmanagement.Bwprocesses;
+import com.tibco.xmlns.applicationmanagement.EncodingType;
+import com.tibco.xmlns.applicationmanagement.FaultTolerant;
+import com.tibco.xmlns.applicationmanagement.HttpRepoInstance;
+import com.tibco.xmlns.applicationmanagement.LocalRepoInstance;
+import com.tibco.xmlns.applicationmanagement.NVPairType;
+import com.tibco.xmlns.applicationmanagement.NVPairs;
+import com.tibco.xmlns.applicationmanagement.NameValuePair;
+import com.tibco.xmlns.applicationmanagement.NameValuePairBoolean;
+import com.tibco.xmlns.applicationmanagement.NameValuePairInteger;
+import com.tibco.xmlns.applicationmanagement.NameValuePairPassword;
+import com.tibco.xmlns.applicationmanagement.ObjectFactory;
+import com.tibco.xmlns.applicationmanagement.Product;
+import com.tibco.xmlns.applicationmanagement.RepoInstances;
+import com.tibco.xmlns.applicationmanagement.RepoType;
+import com.tibco.xmlns.applicationmanagement.RvRepoInstance;
+import com.tibco.xmlns.applicationmanagement.Services;
+import com.tibco.xmlns.applicationmanagement.Setting;
+import com.tibco.xmlns.applicationmanagement.Shutdown;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex.ActivityEntry;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndexer;
+
+/**
+ * <p>
+ * This class builds the XML Deployment Descriptor of a TIBCO BusinessWorks EAR
+ * in pure Java, as <i>AppManage -export -max -ear</i> would, without launching
+ * AppManage.
+ * </p>
+ * <p>
+ * Only the "TIBCO.xml" descriptors are read: the one of the EAR (random access
+ * through the central directory of the EAR) and the ones of the process
+ * archives, with the process definitions of their process starters (to get
+ * the name of the starter activities). Each process archive becomes a
+ * &lt;bw> service with the settings that AppManage exports for an EAR which
+ * was never deployed:
+ *  <ul>
+ *   <li>two empty bindings ("binding[]"), as exported with <i>-max</i>, with
+ *   the default settings of a BusinessWorks engine</li>
+ *   <li>the service settable Global Variables of the process archive as
+ *   "Runtime Variables"</li>
+ *   <li>one &lt;bwprocess> by process starter</li>
+ *   <li>the default fault tolerance settings</li>
+ *  </ul>
+ * </p>
+ * <p>
+ * Any other content (adapter archives, other descriptor elements...) is
+ * reported by {@link #getUnsupportedFeatures()} so that the caller can fall
+ * back to AppManage. The content supported is the one of the EARs assembled
+ * by {@link fr.fastconnect.factory.tibco.bw.maven.compile.NativeEARAssembler}.
+ * </p>
+ *
+ * @see ExtractXMLFromEARMojo
+ */
+public class NativeDescriptorExtractor {
+
+	private static final Namespace DD_NAMESPACE = Namespace.getNamespace("http://www.tibco.com/xmlns/dd");
+	private static final String TIBCO_XML = "TIBCO.xml";
+	private static final String PAR_EXTENSION = ".par";
+	private static final String SAR_EXTENSION = ".sar";
+	private static final String LIB_ZIP = "lib.zip";
+	private static final String PROCESS_EXTENSION = ".process";
+	private static final ProcessIndexer PROCESS_INDEXER = new ProcessIndexer();
+
+	private static final String GLOBAL_VARIABLES = "Global Variables";
+	private static final String PROCESS_STARTERS = "Process Starters";
+	private static final String RUNTIME_VARIABLES = "Runtime Variables";
+
+	private static final Set<String> DESCRIPTOR_PROPERTIES = new HashSet<String>(Arrays.asList(
+			"name", "description", "version", "owner", "creationDate", "NameValuePairs"));
+	private static final Set<String> NAME_VALUE_PAIRS = new HashSet<String>(Arrays.asList(
+			"NameValuePair", "NameValuePairBoolean", "NameValuePairInteger", "NameValuePairPassword"));
+
+	/*
+	 * default settings of a service which was never deployed: they are not
+	 * stored in the EAR but are the defaults of the "Server Settings" and
+	 * "Fault Tolerant" panels of a service instance in TIBCO Administrator
+	 * (see "TIBCO ActiveMatrix BusinessWorks Administration", BusinessWorks
+	 * 5), which AppManage exports; bw.descriptor.native.verify reports an
+	 * AppManage version exporting other values
+	 */
+	private static final String PRODUCT_TYPE = "bwengine";
+	private static final long MAX_LOG_FILE_SIZE = 20000;
+	private static final long MAX_LOG_FILE_COUNT = 5;
+	private static final long THREAD_COUNT = 8;
+	private static final long INIT_HEAP_SIZE = 32;
+	private static final long MAX_HEAP_SIZE = 256;
+	private static final long THREAD_STACK_SIZE = 256;
+	private static final long FT_WEIGHT = 100;
+	private static final long HB_INTERVAL = 10000;
+	private static final long ACTIVATION_INTERVAL = 35000;
+
+	// normalization of the Deployment Descriptors compared by compare(File, File)
+	private static final Set<String> IGNORED_ELEMENTS = Collections.singleton("repoInstances");
+
+	/**
+	 * a process archive: its "TIBCO.xml" descriptor and the name of the
+	 * starter activity of its process starters
+	 */
+	private static class ProcessArchive {
+		private Element descriptor;
+		private final Map<String, String> starters = new LinkedHashMap<String, String>();
+	}
+
+	private final List<String> unsupportedFeatures = new ArrayList<String>();
+	private Element applicationDescriptor;
+	private final Map<String, ProcessArchive> processArchives = new LinkedHashMap<String, ProcessArchive>();
+
+	/**
+	 * @param ear, the TIBCO BusinessWorks EAR
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public NativeDescriptorExtractor(File ear) throws IOException, JDOMException {
+		try (ZipFile zip = new ZipFile(ear)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (entry.isDirectory() || name.endsWith(SAR_EXTENSION) || name.equals(LIB_ZIP)) {
+					continue; // no service in the Deployment Descriptor
+				} else if (name.equals(TIBCO_XML)) {
+					try (InputStream input = zip.getInputStream(entry)) {
+						applicationDescriptor = parse(input, name);
+					}
+				} else if (name.endsWith(PAR_EXTENSION) && name.indexOf('/') < 0) {
+					try (InputStream input = zip.getInputStream(entry)) {
+						readProcessArchive(name, input);
+					}
+				} else {
+					unsupportedFeatures.add("'" + name + "' in the EAR");
+				}
+			}
+		}
+
+		if (applicationDescriptor == null) {
+			unsupportedFeatures.add("no " + TIBCO_XML + " in the EAR");
+			return;
+		}
+		checkDescriptor(applicationDescriptor, Collections.singleton(GLOBAL_VARIABLES), "the EAR");
+	}
+
+	private Element parse(InputStream input, String description) throws IOException, JDOMException {
+		Document document = new SAXBuilder().build(input);
+		Element root = document.getRootElement();
+		if (!root.getName().equals("DeploymentDescriptors") || !DD_NAMESPACE.equals(root.getNamespace())) {
+			unsupportedFeatures.add("unknown root element '" + root.getName() + "' in " + description);
+		}
+		return root;
+	}
+
+	private void checkDescriptor(Element descriptor, Set<String> supportedNameValuePairs, String description) {
+		for (Element child : descriptor.getChildren()) {
+			if (!DESCRIPTOR_PROPERTIES.contains(child.getName())) {
+				unsupportedFeatures.add("'" + child.getName() + "' in " + TIBCO_XML + " of " + description);
+			} else if (child.getName().equals("NameValuePairs")) {
+				String name = child.getChildTextTrim("name", DD_NAMESPACE);
+				if (!supportedNameValuePairs.contains(name)) {
+					unsupportedFeatures.add("'" + name + "' in " + TIBCO_XML + " of " + description);
+				}
+				for (Element nameValuePair : child.getChildren()) {
+					if (!nameValuePair.getName().equals("name") && !NAME_VALUE_PAIRS.contains(nameValuePair.getName())) {
+						unsupportedFeatures.add("'" + nameValuePair.getName() + "' in '" + name + "' of " + description);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * The nested archive can only be read sequentially: its descriptor and
+	 * its process definitions are kept in one pass, then the process starters
+	 * are resolved.
+	 * </p>
+	 */
+	private void readProcessArchive(String parName, InputStream input) throws IOException, JDOMException {
+		ProcessArchive processArchive = new ProcessArchive();
+		Map<String, byte[]> processes = new HashMap<String, byte[]>();
+
+		ZipInputStream zip = new ZipInputStream(input);
+		ZipEntry entry;
+		while ((entry = zip.getNextEntry()) != null) {
+			String name = entry.getName();
+			if (name.equals(TIBCO_XML)) {
+				// the parser would close the archive stream
+				processArchive.descriptor = parse(new ByteArrayInputStream(IOUtils.toByteArray(zip)), TIBCO_XML + " of " + parName);
+			} else if (name.endsWith(PROCESS_EXTENSION)) {
+				processes.put(name, IOUtils.toByteArray(zip));
+			}
+		}
+
+		if (processArchive.descriptor == null) {
+			unsupportedFeatures.add("no " + TIBCO_XML + " in " + parName);
+			return;
+		}
+		checkDescriptor(processArchive.descriptor, new HashSet<String>(Arrays.asList(PROCESS_STARTERS, GLOBAL_VARIABLES)), parName);
+
+		for (Element nameValuePair : getNameValuePairs(processArchive.descriptor, PROCESS_STARTERS)) {
+			String process = nameValuePair.getChildText("name", DD_NAMESPACE);
+			String path = process.startsWith("/") ? process.substring(1) : process;
+			byte[] definition = processes.get(path);
+			if (definition == null) {
+				unsupportedFeatures.add("the process starter '" + process + "' is not in " + parName);
+				continue;
+			}
+			ActivityEntry starter;
+			try {
+				starter = PROCESS_INDEXER.index(new ByteArrayInputStream(definition)).getStarter();
+			} catch (XMLStreamException e) {
+				unsupportedFeatures.add("the process starter '" + process + "' of " + parName + " cannot be read (" + e.getLocalizedMessage() + ")");
+				continue;
+			}
+			if (starter == null || starter.getName() == null) {
+				unsupportedFeatures.add("no starter in the process starter '" + process + "' of " + parName);
+				continue;
+			}
+			processArchive.starters.put(process, starter.getName());
+		}
+
+		processArchives.put(parName, processArchive);
+	}
+
+	/**
+	 * @return the features of the EAR which cannot be extracted natively
+	 * (empty if the Deployment Descriptor can be extracted)
+	 */
+	public List<String> getUnsupportedFeatures() {
+		return Collections.unmodifiableList(unsupportedFeatures);
+	}
+
+	public boolean isSupported() {
+		return unsupportedFeatures.isEmpty();
+	}
+
+	/**
+	 * @return the "application" root-element of the Deployment Descriptor
+	 */
+	public ApplicationType extract() {
+		if (!isSupported()) {
+			throw new IllegalStateException("Unable to extract the Deployment Descriptor natively: " + String.join(", ", unsupportedFeatures));
+		}
+
+		ObjectFactory factory = new ObjectFactory();
+
+		ApplicationType application = new ApplicationType();
+		application.setName(applicationDescriptor.getChildTextTrim("name", DD_NAMESPACE));
+		application.setDescription(getProperty(applicationDescriptor, "description"));
+		application.setContact("");
+		application.setMaxdeploymentrevision("-1");
+		application.setNVPairs(nvPairs(factory, GLOBAL_VARIABLES, getNameValuePairs(applicationDescriptor, GLOBAL_VARIABLES)));
+		application.setRepoInstances(repoInstances());
+
+		Services services = new Services();
+		for (Map.Entry<String, ProcessArchive> processArchive : processArchives.entrySet()) {
+			services.getBaseService().add(factory.createBw(bw(factory, processArchive.getKey(), processArchive.getValue())));
+		}
+		application.setServices(services);
+
+		return application;
+	}
+
+	private Bw bw(ObjectFactory factory, String name, ProcessArchive processArchive) {
+		Bw bw = new Bw();
+		bw.setName(name);
+		bw.setEnabled(true);
+
+		// "-max" exports two identical empty bindings
+		Bindings bindings = new Bindings();
+		bindings.getBinding().add(emptyBinding());
+		bindings.getBinding().add(emptyBinding());
+		bw.setBindings(bindings);
+
+		List<Element> serviceSettableVariables = getNameValuePairs(processArchive.descriptor, GLOBAL_VARIABLES);
+		if (!serviceSettableVariables.isEmpty()) {
+			bw.getNVPairs().add(nvPairs(factory, RUNTIME_VARIABLES, serviceSettableVariables));
+		}
+
+		bw.setFailureCount(BigInteger.ZERO);
+		bw.setFailureInterval(BigInteger.ZERO);
+
+		Bwprocesses bwProcesses = new Bwprocesses();
+		for (Map.Entry<String, String> starter : processArchive.starters.entrySet()) {
+			Bwprocess bwProcess = new Bwprocess();
+			bwProcess.setName(starter.getKey());
+			bwProcess.setStarter(starter.getValue());
+			bwProcess.setEnabled(true);
+			bwProcess.setMaxJob(BigInteger.ZERO);
+			bwProcess.setActivation(true);
+			bwProcess.setFlowLimit(BigInteger.ZERO);
+			bwProcesses.getBwprocess().add(bwProcess);
+		}
+		bw.getRest().add(bwProcesses);
+
+		bw.getRest().add(factory.createIsFt(false));
+
+		FaultTolerant faultTolerant = new FaultTolerant();
+		faultTolerant.setHbInterval(BigInteger.valueOf(HB_INTERVAL));
+		faultTolerant.setActivationInterval(BigInteger.valueOf(ACTIVATION_INTERVAL));
+		faultTolerant.setPreparationDelay(BigInteger.ZERO);
+		bw.getRest().add(faultTolerant);
+
+		return bw;
+	}
+
+	/**
+	 * @return the empty binding ("binding[]") which is duplicated by
+	 * {@link PropertiesMerger} for each named binding
+	 */
+	private static Binding emptyBinding() {
+		Binding binding = new Binding();
+		binding.setName("");
+		binding.setMachine("");
+
+		Product product = new Product();
+		product.setType(PRODUCT_TYPE);
+		product.setVersion("");
+		product.setLocation("");
+		binding.setProduct(product);
+
+		binding.setDescription("");
+		binding.setContact("");
+
+		Setting setting = new Setting();
+		setting.setStartOnBoot(false);
+		setting.setEnableVerbose(false);
+		setting.setMaxLogFileSize(BigInteger.valueOf(MAX_LOG_FILE_SIZE));
+		setting.setMaxLogFileCount(BigInteger.valueOf(MAX_LOG_FILE_COUNT));
+		setting.setThreadCount(BigInteger.valueOf(THREAD_COUNT));
+		Setting.Java java = new Setting.Java();
+		java.setInitHeapSize(BigInteger.valueOf(INIT_HEAP_SIZE));
+		java.setMaxHeapSize(BigInteger.valueOf(MAX_HEAP_SIZE));
+		java.setThreadStackSize(BigInteger.valueOf(THREAD_STACK_SIZE));
+		setting.setJava(java);
+		binding.setSetting(setting);
+
+		binding.setFtWeight(BigInteger.valueOf(FT_WEIGHT));
+
+		Shutdown shutdown = new Shutdown();
+		shutdown.setCheckpoint(false);
+		shutdown.setTimeout(BigInteger.ZERO);
+		binding.setShutdown(shutdown);
+
+		return binding;
+	}
+
+	/**
+	 * @return the repository instances exported by AppManage, which are also
+	 * the default values of the <i>repo*</i> parameters of the packaging goals
+	 */
+	private static RepoInstances repoInstances() {
+		RepoInstances repoInstances = new RepoInstances();
+
+		HttpRepoInstance httpRepoInstance = new HttpRepoInstance();
+		httpRepoInstance.setTimeout(BigInteger.valueOf(600));
+		httpRepoInstance.setUrl("");
+		httpRepoInstance.setServer("");
+		httpRepoInstance.setUser("");
+		httpRepoInstance.setPassword("");
+		httpRepoInstance.setExtraPropertyFile("");
+		repoInstances.setHttpRepoInstance(httpRepoInstance);
+
+		RvRepoInstance rvRepoInstance = new RvRepoInstance();
+		rvRepoInstance.setTimeout(BigInteger.valueOf(600));
+		rvRepoInstance.setDiscoveryTimout(BigInteger.valueOf(10));
+		rvRepoInstance.setDaemon("tcp:7500");
+		rvRepoInstance.setService("7500");
+		rvRepoInstance.setNetwork("");
+		rvRepoInstance.setRegionalSubject("");
+		rvRepoInstance.setOperationRetry(BigInteger.ZERO);
+		rvRepoInstance.setExtraPropertyFile("");
+		rvRepoInstance.setServer("");
+		rvRepoInstance.setUser("");
+		rvRepoInstance.setPassword("");
+		repoInstances.setRvRepoInstance(rvRepoInstance);
+
+		LocalRepoInstance localRepoInstance = new LocalRepoInstance();
+		localRepoInstance.setEncoding(EncodingType.UTF_8);
+		repoInstances.setLocalRepoInstance(localRepoInstance);
+
+		repoInstances.setSelected(RepoType.LOCAL);
+
+		return repoInstances;
+	}
+
+	private static NVPairs nvPairs(ObjectFactory factory, String name, List<Element> nameValuePairs) {
+		NVPairs result = new NVPairs();
+		result.setName(name);
+		for (Element nameValuePair : nameValuePairs) {
+			result.getNVPair().add(nvPair(factory, nameValuePair));
+		}
+		return result;
+	}
+
+	private static JAXBElement<? extends NVPairType> nvPair(ObjectFactory factory, Element nameValuePair) {
+		NVPairType result;
+		JAXBElement<? extends NVPairType> element;
+		String type = nameValuePair.getName();
+		if (type.equals("NameValuePairBoolean")) {
+			NameValuePairBoolean nvPair = new NameValuePairBoolean();
+			element = factory.createNameValuePairBoolean(nvPair);
+			result = nvPair;
+		} else if (type.equals("NameValuePairInteger")) {
+			NameValuePairInteger nvPair = new NameValuePairInteger();
+			element = factory.createNameValuePairInteger(nvPair);
+			result = nvPair;
+		} else if (type.equals("NameValuePairPassword")) {
+			NameValuePairPassword nvPair = new NameValuePairPassword();
+			element = factory.createNameValuePairPassword(nvPair);
+			result = nvPair;
+		} else {
+			NameValuePair nvPair = new NameValuePair();
+			element = factory.createNameValuePair(nvPair);
+			result = nvPair;
+		}
+		result.setName(nameValuePair.getChildText("name", DD_NAMESPACE));
+		result.setValue(nameValuePair.getChildText("value", DD_NAMESPACE));
+		String description = nameValuePair.getChildText("description", DD_NAMESPACE);
+		if (description != null && !description.isEmpty()) {
+			result.setDescription(description);
+		}
+		return element;
+	}
+
+	/**
+	 * <p>
+	 * Compares two Deployment Descriptors as XML trees: every element, text and
+	 * attribute of each file is compared, in the order of the siblings (so the
+	 * number of bindings and the fault tolerance settings are compared too).
+	 * Only the &lt;repoInstances> element is ignored since it depends on the
+	 * AppManage installation rather than on the EAR.
+	 * </p>
+	 *
+	 * @param reference, a Deployment Descriptor exported by AppManage
+	 * @param candidate, a Deployment Descriptor extracted natively
+	 * @return the differences: "- path" (missing), "+ path" (unexpected) or
+	 * "~ path" (different value), empty if the Deployment Descriptors are
+	 * equivalent
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public static List<String> compare(File reference, File candidate) throws IOException, JDOMException {
+		Map<String, String> referenceTree = new LinkedHashMap<String, String>();
+		Map<String, String> candidateTree = new LinkedHashMap<String, String>();
+		flatten(new SAXBuilder().build(reference).getRootElement(), "", referenceTree);
+		flatten(new SAXBuilder().build(candidate).getRootElement(), "", candidateTree);
+
+		List<String> result = new ArrayList<String>();
+		for (Map.Entry<String, String> node : referenceTree.entrySet()) {
+			String value = candidateTree.get(node.getKey());
+			if (value == null) {
+				result.add("- " + node.getKey());
+			} else if (!value.equals(node.getValue())) {
+				result.add("~ " + node.getKey() + " (" + node.getValue() + " / " + value + ")");
+			}
+		}
+		for (String path : candidateTree.keySet()) {
+			if (!referenceTree.containsKey(path)) {
+				result.add("+ " + path);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This adds the path of the element (with the "name" attribute of the
+	 * elements and the rank of the siblings with the same path) and of its
+	 * attributes to the tree, with their normalized value.
+	 */
+	private static void flatten(Element element, String parentPath, Map<String, String> tree) {
+		String name = element.getAttributeValue("name");
+		String path = parentPath + "/" + element.getName() + (name == null ? "" : "[" + name + "]");
+		if (tree.containsKey(path)) {
+			int rank = 2;
+			while (tree.containsKey(path + "#" + rank)) {
+				rank++;
+			}
+			path = path + "#" + rank;
+		}
+		tree.put(path, element.getTextNormalize());
+		for (Attribute attribute : element.getAttributes()) {
+			if (!attribute.getName().equals("name")) {
+				tree.put(path + "/@" + attribute.getName(), attribute.getValue());
+			}
+		}
+
+		for (Element child : element.getChildren()) {
+			if (!IGNORED_ELEMENTS.contains(child.getName())) {
+				flatten(child, path, tree);
+			}
+		}
+	}
+
+	/**
+	 * @return the name/value pairs of the &lt;NameValuePairs> element with the
+	 * given name (empty if there is none)
+	 */
+	private static List<Element> getNameValuePairs(Element descriptor, String name) {
+		List<Element> result = new ArrayList<Element>();
+		for (Element nameValuePairs : descriptor.getChildren("NameValuePairs", DD_NAMESPACE)) {
+			if (name.equals(nameValuePairs.getChildTextTrim("name", DD_NAMESPACE))) {
+				for (Element nameValuePair : nameValuePairs.getChildren()) {
+					if (NAME_VALUE_PAIRS.contains(nameValuePair.getName())) {
+						result.add(nameValuePair);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the first child with the given local name, whatever its namespace
+	 */
+	private static Element getChild(Element parent, String name) {
+		for (Element child : parent.getChildren()) {
+			if (child.getName().equals(name)) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	private static String getProperty(Element parent, String name) {
+		Element child = getChild(parent, name);
+		return child == null ? "" : child.getTextTrim();
+	}
+
+}
@@ -0,0 +1,348 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * <p>
+ * This goal packages the XML Deployment Descriptor of several environments in
+ * one pass. It replaces, for each environment,
+ * <a href="./merge-properties-mojo.html">bw:merge-properties</a> and
+ * <a href="./generate-xml-from-properties-mojo.html">
+ * bw:generate-xml-from-properties</a>.
+ * </p>
+ * <p>
+ * The XML Deployment Descriptor extracted from the EAR and the properties
+ * files generated by
+ * <a href="./generate-properties-from-xml-mojo.html">
+ * bw:generate-properties-from-xml</a> are read once. Each environment merges
+ * its own reference and common properties files into a copy of these
+ * properties (see {@link PropertyTree#copy()}) and the environments are
+ * processed in parallel, or one at a time when the properties files are
+ * filtered (<i>filterProperties</i>).
+ * </p>
+ * <p>
+ * For each environment named <i>env</i>, the merged properties files
+ * <i>${project.build.finalName}-env.gv.properties</i> and
+ * <i>${project.build.finalName}-env.services.properties</i> and the final XML
+ * Deployment Descriptor <i>${project.build.finalName}-env-final.xml</i> are
+ * written next to the final XML Deployment Descriptor. The latter is attached
+ * to the project with the <i>final-env</i> classifier.
+ * </p>
+ */
+@Mojo( name="package-environments",
+defaultPhase=LifecyclePhase.PREPARE_PACKAGE )
+public class PackageEnvironmentsMojo extends GenerateXMLFromPropertiesMojo {
+
+	protected static final String PACKAGING_ENVIRONMENTS = "Packaging environments";
+	protected static final String NO_ENVIRONMENT = "No environment to package.";
+	protected static final String ENVIRONMENT_NAME_MISSING = "The name of an environment is missing";
+	protected static final String ENVIRONMENT_NAME_DUPLICATE = "The name of an environment is used more than once";
+	protected static final String ENVIRONMENT_PACKAGE_FAILURE = "Failed to package the environment";
+	protected static final String ENVIRONMENT_PACKAGE_SUCCESS = "Successfully packaged the environment";
+
+	/**
+	 * The environments to package. For each environment, the reference and
+	 * common properties files are optional: when a common properties file is
+	 * not set, the one of the project (<i>deploy.properties.*.common</i>) is
+	 * used.
+	 * <pre>
+	 * &lt;environments&gt;
+	 *   &lt;environment&gt;
+	 *     &lt;name&gt;dev&lt;/name&gt;
+	 *     &lt;globalVariablesReference&gt;src/main/properties/dev.gv.properties&lt;/globalVariablesReference&gt;
+	 *     &lt;servicesReference&gt;src/main/properties/dev.services.properties&lt;/servicesReference&gt;
+	 *   &lt;/environment&gt;
+	 * &lt;/environments&gt;
+	 * </pre>
+	 */
+	@Parameter
+	protected List<Environment> environments;
+
+	/**
+	 * Number of threads used to package the environments. Default (0) uses
+	 * the number of available processors. When <i>filterProperties</i> is
+	 * set, the environments are packaged one at a time since the filtering
+	 * works on the whole directory of the properties files.
+	 */
+	@Parameter (property = "bw.environments.threads", defaultValue = "0")
+	protected Integer environmentsThreads;
+
+	/**
+	 * Same as <i>alwaysKeepEmptyBindings</i> of
+	 * <a href="./merge-properties-mojo.html">bw:merge-properties</a>.
+	 */
+	@Parameter (property = "alwaysKeepEmptyBindings", defaultValue = "false")
+	protected boolean alwaysKeepEmptyBindings;
+
+	/**
+	 * Same as <i>mergeCommonLast</i> of
+	 * <a href="./merge-properties-mojo.html">bw:merge-properties</a>.
+	 */
+	@Parameter (property = "mergeCommonLast", defaultValue = "false")
+	protected boolean mergeCommonLast;
+
+	/**
+	 * properties files already loaded, a file can be shared by several
+	 * environments (the loaded properties are only read by the merges)
+	 */
+	private HashMap<File, PropertyTree> loadedFiles = new HashMap<File, PropertyTree>();
+
+	private PropertyTree load(File propertiesFile) throws MojoExecutionException {
+		try {
+			if (propertiesFile == null || !propertiesFile.exists()) {
+				return null;
+			}
+			if (propertiesFile.getCanonicalFile().equals(deploymentGlobalVariables.getCanonicalFile()) ||
+				propertiesFile.getCanonicalFile().equals(deploymentServices.getCanonicalFile())) {
+				return null; // same check as bw:merge-properties
+			}
+			File key = propertiesFile.getCanonicalFile();
+			PropertyTree result = loadedFiles.get(key);
+			if (result == null) {
+				result = loadPropertiesFile(propertiesFile);
+				loadedFiles.put(key, result);
+			}
+			return result;
+		} catch (Exception e) {
+			throw new MojoExecutionException(MergePropertiesMojo.PROPERTIES_LOAD_FAILURE + " '" + propertiesFile + "'", e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * The properties of an environment, prepared in the main thread (loading
+	 * files, copying the base properties) before being processed in parallel.
+	 * </p>
+	 */
+	private class EnvironmentPackage {
+		private String name;
+		private PropertyTree globalVariables;
+		private PropertyTree services;
+		private List<PropertyTree> globalVariablesToMerge = new ArrayList<PropertyTree>();
+		private List<PropertyTree> servicesToMerge = new ArrayList<PropertyTree>();
+		private File globalVariablesFile;
+		private File servicesFile;
+		private File deploymentDescriptorFile;
+	}
+
+	private EnvironmentPackage prepare(Environment environment, PropertyTree baseGlobalVariables, PropertyTree baseServices) throws MojoExecutionException {
+		EnvironmentPackage result = new EnvironmentPackage();
+		result.name = environment.getName();
+		result.globalVariables = baseGlobalVariables.copy();
+		result.services = baseServices.copy();
+
+		PropertyTree globalVariablesCommon = null, servicesCommon = null, globalVariablesReference = null, servicesReference = null;
+		if (!ignoreCommonFiles) {
+			globalVariablesCommon = load(environment.getGlobalVariablesCommon() != null ? environment.getGlobalVariablesCommon() : deploymentGlobalVariablesCommon);
+			servicesCommon = load(environment.getServicesCommon() != null ? environment.getServicesCommon() : deploymentServicesCommon);
+		}
+		if (!ignoreReferenceFiles) {
+			globalVariablesReference = load(environment.getGlobalVariablesReference());
+			servicesReference = load(environment.getServicesReference());
+		}
+		if (mergeCommonLast) {
+			addIfNotNull(result.globalVariablesToMerge, globalVariablesReference, globalVariablesCommon);
+			addIfNotNull(result.servicesToMerge, servicesReference, servicesCommon);
+		} else {
+			addIfNotNull(result.globalVariablesToMerge, globalVariablesCommon, globalVariablesReference);
+			addIfNotNull(result.servicesToMerge, servicesCommon, servicesReference);
+		}
+
+		String prefix = getProject().getBuild().getFinalName() + "-" + result.name;
+		File directory = deploymentDescriptorFinal.getParentFile();
+		result.globalVariablesFile = new File(directory, prefix + ".gv.properties");
+		result.servicesFile = new File(directory, prefix + ".services.properties");
+		result.deploymentDescriptorFile = new File(directory, prefix + "-final.xml");
+
+		return result;
+	}
+
+	private static void addIfNotNull(List<PropertyTree> list, PropertyTree... properties) {
+		for (PropertyTree p : properties) {
+			if (p != null) {
+				list.add(p);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * This merges the properties of an environment and writes its properties
+	 * files and its final XML Deployment Descriptor. It is called in parallel
+	 * for all the environments.
+	 * </p>
+	 */
+	private void packageEnvironment(EnvironmentPackage environment, byte[] deploymentDescriptorContent) throws MojoExecutionException {
+		PropertiesMerger merger = new PropertiesMerger();
+		for (PropertyTree reference : environment.globalVariablesToMerge) {
+			merger.mergeGlobalVariables(environment.globalVariables, reference);
+		}
+		for (PropertyTree reference : environment.servicesToMerge) {
+			merger.mergeServices(environment.services, reference);
+		}
+		PropertiesMerger.removeWildCards(environment.services);
+		if (!alwaysKeepEmptyBindings) {
+			PropertiesMerger.removeEmptyBindings(environment.services);
+		}
+
+		savePropertiesToFile(environment.globalVariablesFile,
+							 environment.globalVariables,
+							 "Global Variables",
+							 MergePropertiesMojo.PROPERTIES_SAVE_GVS_SUCCESS,
+							 MergePropertiesMojo.PROPERTIES_SAVE_GVS_FAILURE);
+		savePropertiesToFile(environment.servicesFile,
+							 environment.services,
+							 "Services (Bindings, Processes)",
+							 MergePropertiesMojo.PROPERTIES_SAVE_SERVICES_SUCCESS,
+							 MergePropertiesMojo.PROPERTIES_SAVE_SERVICES_FAILURE);
+
+		PropertyTree globalVariables = environment.globalVariables;
+		PropertyTree services = environment.services;
+		if (filterProperties) {
+			// as bw:generate-xml-from-properties, use the filtered properties files
+			try {
+				globalVariables = loadPropertiesFile(environment.globalVariablesFile);
+			} catch (Exception e) {
+				throw new MojoExecutionException(PROPERTIES_GLOBAL_VARIABLES_LOAD_FAILURE + " '" + environment.globalVariablesFile + "'", e);
+			}
+			try {
+				services = loadPropertiesFile(environment.servicesFile);
+			} catch (Exception e) {
+				throw new MojoExecutionException(PROPERTIES_SERVICES_LOAD_FAILURE + " '" + environment.servicesFile + "'", e);
+			}
+		}
+
+		try {
+			ApplicationManagement application = new ApplicationManagement(new ByteArrayInputStream(deploymentDescriptorContent), environment.deploymentDescriptorFile);
+			generate(application, globalVariables, services);
+			application.save();
+		} catch (JAXBException e) {
+			throw new MojoExecutionException(ENVIRONMENT_PACKAGE_FAILURE + " '" + environment.name + "'", e);
+		}
+
+		getLog().info(ENVIRONMENT_PACKAGE_SUCCESS + " '" + environment.name + "' in '" + environment.deploymentDescriptorFile + "'");
+	}
+
+	private void packageEnvironments(List<EnvironmentPackage> packages, final byte[] deploymentDescriptorContent) throws MojoExecutionException {
+		int threads = environmentsThreads > 0 ? environmentsThreads : Runtime.getRuntime().availableProcessors();
+		if (filterProperties) {
+			threads = 1; // the filtering copies back all the properties files of the directory
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, packages.size()));
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (final EnvironmentPackage p : packages) {
+				results.add(executor.submit(() -> {
+					packageEnvironment(p, deploymentDescriptorContent);
+					return null;
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof MojoExecutionException) {
+				throw (MojoExecutionException) e.getCause();
+			}
+			throw new MojoExecutionException(e.getCause().getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (super.skip()) {
+			return;
+		}
+
+		if (environments == null || environments.isEmpty()) {
+			getLog().info(NO_ENVIRONMENT);
+			return;
+		}
+
+		Set<String> names = new HashSet<String>();
+		for (Environment environment : environments) {
+			if (environment.getName() == null || environment.getName().isEmpty()) {
+				throw new MojoExecutionException(ENVIRONMENT_NAME_MISSING);
+			}
+			if (!names.add(environment.getName())) {
+				throw new MojoExecutionException(ENVIRONMENT_NAME_DUPLICATE + " '" + environment.getName() + "'");
+			}
+		}
+
+		getLog().info(PACKAGING_ENVIRONMENTS + " " + names);
+
+		// the base Deployment Descriptor and properties are read once for all the environments
+		byte[] deploymentDescriptorContent;
+		try {
+			deploymentDescriptorContent = FileUtils.readFileToByteArray(deploymentDescriptor);
+		} catch (IOException e) {
+			throw new MojoExecutionException(APPLICATION_MANAGEMENT_LOAD_FAILURE + " '" + deploymentDescriptor + "'", e);
+		}
+		PropertyTree baseGlobalVariables;
+		try {
+			baseGlobalVariables = loadPropertiesFile(deploymentGlobalVariables);
+		} catch (Exception e) {
+			throw new MojoExecutionException(PROPERTIES_GLOBAL_VARIABLES_LOAD_FAILURE + " '" + deploymentGlobalVariables + "'", e);
+		}
+		PropertyTree baseServices;
+		try {
+			baseServices = loadPropertiesFile(deploymentServices);
+		} catch (Exception e) {
+			throw new MojoExecutionException(PROPERTIES_SERVICES_LOAD_FAILURE + " '" + deploymentServices + "'", e);
+		}
+
+		List<EnvironmentPackage> packages = new ArrayList<EnvironmentPackage>();
+		for (Environment environment : environments) {
+			packages.add(prepare(environment, baseGlobalVariables, baseServices));
+		}
+		loadedFiles.clear();
+
+		packageEnvironments(packages, deploymentDescriptorContent);
+
+		// attaching artifacts is not thread-safe
+		for (EnvironmentPackage p : packages) {
+			attachFile(p.deploymentDescriptorFile, XML_TYPE, "final-" + p.name);
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * <p>
+ * This class keeps the working model of the packaging goals in memory during
+ * a build so that a goal does not read again what a previous goal of the same
+ * project has just written or read:
+ *  <ul>
+ *   <li>the properties files saved by
+ *   {@link AbstractPackagingMojo#savePropertiesToFile(File, PropertyTree, String, String, String)}
+ *   are returned by {@link AbstractPackagingMojo#loadPropertiesFile(File)}
+ *   without being parsed again</li>
+ *   <li>the XML Deployment Descriptor parsed by
+ *   {@link GeneratePropertiesFromXMLMojo} is used by
+ *   {@link GenerateXMLFromPropertiesMojo} without being unmarshalled
+ *   again</li>
+ *  </ul>
+ * </p>
+ * <p>
+ * The files are still written. An object of the context is used only if its
+ * file has not been modified since (same last modification date and same
+ * length), for instance by a user editing the properties files between two
+ * builds or by another plugin.
+ * </p>
+ * <p>
+ * There is one context per Maven project, stored in the context of the
+ * {@link MavenProject}. Its methods are thread-safe.
+ * </p>
+ */
+public class PackagingContext {
+
+	private static final String CONTEXT_KEY = PackagingContext.class.getName();
+
+	/**
+	 * the state of a file when an object of the context was read from or
+	 * written to it
+	 */
+	private static class Entry<T> {
+		private final long lastModified;
+		private final long length;
+		private final T value;
+
+		private Entry(File file, T value) {
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+			this.value = value;
+		}
+
+		private boolean isFresh(File file) {
+			return file.exists() && file.lastModified() == lastModified && file.length() == length;
+		}
+	}
+
+	private final HashMap<File, Entry<PropertyTree>> properties = new HashMap<File, Entry<PropertyTree>>();
+	private final HashMap<File, Entry<ApplicationManagement>> applications = new HashMap<File, Entry<ApplicationManagement>>();
+
+	public static PackagingContext get(MavenProject project) {
+		synchronized (project) {
+			PackagingContext result = (PackagingContext) project.getContextValue(CONTEXT_KEY);
+			if (result == null) {
+				result = new PackagingContext();
+				project.setContextValue(CONTEXT_KEY, result);
+			}
+			return result;
+		}
+	}
+
+	private static File key(File file) throws IOException {
+		return file.getCanonicalFile();
+	}
+
+	/**
+	 * <p>
+	 * This records the properties which have just been written to 'file'.
+	 * </p>
+	 *
+	 * @param file
+	 * @param properties, a copy is kept so the caller can still modify them
+	 * @throws IOException
+	 */
+	public synchronized void putProperties(File file, PropertyTree properties) throws IOException {
+		this.properties.put(key(file), new Entry<PropertyTree>(file, properties.copy()));
+	}
+
+	/**
+	 * @param file
+	 * @return a copy of the properties of 'file' (which can be modified), or
+	 * null if they are not in the context or if the file was modified since
+	 * @throws IOException
+	 */
+	public synchronized PropertyTree getProperties(File file) throws IOException {
+		File key = key(file);
+		Entry<PropertyTree> entry = properties.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.isFresh(file)) {
+			properties.remove(key);
+			return null;
+		}
+		return entry.value.copy();
+	}
+
+	/**
+	 * <p>
+	 * This records an application which has been unmarshalled from 'file' and
+	 * not modified.
+	 * </p>
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void putApplication(File file, ApplicationManagement application) throws IOException {
+		applications.put(key(file), new Entry<ApplicationManagement>(file, application));
+	}
+
+	/**
+	 * <p>
+	 * The application is removed from the context because the caller will
+	 * modify it.
+	 * </p>
+	 *
+	 * @param file
+	 * @return the application unmarshalled from 'file', or null if it is not
+	 * in the context or if the file was modified since
+	 * @throws IOException
+	 */
+	public synchronized ApplicationManagement takeApplication(File file) throws IOException {
+		Entry<ApplicationManagement> entry = applications.remove(key(file));
+		if (entry == null || !entry.isFresh(file)) {
+			return null;
+		}
+		return entry.value;
+	}
+
+}
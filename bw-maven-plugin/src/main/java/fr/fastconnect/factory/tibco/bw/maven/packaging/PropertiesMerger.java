@@ -0,0 +1,319 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+/**
+ * <p>
+ * This class merges reference or common properties into the Global Variables
+ * and Services properties extracted from an EAR.
+ * </p>
+ * <p>
+ * It does not depend on files nor on a Maven project so that the same merge
+ * can be applied to several sets of properties (for instance one per
+ * environment) by {@link MergePropertiesMojo} and
+ * {@link PackageEnvironmentsMojo}.<br />
+ * An instance keeps track of the named bindings it has already created from
+ * the empty bindings: use one instance per set of merged properties.
+ * </p>
+ */
+public class PropertiesMerger {
+
+	private final static String regexNotEmptyBinding = "^bw\\[(.*)\\]/bindings/binding\\[(.+)\\]/(.*)$";
+	private final static String regexEmptyBinding = "^bw\\[(.*)\\]/bindings/binding(\\[\\])/(.*)$";
+	private final static Pattern patternNotEmptyBinding = Pattern.compile(regexNotEmptyBinding);
+	private final static Pattern patternEmptyBinding = Pattern.compile(regexEmptyBinding);
+
+	private final static Pattern patternVariable = Pattern.compile("bw\\[[^\\**]*\\]/variables\\[.*\\]/variable\\[.*\\]"); // is a wildcard only if it has a '*' in bw[] for variables (because a variable can have '*' in their name)
+	private final static Pattern patternIgnoreWildcardInVariables = Pattern.compile("(.*)variables\\\\\\[(.*)\\\\\\]\\/variable\\\\\\[(.*)\\\\\\](.*)");
+
+	private Set<ImmutablePair<String, String>> pairParInstance = new HashSet<ImmutablePair<String, String>>(); // keep trace of dynamically created bindings (to generate them only once)
+
+	/**
+	 * <p>
+	 * This merges reference Global Variables into Global Variables: values
+	 * are added or overridden.
+	 * </p>
+	 */
+	public void mergeGlobalVariables(PropertyTree globalVariables, PropertyTree reference) {
+		for (String key : reference.keys()) {
+			String value = reference.getProperty(key);
+
+			globalVariables.setProperty(key, value); // add or override value
+		}
+	}
+
+	/**
+	 * <p>
+	 * This merges reference Services into Services: values are added or
+	 * overridden, named bindings are created from the empty binding of their
+	 * PAR and the wild cards are expanded.
+	 * </p>
+	 *
+	 * @return the merged Services
+	 */
+	public PropertyTree mergeServices(PropertyTree services, PropertyTree reference) {
+		String par, binding;
+		HashMap<String, List<ImmutablePair<String, Integer>>> newBindings = new HashMap<String, List<ImmutablePair<String, Integer>>>(); // named bindings to create from the empty binding (with the position of their first key), by PAR
+		HashMap<String, Integer> positions = new HashMap<String, Integer>(); // position of the reference keys
+		HashMap<String, String> overriddenEmptyBindings = new HashMap<String, String>(); // values of the empty bindings before being overridden by the reference
+		int position = 0;
+		for (String key : reference.keys()) {
+			
+			Matcher mNotEmptyBinding = patternNotEmptyBinding.matcher(key);
+			
+			if (mNotEmptyBinding.matches() && !isAWildCard(key)) {
+				par = mNotEmptyBinding.group(1);
+				binding = mNotEmptyBinding.group(2);
+				ImmutablePair<String, String> pair = new ImmutablePair<String, String>(par, binding);
+				if (pairParInstance.add(pair)) {
+					List<ImmutablePair<String, Integer>> bindings = newBindings.get(par);
+					if (bindings == null) {
+						bindings = new ArrayList<ImmutablePair<String, Integer>>();
+						newBindings.put(par, bindings);
+					}
+					bindings.add(new ImmutablePair<String, Integer>(binding, position));
+				}
+			}
+			if (patternEmptyBinding.matcher(key).matches()) {
+				overriddenEmptyBindings.put(key, services.getProperty(key));
+			}
+			positions.put(key, position++);
+			
+			String value = reference.getProperty(key);
+			
+			services.setProperty(key, value); // add or override value
+		}
+		
+		if (!newBindings.isEmpty()) {
+			services = duplicateEmptyBindings(services, newBindings, positions, overriddenEmptyBindings);
+		}
+		
+		return expandWildCards(services);
+	}
+
+	/**
+	 * <p>
+	 * This will create the named bindings found in the reference properties
+	 * by copying the properties of the empty binding ("binding[]") of their
+	 * PAR. The properties of the empty bindings are grouped by PAR in a single
+	 * pass, then all the named bindings are created.
+	 * </p>
+	 * <p>
+	 * A named binding is a copy of the empty binding as it was when the first
+	 * key of the named binding was read from the reference properties: only
+	 * the reference keys read before this one are taken into account, and
+	 * the reference keys of the named binding read after it override the
+	 * copy.
+	 * </p>
+	 *
+	 * @param newBindings, the named bindings to create with the position of
+	 * their first key in the reference properties, by PAR
+	 * @param positions, the positions of the keys in the reference properties
+	 * @param overriddenEmptyBindings, the values of the empty bindings keys
+	 * before being overridden by the reference properties
+	 */
+	private PropertyTree duplicateEmptyBindings(PropertyTree properties, Map<String, List<ImmutablePair<String, Integer>>> newBindings, Map<String, Integer> positions, Map<String, String> overriddenEmptyBindings) {
+		HashMap<String, List<ImmutablePair<String, String>>> emptyBindings = new HashMap<String, List<ImmutablePair<String, String>>>(); // (key suffix, key) by PAR
+
+		for (String key : properties.keys()) {
+			Matcher mEmptyBinding = patternEmptyBinding.matcher(key);
+			if (mEmptyBinding.matches() && newBindings.containsKey(mEmptyBinding.group(1))) {
+				String par = mEmptyBinding.group(1);
+				List<ImmutablePair<String, String>> suffixes = emptyBindings.get(par);
+				if (suffixes == null) {
+					suffixes = new ArrayList<ImmutablePair<String, String>>();
+					emptyBindings.put(par, suffixes);
+				}
+				suffixes.add(new ImmutablePair<String, String>(mEmptyBinding.group(3), key));
+			}
+		}
+
+		for (Entry<String, List<ImmutablePair<String, String>>> emptyBinding : emptyBindings.entrySet()) {
+			String par = emptyBinding.getKey();
+			for (ImmutablePair<String, Integer> binding : newBindings.get(par)) {
+				int position = binding.getRight();
+				String prefix = "bw[" + par + "]/bindings/binding[" + binding.getLeft() + "]/";
+				for (ImmutablePair<String, String> suffix : emptyBinding.getValue()) {
+					String emptyBindingKey = suffix.getRight();
+					String value;
+					Integer emptyBindingPosition = positions.get(emptyBindingKey);
+					if (emptyBindingPosition == null || emptyBindingPosition < position) {
+						value = properties.getProperty(emptyBindingKey);
+					} else {
+						value = overriddenEmptyBindings.get(emptyBindingKey);
+					}
+					if (value == null) {
+						continue; // the key of the empty binding did not exist yet
+					}
+
+					String key = prefix + suffix.getLeft();
+					Integer keyPosition = positions.get(key);
+					if (keyPosition == null || keyPosition < position) {
+						properties.setProperty(key, value);
+					}
+				}
+			}
+		}
+		return properties;
+	}
+
+	public static boolean isAWildCard(String key) {
+		return key.contains("*") && !patternVariable.matcher(key).matches();
+	}
+
+	/**
+	 * <p>
+	 * This compiles a key with wild cards to a regular expression.<br />
+	 * The '*' in the names of variables ("variables[...]/variable[...]") are
+	 * not wild cards.
+	 * </p>
+	 */
+	public static Pattern compileWildCard(String keyWithWildCards) {
+		String regex = AbstractPackagingMojo.wildcardToRegex(keyWithWildCards);
+
+		Matcher m = patternIgnoreWildcardInVariables.matcher(regex);
+		if (m.matches()) {
+			String variables = m.group(2);
+			String variable = m.group(3);
+			variables = variables.replace(".*", "\\*");
+			variable = variable.replace(".*", "\\*");
+			regex = m.group(1) + "variables\\[" + variables + "\\]/variable\\[" + variable + "\\]" + m.group(4);
+		}
+
+		return Pattern.compile(regex);
+	}
+
+	/**
+	 * <p>
+	 * This expands wild cards properties.<br /><br />
+	 * Both wildcard expressions and expressions to expand are present in the
+	 * same properties object.<br /><br />
+	 * <i>Example</i>
+	 *  <ul>
+	 * 	 <li><b>property with wildcard</b>: /root/element[*]/key=new_value</li>
+	 * 	 <li><b>property matching</b>: /root/element[my_name]/key=old_value</li>
+	 *  </ul>
+	 *  will expand to:<br />
+	 *  <ul>
+	 * 	 <li><b>property after expansion</b>:
+	 * /root/element[my_name]/key=new_value</li>
+	 *  </ul>
+	 * </p>
+	 * 
+	 * @param properties, the properties object with wildcard expressions and
+	 * expressions to expand
+	 * @return properties with expanded expressions, but without wildcard
+	 * expressions
+	 */
+	public static PropertyTree expandWildCards(PropertyTree properties) {
+		TreeMap<String, String> propertiesWithWildCards = new TreeMap<String, String>(); // sorted properties
+		
+		// retrieve the keys with WildCards
+		for (String key : properties.keys()) {
+			if (isAWildCard(key)) {
+				propertiesWithWildCards.put(key, properties.getProperty(key));
+				properties.remove(key);
+			}
+		}
+		if (propertiesWithWildCards.isEmpty()) {
+			return properties;
+		}
+
+		WildcardIndex index = new WildcardIndex(properties.keys());
+		List<String> falsePositives = new ArrayList<String>();
+		
+		// try to replace the values of other keys matching the keys with WildCards
+		for (Entry<String, String> wildCard : propertiesWithWildCards.entrySet()) {
+			String keyWithWildCards = wildCard.getKey();
+			String value = wildCard.getValue();
+			Pattern pattern = compileWildCard(keyWithWildCards);
+
+			Boolean found = false;
+
+			for (String key : index.match(keyWithWildCards, pattern)) {
+				found = true;
+				properties.setProperty(key, value);
+			}
+			// the expressions put back by previous passes are not indexed
+			for (String key : falsePositives) {
+				if (pattern.matcher(key).matches()) {
+					found = true;
+					properties.setProperty(key, value);
+				}
+			}
+
+			// not found, we put back the expression with wild cards in the original list (false positive)
+			// this way the wildcard can still be used in a next pass and will be removed at the end by removeWildCards 
+			if (!found) {
+				properties.setProperty(keyWithWildCards, value);
+				falsePositives.add(keyWithWildCards);
+			}
+		}
+		
+		return properties;
+	}
+
+	public static PropertyTree removeWildCards(PropertyTree properties) {
+		for (String key : properties.keys()) {
+			if (isAWildCard(key)) {
+				properties.remove(key);
+			}
+		}
+		
+		return properties;
+	}
+
+	public static PropertyTree removeEmptyBindings(PropertyTree properties) {
+		HashSet<String> pars = new HashSet<String>();
+		
+		String parName;
+		
+		// first check if there is at least one non empty binding (non default)
+		for (String key : properties.keys()) {
+			Matcher mNotEmptyBinding = patternNotEmptyBinding.matcher(key);
+			if (mNotEmptyBinding.matches()) {
+				parName = mNotEmptyBinding.group(1);
+				pars.add(parName);
+			}
+		}
+		// then delete the empty bindings of these PARs
+		for (String par : pars) {
+			for (String key : properties.keys("bw[" + par + "]/bindings/binding[]/")) {
+				Matcher mEmptyBinding = patternEmptyBinding.matcher(key);
+				if (mEmptyBinding.matches() && mEmptyBinding.group(1).equals(par)) {
+					properties.remove(key);
+				}
+			}
+		}
+		
+		return properties;
+	}
+
+}
@@ -0,0 +1,303 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.util.HashMap;
+
+/**
+ * <p>
+ * This class parses the keys of the flat Services properties files, for
+ * instance
+ * <i>bw[Process Archive.par]/bindings/binding[Y]/setting/java/maxHeapSize</i>,
+ * into {@link Segment} objects.
+ * </p>
+ * <p>
+ * Parsed prefixes are kept in a trie: keys sharing a prefix (which is the
+ * case of almost all the keys of a Services properties file) share the same
+ * {@link Segment} instances, so each distinct prefix is parsed only once.
+ * The flat path of a segment (used as the cache key of
+ * {@link ApplicationManagement#getElement(Segment, String, Object)}) is also
+ * computed once.
+ * </p>
+ * <p>
+ * Instances of this class are not thread-safe.
+ * </p>
+ */
+public class PropertyPathParser {
+
+	protected static final char FLAT_PATH_SEPARATOR = '/';
+
+	/**
+	 * <p>
+	 * An element of a property key, for instance <i>binding[Y]</i>.
+	 * </p>
+	 */
+	public static class Segment {
+		private final String element;
+		private final String name;
+		private final String attribute;
+		private final String path;
+
+		private Segment(String element, String name, String attribute, String path) {
+			this.element = element;
+			this.name = name;
+			this.attribute = attribute;
+			this.path = path;
+		}
+
+		/**
+		 * @return the raw element, for instance <i>binding[Y]</i>
+		 */
+		public String getElement() {
+			return element;
+		}
+
+		/**
+		 * @return the name of the element, for instance <i>binding</i>, or
+		 * null if the element is not a well-formed element
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the name attribute between brackets, for instance <i>Y</i>,
+		 * or null if the element has no brackets
+		 */
+		public String getAttribute() {
+			return attribute;
+		}
+
+		/**
+		 * @return the flat path from the root to this element, for instance
+		 * <i>/bw[X.par]/bindings/binding[Y]</i>
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		@Override
+		public String toString() {
+			return path;
+		}
+	}
+
+	private static class Node {
+		private final String element;
+		private final int hash;
+		private final Segment[] segments;
+		private Node[] children;
+		private int size;
+
+		private Node(String element, int hash, Segment[] segments) {
+			this.element = element;
+			this.hash = hash;
+			this.segments = segments;
+		}
+
+		/**
+		 * Open addressing lookup of the child matching key[start, end[ so that
+		 * no substring is created for prefixes already known.
+		 */
+		private Node get(String key, int start, int end, int hash) {
+			if (children == null) {
+				return null;
+			}
+			int length = end - start;
+			int mask = children.length - 1;
+			for (int i = hash & mask; children[i] != null; i = (i + 1) & mask) {
+				Node child = children[i];
+				if (child.hash == hash && child.element.length() == length && key.regionMatches(start, child.element, 0, length)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		private void put(Node child) {
+			if (children == null) {
+				children = new Node[4];
+			} else if ((size + 1) * 4 > children.length * 3) {
+				Node[] old = children;
+				children = new Node[old.length * 2];
+				for (Node n : old) {
+					if (n != null) {
+						insert(n);
+					}
+				}
+			}
+			insert(child);
+			size++;
+		}
+
+		private void insert(Node child) {
+			int mask = children.length - 1;
+			int i = child.hash & mask;
+			while (children[i] != null) {
+				i = (i + 1) & mask;
+			}
+			children[i] = child;
+		}
+	}
+
+	private final Node root;
+	private final HashMap<String, String> names;
+
+	public PropertyPathParser() {
+		this.root = new Node("", 0, new Segment[0]);
+		this.names = new HashMap<String, String>();
+	}
+
+	/**
+	 * <p>
+	 * This method splits a property key into its elements. Elements are
+	 * separated by '/' except inside brackets.
+	 * </p>
+	 *
+	 * @param key
+	 * @return the segments of the key, from the root to the leaf. The returned
+	 * array is shared with other keys having the same path and must not be
+	 * modified.
+	 */
+	public Segment[] parse(String key) {
+		Node node = root;
+		int length = key.length();
+		int start = 0;
+		while ((start = findElement(key, start)) < length) {
+			int end = endOfElement(key, start);
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + key.charAt(i);
+			}
+			Node child = node.get(key, start, end, hash);
+			if (child == null) {
+				child = createNode(node, key.substring(start, end), hash);
+				node.put(child);
+			}
+			node = child;
+			start = end + 1; // skip the separator
+		}
+		return node.segments;
+	}
+
+	private Node createNode(Node parent, String element, int hash) {
+		String name = null;
+		String attribute = null;
+		int bracket = element.indexOf('[');
+		int nameEnd = bracket < 0 ? element.length() : bracket;
+		boolean valid = nameEnd > 0;
+		for (int i = 0; valid && i < nameEnd; i++) {
+			valid = isWordChar(element.charAt(i));
+		}
+		if (valid && bracket >= 0) {
+			int last = element.length() - 1;
+			valid = element.charAt(last) == ']';
+			for (int i = bracket + 1; valid && i < last; i++) {
+				valid = isAttributeChar(element.charAt(i));
+			}
+			if (valid) {
+				attribute = intern(element.substring(bracket + 1, last));
+			}
+		}
+		if (valid) {
+			name = intern(element.substring(0, nameEnd));
+		}
+
+		Segment[] parentSegments = parent.segments;
+		String parentPath = parentSegments.length == 0 ? "" : parentSegments[parentSegments.length - 1].getPath();
+		Segment segment = new Segment(element, name, attribute, parentPath + FLAT_PATH_SEPARATOR + element);
+
+		Segment[] segments = new Segment[parentSegments.length + 1];
+		System.arraycopy(parentSegments, 0, segments, 0, parentSegments.length);
+		segments[parentSegments.length] = segment;
+
+		return new Node(element, hash, segments);
+	}
+
+	private String intern(String s) {
+		String result = names.get(s);
+		if (result == null) {
+			names.put(s, s);
+			result = s;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the index of the first character of the next element starting
+	 * at or after 'from', or the length of the key if there is none
+	 */
+	private static int findElement(String key, int from) {
+		int length = key.length();
+		while (from < length && !isWordChar(key.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * <p>
+	 * An element is a sequence of words optionally followed by a name
+	 * attribute between brackets. Brackets which are not closed, or which
+	 * contain an invalid character, are not part of the element.
+	 * </p>
+	 *
+	 * @return the index following the last character of the element starting
+	 * at 'start'
+	 */
+	private static int endOfElement(String key, int start) {
+		int length = key.length();
+		int i = start;
+		while (i < length && isWordChar(key.charAt(i))) {
+			i++;
+			while (i < length && isWordChar(key.charAt(i))) {
+				i++;
+			}
+			if (i < length && key.charAt(i) == '[') {
+				int j = i + 1;
+				while (j < length && isBracketChar(key.charAt(j))) {
+					j++;
+				}
+				if (j < length && key.charAt(j) == ']') {
+					i = j + 1;
+				} else {
+					break;
+				}
+			}
+		}
+		return i;
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * characters allowed between brackets when splitting a key
+	 */
+	private static boolean isBracketChar(char c) {
+		return isWordChar(c) || (c >= ' ' && c <= '.') || c == '/' || c == '?';
+	}
+
+	/**
+	 * characters allowed in a name attribute
+	 */
+	private static boolean isAttributeChar(char c) {
+		return isWordChar(c) || c == '-' || c == ' ' || c == '*' || c == '.' || c == '/' || c == '?';
+	}
+
+}
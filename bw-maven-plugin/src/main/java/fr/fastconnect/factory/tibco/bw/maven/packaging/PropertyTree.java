@@ -0,0 +1,642 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+/**
+ * <p>
+ * This class is a sorted key/value store for the flat properties used by the
+ * packaging goals (Global Variables and Services properties files).
+ * </p>
+ * <p>
+ * Keys are stored in a radix tree (compressed prefix tree): the long prefixes
+ * shared by the keys (<i>bw[EXAMPLE.par]/bindings/binding[]/...</i>) are
+ * stored once. Keys are always browsed in the natural order of
+ * {@link String}, so there is no need to sort them before saving them and
+ * all the keys starting with a given prefix can be retrieved directly.
+ * </p>
+ * <p>
+ * The methods returning keys return a copy: the tree can be modified while
+ * browsing them.<br />
+ * Files are read with the same syntax as {@link Properties#load(Reader)} and
+ * written with the same syntax as {@link Properties#store(Writer, String)}.
+ * </p>
+ * <p>
+ * {@link #copy()} returns a copy sharing all the nodes of the tree: nodes are
+ * duplicated only when they are modified in one of the trees (copy-on-write),
+ * so a copy of a large tree costs only the nodes on the paths of the modified
+ * keys. This is used to derive the properties of several environments from
+ * the same base properties.
+ * </p>
+ * <p>
+ * Instances of this class are not thread-safe. A tree and its copies can be
+ * used by different threads.
+ * </p>
+ */
+public class PropertyTree {
+
+	private static class Node {
+		private String label;
+		private String value;
+		private Node[] children;
+		private int childrenCount;
+		/**
+		 * the tree which can modify this node in place, other trees sharing
+		 * this node must copy it before modifying it
+		 */
+		private final Object owner;
+
+		private Node(String label, String value, Object owner) {
+			this.label = label;
+			this.value = value;
+			this.owner = owner;
+		}
+
+		private Node copy(Object owner) {
+			Node result = new Node(label, value, owner);
+			if (children != null) {
+				result.children = children.clone();
+			}
+			result.childrenCount = childrenCount;
+			return result;
+		}
+
+		/**
+		 * @return the index of the child whose label starts with c, or
+		 * (-(insertion point) - 1) if there is none
+		 */
+		private int indexOf(char c) {
+			int low = 0;
+			int high = childrenCount - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				char m = children[middle].label.charAt(0);
+				if (m < c) {
+					low = middle + 1;
+				} else if (m > c) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+			return -(low + 1);
+		}
+
+		private void insert(int index, Node child) {
+			if (children == null) {
+				children = new Node[2];
+			} else if (childrenCount == children.length) {
+				Node[] old = children;
+				children = new Node[old.length * 2];
+				System.arraycopy(old, 0, children, 0, childrenCount);
+			}
+			System.arraycopy(children, index, children, index + 1, childrenCount - index);
+			children[index] = child;
+			childrenCount++;
+		}
+
+		private void delete(int index) {
+			childrenCount--;
+			System.arraycopy(children, index + 1, children, index, childrenCount - index);
+			children[childrenCount] = null;
+		}
+
+		/**
+		 * merge a node with no value with its only child
+		 */
+		private void compact() {
+			if (value == null && childrenCount == 1 && !label.isEmpty()) {
+				Node child = children[0];
+				label = label + child.label;
+				value = child.value;
+				if (child.owner == owner || child.children == null) {
+					children = child.children;
+				} else {
+					children = child.children.clone(); // do not share the array of a shared node
+				}
+				childrenCount = child.childrenCount;
+			}
+		}
+	}
+
+	private Node root;
+	private Object owner;
+	private int size;
+
+	public PropertyTree() {
+		this.owner = new Object();
+		this.root = new Node("", null, owner);
+		this.size = 0;
+	}
+
+	private PropertyTree(Node root, int size) {
+		this.owner = new Object();
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * <p>
+	 * This method returns a copy of this tree in constant time. The nodes are
+	 * shared by both trees until they are modified.
+	 * </p>
+	 */
+	public PropertyTree copy() {
+		// neither tree owns the current nodes anymore
+		this.owner = new Object();
+		return new PropertyTree(root, size);
+	}
+
+	private Node writableRoot() {
+		if (root.owner != owner) {
+			root = root.copy(owner);
+		}
+		return root;
+	}
+
+	/**
+	 * @param parent, a node owned by this tree
+	 * @return the child at 'index' of the parent, copied first if it is shared
+	 */
+	private Node writableChild(Node parent, int index) {
+		Node child = parent.children[index];
+		if (child.owner != owner) {
+			child = child.copy(owner);
+			parent.children[index] = child;
+		}
+		return child;
+	}
+
+	public static PropertyTree fromProperties(Properties properties) {
+		PropertyTree result = new PropertyTree();
+		result.putAll(properties);
+		return result;
+	}
+
+	public static PropertyTree fromMap(Map<String, String> map) {
+		PropertyTree result = new PropertyTree();
+		for (Entry<String, String> entry : map.entrySet()) {
+			result.setProperty(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		root = new Node("", null, owner);
+		size = 0;
+	}
+
+	private Node find(String key) {
+		Node node = root;
+		int i = 0;
+		int length = key.length();
+		while (i < length) {
+			int index = node.indexOf(key.charAt(i));
+			if (index < 0) {
+				return null;
+			}
+			Node child = node.children[index];
+			int labelLength = child.label.length();
+			if (!key.regionMatches(i, child.label, 0, labelLength)) {
+				return null;
+			}
+			node = child;
+			i += labelLength;
+		}
+		return node;
+	}
+
+	public String getProperty(String key) {
+		Node node = find(key);
+		return node == null ? null : node.value;
+	}
+
+	public String getProperty(String key, String defaultValue) {
+		String value = getProperty(key);
+		return value == null ? defaultValue : value;
+	}
+
+	public boolean containsKey(String key) {
+		return getProperty(key) != null;
+	}
+
+	/**
+	 * <p>
+	 * Adds or replaces a property. A null value is ignored.
+	 * </p>
+	 *
+	 * @return the previous value of the property
+	 */
+	public String setProperty(String key, String value) {
+		if (key == null || value == null) {
+			return null;
+		}
+
+		Node node = writableRoot();
+		int i = 0;
+		int length = key.length();
+		while (i < length) {
+			int index = node.indexOf(key.charAt(i));
+			if (index < 0) {
+				node.insert(-index - 1, new Node(key.substring(i), value, owner));
+				size++;
+				return null;
+			}
+
+			Node child = node.children[index];
+			String label = child.label;
+			int common = 1; // first character already matched
+			int max = Math.min(label.length(), length - i);
+			while (common < max && label.charAt(common) == key.charAt(i + common)) {
+				common++;
+			}
+
+			if (common < label.length()) {
+				// split the edge
+				Node middle = new Node(label.substring(0, common), null, owner);
+				child = writableChild(node, index);
+				child.label = label.substring(common);
+				middle.insert(0, child);
+				node.children[index] = middle;
+				child = middle;
+			} else {
+				child = writableChild(node, index);
+			}
+			node = child;
+			i += common;
+		}
+
+		String previous = node.value;
+		node.value = value;
+		if (previous == null) {
+			size++;
+		}
+		return previous;
+	}
+
+	public String setProperty(String key, BigInteger value) {
+		if (value == null) {
+			return null;
+		}
+		return setProperty(key, value.toString());
+	}
+
+	public String setProperty(String key, Boolean value) {
+		if (value == null) {
+			return null;
+		}
+		return setProperty(key, value.toString());
+	}
+
+	/**
+	 * @return the removed value, or null if the property did not exist
+	 */
+	public String remove(String key) {
+		if (getProperty(key) == null) {
+			return null; // nothing to copy
+		}
+
+		List<Node> path = new ArrayList<Node>();
+		List<Integer> indexes = new ArrayList<Integer>();
+
+		Node node = writableRoot();
+		int i = 0;
+		int length = key.length();
+		while (i < length) {
+			int index = node.indexOf(key.charAt(i));
+			Node child = writableChild(node, index);
+			int labelLength = child.label.length();
+			path.add(node);
+			indexes.add(index);
+			node = child;
+			i += labelLength;
+		}
+
+		String previous = node.value;
+		if (previous == null) {
+			return null;
+		}
+		node.value = null;
+		size--;
+
+		if (node.childrenCount == 0 && !path.isEmpty()) {
+			Node parent = path.get(path.size() - 1);
+			parent.delete(indexes.get(indexes.size() - 1));
+			parent.compact();
+		} else {
+			node.compact();
+		}
+
+		return previous;
+	}
+
+	public void putAll(PropertyTree properties) {
+		List<String> keys = new ArrayList<String>();
+		List<String> values = new ArrayList<String>();
+		collect(properties.root, new StringBuilder(), keys, values);
+		for (int i = 0; i < keys.size(); i++) {
+			setProperty(keys.get(i), values.get(i));
+		}
+	}
+
+	public void putAll(Properties properties) {
+		for (String key : properties.stringPropertyNames()) {
+			setProperty(key, properties.getProperty(key));
+		}
+	}
+
+	private static void collect(Node node, StringBuilder key, List<String> keys, List<String> values) {
+		int length = key.length();
+		key.append(node.label);
+		if (node.value != null) {
+			keys.add(key.toString());
+			if (values != null) {
+				values.add(node.value);
+			}
+		}
+		for (int i = 0; i < node.childrenCount; i++) {
+			collect(node.children[i], key, keys, values);
+		}
+		key.setLength(length);
+	}
+
+	/**
+	 * @return the keys, sorted
+	 */
+	public List<String> keys() {
+		List<String> result = new ArrayList<String>(size);
+		collect(root, new StringBuilder(), result, null);
+		return result;
+	}
+
+	/**
+	 * @return the keys starting with the given prefix, sorted
+	 */
+	public List<String> keys(String prefix) {
+		List<String> result = new ArrayList<String>();
+
+		Node node = root;
+		StringBuilder key = new StringBuilder();
+		int i = 0;
+		int length = prefix.length();
+		while (i < length) {
+			int index = node.indexOf(prefix.charAt(i));
+			if (index < 0) {
+				return result;
+			}
+			Node child = node.children[index];
+			int remaining = length - i;
+			int labelLength = child.label.length();
+			if (remaining <= labelLength) {
+				if (!child.label.startsWith(prefix.substring(i))) {
+					return result;
+				}
+			} else if (!prefix.regionMatches(i, child.label, 0, labelLength)) {
+				return result;
+			}
+			key.append(node.label);
+			node = child;
+			i += labelLength;
+		}
+
+		collect(node, key, result, null);
+		return result;
+	}
+
+	/**
+	 * @return the properties, sorted by key
+	 */
+	public Map<String, String> toMap() {
+		List<String> keys = new ArrayList<String>(size);
+		List<String> values = new ArrayList<String>(size);
+		collect(root, new StringBuilder(), keys, values);
+
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		for (int i = 0; i < keys.size(); i++) {
+			result.put(keys.get(i), values.get(i));
+		}
+		return result;
+	}
+
+	public Properties toProperties() {
+		Properties result = new Properties();
+		result.putAll(toMap());
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Reads properties from a byte stream in the ISO 8859-1 encoding, like
+	 * {@link Properties#load(InputStream)}.
+	 * </p>
+	 */
+	public void load(InputStream inStream) throws IOException {
+		newLoader().load(inStream);
+	}
+
+	/**
+	 * <p>
+	 * Reads properties from a character stream, like
+	 * {@link Properties#load(Reader)}.
+	 * </p>
+	 */
+	public void load(Reader reader) throws IOException {
+		newLoader().load(reader);
+	}
+
+	/**
+	 * The parsing of java.util.Properties is reused but the parsed entries are
+	 * put directly in this tree.
+	 */
+	private Properties newLoader() {
+		return new Properties() {
+			private static final long serialVersionUID = -4386235720936520317L;
+
+			@Override
+			public synchronized Object put(Object key, Object value) {
+				return PropertyTree.this.setProperty((String) key, (String) value);
+			}
+		};
+	}
+
+	/**
+	 * <p>
+	 * Writes the properties, sorted by key, to a byte stream in the ISO 8859-1
+	 * encoding, like {@link Properties#store(OutputStream, String)}.
+	 * </p>
+	 */
+	public void store(OutputStream out, String comments) throws IOException {
+		store(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1)), comments, true);
+	}
+
+	/**
+	 * <p>
+	 * Writes the properties, sorted by key, to a character stream, like
+	 * {@link Properties#store(Writer, String)}.
+	 * </p>
+	 */
+	public void store(Writer writer, String comments) throws IOException {
+		store(writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer), comments, false);
+	}
+
+	private void store(BufferedWriter writer, String comments, boolean escapeUnicode) throws IOException {
+		if (comments != null) {
+			writeComments(writer, comments);
+		}
+		writer.write("#" + new Date().toString());
+		writer.newLine();
+
+		List<String> keys = new ArrayList<String>(size);
+		List<String> values = new ArrayList<String>(size);
+		collect(root, new StringBuilder(), keys, values);
+		for (int i = 0; i < keys.size(); i++) {
+			writer.write(escape(keys.get(i), true, escapeUnicode));
+			writer.write('=');
+			writer.write(escape(values.get(i), false, escapeUnicode));
+			writer.newLine();
+		}
+		writer.flush();
+	}
+
+	private static void appendUnicode(StringBuilder builder, char c) {
+		builder.append("\\u");
+		String hex = Integer.toHexString(c).toUpperCase();
+		for (int i = hex.length(); i < 4; i++) {
+			builder.append('0');
+		}
+		builder.append(hex);
+	}
+
+	/**
+	 * same escaping as java.util.Properties
+	 */
+	private static String escape(String s, boolean escapeSpace, boolean escapeUnicode) {
+		int length = s.length();
+		StringBuilder result = new StringBuilder(length * 2);
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c > 61 && c < 127) {
+				if (c == '\\') {
+					result.append("\\\\");
+				} else {
+					result.append(c);
+				}
+				continue;
+			}
+			switch (c) {
+			case ' ':
+				if (i == 0 || escapeSpace) {
+					result.append('\\');
+				}
+				result.append(' ');
+				break;
+			case '\t':
+				result.append("\\t");
+				break;
+			case '\n':
+				result.append("\\n");
+				break;
+			case '\r':
+				result.append("\\r");
+				break;
+			case '\f':
+				result.append("\\f");
+				break;
+			case '=':
+			case ':':
+			case '#':
+			case '!':
+				result.append('\\').append(c);
+				break;
+			default:
+				if ((c < 0x0020 || c > 0x007e) && escapeUnicode) {
+					appendUnicode(result, c);
+				} else {
+					result.append(c);
+				}
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * same comments format as java.util.Properties
+	 */
+	private static void writeComments(BufferedWriter writer, String comments) throws IOException {
+		writer.write("#");
+		int length = comments.length();
+		int current = 0;
+		int last = 0;
+		while (current < length) {
+			char c = comments.charAt(current);
+			if (c > '\u00ff' || c == '\n' || c == '\r') {
+				if (last != current) {
+					writer.write(comments.substring(last, current));
+				}
+				if (c > '\u00ff') {
+					StringBuilder unicode = new StringBuilder(6);
+					appendUnicode(unicode, c);
+					writer.write(unicode.toString());
+				} else {
+					writer.newLine();
+					if (c == '\r' && current != length - 1 && comments.charAt(current + 1) == '\n') {
+						current++;
+					}
+					if (current == length - 1 || (comments.charAt(current + 1) != '#' && comments.charAt(current + 1) != '!')) {
+						writer.write("#");
+					}
+				}
+				last = current + 1;
+			}
+			current++;
+		}
+		if (last != current) {
+			writer.write(comments.substring(last, current));
+		}
+		writer.newLine();
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+
+}
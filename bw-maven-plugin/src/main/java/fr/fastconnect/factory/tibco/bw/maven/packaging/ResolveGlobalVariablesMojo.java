@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import fr.fastconnect.factory.tibco.bw.maven.compile.GlobalVariablesIndex;
+
+/**
+ * <p>
+ * This goal resolves the Global Variables of the project directly from the
+ * "defaultVars/**&#47;defaultVars.substvar" files of the project and of its
+ * projlibs (the project overriding the projlibs), without any AppManage
+ * export.
+ * </p>
+ * <p>
+ * The resolved Global Variables are saved in a properties file with the same
+ * format as the one generated by
+ * <a href="./generate-properties-from-xml-mojo.html">bw:generate-properties-from-xml</a>.
+ * If the Global Variables properties file of the deployment exists, the
+ * differences with the resolved Global Variables are reported.
+ * </p>
+ */
+@Mojo( name="resolve-global-variables",
+defaultPhase=LifecyclePhase.PREPARE_PACKAGE )
+public class ResolveGlobalVariablesMojo extends AbstractPackagingMojo {
+
+	protected final static String RESOLVING_GLOBAL_VARIABLES = "Resolving Global Variables from";
+	protected final static String RESOLVED_GLOBAL_VARIABLES = "Resolved Global Variables:";
+	protected final static String RESOLVE_GLOBAL_VARIABLES_FAILURE = "Failed to resolve Global Variables";
+	protected final static String PROPERTIES_SAVE_GVS_SUCCESS = "Successfully saved resolved Global Variables to file";
+	protected final static String PROPERTIES_SAVE_GVS_FAILURE = "Failed to save resolved Global Variables to file";
+	protected final static String PROPERTIES_LOAD_GVS_FAILURE = "Failed to load Global Variables from file";
+	protected final static String GLOBAL_VARIABLES_UP_TO_DATE = "The resolved Global Variables match";
+	protected final static String GLOBAL_VARIABLES_DIFFERENCES = "The resolved Global Variables differ from";
+
+	/**
+	 * The properties file where the resolved Global Variables are saved.
+	 */
+	@Parameter ( property="deploy.properties.globalVariables.resolved", defaultValue = "${project.package.directory}/${project.build.finalName}.resolved.gv.properties")
+	protected File resolvedGlobalVariables;
+
+	/**
+	 * Whether to keep only the deployment settable Global Variables, as
+	 * AppManage does when exporting the XML Deployment Descriptor.
+	 */
+	@Parameter ( property="bw.globalVariables.deploymentSettableOnly", defaultValue = "true")
+	protected boolean deploymentSettableOnly;
+
+	/**
+	 * Number of threads used to parse the ".substvar" files. Default (0) uses
+	 * the number of available processors.
+	 */
+	@Parameter ( property="bw.globalVariables.threads", defaultValue = "0")
+	protected Integer globalVariablesThreads;
+
+	/**
+	 * Whether to fail the build when the resolved Global Variables differ from
+	 * the Global Variables properties file of the deployment.
+	 */
+	@Parameter ( property="bw.globalVariables.failOnDifference", defaultValue = "false")
+	protected boolean failOnGlobalVariablesDifference;
+
+	@Override
+	protected String getArtifactFileExtension() {
+		return PROPERTIES_EXTENSION;
+	}
+
+	public void execute() throws MojoExecutionException {
+		if (super.skip()) {
+			return;
+		}
+
+		File sources = buildSrcDirectory != null && buildSrcDirectory.isDirectory() ? buildSrcDirectory : projectDirectory;
+		getLog().info(RESOLVING_GLOBAL_VARIABLES + " '" + sources + "'");
+
+		GlobalVariablesIndex index;
+		try {
+			List<String> projlibNames = new ArrayList<String>();
+			List<File> projlibs = new ArrayList<File>();
+			for (Dependency dependency : getProjlibsDependencies()) {
+				projlibNames.add(dependency.getArtifactId()); // copies of projlibs variables, see CompileEARMojo.cleanVarsDirectory
+				projlibs.add(new File(getDependencyPath(getProjlibName(dependency))));
+			}
+			index = GlobalVariablesIndex.build(sources, projlibNames, projlibs, globalVariablesThreads);
+		} catch (IOException e) {
+			throw new MojoExecutionException(RESOLVE_GLOBAL_VARIABLES_FAILURE, e);
+		}
+		getLog().info(RESOLVED_GLOBAL_VARIABLES + " " + index.size());
+
+		PropertyTree globalVariables = PropertyTree.fromMap(index.toMap(deploymentSettableOnly));
+		savePropertiesToFile(resolvedGlobalVariables,
+							 globalVariables,
+							 "Global Variables",
+							 PROPERTIES_SAVE_GVS_SUCCESS,
+							 PROPERTIES_SAVE_GVS_FAILURE);
+
+		if (deploymentGlobalVariables != null && deploymentGlobalVariables.exists()) {
+			compare(index);
+		}
+	}
+
+	private void compare(GlobalVariablesIndex index) throws MojoExecutionException {
+		PropertyTree reference;
+		try {
+			reference = loadPropertiesFile(deploymentGlobalVariables);
+		} catch (ConfigurationException | IOException e) {
+			throw new MojoExecutionException(PROPERTIES_LOAD_GVS_FAILURE + " '" + deploymentGlobalVariables + "'", e);
+		}
+
+		GlobalVariablesIndex.Difference difference = index.diff(reference.toMap(), deploymentSettableOnly);
+		if (difference.isEmpty()) {
+			getLog().info(GLOBAL_VARIABLES_UP_TO_DATE + " '" + deploymentGlobalVariables + "'");
+			return;
+		}
+
+		getLog().warn(GLOBAL_VARIABLES_DIFFERENCES + " '" + deploymentGlobalVariables + "'");
+		for (String name : difference.getAdded()) {
+			getLog().warn("  + " + name);
+		}
+		for (String name : difference.getRemoved()) {
+			getLog().warn("  - " + name);
+		}
+		for (String name : difference.getChanged()) {
+			getLog().warn("  ~ " + name);
+		}
+
+		if (failOnGlobalVariablesDifference) {
+			throw new MojoExecutionException(GLOBAL_VARIABLES_DIFFERENCES + " '" + deploymentGlobalVariables + "'");
+		}
+	}
+
+}
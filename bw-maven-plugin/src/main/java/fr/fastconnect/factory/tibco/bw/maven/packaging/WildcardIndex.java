@@ -0,0 +1,166 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * This class indexes property keys by their path segments (the parts of the
+ * keys separated by '/') so that the keys matching a wildcard expression can
+ * be found without testing the expression against every key.
+ * </p>
+ * <p>
+ * Two segment tries are built: one from the first segment of the keys and one
+ * from the last segment. The literal segments at the beginning and at the end
+ * of a wildcard expression select a subtree in each trie; only the keys of the
+ * smallest subtree are then tested against the compiled expression.
+ * </p>
+ * <p>
+ * <i>Example</i>: for <i>bw[*]/bindings/binding[*]/setting/java/maxHeapSize</i>
+ * only the keys ending with <i>/setting/java/maxHeapSize</i> are tested.
+ * </p>
+ */
+public class WildcardIndex {
+
+	protected static final char PATH_SEPARATOR = '/';
+
+	private static class Node {
+		private final HashMap<String, Node> children = new HashMap<String, Node>();
+		private final List<String> keys = new ArrayList<String>();
+
+		private Node getOrCreate(String segment) {
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node();
+				children.put(segment, child);
+			}
+			return child;
+		}
+	}
+
+	private final Node prefixes;
+	private final Node suffixes;
+
+	public WildcardIndex(Collection<String> keys) {
+		this.prefixes = new Node();
+		this.suffixes = new Node();
+
+		for (String key : keys) {
+			add(key);
+		}
+	}
+
+	private void add(String key) {
+		Node node = prefixes;
+		node.keys.add(key);
+		int start = 0;
+		int end;
+		while ((end = key.indexOf(PATH_SEPARATOR, start)) >= 0) {
+			node = node.getOrCreate(key.substring(start, end));
+			node.keys.add(key);
+			start = end + 1;
+		}
+		node.getOrCreate(key.substring(start)).keys.add(key);
+
+		node = suffixes;
+		node.keys.add(key);
+		end = key.length();
+		while ((start = key.lastIndexOf(PATH_SEPARATOR, end - 1)) >= 0) {
+			node = node.getOrCreate(key.substring(start + 1, end));
+			node.keys.add(key);
+			end = start;
+		}
+		node.getOrCreate(key.substring(0, end)).keys.add(key);
+	}
+
+	/**
+	 * <p>
+	 * A character of a wildcard expression is literal unless it is a wildcard
+	 * ('*', '?') or a character which is not escaped by
+	 * {@link AbstractPackagingMojo#wildcardToRegex(String)} and has a special
+	 * meaning in the resulting regular expression ('+').
+	 * </p>
+	 */
+	private static boolean isLiteral(char c) {
+		return c != '*' && c != '?' && c != '+';
+	}
+
+	/**
+	 * @return the keys which can match the wildcard expression, i.e. the keys
+	 * sharing its literal leading and trailing segments
+	 */
+	private List<String> getCandidates(String wildcard) {
+		int length = wildcard.length();
+		int firstWildcard = 0;
+		while (firstWildcard < length && isLiteral(wildcard.charAt(firstWildcard))) {
+			firstWildcard++;
+		}
+		int lastWildcard = length - 1;
+		while (lastWildcard >= 0 && isLiteral(wildcard.charAt(lastWildcard))) {
+			lastWildcard--;
+		}
+
+		// complete segments before the first wildcard character
+		Node prefix = prefixes;
+		int start = 0;
+		int end;
+		while (prefix != null && (end = wildcard.indexOf(PATH_SEPARATOR, start)) >= 0 && end < firstWildcard) {
+			prefix = prefix.children.get(wildcard.substring(start, end));
+			start = end + 1;
+		}
+		if (prefix == null) {
+			return new ArrayList<String>();
+		}
+
+		// complete segments after the last wildcard character
+		Node suffix = suffixes;
+		end = length;
+		while (suffix != null && (start = wildcard.lastIndexOf(PATH_SEPARATOR, end - 1)) > lastWildcard) {
+			suffix = suffix.children.get(wildcard.substring(start + 1, end));
+			end = start;
+		}
+		if (suffix == null) {
+			return new ArrayList<String>();
+		}
+
+		return prefix.keys.size() <= suffix.keys.size() ? prefix.keys : suffix.keys;
+	}
+
+	/**
+	 * @param wildcard, the wildcard expression
+	 * @param pattern, the compiled regular expression of the wildcard
+	 * expression
+	 * @return the indexed keys matching the pattern
+	 */
+	public List<String> match(String wildcard, Pattern pattern) {
+		List<String> result = new ArrayList<String>();
+
+		for (String key : getCandidates(wildcard)) {
+			if (pattern.matcher(key).matches()) {
+				result.add(key);
+			}
+		}
+
+		return result;
+	}
+
+}
@@ -18,14 +18,13 @@ package fr.fastconnect.factory.tibco.bw.maven.source;
 
 import java.io.File;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 
 import com.tibco.xmlns.bw.process._2003.ObjectFactory;
 import com.tibco.xmlns.bw.process._2003.ProcessDefinition;
 
+import fr.fastconnect.factory.tibco.bw.maven.jaxb.JAXBContextRegistry;
+
 /**
  * <p>
  * This class will<ul>
@@ -50,7 +49,6 @@ public class ProcessModel {
 		return process;
 	}
 
-	private JAXBContext jaxbContext;
 	private File xmlFile;
 
 	public ProcessModel(File xmlFile) throws JAXBException {
@@ -69,10 +67,7 @@ public class ProcessModel {
 	 * @throws JAXBException
 	 */
 	private void initProcessModel() throws JAXBException {
-		jaxbContext = JAXBContext.newInstance(ObjectFactory.class);
-
-		Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-		Object o =  jaxbUnmarshaller.unmarshal(xmlFile);
+		Object o = JAXBContextRegistry.unmarshal(xmlFile, ObjectFactory.class);
 		this.process = (ProcessDefinition) o;
 	}
 	
@@ -84,8 +79,6 @@ public class ProcessModel {
 	 * @throws JAXBException
 	 */
 	public void save() throws JAXBException {
-		Marshaller m = jaxbContext.createMarshaller();
-		m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);		
-		m.marshal(process, xmlFile);
+		JAXBContextRegistry.marshal(process, xmlFile, ObjectFactory.class);
 	}
 }
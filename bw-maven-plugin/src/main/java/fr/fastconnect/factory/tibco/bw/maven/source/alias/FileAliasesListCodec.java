@@ -0,0 +1,310 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.source.alias;
+
+import java.beans.XMLDecoder;
+import java.beans.XMLEncoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>
+ * This class decodes and encodes the "FILEALIASESLIST" property of the
+ * ".aliaslib" files. This property is a list of aliases serialized by TIBCO
+ * Designer with <i>java.beans.XMLEncoder</i> as an
+ * <i>ArrayList&lt;HashMap&lt;String, Object&gt;&gt;</i>.
+ * </p>
+ * <p>
+ * The codec only handles the subset of the format used by aliases (strings,
+ * booleans, integers, longs and nulls) and produces the same output as
+ * <i>XMLEncoder</i>. Anything else falls back to <i>XMLDecoder</i> and
+ * <i>XMLEncoder</i>.
+ * </p>
+ */
+public class FileAliasesListCodec {
+
+	private static final String ARRAY_LIST_CLASS = "java.util.ArrayList";
+	private static final String HASH_MAP_CLASS = "java.util.HashMap";
+
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+	/**
+	 * <p>
+	 * Thrown when the bean uses a construct outside the subset handled by the
+	 * codec.
+	 * </p>
+	 */
+	private static class UnsupportedBeanException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private UnsupportedBeanException(String message) {
+			super(message);
+		}
+	}
+
+	private FileAliasesListCodec() {
+	}
+
+	/**
+	 * @param xmlBean, the content of the "FILEALIASESLIST" property
+	 * @return the list of aliases
+	 */
+	public static ArrayList<HashMap<String, Object>> decode(String xmlBean) {
+		try {
+			XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(xmlBean));
+			try {
+				reader.nextTag();
+				if (!"java".equals(reader.getLocalName())) {
+					throw new UnsupportedBeanException("root element: " + reader.getLocalName());
+				}
+				reader.nextTag();
+				ArrayList<HashMap<String, Object>> result = readList(reader);
+				reader.nextTag(); // </java>
+				return result;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | UnsupportedBeanException | RuntimeException e) {
+			return decodeWithXMLDecoder(xmlBean);
+		}
+	}
+
+	@SuppressWarnings("unchecked") // unchecked because we know it's the type used by TIBCO BusinessWorks
+	private static ArrayList<HashMap<String, Object>> decodeWithXMLDecoder(String xmlBean) {
+		XMLDecoder d = new XMLDecoder(new ByteArrayInputStream(xmlBean.getBytes(StandardCharsets.UTF_8)));
+		try {
+			return (ArrayList<HashMap<String, Object>>) d.readObject();
+		} finally {
+			d.close();
+		}
+	}
+
+	private static ArrayList<HashMap<String, Object>> readList(XMLStreamReader reader) throws XMLStreamException, UnsupportedBeanException {
+		checkObject(reader, ARRAY_LIST_CLASS);
+		ArrayList<HashMap<String, Object>> result = new ArrayList<HashMap<String, Object>>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			checkVoid(reader, "add");
+			reader.nextTag();
+			result.add(readMap(reader));
+			reader.nextTag(); // </void>
+		}
+		return result;
+	}
+
+	private static HashMap<String, Object> readMap(XMLStreamReader reader) throws XMLStreamException, UnsupportedBeanException {
+		checkObject(reader, HASH_MAP_CLASS);
+		HashMap<String, Object> result = new HashMap<String, Object>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			checkVoid(reader, "put");
+			reader.nextTag();
+			Object key = readValue(reader);
+			if (!(key instanceof String)) {
+				throw new UnsupportedBeanException("key: " + key);
+			}
+			reader.nextTag();
+			result.put((String) key, readValue(reader));
+			reader.nextTag(); // </void>
+		}
+		return result;
+	}
+
+	private static Object readValue(XMLStreamReader reader) throws XMLStreamException, UnsupportedBeanException {
+		checkNoReference(reader);
+		String type = reader.getLocalName();
+		switch (type) {
+		case "string":
+			return readString(reader);
+		case "boolean":
+			return Boolean.valueOf(reader.getElementText().trim());
+		case "int":
+			return Integer.valueOf(reader.getElementText().trim());
+		case "long":
+			return Long.valueOf(reader.getElementText().trim());
+		case "null":
+			reader.nextTag();
+			return null;
+		default:
+			throw new UnsupportedBeanException("value: " + type);
+		}
+	}
+
+	private static String readString(XMLStreamReader reader) throws XMLStreamException, UnsupportedBeanException {
+		StringBuilder result = new StringBuilder();
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				result.append(reader.getText());
+			} else if (event == XMLStreamConstants.START_ELEMENT && "char".equals(reader.getLocalName())) {
+				String code = reader.getAttributeValue(null, "code");
+				if (code == null || !code.startsWith("#")) {
+					throw new UnsupportedBeanException("char: " + code);
+				}
+				result.appendCodePoint(Integer.parseInt(code.substring(1), 16));
+				reader.nextTag(); // </char>
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return result.toString();
+			} else if (event != XMLStreamConstants.COMMENT) {
+				throw new UnsupportedBeanException("string content");
+			}
+		}
+	}
+
+	private static void checkObject(XMLStreamReader reader, String className) throws UnsupportedBeanException {
+		checkNoReference(reader);
+		if (!"object".equals(reader.getLocalName()) || !className.equals(reader.getAttributeValue(null, "class"))) {
+			throw new UnsupportedBeanException("object: " + reader.getLocalName());
+		}
+	}
+
+	private static void checkVoid(XMLStreamReader reader, String method) throws UnsupportedBeanException {
+		checkNoReference(reader);
+		if (!"void".equals(reader.getLocalName()) || !method.equals(reader.getAttributeValue(null, "method"))) {
+			throw new UnsupportedBeanException("void: " + reader.getLocalName());
+		}
+	}
+
+	private static void checkNoReference(XMLStreamReader reader) throws UnsupportedBeanException {
+		if (reader.getAttributeValue(null, "id") != null || reader.getAttributeValue(null, "idref") != null) {
+			throw new UnsupportedBeanException("reference");
+		}
+	}
+
+	/**
+	 * @param aliases, the list of aliases
+	 * @return the content of the "FILEALIASESLIST" property
+	 */
+	public static String encode(List<HashMap<String, Object>> aliases) {
+		StringBuilder result = new StringBuilder();
+		result.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		result.append("<java version=\"").append(System.getProperty("java.version")).append("\" class=\"java.beans.XMLDecoder\">\n");
+		if (aliases.isEmpty()) {
+			result.append(" <object class=\"" + ARRAY_LIST_CLASS + "\"/>\n");
+		} else {
+			result.append(" <object class=\"" + ARRAY_LIST_CLASS + "\">\n");
+			for (HashMap<String, Object> alias : aliases) {
+				if (alias == null || !appendMap(result, alias)) {
+					return encodeWithXMLEncoder(aliases);
+				}
+			}
+			result.append(" </object>\n");
+		}
+		result.append("</java>\n");
+		return result.toString();
+	}
+
+	private static boolean appendMap(StringBuilder result, HashMap<String, Object> alias) {
+		result.append("  <void method=\"add\">\n");
+		if (alias.isEmpty()) {
+			result.append("   <object class=\"" + HASH_MAP_CLASS + "\"/>\n");
+		} else {
+			result.append("   <object class=\"" + HASH_MAP_CLASS + "\">\n");
+			for (Map.Entry<String, Object> entry : alias.entrySet()) {
+				result.append("    <void method=\"put\">\n");
+				if (!appendValue(result, entry.getKey()) || !appendValue(result, entry.getValue())) {
+					return false;
+				}
+				result.append("    </void>\n");
+			}
+			result.append("   </object>\n");
+		}
+		result.append("  </void>\n");
+		return true;
+	}
+
+	private static boolean appendValue(StringBuilder result, Object value) {
+		result.append("     ");
+		if (value == null) {
+			result.append("<null/>");
+		} else if (value instanceof String) {
+			result.append("<string>");
+			appendQuoted(result, (String) value);
+			result.append("</string>");
+		} else if (value instanceof Boolean) {
+			result.append("<boolean>").append(value).append("</boolean>");
+		} else if (value instanceof Integer) {
+			result.append("<int>").append(value).append("</int>");
+		} else if (value instanceof Long) {
+			result.append("<long>").append(value).append("</long>");
+		} else {
+			return false;
+		}
+		result.append('\n');
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Escapes a string the way <i>XMLEncoder</i> does.
+	 * </p>
+	 */
+	private static void appendQuoted(StringBuilder result, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&': result.append("&amp;"); break;
+			case '<': result.append("&lt;"); break;
+			case '>': result.append("&gt;"); break;
+			case '"': result.append("&quot;"); break;
+			case '\'': result.append("&apos;"); break;
+			case '\r': result.append("&#13;"); break;
+			default:
+				if (isValidCharCode(c)) {
+					result.append(c);
+				} else {
+					result.append("<char code=\"#").append(Integer.toString(c, 16)).append("\"/>");
+				}
+			}
+		}
+	}
+
+	private static boolean isValidCharCode(int code) {
+		return (0x0020 <= code && code <= 0xD7FF)
+			|| (0x000A == code)
+			|| (0x0009 == code)
+			|| (0x000D == code)
+			|| (0xD800 <= code && code <= 0xDFFF) // surrogate pairs are written as is
+			|| (0xE000 <= code && code <= 0xFFFD);
+	}
+
+	private static String encodeWithXMLEncoder(List<HashMap<String, Object>> aliases) {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		XMLEncoder e = new XMLEncoder(os, StandardCharsets.UTF_8.name(), true, 0);
+		e.writeObject(aliases);
+		e.close();
+		return new String(os.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
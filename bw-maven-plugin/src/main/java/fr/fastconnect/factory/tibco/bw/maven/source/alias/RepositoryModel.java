@@ -18,11 +18,9 @@ package fr.fastconnect.factory.tibco.bw.maven.source.alias;
 
 import java.io.File;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 
+import fr.fastconnect.factory.tibco.bw.maven.jaxb.JAXBContextRegistry;
 import fr.fastconnect.factory.tibco.bw.maven.source.alias.jaxb.ObjectFactory;
 import fr.fastconnect.factory.tibco.bw.maven.source.alias.jaxb.Repository;
 
@@ -50,7 +48,6 @@ public class RepositoryModel {
 		return repository;
 	}
 
-	private JAXBContext jaxbContext;
 	private File xmlFile;
 
 	public RepositoryModel(File xmlFile) throws JAXBException {
@@ -69,10 +66,7 @@ public class RepositoryModel {
 	 * @throws JAXBException
 	 */
 	private void initRepositoryModel() throws JAXBException {
-		jaxbContext = JAXBContext.newInstance(ObjectFactory.class);
-
-		Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-		Object o =  jaxbUnmarshaller.unmarshal(xmlFile);
+		Object o = JAXBContextRegistry.unmarshal(xmlFile, ObjectFactory.class);
 		this.repository = (Repository) o;
 	}
 	
@@ -84,8 +78,6 @@ public class RepositoryModel {
 	 * @throws JAXBException
 	 */
 	public void save() throws JAXBException {
-		Marshaller m = jaxbContext.createMarshaller();
-		m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);		
-		m.marshal(repository, xmlFile);
+		JAXBContextRegistry.marshal(repository, xmlFile, ObjectFactory.class);
 	}
 }
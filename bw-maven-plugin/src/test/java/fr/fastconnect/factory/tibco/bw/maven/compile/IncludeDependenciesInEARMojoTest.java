@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.jdom2.JDOMException;
+import org.junit.Test;
+
+public class IncludeDependenciesInEARMojoTest {
+
+    private static byte[] descriptor(String... values) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<application xmlns=\"http://www.tibco.com/xmlns/dd\">\n");
+        xml.append("  <NameValuePairs>\n");
+        for (int i = 0; i < values.length; i++) {
+            xml.append("    <NameValuePair><name>name").append(i).append("</name><value>").append(values[i]).append("</value></NameValuePair>\n");
+        }
+        xml.append("  </NameValuePairs>\n");
+        xml.append("  <description>foo.jar is only mentioned here</description>\n");
+        xml.append("</application>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void referencedJARsAreMatchedByExactFileName() throws JDOMException, IOException {
+        byte[] tibcoXml = descriptor("C:/tibco/lib/myfoo.jar", "lib/foo.jar.bak", "foo.jarvis");
+
+        assertEquals(new HashSet<>(Arrays.asList("myfoo.jar")), IncludeDependenciesInEARMojo.getReferencedJARNames(tibcoXml));
+    }
+
+    @Test
+    public void listsOfPathsAreSplit() throws JDOMException, IOException {
+        byte[] tibcoXml = descriptor("%%TIBCO_HOME%%/lib/foo.jar;lib\\bar-1.0.jar", "a.jar, b.jar:c.jar|d.jar", "not a jar");
+
+        assertEquals(new HashSet<>(Arrays.asList("foo.jar", "bar-1.0.jar", "a.jar", "b.jar", "c.jar", "d.jar")), IncludeDependenciesInEARMojo.getReferencedJARNames(tibcoXml));
+    }
+
+}
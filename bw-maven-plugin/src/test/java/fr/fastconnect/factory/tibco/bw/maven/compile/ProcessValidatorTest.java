@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the transitions and references reported by {@link ProcessValidator}.
+ */
+public class ProcessValidatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String transition(String from, String to) {
+        return "<pd:transition><pd:from>" + from + "</pd:from><pd:to>" + to + "</pd:to><pd:conditionType>always</pd:conditionType></pd:transition>";
+    }
+
+    private static String activity(String name, String config) {
+        return "<pd:activity name=\"" + name + "\"><pd:type>com.tibco.pe.core.CallProcessActivity</pd:type><config>" + config + "</config></pd:activity>";
+    }
+
+    private static String process(String content) {
+        return "<pd:ProcessDefinition xmlns:pd=\"http://xmlns.tibco.com/bw/process/2003\">"
+                + "<pd:name>Processes/Main.process</pd:name><pd:startName>Start</pd:startName><pd:endName>End</pd:endName>"
+                + content
+                + "</pd:ProcessDefinition>";
+    }
+
+    private static String group(String name, String content) {
+        return "<pd:group name=\"" + name + "\"><pd:type>com.tibco.pe.core.LoopGroup</pd:type><config><pd:groupType>inputLoop</pd:groupType></config>"
+                + content + "</pd:group>";
+    }
+
+    private List<String> validate(String process) throws IOException {
+        File project = folder.newFolder();
+        File file = new File(project, "Processes/Main.process");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), process.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(project, "Processes/Sub.process").toPath(), process("").getBytes(StandardCharsets.UTF_8));
+
+        List<String> result = new ArrayList<String>();
+        for (ProcessValidator.Problem problem : new ProcessValidator(project).validate(1)) {
+            result.add((problem.isWarning() ? "warning " : "") + problem.getMessage());
+        }
+        return result;
+    }
+
+    @Test
+    public void transitionsInsideGroups() throws IOException {
+        List<String> problems = validate(process(
+                transition("Start", "Loop")
+                + group("Loop",
+                        transition("start", "Call")
+                        + activity("Call", "<processName>/Processes/Sub.process</processName>")
+                        + transition("Call", "Inner")
+                        + group("Inner", transition("start", "end"))
+                        + transition("Inner", "end"))
+                + transition("Loop", "End")));
+
+        assertTrue(problems.toString(), problems.isEmpty());
+    }
+
+    @Test
+    public void transitionsToAnotherLevel() throws IOException {
+        List<String> problems = validate(process(
+                transition("Start", "Loop")
+                + group("Loop",
+                        transition("start", "Call")
+                        + activity("Call", "")
+                        + transition("Call", "End")
+                        + group("Inner", activity("Nested", ""))
+                        + transition("Inner", "end"))
+                + transition("Loop", "End")
+                + transition("Start", "Nested")));
+
+        assertEquals(2, problems.size());
+        assertTrue(problems.contains("group 'Loop': transition to unknown activity 'End'"));
+        assertTrue(problems.contains("transition to unknown activity 'Nested'"));
+    }
+
+    @Test
+    public void danglingReferencesAreWarnings() throws IOException {
+        List<String> problems = validate(process(
+                transition("Start", "Call")
+                + activity("Call", "<processName>/Processes/Missing.process</processName>")
+                + transition("Call", "End")));
+
+        assertEquals(1, problems.size());
+        assertEquals("warning dangling reference to '/Processes/Missing.process'", problems.get(0));
+    }
+
+}
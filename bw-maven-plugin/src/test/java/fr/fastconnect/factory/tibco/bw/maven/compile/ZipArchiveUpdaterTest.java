@@ -0,0 +1,275 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.compile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the archives updated in place by {@link ZipArchiveUpdater} with both
+ * kinds of JDK readers: <i>ZipFile</i>, which uses the central directory, and
+ * <i>ZipInputStream</i>, which reads the local entries in sequence.
+ */
+public class ZipArchiveUpdaterTest {
+
+    private static final double NEVER_COMPACT = 1.0;
+    private static final double ALWAYS_COMPACT = 0.0;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ZipArchiveWriter writer = new ZipArchiveWriter(1, -1);
+
+    @Test
+    public void updateIsAppendedAndReadThroughTheCentralDirectory() throws IOException {
+        Path archive = writeArchive(contents("a", "b", "c"));
+        byte[] original = Files.readAllBytes(archive);
+
+        try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+            updater.put("b", bytes("b2"));
+            updater.put("d", bytes("d"));
+            updater.remove("c");
+            updater.commit(NEVER_COMPACT);
+
+            assertFalse(updater.isCompacted());
+            assertTrue(updater.getWastedBytes() > 0);
+        }
+
+        byte[] updated = Files.readAllBytes(archive);
+        assertTrue(updated.length > original.length);
+        // the former archive is kept as is, the update follows it
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("a", "a");
+        expected.put("b", "b2");
+        expected.put("d", "d");
+        assertEquals(expected, readWithZipFile(archive));
+    }
+
+    @Test
+    public void streamingReaderSeesSupersededEntriesUntilCompaction() throws IOException {
+        Path archive = writeArchive(contents("a", "b"));
+
+        try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+            updater.put("b", bytes("b2"));
+            updater.commit(NEVER_COMPACT);
+        }
+        // the superseded local entry comes first, the appended one is never reached
+        assertEquals("b", readWithZipInputStream(archive).get("b"));
+        assertEquals("b2", readWithZipFile(archive).get("b"));
+
+        try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+            updater.put("c", bytes("c"));
+            updater.commit(ALWAYS_COMPACT);
+
+            assertTrue(updater.isCompacted());
+            assertEquals(0, updater.getWastedBytes());
+        }
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("a", "a");
+        expected.put("b", "b2");
+        expected.put("c", "c");
+        assertEquals(expected, readWithZipFile(archive));
+        assertEquals(expected, readWithZipInputStream(archive));
+        assertEquals(Arrays.asList("a", "b", "c"), localEntryNames(archive));
+    }
+
+    @Test
+    public void compactionKeepsOnlyLiveEntries() throws IOException {
+        Path archive = writeArchive(contents("a", "b", "c"));
+        long originalSize = Files.size(archive);
+
+        for (int i = 0; i < 3; i++) {
+            try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+                updater.put("b", bytes("b" + i));
+                updater.commit(NEVER_COMPACT);
+            }
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "b", "b", "b"), localEntryNames(archive));
+
+        try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+            updater.put("b", bytes("b"));
+            updater.commit(ALWAYS_COMPACT);
+            assertTrue(updater.isCompacted());
+        }
+        // same entries, same sizes: only the modification time of "b" differs
+        assertEquals(originalSize, Files.size(archive));
+        assertEquals(contents("a", "c", "b"), readWithZipInputStream(archive));
+        assertEquals(readWithZipFile(archive), readWithZipInputStream(archive));
+    }
+
+    @Test
+    public void wastedBytesAreTheSupersededEntryAndCentralDirectory() throws IOException {
+        // ZipOutputStream writes data descriptors after the deflated entries
+        Path archive = folder.newFile("descriptors.zip").toPath();
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (String name : Arrays.asList("a", "b", "c")) {
+                output.putNextEntry(new ZipEntry(name));
+                output.write(bytes(name + name + name));
+                output.closeEntry();
+            }
+        }
+        long originalSize = Files.size(archive);
+        long centralDirectoryOffset = centralDirectoryOffset(archive);
+        long bLength = localEntryOffset(archive, "c") - localEntryOffset(archive, "b");
+
+        long wasted;
+        try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+            updater.put("b", bytes("b2"));
+            updater.commit(NEVER_COMPACT);
+            wasted = updater.getWastedBytes();
+        }
+        assertEquals(bLength + originalSize - centralDirectoryOffset, wasted);
+        assertEquals("b2", readWithZipFile(archive).get("b"));
+    }
+
+    @Test
+    public void interruptedCommitIsIgnored() throws IOException {
+        Path archive = writeArchive(contents("a", "b"));
+        // what a crash in the middle of a commit would leave
+        Files.write(archive, bytes("PK\u0003\u0004 truncated local entry"), StandardOpenOption.APPEND);
+
+        try (ZipArchiveUpdater updater = ZipArchiveUpdater.open(archive, writer)) {
+            assertEquals(new LinkedHashSet<>(Arrays.asList("a", "b")), updater.getEntryNames());
+            assertArrayEquals(bytes("b"), updater.read("b"));
+            updater.put("c", bytes("c"));
+            updater.commit(NEVER_COMPACT);
+        }
+        assertEquals(contents("a", "b", "c"), readWithZipFile(archive));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return each name mapped to itself
+     */
+    private static Map<String, String> contents(String... names) {
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (String name : names) {
+            contents.put(name, name);
+        }
+        return contents;
+    }
+
+    private Path writeArchive(Map<String, String> contents) throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            files.put(entry.getKey(), bytes(entry.getValue()));
+        }
+        File archive = folder.newFile();
+        Files.write(archive.toPath(), writer.write(Collections.<String>emptySet(), files));
+        return archive.toPath();
+    }
+
+    private static Map<String, String> readWithZipFile(Path archive) throws IOException {
+        Map<String, String> contents = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                try (InputStream input = zipFile.getInputStream(entry)) {
+                    contents.put(entry.getName(), readString(input));
+                }
+            }
+        }
+        return contents;
+    }
+
+    private static Map<String, String> readWithZipInputStream(Path archive) throws IOException {
+        Map<String, String> contents = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new FileInputStream(archive.toFile()))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                contents.putIfAbsent(entry.getName(), readString(input));
+            }
+        }
+        return contents;
+    }
+
+    private static String readString(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            output.write(buffer, 0, length);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the names of all the local entries of the file, superseded ones
+     * included, found by scanning for local header signatures
+     */
+    private static List<String> localEntryNames(Path archive) throws IOException {
+        byte[] bytes = Files.readAllBytes(archive);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i + 30 <= bytes.length; i++) {
+            if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 3 && bytes[i + 3] == 4) {
+                int nameLength = (bytes[i + 26] & 0xFF) | (bytes[i + 27] & 0xFF) << 8;
+                names.add(new String(bytes, i + 30, nameLength, StandardCharsets.UTF_8));
+            }
+        }
+        return names;
+    }
+
+    private static long localEntryOffset(Path archive, String name) throws IOException {
+        byte[] bytes = Files.readAllBytes(archive);
+        byte[] header = bytes(name);
+        for (int i = 0; i + 30 + header.length <= bytes.length; i++) {
+            if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 3 && bytes[i + 3] == 4
+                    && Arrays.equals(header, Arrays.copyOfRange(bytes, i + 30, i + 30 + header.length))) {
+                return i;
+            }
+        }
+        throw new AssertionError("No local entry " + name);
+    }
+
+    private static long centralDirectoryOffset(Path archive) throws IOException {
+        byte[] bytes = Files.readAllBytes(archive);
+        int eocd = bytes.length - 22; // no archive comment
+        return (bytes[eocd + 16] & 0xFFL) | (bytes[eocd + 17] & 0xFFL) << 8 | (bytes[eocd + 18] & 0xFFL) << 16 | (bytes[eocd + 19] & 0xFFL) << 24;
+    }
+}
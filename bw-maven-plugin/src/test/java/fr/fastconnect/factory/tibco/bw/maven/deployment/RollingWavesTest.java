@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+import fr.fastconnect.factory.tibco.bw.maven.deployment.RollingWaves.Instance;
+
+public class RollingWavesTest {
+
+    private static List<Instance> instances(String... machines) {
+        List<Instance> result = new ArrayList<Instance>();
+        for (int i = 0; i < machines.length; i++) {
+            result.add(new Instance("Process.par", "b" + i, "Process-b" + i, machines[i]));
+        }
+        return result;
+    }
+
+    @Test
+    public void byMachineKeepsTheOrderOfTheDescriptor() throws MojoExecutionException {
+        List<List<Instance>> waves = RollingWaves.split(instances("m1", "m2", "m1", null), "machine");
+        assertEquals("[[Process-b0@m1, Process-b2@m1], [Process-b1@m2], [Process-b3]]", waves.toString());
+    }
+
+    @Test
+    public void byCount() throws MojoExecutionException {
+        List<List<Instance>> waves = RollingWaves.split(instances("m1", "m2", "m3", "m4", "m5"), " 2 ");
+        assertEquals("[[Process-b0@m1, Process-b1@m2], [Process-b2@m3, Process-b3@m4], [Process-b4@m5]]", waves.toString());
+    }
+
+    @Test
+    public void byPercentageRoundsUp() throws MojoExecutionException {
+        assertEquals(2, RollingWaves.split(instances("m1", "m2", "m3"), "50%").size());
+        assertEquals(3, RollingWaves.split(instances("m1", "m2", "m3"), "1%").size());
+        assertEquals(0, RollingWaves.split(instances(), "1%").size());
+    }
+
+    @Test
+    public void invalidDefinitionsAreRejected() {
+        for (String waves : new String[] { "0", "-1", "0%", "101%", "x", "%" }) {
+            try {
+                RollingWaves.split(instances("m1", "m2"), waves);
+                fail("'" + waves + "' should be rejected");
+            } catch (MojoExecutionException e) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+/**
+ * The merge of Services as implemented by MergePropertiesMojo before
+ * {@link PropertiesMerger}: the empty binding is copied each time a new named
+ * binding is found and every wildcard expression, in sorted order, is tested
+ * against every key. It is kept as the reference of the tests.
+ */
+class LegacyMergeProperties {
+
+    private static final Pattern NOT_EMPTY_BINDING = Pattern.compile("^bw\\[(.*)\\]/bindings/binding\\[(.+)\\]/(.*)$");
+    private static final Pattern EMPTY_BINDING = Pattern.compile("^bw\\[(.*)\\]/bindings/binding(\\[\\])/(.*)$");
+
+    private List<ImmutablePair<String, String>> pairParInstance = new ArrayList<ImmutablePair<String, String>>();
+
+    Map<String, String> mergeServices(Map<String, String> services, Map<String, String> reference) {
+        Properties properties = new Properties();
+        properties.putAll(services);
+
+        for (String key : new TreeSet<String>(reference.keySet())) {
+            Matcher mNotEmptyBinding = NOT_EMPTY_BINDING.matcher(key);
+
+            if (mNotEmptyBinding.matches() && !isAWildCard(key)) {
+                String par = mNotEmptyBinding.group(1);
+                String binding = mNotEmptyBinding.group(2);
+                ImmutablePair<String, String> pair = new ImmutablePair<String, String>(par, binding);
+                if (!pairParInstance.contains(pair)) {
+                    duplicateEmptyBinding(properties, par, binding);
+                    pairParInstance.add(pair);
+                }
+            }
+
+            properties.setProperty(key, reference.get(key));
+        }
+
+        return expandWildCards(toMap(properties));
+    }
+
+    private static void duplicateEmptyBinding(Properties properties, String par, String binding) {
+        for (String key : new TreeSet<String>(properties.stringPropertyNames())) {
+            String value = properties.getProperty(key);
+            Matcher mEmptyBinding = EMPTY_BINDING.matcher(key);
+            if (mEmptyBinding.matches() && mEmptyBinding.group(1).equals(par)) {
+                key = "bw[" + par + "]/bindings/binding[" + binding + "]/" + mEmptyBinding.group(3);
+            }
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static boolean isAWildCard(String key) {
+        String regexVariable = "bw\\[[^\\**]*\\]/variables\\[.*\\]/variable\\[.*\\]";
+
+        return key.contains("*") && !Pattern.matches(regexVariable, key);
+    }
+
+    static Map<String, String> expandWildCards(Map<String, String> input) {
+        Properties properties = new Properties();
+        properties.putAll(input);
+        TreeMap<String, String> propertiesWithWildCards = new TreeMap<String, String>();
+
+        for (String key : new TreeSet<String>(properties.stringPropertyNames())) {
+            if (isAWildCard(key)) {
+                propertiesWithWildCards.put(key, properties.getProperty(key));
+                properties.remove(key);
+            }
+        }
+
+        for (Map.Entry<String, String> wildCard : propertiesWithWildCards.entrySet()) {
+            String keyWithWildCards = wildCard.getKey();
+            String regex = AbstractPackagingMojo.wildcardToRegex(keyWithWildCards);
+
+            Pattern p = Pattern.compile("(.*)variables\\\\\\[(.*)\\\\\\]\\/variable\\\\\\[(.*)\\\\\\](.*)");
+            Matcher m = p.matcher(regex);
+            if (m.matches()) {
+                String variables = m.group(2).replace(".*", "\\*");
+                String variable = m.group(3).replace(".*", "\\*");
+                regex = m.group(1) + "variables\\[" + variables + "\\]/variable\\[" + variable + "\\]" + m.group(4);
+            }
+
+            boolean found = false;
+            for (String key : new TreeSet<String>(properties.stringPropertyNames())) {
+                if (Pattern.matches(regex, key)) {
+                    found = true;
+                    properties.setProperty(key, wildCard.getValue());
+                }
+            }
+            if (!found) {
+                properties.setProperty(keyWithWildCards, wildCard.getValue());
+            }
+        }
+
+        return toMap(properties);
+    }
+
+    private static Map<String, String> toMap(Properties properties) {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            result.put(key, properties.getProperty(key));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jdom2.JDOMException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the comparison of Deployment Descriptors used by
+ * <i>bw.descriptor.native.verify</i>.
+ */
+public class NativeDescriptorExtractorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String BINDING = "<binding name=\"\"><machine></machine><setting><threadCount>8</threadCount></setting></binding>";
+
+    private File descriptor(String repoInstances, String bindings, String hbInterval) throws IOException {
+        String xml = "<application xmlns=\"http://www.tibco.com/xmlns/ApplicationManagement\" name=\"app\">"
+                + repoInstances
+                + "<services><bw name=\"A.par\"><bindings>" + bindings + "</bindings>"
+                + "<faultTolerant><hbInterval>" + hbInterval + "</hbInterval><activationInterval>35000</activationInterval></faultTolerant>"
+                + "</bw></services></application>";
+        File result = folder.newFile();
+        Files.write(result.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return result;
+    }
+
+    private List<String> compare(File reference, File candidate) throws IOException, JDOMException {
+        return NativeDescriptorExtractor.compare(reference, candidate);
+    }
+
+    @Test
+    public void repoInstancesAreIgnored() throws Exception {
+        File reference = descriptor("<repoInstances><selected>local</selected></repoInstances>", BINDING + BINDING, "10000");
+        File candidate = descriptor("<repoInstances><selected>rv</selected></repoInstances>", BINDING + BINDING, "10000");
+
+        assertTrue(compare(reference, candidate).isEmpty());
+    }
+
+    @Test
+    public void numberOfBindingsIsCompared() throws Exception {
+        File reference = descriptor("", BINDING + BINDING, "10000");
+        File candidate = descriptor("", BINDING, "10000");
+
+        List<String> differences = compare(reference, candidate);
+        assertEquals(Arrays.asList(
+                "- /application[app]/services/bw[A.par]/bindings/binding[]#2",
+                "- /application[app]/services/bw[A.par]/bindings/binding[]#2/machine",
+                "- /application[app]/services/bw[A.par]/bindings/binding[]#2/setting",
+                "- /application[app]/services/bw[A.par]/bindings/binding[]#2/setting/threadCount"), differences);
+        assertEquals(4, compare(candidate, reference).size());
+    }
+
+    @Test
+    public void faultTolerantValuesAreCompared() throws Exception {
+        File reference = descriptor("", BINDING, "10000");
+        File candidate = descriptor("", BINDING, "5000");
+
+        assertEquals(Arrays.asList("~ /application[app]/services/bw[A.par]/faultTolerant/hbInterval (10000 / 5000)"),
+                compare(reference, candidate));
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link PropertiesMerger#mergeServices(PropertyTree, PropertyTree)}
+ * creates the named bindings as the former merge did
+ * ({@link LegacyMergeProperties}), one copy of the empty binding for each new
+ * named binding.
+ */
+public class PropertiesMergerTest {
+
+    private static Map<String, String> properties(String... keysAndValues) {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Merges successively each reference into the services with both
+     * implementations, checks they give the same result after each merge and
+     * returns the last one.
+     */
+    private static Map<String, String> merge(Map<String, String> services, List<Map<String, String>> references) {
+        PropertiesMerger merger = new PropertiesMerger();
+        LegacyMergeProperties legacy = new LegacyMergeProperties();
+
+        PropertyTree actual = PropertyTree.fromMap(services);
+        Map<String, String> expected = services;
+        for (Map<String, String> reference : references) {
+            actual = merger.mergeServices(actual, PropertyTree.fromMap(reference));
+            expected = legacy.mergeServices(expected, reference);
+            assertEquals(expected, new TreeMap<String, String>(actual.toMap()));
+        }
+        return actual.toMap();
+    }
+
+    private static Map<String, String> merge(Map<String, String> services, Map<String, String> reference) {
+        return merge(services, Arrays.asList(reference));
+    }
+
+    @Test
+    public void namedBindingIsACopyOfTheEmptyBinding() {
+        Map<String, String> result = merge(properties(
+                "bw[A.par]/bindings/binding[]/machine", "localhost",
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "256",
+                "bw[B.par]/bindings/binding[]/machine", "other"),
+                properties(
+                "bw[A.par]/bindings/binding[node1]/machine", "host1"));
+
+        assertEquals("host1", result.get("bw[A.par]/bindings/binding[node1]/machine"));
+        assertEquals("256", result.get("bw[A.par]/bindings/binding[node1]/setting/java/maxHeapSize"));
+        assertNull(result.get("bw[B.par]/bindings/binding[node1]/machine"));
+    }
+
+    @Test
+    public void emptyBindingOverriddenBeforeTheNamedBinding() {
+        // "binding[]" sorts before "binding[node1]": the copy has the overridden value
+        Map<String, String> result = merge(properties(
+                "bw[A.par]/bindings/binding[]/machine", "localhost",
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "256"),
+                properties(
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "512",
+                "bw[A.par]/bindings/binding[node1]/machine", "host1"));
+
+        assertEquals("512", result.get("bw[A.par]/bindings/binding[node1]/setting/java/maxHeapSize"));
+    }
+
+    @Test
+    public void emptyBindingOverriddenAfterTheNamedBinding() {
+        // "binding[Node1]" and "binding[1node]" sort before "binding[]": the copies keep the former value
+        Map<String, String> result = merge(properties(
+                "bw[A.par]/bindings/binding[]/machine", "localhost",
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "256"),
+                properties(
+                "bw[A.par]/bindings/binding[1node]/machine", "host0",
+                "bw[A.par]/bindings/binding[Node1]/machine", "host1",
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "512",
+                "bw[A.par]/bindings/binding[]/setting/java/minHeapSize", "128"));
+
+        assertEquals("256", result.get("bw[A.par]/bindings/binding[1node]/setting/java/maxHeapSize"));
+        assertEquals("256", result.get("bw[A.par]/bindings/binding[Node1]/setting/java/maxHeapSize"));
+        assertNull(result.get("bw[A.par]/bindings/binding[Node1]/setting/java/minHeapSize"));
+        assertEquals("512", result.get("bw[A.par]/bindings/binding[]/setting/java/maxHeapSize"));
+    }
+
+    @Test
+    public void referenceKeysOfTheNamedBindingOverrideTheCopy() {
+        Map<String, String> result = merge(properties(
+                "bw[A.par]/bindings/binding[]/machine", "localhost",
+                "bw[A.par]/bindings/binding[]/product/type", "BW"),
+                properties(
+                "bw[A.par]/bindings/binding[node1]/machine", "host1",
+                "bw[A.par]/bindings/binding[node1]/product/type", "BW-custom"));
+
+        assertEquals("host1", result.get("bw[A.par]/bindings/binding[node1]/machine"));
+        assertEquals("BW-custom", result.get("bw[A.par]/bindings/binding[node1]/product/type"));
+    }
+
+    @Test
+    public void namedBindingIsCreatedOnlyOnceAcrossMerges() {
+        Map<String, String> common = properties(
+                "bw[A.par]/bindings/binding[node1]/machine", "host1",
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "512");
+        Map<String, String> reference = properties(
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "1024",
+                "bw[A.par]/bindings/binding[node1]/machine", "host2");
+
+        Map<String, String> result = merge(properties(
+                "bw[A.par]/bindings/binding[]/machine", "localhost",
+                "bw[A.par]/bindings/binding[]/setting/java/maxHeapSize", "256"),
+                Arrays.asList(common, reference));
+
+        // copied by the first merge only, the second one does not copy "1024"
+        assertEquals("host2", result.get("bw[A.par]/bindings/binding[node1]/machine"));
+        assertEquals("512", result.get("bw[A.par]/bindings/binding[node1]/setting/java/maxHeapSize"));
+        assertEquals("1024", result.get("bw[A.par]/bindings/binding[]/setting/java/maxHeapSize"));
+    }
+
+    @Test
+    public void randomMerges() {
+        Random random = new Random(20251019L);
+        List<String> pars = Arrays.asList("A.par", "B.par", "*");
+        List<String> bindings = Arrays.asList("", "", "node1", "Node2", "1node", "*");
+        List<String> settings = Arrays.asList("machine", "product/type", "setting/java/maxHeapSize", "setting/java/minHeapSize");
+
+        for (int run = 0; run < 500; run++) {
+            Map<String, String> services = randomProperties(random, pars.subList(0, 2), bindings.subList(0, 2), settings);
+            Map<String, String> common = randomProperties(random, pars, bindings, settings);
+            Map<String, String> reference = randomProperties(random, pars, bindings, settings);
+            merge(services, Arrays.asList(common, reference));
+        }
+    }
+
+    private static Map<String, String> randomProperties(Random random, List<String> pars, List<String> bindings, List<String> settings) {
+        Map<String, String> result = new TreeMap<String, String>();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            String key = "bw[" + pick(random, pars) + "]/bindings/binding[" + pick(random, bindings) + "]/" + pick(random, settings);
+            result.put(key, "v" + random.nextInt(10));
+        }
+        return result;
+    }
+
+    private static String pick(Random random, List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+}
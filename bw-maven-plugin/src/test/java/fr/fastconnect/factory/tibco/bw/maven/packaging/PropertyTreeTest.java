@@ -0,0 +1,287 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Checks the radix tree of {@link PropertyTree} (splits and compaction of
+ * the nodes, copy-on-write) and its reading and writing of properties files.
+ */
+public class PropertyTreeTest {
+
+    private static void assertSameContent(Map<String, String> expected, PropertyTree tree) {
+        assertEquals(expected.size(), tree.size());
+        assertEquals(new ArrayList<String>(expected.keySet()), tree.keys());
+        assertEquals(expected, new TreeMap<String, String>(tree.toMap()));
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), tree.getProperty(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void splitsAndCompaction() {
+        TreeMap<String, String> expected = new TreeMap<String, String>();
+        PropertyTree tree = new PropertyTree();
+
+        // "binding[]/machine" is split at "binding[", then at "binding[]/"
+        for (String key : Arrays.asList(
+                "bw[A.par]/bindings/binding[]/machine",
+                "bw[A.par]/bindings/binding[node1]/machine",
+                "bw[A.par]/bindings/binding[]/product/type",
+                "bw[A.par]/bindings/binding",
+                "bw[A.par]/bindings/binding[]/machine/x",
+                "bw[B.par]/bindings/binding[]/machine")) {
+            tree.setProperty(key, key.toUpperCase());
+            expected.put(key, key.toUpperCase());
+            assertSameContent(expected, tree);
+        }
+
+        assertNull(tree.getProperty("bw[A.par]/bindings/binding[]/"));
+        assertNull(tree.getProperty("bw[A.par]/bindings/binding[]/machin"));
+        assertFalse(tree.containsKey("bw[A.par]/bindings/binding["));
+
+        // removing keys merges the nodes left with no value and a single child
+        for (String key : Arrays.asList(
+                "bw[A.par]/bindings/binding[]/machine",
+                "bw[A.par]/bindings/binding",
+                "bw[A.par]/bindings/binding[node1]/machine",
+                "bw[A.par]/bindings/binding[]/product/type",
+                "bw[A.par]/bindings/binding[]/machine/x")) {
+            assertEquals(expected.remove(key), tree.remove(key));
+            assertSameContent(expected, tree);
+            assertNull(tree.remove(key));
+        }
+        assertNull(tree.remove("bw[B.par]/bindings/binding[]/"));
+        assertSameContent(expected, tree);
+
+        tree.setProperty("bw[B.par]/bindings/binding[]/machine/x", "x");
+        expected.put("bw[B.par]/bindings/binding[]/machine/x", "x");
+        assertSameContent(expected, tree);
+    }
+
+    @Test
+    public void emptyKey() {
+        PropertyTree tree = new PropertyTree();
+        tree.setProperty("", "empty");
+        tree.setProperty("a", "a");
+        assertEquals("empty", tree.getProperty(""));
+        assertEquals(Arrays.asList("", "a"), tree.keys());
+        assertEquals("empty", tree.remove(""));
+        assertEquals(Arrays.asList("a"), tree.keys());
+    }
+
+    @Test
+    public void keysWithPrefixEndingInsideALabel() {
+        PropertyTree tree = PropertyTree.fromMap(new TreeMap<String, String>() {
+            private static final long serialVersionUID = 1L;
+            {
+                put("bw[A.par]/bindings/binding[]/machine", "1");
+                put("bw[A.par]/bindings/binding[]/product/type", "2");
+                put("bw[A.par]/bindings/binding[node1]/machine", "3");
+                put("bw[AB.par]/bindings/binding[]/machine", "4");
+            }
+        });
+
+        assertEquals(Arrays.asList(
+                "bw[A.par]/bindings/binding[]/machine",
+                "bw[A.par]/bindings/binding[]/product/type",
+                "bw[A.par]/bindings/binding[node1]/machine"), tree.keys("bw[A.p"));
+        assertEquals(Arrays.asList(
+                "bw[A.par]/bindings/binding[]/product/type"), tree.keys("bw[A.par]/bindings/binding[]/pro"));
+        assertEquals(Arrays.asList(
+                "bw[A.par]/bindings/binding[]/machine",
+                "bw[A.par]/bindings/binding[]/product/type"), tree.keys("bw[A.par]/bindings/binding[]/"));
+        assertEquals(4, tree.keys("bw[A").size());
+        assertEquals(4, tree.keys("").size());
+        assertEquals(Collections.emptyList(), tree.keys("bw[A.par]/bindings/binding[]/prx"));
+        assertEquals(Collections.emptyList(), tree.keys("bw[A.par]/bindings/binding[]/machine/"));
+        assertEquals(Collections.emptyList(), tree.keys("bw[C"));
+        assertEquals(Arrays.asList("bw[A.par]/bindings/binding[node1]/machine"), tree.keys("bw[A.par]/bindings/binding[node1]/machine"));
+    }
+
+    @Test
+    public void copiesAreIsolated() {
+        PropertyTree original = new PropertyTree();
+        original.setProperty("bw[A.par]/bindings/binding[]/machine", "localhost");
+        original.setProperty("bw[A.par]/bindings/binding[]/product/type", "BW");
+        original.setProperty("bw[A.par]/bindings/binding[node1]/machine", "host1");
+
+        PropertyTree copy = original.copy();
+        Map<String, String> before = original.toMap();
+
+        // modifying the copy does not modify the original
+        copy.setProperty("bw[A.par]/bindings/binding[]/machine", "host0");
+        copy.setProperty("bw[A.par]/bindings/binding[]/product/version", "5.x");
+        copy.remove("bw[A.par]/bindings/binding[node1]/machine");
+        assertEquals(before, original.toMap());
+
+        // modifying the original does not modify the copy
+        Map<String, String> copied = copy.toMap();
+        original.setProperty("bw[A.par]/bindings/binding[]/product/type", "BW-custom");
+        original.remove("bw[A.par]/bindings/binding[]/machine");
+        original.setProperty("bw[A.par]/bindings/binding[node2]/machine", "host2");
+        assertEquals(copied, copy.toMap());
+
+        assertEquals("BW", copy.getProperty("bw[A.par]/bindings/binding[]/product/type"));
+        assertEquals("host0", copy.getProperty("bw[A.par]/bindings/binding[]/machine"));
+        assertNull(original.getProperty("bw[A.par]/bindings/binding[]/product/version"));
+    }
+
+    @Test
+    public void randomOperationsOnCopies() {
+        Random random = new Random(20251019L);
+        List<String> parts = Arrays.asList("bw[A.par]/", "bw[B.par]/", "bindings/", "binding[]/", "binding[node1]/", "machine", "m", "a", "");
+
+        List<PropertyTree> trees = new ArrayList<PropertyTree>();
+        List<TreeMap<String, String>> expected = new ArrayList<TreeMap<String, String>>();
+        trees.add(new PropertyTree());
+        expected.add(new TreeMap<String, String>());
+
+        for (int i = 0; i < 20000; i++) {
+            int which = random.nextInt(trees.size());
+            PropertyTree tree = trees.get(which);
+            TreeMap<String, String> map = expected.get(which);
+
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                key.append(parts.get(random.nextInt(parts.size())));
+            }
+
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                String value = "v" + i;
+                assertEquals(map.put(key.toString(), value), tree.setProperty(key.toString(), value));
+            } else if (operation < 9) {
+                assertEquals(map.remove(key.toString()), tree.remove(key.toString()));
+            } else if (trees.size() < 8) {
+                trees.add(tree.copy());
+                expected.add(new TreeMap<String, String>(map));
+            }
+
+            if (i % 100 == 0) {
+                for (int t = 0; t < trees.size(); t++) {
+                    assertSameContent(expected.get(t), trees.get(t));
+                }
+            }
+        }
+        for (int t = 0; t < trees.size(); t++) {
+            assertSameContent(expected.get(t), trees.get(t));
+        }
+    }
+
+    private static PropertyTree specialCharacters() {
+        PropertyTree tree = new PropertyTree();
+        tree.setProperty(" leading space", " value with spaces ");
+        tree.setProperty("separators=:#!\\", "=:#!\\");
+        tree.setProperty("tab\tnew\nline\rform\f", "tab\tnew\nline\rform\f");
+        tree.setProperty("latin-1 é", "été");
+        tree.setProperty("not latin-1 € 日本", "€ 日本");
+        tree.setProperty("empty", "");
+        return tree;
+    }
+
+    /**
+     * @return the lines of a properties file without the date, the lines of
+     * the properties being sorted (java.util.Properties does not sort them)
+     */
+    private static List<String> lines(String stored) {
+        List<String> comments = new ArrayList<String>();
+        List<String> properties = new ArrayList<String>();
+        boolean date = false;
+        for (String line : stored.split(System.getProperty("line.separator"))) {
+            if (!properties.isEmpty() || !line.startsWith("#")) {
+                properties.add(line);
+            } else if (!date && line.matches("#\\w{3} \\w{3} .*\\d{4}")) {
+                date = true;
+            } else {
+                comments.add(line);
+            }
+        }
+        Collections.sort(properties);
+        comments.addAll(properties);
+        return comments;
+    }
+
+    @Test
+    public void storeAndLoadWithAStream() throws IOException {
+        PropertyTree tree = specialCharacters();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.store(out, "comments €\nsecond line");
+        byte[] stored = out.toByteArray();
+
+        PropertyTree loaded = new PropertyTree();
+        loaded.load(new ByteArrayInputStream(stored));
+        assertEquals(tree.toMap(), loaded.toMap());
+
+        // same file as java.util.Properties
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(stored));
+        assertEquals(tree.toProperties(), properties);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        properties.store(expected, "comments €\nsecond line");
+        assertEquals(lines(expected.toString("ISO-8859-1")), lines(new String(stored, "ISO-8859-1")));
+        for (byte b : stored) {
+            assertTrue(b >= 0); // non ASCII characters are escaped
+        }
+    }
+
+    @Test
+    public void storeAndLoadWithAWriter() throws IOException {
+        PropertyTree tree = specialCharacters();
+
+        StringWriter writer = new StringWriter();
+        tree.store(writer, null);
+        String stored = writer.toString();
+        assertTrue(stored.contains("日本")); // characters are written as is
+
+        PropertyTree loaded = new PropertyTree();
+        loaded.load(new StringReader(stored));
+        assertEquals(tree.toMap(), loaded.toMap());
+
+        Properties properties = new Properties();
+        properties.load(new StringReader(stored));
+        assertEquals(tree.toProperties(), properties);
+
+        StringWriter expected = new StringWriter();
+        properties.store(expected, null);
+        assertEquals(lines(expected.toString()), lines(stored));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.packaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Checks that the expansion of wild cards through a {@link WildcardIndex}
+ * gives the same properties as the former linear expansion
+ * ({@link LegacyMergeProperties}).
+ */
+public class WildcardIndexTest {
+
+    private static Map<String, String> expand(Map<String, String> properties) {
+        Map<String, String> expected = LegacyMergeProperties.expandWildCards(properties);
+        Map<String, String> actual = PropertiesMerger.expandWildCards(PropertyTree.fromMap(properties)).toMap();
+        assertEquals(expected, new TreeMap<String, String>(actual));
+        return actual;
+    }
+
+    private static Map<String, String> properties(String... keysAndValues) {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    @Test
+    public void lastWildcardInSortedOrderWins() {
+        Map<String, String> result = expand(properties(
+                "bw[A.par]/bindings/binding[a1]/machine", "old",
+                "bw[B.par]/bindings/binding[b1]/machine", "old",
+                "bw[*]/bindings/binding[*]/machine", "all",
+                "bw[A.par]/bindings/binding[*]/machine", "A"));
+
+        assertEquals("A", result.get("bw[A.par]/bindings/binding[a1]/machine"));
+        assertEquals("all", result.get("bw[B.par]/bindings/binding[b1]/machine"));
+        assertNull(result.get("bw[*]/bindings/binding[*]/machine"));
+    }
+
+    @Test
+    public void starInVariableNamesIsNotAWildcard() {
+        Map<String, String> result = expand(properties(
+                "bw[A.par]/variables[Runtime Variables]/variable[a*b]", "literal",
+                "bw[A.par]/variables[Runtime Variables]/variable[aXb]", "old",
+                "bw[B.par]/variables[Runtime Variables]/variable[a*b]", "old",
+                "bw[*]/variables[Runtime Variables]/variable[a*b]", "new"));
+
+        assertEquals("new", result.get("bw[A.par]/variables[Runtime Variables]/variable[a*b]"));
+        assertEquals("old", result.get("bw[A.par]/variables[Runtime Variables]/variable[aXb]"));
+        assertEquals("new", result.get("bw[B.par]/variables[Runtime Variables]/variable[a*b]"));
+    }
+
+    @Test
+    public void plusInKeysIsARegexQuantifier() {
+        // '+' is not escaped by wildcardToRegex: "c+" matches "c", "cc"...
+        expand(properties(
+                "bw[A.par]/resources/c", "old",
+                "bw[A.par]/resources/cc", "old",
+                "bw[A.par]/resources/c+", "old",
+                "bw[*]/resources/c+", "new",
+                "bw[B.par]/res+/x", "old",
+                "bw[*]/res+/x", "new"));
+    }
+
+    @Test
+    public void falsePositivesAreMatchedByNextWildcards() {
+        Map<String, String> result = expand(properties(
+                "bw[A.par]/bindings/binding[a1]/machine", "old",
+                "bw[*]/nothing/matches", "first",
+                "bw[?*]/*", "second"));
+
+        // put back since it matched nothing, then matched by the next wildcard
+        assertEquals("second", result.get("bw[*]/nothing/matches"));
+        assertEquals("second", result.get("bw[A.par]/bindings/binding[a1]/machine"));
+    }
+
+    @Test
+    public void randomPropertiesAndWildcards() {
+        Random random = new Random(20251019L);
+        List<String> pars = Arrays.asList("A.par", "B.par", "Proc+.par", "*", "?.par", "A*");
+        List<String> bindings = Arrays.asList("", "a1", "b1", "*", "a*", "?1");
+        List<String> settings = Arrays.asList("machine", "product/type", "setting/java/maxHeapSize", "setting/*", "*", "c+");
+
+        for (int run = 0; run < 500; run++) {
+            Map<String, String> properties = new TreeMap<String, String>();
+            int count = 1 + random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                String key;
+                if (random.nextInt(4) == 0) {
+                    key = "bw[" + pick(random, pars) + "]/variables[Runtime Variables]/variable[" + pick(random, Arrays.asList("v", "v*", "*")) + "]";
+                } else {
+                    key = "bw[" + pick(random, pars) + "]/bindings/binding[" + pick(random, bindings) + "]/" + pick(random, settings);
+                }
+                properties.put(key, "v" + random.nextInt(5));
+            }
+            expand(properties);
+        }
+    }
+
+    private static String pick(Random random, List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    @Test
+    public void indexReturnsOnlyMatchingKeys() {
+        List<String> keys = new ArrayList<String>(Arrays.asList(
+                "bw[A.par]/bindings/binding[a1]/setting/java/maxHeapSize",
+                "bw[A.par]/bindings/binding[a1]/machine",
+                "bw[B.par]/bindings/binding[]/setting/java/maxHeapSize"));
+        WildcardIndex index = new WildcardIndex(keys);
+
+        String wildcard = "bw[*]/bindings/binding[*]/setting/java/maxHeapSize";
+        assertEquals(Arrays.asList(keys.get(0), keys.get(2)), index.match(wildcard, PropertiesMerger.compileWildCard(wildcard)));
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.fastconnect.factory.tibco.bw.maven.source.alias;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.beans.XMLDecoder;
+import java.beans.XMLEncoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * The "FILEALIASESLIST" written by {@link FileAliasesListCodec} must be the
+ * bytes <i>XMLEncoder</i> writes for the same aliases, as TIBCO Designer does.
+ */
+public class FileAliasesListCodecTest {
+
+	/**
+	 * @return an alias as added by update-alias-lib
+	 */
+	private static HashMap<String, Object> jarAlias(String name) {
+		HashMap<String, Object> alias = new HashMap<String, Object>();
+		alias.put("isClasspathFile", Boolean.TRUE);
+		alias.put("name", name);
+		alias.put("includeInDeployment", Boolean.TRUE);
+		return alias;
+	}
+
+	/**
+	 * @return an alias as saved by TIBCO Designer for a file of the project
+	 */
+	private static HashMap<String, Object> fileAlias(String name, String path) {
+		HashMap<String, Object> alias = new HashMap<String, Object>();
+		alias.put("isClasspathFile", Boolean.FALSE);
+		alias.put("name", name);
+		alias.put("fullPath", path);
+		alias.put("includeInDeployment", Boolean.FALSE);
+		return alias;
+	}
+
+	private static byte[] encodeWithXMLEncoder(ArrayList<HashMap<String, Object>> aliases) {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		XMLEncoder e = new XMLEncoder(os);
+		e.writeObject(aliases);
+		e.close();
+		return os.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<HashMap<String, Object>> decodeWithXMLDecoder(byte[] xmlBean) {
+		XMLDecoder d = new XMLDecoder(new ByteArrayInputStream(xmlBean));
+		try {
+			return (ArrayList<HashMap<String, Object>>) d.readObject();
+		} finally {
+			d.close();
+		}
+	}
+
+	private static void assertSameAsXMLEncoder(ArrayList<HashMap<String, Object>> aliases) {
+		byte[] expected = encodeWithXMLEncoder(aliases);
+		String encoded = FileAliasesListCodec.encode(aliases);
+
+		assertArrayEquals(new String(expected, StandardCharsets.UTF_8), expected, encoded.getBytes(StandardCharsets.UTF_8));
+		assertEquals(decodeWithXMLDecoder(expected), FileAliasesListCodec.decode(encoded));
+	}
+
+	@Test
+	public void jarAliases() {
+		ArrayList<HashMap<String, Object>> aliases = new ArrayList<HashMap<String, Object>>();
+		aliases.add(jarAlias("commons-lang3-3.17.0.jar"));
+		aliases.add(jarAlias("fr.fastconnect.factory.tibco_bw-maven-plugin_2.4.2-SNAPSHOT.jar"));
+		aliases.add(jarAlias("jaxb-runtime-4.0.5.jar"));
+
+		assertSameAsXMLEncoder(aliases);
+	}
+
+	@Test
+	public void designerAliases() {
+		ArrayList<HashMap<String, Object>> aliases = new ArrayList<HashMap<String, Object>>();
+		aliases.add(fileAlias("tibjms.jar", "C:\\tibco\\ems\\8.6\\lib\\tibjms.jar"));
+		aliases.add(fileAlias("keystore", "/opt/tibco/certs/keystore.jks"));
+		aliases.add(fileAlias("R&D \"<test>\" 'é'", "D:\\Données\\R&D\\é\u00e8\u4e2d.xml\r\n\t"));
+		aliases.add(fileAlias("control", "a\u0001b\u001fc\ud83d\ude00"));
+		HashMap<String, Object> mixed = jarAlias("mixed.jar");
+		mixed.put("size", Integer.valueOf(42));
+		mixed.put("lastModified", Long.valueOf(1760860800000L));
+		mixed.put("description", null);
+		aliases.add(mixed);
+
+		assertSameAsXMLEncoder(aliases);
+	}
+
+	@Test
+	public void emptyLists() {
+		ArrayList<HashMap<String, Object>> aliases = new ArrayList<HashMap<String, Object>>();
+		assertSameAsXMLEncoder(aliases);
+
+		aliases.add(new HashMap<String, Object>());
+		assertSameAsXMLEncoder(aliases);
+	}
+
+	@Test
+	public void randomAliases() {
+		Random random = new Random(20251019L);
+		for (int i = 0; i < 50; i++) {
+			ArrayList<HashMap<String, Object>> aliases = new ArrayList<HashMap<String, Object>>();
+			int count = random.nextInt(20);
+			for (int j = 0; j < count; j++) {
+				StringBuilder name = new StringBuilder();
+				int length = 1 + random.nextInt(30);
+				for (int k = 0; k < length; k++) {
+					name.append((char) (random.nextBoolean() ? 'a' + random.nextInt(26) : random.nextInt(0x300)));
+				}
+				aliases.add(random.nextBoolean() ? jarAlias(name + ".jar") : fileAlias(name.toString(), "lib/" + name));
+			}
+			assertSameAsXMLEncoder(aliases);
+		}
+	}
+
+	@Test
+	public void unsupportedValuesFallBackToXMLEncoder() {
+		ArrayList<HashMap<String, Object>> aliases = new ArrayList<HashMap<String, Object>>();
+		HashMap<String, Object> alias = jarAlias("dated.jar");
+		alias.put("timestamp", new Date(0));
+		aliases.add(alias);
+
+		assertSameAsXMLEncoder(aliases);
+	}
+
+}
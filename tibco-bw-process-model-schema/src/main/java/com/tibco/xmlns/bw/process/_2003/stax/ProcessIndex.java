@@ -0,0 +1,248 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tibco.xmlns.bw.process._2003.stax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.w3c.dom.Element;
+
+/**
+ * <p>
+ * This class is a lightweight view of a TIBCO BusinessWorks process
+ * definition, built by a {@link ProcessIndexer}: the name, the description,
+ * the start, the starter and the end of the process, its activities and
+ * groups, its transitions, its labels and the processes it calls.
+ * </p>
+ * <p>
+ * The <i>config</i> and <i>inputBindings</i> elements of the activities are
+ * only kept when the indexer is asked to (see
+ * {@link ProcessIndexer#setKeepConfig(boolean)}).
+ * </p>
+ */
+public class ProcessIndex {
+
+    /**
+     * <p>
+     * An activity, a group or the starter of a process.
+     * </p>
+     */
+    public static class ActivityEntry {
+        private final String name;
+        private final String group;
+        private final boolean isGroup;
+        String type;
+        String resourceType;
+        String description;
+        String calledProcess;
+        Element config;
+        Element inputBindings;
+
+        ActivityEntry(String name, String group, boolean isGroup) {
+            this.name = name;
+            this.group = group;
+            this.isGroup = isGroup;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the name of the enclosing group, <i>null</i> for a top-level
+         * activity
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        public boolean isGroup() {
+            return isGroup;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getResourceType() {
+            return resourceType;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return the <i>processName</i> of the configuration (for instance
+         * with a "Call Process" or a "Spawn" activity), <i>null</i> if none
+         */
+        public String getCalledProcess() {
+            return calledProcess;
+        }
+
+        /**
+         * @return the <i>config</i> element, <i>null</i> unless kept by the
+         * indexer
+         */
+        public Element getConfig() {
+            return config;
+        }
+
+        /**
+         * @return the <i>inputBindings</i> element, <i>null</i> unless kept by
+         * the indexer
+         */
+        public Element getInputBindings() {
+            return inputBindings;
+        }
+    }
+
+    /**
+     * <p>
+     * A transition between two activities.
+     * </p>
+     */
+    public static class TransitionEntry {
+        private final String group;
+        String from;
+        String to;
+        String conditionType;
+
+        TransitionEntry(String group) {
+            this.group = group;
+        }
+
+        /**
+         * @return the name of the enclosing group, <i>null</i> for a top-level
+         * transition
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public String getConditionType() {
+            return conditionType;
+        }
+    }
+
+    /**
+     * <p>
+     * A label of the process diagram.
+     * </p>
+     */
+    public static class LabelEntry {
+        String name;
+        String description;
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    String name;
+    String description;
+    String startName;
+    String endName;
+    ActivityEntry starter;
+    final List<ActivityEntry> activities = new ArrayList<ActivityEntry>();
+    final List<TransitionEntry> transitions = new ArrayList<TransitionEntry>();
+    final List<LabelEntry> labels = new ArrayList<LabelEntry>();
+
+    ProcessIndex() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the name of the start activity, <i>null</i> when the process
+     * has a starter
+     */
+    public String getStartName() {
+        return startName;
+    }
+
+    public String getEndName() {
+        return endName;
+    }
+
+    /**
+     * @return the process starter, <i>null</i> when the process has a start
+     * activity
+     */
+    public ActivityEntry getStarter() {
+        return starter;
+    }
+
+    /**
+     * @return all the activities and groups of the process, including the
+     * ones nested in groups, in document order
+     */
+    public List<ActivityEntry> getActivities() {
+        return Collections.unmodifiableList(activities);
+    }
+
+    /**
+     * @return all the transitions of the process, including the ones nested
+     * in groups, in document order
+     */
+    public List<TransitionEntry> getTransitions() {
+        return Collections.unmodifiableList(transitions);
+    }
+
+    public List<LabelEntry> getLabels() {
+        return Collections.unmodifiableList(labels);
+    }
+
+    /**
+     * @return the sorted paths of the processes called by the activities of
+     * the process (the starter included)
+     */
+    public Set<String> getCalledProcesses() {
+        Set<String> result = new TreeSet<String>();
+        if (starter != null && starter.calledProcess != null) {
+            result.add(starter.calledProcess);
+        }
+        for (ActivityEntry activity : activities) {
+            if (activity.calledProcess != null) {
+                result.add(activity.calledProcess);
+            }
+        }
+        return result;
+    }
+
+}
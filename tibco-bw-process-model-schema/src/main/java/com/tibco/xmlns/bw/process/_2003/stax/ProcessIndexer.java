@@ -0,0 +1,420 @@
+/*
+ * (C) Copyright 2011-2025 FastConnect SAS
+ * (http://www.fastconnect.fr/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tibco.xmlns.bw.process._2003.stax;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex.ActivityEntry;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex.LabelEntry;
+import com.tibco.xmlns.bw.process._2003.stax.ProcessIndex.TransitionEntry;
+
+/**
+ * <p>
+ * This class reads a TIBCO BusinessWorks process definition (a
+ * <i>ProcessDefinition</i> root-element in the
+ * <i>http://xmlns.tibco.com/bw/process/2003</i> namespace) with a StAX parser
+ * into a {@link ProcessIndex}.
+ * </p>
+ * <p>
+ * Unlike the JAXB unmarshalling of a {@link
+ * com.tibco.xmlns.bw.process._2003.ProcessDefinition}, the <i>config</i> and
+ * <i>inputBindings</i> subtrees of the activities are skipped without
+ * building any DOM (only the <i>processName</i> of the configuration is
+ * read), unless {@link #setKeepConfig(boolean)} is set. The memory used to
+ * index a process does not depend on the size of its mappings.
+ * </p>
+ * <p>
+ * An instance can index several documents concurrently.
+ * </p>
+ */
+public class ProcessIndexer {
+
+    static final String PD = "http://xmlns.tibco.com/bw/process/2003";
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private boolean keepConfig;
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    public boolean isKeepConfig() {
+        return keepConfig;
+    }
+
+    /**
+     * @param keepConfig, whether the <i>config</i> and <i>inputBindings</i>
+     * elements of the activities are kept as DOM elements (default is
+     * <i>false</i>)
+     */
+    public void setKeepConfig(boolean keepConfig) {
+        this.keepConfig = keepConfig;
+    }
+
+    /**
+     * @param process, a ".process" file
+     * @return the index of the process
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public ProcessIndex index(File process) throws IOException, XMLStreamException {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(process))) {
+            return index(input);
+        }
+    }
+
+    /**
+     * @param input, the content of a ".process" file (not closed)
+     * @return the index of the process
+     * @throws XMLStreamException
+     */
+    public ProcessIndex index(InputStream input) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(input);
+        try {
+            return new Indexing(reader).readProcess();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * <p>
+     * The indexing of one document.
+     * </p>
+     */
+    private class Indexing {
+        private final XMLStreamReader reader;
+        private final ProcessIndex index = new ProcessIndex();
+        private final Map<String, String> rootNamespaces = new LinkedHashMap<String, String>();
+        private Document document; // owner of the kept elements, created on first use
+
+        private Indexing(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        private ProcessIndex readProcess() throws XMLStreamException {
+            if (nextTag() != XMLStreamConstants.START_ELEMENT || !"ProcessDefinition".equals(pd())) {
+                throw new XMLStreamException("Expected a 'ProcessDefinition' root-element in namespace '" + PD + "'", reader.getLocation());
+            }
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                rootNamespaces.put(prefix == null ? "" : prefix, reader.getNamespaceURI(i));
+            }
+
+            while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (pd()) {
+                case "name":
+                    index.name = text();
+                    break;
+                case "description":
+                    index.description = text();
+                    break;
+                case "startName":
+                    index.startName = text();
+                    break;
+                case "endName":
+                    index.endName = text();
+                    break;
+                case "starter":
+                    index.starter = new ActivityEntry(reader.getAttributeValue(null, "name"), null, false);
+                    readActivity(index.starter);
+                    break;
+                default:
+                    if (!readNode(null)) {
+                        skip();
+                    }
+                }
+            }
+            return index;
+        }
+
+        /**
+         * This reads the current element if it is an activity, a group, a
+         * transition or a label.
+         *
+         * @param group, the name of the enclosing group
+         * @return false if the current element is none of them
+         */
+        private boolean readNode(String group) throws XMLStreamException {
+            switch (pd()) {
+            case "activity":
+                ActivityEntry activity = new ActivityEntry(reader.getAttributeValue(null, "name"), group, false);
+                index.activities.add(activity);
+                readActivity(activity);
+                return true;
+            case "group":
+                ActivityEntry nested = new ActivityEntry(reader.getAttributeValue(null, "name"), group, true);
+                index.activities.add(nested);
+                readActivity(nested);
+                return true;
+            case "transition":
+                index.transitions.add(readTransition(group));
+                return true;
+            case "label":
+                if (group == null) {
+                    index.labels.add(readLabel());
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+            }
+        }
+
+        private void readActivity(ActivityEntry activity) throws XMLStreamException {
+            while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("config".equals(reader.getLocalName()) && isEmpty(reader.getNamespaceURI())) {
+                    if (keepConfig) {
+                        activity.config = readElement();
+                        activity.calledProcess = getProcessName(activity.config);
+                    } else {
+                        activity.calledProcess = skipConfig();
+                    }
+                    continue;
+                }
+                switch (pd()) {
+                case "type":
+                    activity.type = text();
+                    break;
+                case "resourceType":
+                    activity.resourceType = text();
+                    break;
+                case "description":
+                    activity.description = text();
+                    break;
+                case "inputBindings":
+                    if (keepConfig) {
+                        activity.inputBindings = readElement();
+                    } else {
+                        skip();
+                    }
+                    break;
+                default:
+                    if (!activity.isGroup() || !readNode(activity.getName())) {
+                        skip();
+                    }
+                }
+            }
+        }
+
+        private TransitionEntry readTransition(String group) throws XMLStreamException {
+            TransitionEntry transition = new TransitionEntry(group);
+            while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (pd()) {
+                case "from":
+                    transition.from = text();
+                    break;
+                case "to":
+                    transition.to = text();
+                    break;
+                case "conditionType":
+                    transition.conditionType = text();
+                    break;
+                default:
+                    skip();
+                }
+            }
+            return transition;
+        }
+
+        private LabelEntry readLabel() throws XMLStreamException {
+            LabelEntry label = new LabelEntry();
+            while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (pd()) {
+                case "name":
+                    label.name = text();
+                    break;
+                case "description":
+                    label.description = text();
+                    break;
+                default:
+                    skip();
+                }
+            }
+            return label;
+        }
+
+        /**
+         * This skips a <i>config</i> element, only reading its
+         * <i>processName</i> child.
+         *
+         * @return the text of the <i>processName</i> child, null if none
+         */
+        private String skipConfig() throws XMLStreamException {
+            String processName = null;
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (depth == 1 && "processName".equals(reader.getLocalName()) && isEmpty(reader.getNamespaceURI())) {
+                        processName = processName(reader.getElementText());
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            return processName;
+        }
+
+        private String getProcessName(Element config) {
+            for (Node child = config.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE && "processName".equals(child.getLocalName()) && child.getNamespaceURI() == null) {
+                    return processName(child.getTextContent());
+                }
+            }
+            return null;
+        }
+
+        private String processName(String text) {
+            text = text.trim();
+            return text.isEmpty() ? null : text;
+        }
+
+        /**
+         * This copies the current element into a DOM element. The namespace
+         * declarations of the root-element are copied on the result so that
+         * the prefixes used in XPath expressions can still be resolved.
+         */
+        private Element readElement() throws XMLStreamException {
+            if (document == null) {
+                try {
+                    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                    factory.setNamespaceAware(true);
+                    document = factory.newDocumentBuilder().newDocument();
+                } catch (ParserConfigurationException e) {
+                    throw new XMLStreamException(e);
+                }
+            }
+
+            Element root = createElement();
+            for (Map.Entry<String, String> namespace : rootNamespaces.entrySet()) {
+                String attribute = namespace.getKey().isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + namespace.getKey();
+                if (!root.hasAttribute(attribute)) {
+                    root.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attribute, namespace.getValue());
+                }
+            }
+
+            Node current = root;
+            int depth = 1;
+            while (depth > 0) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    Element element = createElement();
+                    current.appendChild(element);
+                    current = element;
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    current = current.getParentNode();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    current.appendChild(document.createTextNode(reader.getText()));
+                    break;
+                default:
+                }
+            }
+            return root;
+        }
+
+        private Element createElement() {
+            Element element = document.createElementNS(nullIfEmpty(reader.getNamespaceURI()), qualifiedName(reader.getPrefix(), reader.getLocalName()));
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                String attribute = isEmpty(prefix) ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+                element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attribute, reader.getNamespaceURI(i));
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                element.setAttributeNS(nullIfEmpty(reader.getAttributeNamespace(i)), qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+            }
+            return element;
+        }
+
+        private String qualifiedName(String prefix, String localName) {
+            return isEmpty(prefix) ? localName : prefix + ":" + localName;
+        }
+
+        private String nullIfEmpty(String value) {
+            return isEmpty(value) ? null : value;
+        }
+
+        private boolean isEmpty(String value) {
+            return value == null || value.isEmpty();
+        }
+
+        /**
+         * Like {@link XMLStreamReader#nextTag()} but ignores the text between
+         * the elements.
+         */
+        private int nextTag() throws XMLStreamException {
+            while (true) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+                    return event;
+                }
+            }
+        }
+
+        private String pd() {
+            return PD.equals(reader.getNamespaceURI()) ? reader.getLocalName() : "";
+        }
+
+        private String text() throws XMLStreamException {
+            return reader.getElementText();
+        }
+
+        private void skip() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+
+}